@@ -0,0 +1,111 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import com.cburch.draw.model.CanvasObject;
+import com.cburch.draw.model.Drawing;
+import com.cburch.logisim.circuit.appear.CircuitAppearance;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a circuit whose custom appearance has
+ * <code>shapes</code> rectangles, ellipses and lines, and pasting that
+ * many shapes into a drawing. Both end by asking which shapes overlap
+ * one of them, as raising or lowering a shape does, so that the
+ * overlaps among the new shapes are included. The shapes are spread
+ * over an area that grows with their number, so that each overlaps a
+ * few others however many there are.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppearanceBenchmark {
+	@Param({"100", "1000", "5000"})
+	public int shapes;
+
+	private byte[] file;
+	private List<CanvasObject> clipboard;
+
+	@Setup
+	public void setup() throws Exception {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		xml.append("<project source=\"2.7.2\" version=\"1.0\">\n");
+		xml.append(" <main name=\"main\"/>\n");
+		xml.append(" <circuit name=\"main\">\n  <appear>\n");
+		Random random = new Random(1);
+		int extent = 20 * (int) Math.sqrt(shapes);
+		for (int i = 0; i < shapes; i++) {
+			int x = random.nextInt(extent);
+			int y = random.nextInt(extent);
+			int w = 5 + random.nextInt(30);
+			int h = 5 + random.nextInt(30);
+			switch (i % 3) {
+				case 0:
+					xml.append(String.format("   <rect fill=\"none\" height=\"%d\" stroke=\"#000000\""
+						+ " stroke-width=\"2\" width=\"%d\" x=\"%d\" y=\"%d\"/>\n", h, w, x, y));
+					break;
+				case 1:
+					xml.append(String.format("   <ellipse cx=\"%d\" cy=\"%d\" fill=\"#ffffff\""
+						+ " rx=\"%d\" ry=\"%d\" stroke=\"#000000\"/>\n", x, y, w / 2, h / 2));
+					break;
+				default:
+					xml.append(String.format("   <line fill=\"none\" stroke=\"#000000\""
+						+ " x1=\"%d\" x2=\"%d\" y1=\"%d\" y2=\"%d\"/>\n", x, x + w, y, y + h));
+					break;
+			}
+		}
+		xml.append("   <circ-anchor facing=\"east\" height=\"6\" width=\"6\" x=\"0\" y=\"0\"/>\n");
+		xml.append("  </appear>\n </circuit>\n</project>\n");
+		file = xml.toString().getBytes(StandardCharsets.UTF_8);
+
+		clipboard = new ArrayList<>(load().getObjectsFromBottom());
+	}
+
+	private CircuitAppearance load() throws Exception {
+		LogisimFile loaded = new Loader(null).openLogisimFile(new ByteArrayInputStream(file));
+		return loaded.getMainCircuit().getAppearance();
+	}
+
+	@Benchmark
+	public int loadAppearance() throws Exception {
+		CircuitAppearance appearance = load();
+		CanvasObject first = appearance.getObjectsFromBottom().get(0);
+		return appearance.getObjectsOverlapping(first).size();
+	}
+
+	@Benchmark
+	public int paste() {
+		ArrayList<CanvasObject> pasted = new ArrayList<>(clipboard.size());
+		for (CanvasObject shape : clipboard) {
+			pasted.add(shape.clone());
+		}
+		Drawing drawing = new Drawing();
+		drawing.addObjects(0, pasted);
+		return drawing.getObjectsOverlapping(pasted.get(0)).size();
+	}
+}
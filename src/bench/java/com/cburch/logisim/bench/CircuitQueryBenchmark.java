@@ -0,0 +1,96 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.std.gates.Gates;
+import com.cburch.logisim.tools.AddTool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queries the canvas makes on every click and drag: what
+ * lies under a point, what lies within a selection rectangle, and the
+ * circuit's bounds. The circuit is a square grid of <code>gates</code>
+ * AND gates, each with a wire leading into it, so that the latency can
+ * be compared as the circuit grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircuitQueryBenchmark {
+	@Param({"100", "1000", "10000"})
+	public int gates;
+
+	private static final int SPACING = 100;
+	private static final int QUERIES = 1024;
+
+	private Circuit circuit;
+	private Location[] points;
+	private Bounds[] boxes;
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		ComponentFactory and = ((AddTool) new Gates().getTool("AND Gate")).getFactory();
+		circuit = new Circuit("main");
+		CircuitMutation xn = new CircuitMutation(circuit);
+		int side = (int) Math.ceil(Math.sqrt(gates));
+		for (int i = 0; i < gates; i++) {
+			int x = SPACING * (1 + i % side);
+			int y = SPACING * (1 + i / side);
+			xn.add(and.createComponent(Location.create(x, y), and.createAttributeSet()));
+			xn.add(Wire.create(Location.create(x - 70, y - 20), Location.create(x - 50, y - 20)));
+		}
+		xn.execute();
+
+		Random random = new Random(1);
+		int extent = SPACING * (side + 1);
+		points = new Location[QUERIES];
+		boxes = new Bounds[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			points[i] = Location.create(random.nextInt(extent), random.nextInt(extent));
+			boxes[i] = Bounds.create(random.nextInt(extent), random.nextInt(extent),
+				2 * SPACING, 2 * SPACING);
+		}
+	}
+
+	@Benchmark
+	public Object containing() {
+		next = (next + 1) & (QUERIES - 1);
+		return circuit.getAllContaining(points[next]);
+	}
+
+	@Benchmark
+	public Object within() {
+		next = (next + 1) & (QUERIES - 1);
+		return circuit.getAllWithin(boxes[next]);
+	}
+
+	@Benchmark
+	public Object bounds() {
+		return circuit.getBounds();
+	}
+}
@@ -0,0 +1,119 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.util.InternCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Location.create and Value.create from four threads at once,
+ * as the GUI, simulation and painting threads call them, over a working
+ * set of <code>objects</code> distinct locations and bus values. After
+ * each iteration the hit rate of both intern caches is printed, along
+ * with the size they have grown to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class InternCacheBenchmark {
+	@Param({"1000", "20000", "200000"})
+	public int objects;
+
+	private static final BitWidth WIDTH = BitWidth.create(32);
+
+	private int[] xs;
+	private int[] ys;
+	private long[] counts;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		private final Random random = new Random(Thread.currentThread().getId());
+
+		int nextIndex(int bound) {
+			return random.nextInt(bound);
+		}
+	}
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		xs = new int[objects];
+		ys = new int[objects];
+		for (int i = 0; i < objects; i++) {
+			xs[i] = 10 * random.nextInt(1000);
+			ys[i] = 10 * random.nextInt(1000);
+		}
+		counts = new long[4];
+		// load both classes so that their caches are registered
+		Location.create(0, 0);
+		Value.createKnown(WIDTH, 0);
+	}
+
+	@Setup(Level.Iteration)
+	public void mark() {
+		counts[0] = cache("Location").getHits();
+		counts[1] = cache("Location").getMisses();
+		counts[2] = cache("Value").getHits();
+		counts[3] = cache("Value").getMisses();
+	}
+
+	@TearDown(Level.Iteration)
+	public void report() {
+		System.out.println(); //OK
+		System.out.println(rate(cache("Location"), counts[0], counts[1])); //OK
+		System.out.println(rate(cache("Value"), counts[2], counts[3])); //OK
+	}
+
+	@Benchmark
+	public void location(Cursor cursor, Blackhole bh) {
+		int i = cursor.nextIndex(objects);
+		bh.consume(Location.create(xs[i], ys[i]));
+	}
+
+	@Benchmark
+	public void value(Cursor cursor, Blackhole bh) {
+		int i = cursor.nextIndex(objects);
+		bh.consume(Value.createKnown(WIDTH, xs[i] * 1000 + ys[i]));
+	}
+
+	private static InternCache<?> cache(String name) {
+		for (InternCache<?> cache : InternCache.getCaches()) {
+			if (cache.getName().equals(name)) return cache;
+		}
+		throw new IllegalStateException(name);
+	}
+
+	private static String rate(InternCache<?> cache, long hits0, long misses0) {
+		long hits = cache.getHits() - hits0;
+		long misses = cache.getMisses() - misses0;
+		long total = Math.max(1, hits + misses);
+		return cache.getName() + " cache: " + (100 * hits / total) + "% hits of "
+			+ total + " lookups, " + cache.getCapacity() + " entries";
+	}
+}
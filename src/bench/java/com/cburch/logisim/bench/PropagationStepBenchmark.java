@@ -0,0 +1,77 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.proj.Project;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of Propagator's steps themselves, on circuits
+ * where each tick is followed by many steps of few events each: long
+ * chains of NOT gates, and deeply nested subcircuits whose events are
+ * spread over many circuit states. Run with <code>-prof gc</code> (the
+ * default for the bench profile); <code>gc.alloc.rate.norm</code>
+ * divided by the <code>events</code> counter per tick gives the bytes
+ * allocated for each event, which the visited table is meant to keep
+ * down.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropagationStepBenchmark {
+	@Param({ReferenceCircuits.INVERTERS, ReferenceCircuits.HIERARCHY})
+	public String circuit;
+
+	private Propagator prop;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Events {
+		public long events;
+
+		@Setup(Level.Iteration)
+		public void clear() {
+			events = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		LogisimFile file = ReferenceCircuits.load(circuit);
+		Project proj = new Project(file);
+		CircuitState state = new CircuitState(proj, file.getMainCircuit());
+		prop = state.getPropagator();
+		prop.propagate();
+	}
+
+	@Benchmark
+	public void tick(Events counter) {
+		long before = prop.getEventCount();
+		prop.tick();
+		prop.propagate();
+		counter.events += prop.getEventCount() - before;
+	}
+}
@@ -0,0 +1,322 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates the circuits the benchmarks run. Each is built as a
+ * project file and loaded as a user's file would be, so that the
+ * benchmarks go through exactly the same components and wiring.
+ */
+class ReferenceCircuits {
+	static final String RIPPLE = "ripple";
+	static final String CPU = "cpu";
+	static final String HIERARCHY = "hierarchy";
+	static final String SPLITTER = "splitter";
+	static final String LATCHES = "latches";
+	static final String INVERTERS = "inverters";
+
+	/** The words each RAM in the CPU circuit should be loaded with. */
+	static final int RAM_WORDS = 256;
+
+	private final StringBuilder xml = new StringBuilder();
+
+	private ReferenceCircuits() {
+	}
+
+	static LogisimFile load(String name) throws IOException {
+		ReferenceCircuits gen = new ReferenceCircuits();
+		gen.begin();
+		switch (name) {
+			case RIPPLE:
+				gen.rippleAdders(8, 16);
+				break;
+			case CPU:
+				gen.accumulatorCores(64);
+				break;
+			case HIERARCHY:
+				gen.hierarchy(4, 8);
+				break;
+			case SPLITTER:
+				gen.splitterChains(4, 32);
+				break;
+			case LATCHES:
+				gen.latches(8, 8);
+				break;
+			case INVERTERS:
+				gen.inverterChains(20, 100);
+				break;
+			default:
+				throw new IllegalArgumentException(name);
+		}
+		gen.xml.append("</project>\n");
+
+		byte[] bytes = gen.xml.toString().getBytes(StandardCharsets.UTF_8);
+		LogisimFile ret = new Loader(null).openLogisimFile(new ByteArrayInputStream(bytes));
+		if (ret == null) throw new IOException("cannot load " + name);
+		return ret;
+	}
+
+	private void begin() {
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		xml.append("<project source=\"2.7.2\" version=\"1.0\">\n");
+		xml.append(" <lib desc=\"#Wiring\" name=\"0\"/>\n");
+		xml.append(" <lib desc=\"#Gates\" name=\"1\"/>\n");
+		xml.append(" <lib desc=\"#Arithmetic\" name=\"3\"/>\n");
+		xml.append(" <lib desc=\"#Memory\" name=\"4\"/>\n");
+		xml.append(" <main name=\"main\"/>\n");
+	}
+
+	/**
+	 * Rows of full adders chained through their carries, with both
+	 * operands driven by clocks of different periods.
+	 */
+	private void rippleAdders(int rows, int bits) {
+		circuit("main");
+		for (int r = 0; r < rows; r++) {
+			int y = 100 + 80 * r;
+			int last = 200 + 100 * (bits - 1);
+			comp("0", "Clock", 100, y - 20);
+			comp("0", "Clock", 140, y + 10, "highDuration", "2", "lowDuration", "3");
+			wire(140, y + 10, 170, y + 10);
+			for (int k = 0; k < bits; k++) {
+				int x = 200 + 100 * k;
+				comp(null, "adder", x, y);
+				wire(k == 0 ? 100 : x - 130, y - 20, x - 30, y - 20);
+				wire(x - 30, y - 20, x - 30, y);
+				if (k > 0) {
+					wire(x - 100, y, x - 60, y);
+					wire(x - 60, y, x - 60, y + 10);
+					wire(x - 60, y + 10, x - 30, y + 10);
+					wire(x - 100, y + 10, x - 80, y + 10);
+					wire(x - 80, y + 10, x - 80, y + 20);
+					wire(x - 80, y + 20, x - 30, y + 20);
+				}
+			}
+			outputPin("s" + r, last + 50, y);
+			wire(last, y, last + 50, y);
+		}
+		end();
+
+		circuit("adder");
+		inputPin("a", 100, 100);
+		inputPin("b", 100, 140);
+		inputPin("c", 100, 500);
+		outputPin("s", 600, 300);
+		outputPin("co", 600, 450);
+		comp("1", "XOR Gate", 300, 100, "inputs", "2");
+		comp("1", "AND Gate", 300, 200, "inputs", "2");
+		comp("1", "XOR Gate", 400, 300, "inputs", "2");
+		comp("1", "AND Gate", 400, 400, "inputs", "2");
+		comp("1", "OR Gate", 500, 450, "inputs", "2");
+		int[][] wires = {
+			{100, 100, 160, 100}, {160, 80, 160, 100}, {160, 100, 160, 180},
+			{160, 80, 240, 80}, {160, 180, 250, 180},
+			{100, 140, 180, 140}, {180, 120, 180, 140}, {180, 140, 180, 220},
+			{180, 120, 240, 120}, {180, 220, 250, 220},
+			{100, 500, 200, 500}, {200, 320, 200, 420}, {200, 420, 200, 500},
+			{200, 320, 340, 320}, {200, 420, 350, 420},
+			{300, 100, 320, 100}, {320, 100, 320, 280}, {320, 280, 320, 380},
+			{320, 280, 340, 280}, {320, 380, 350, 380},
+			{300, 200, 310, 200}, {310, 200, 310, 430}, {310, 430, 450, 430},
+			{400, 400, 420, 400}, {420, 400, 420, 470}, {420, 470, 450, 470},
+			{400, 300, 600, 300}, {500, 450, 600, 450},
+		};
+		for (int[] w : wires) wire(w[0], w[1], w[2], w[3]);
+		end();
+	}
+
+	/**
+	 * Small accumulator machines: a program counter addresses a RAM
+	 * whose output is added into a register on every clock.
+	 */
+	private void accumulatorCores(int cores) {
+		circuit("main");
+		for (int i = 0; i < cores; i++) {
+			int x = 100 + 600 * (i % 8);
+			int y = 100 + 200 * (i / 8);
+			comp("0", "Clock", x + 20, y + 80);
+			wire(x + 20, y + 80, x + 80, y + 80);
+			wire(x + 80, y + 80, x + 80, y + 20);
+			wire(x + 80, y + 80, x + 440, y + 80);
+			wire(x + 440, y + 80, x + 440, y + 30);
+
+			comp("4", "Counter", x + 100, y);
+			wire(x + 100, y, x + 160, y);
+			comp("4", "RAM", x + 300, y, "bus", "asynch");
+			wire(x + 300, y, x + 360, y);
+			comp("3", "Adder", x + 400, y + 10);
+			wire(x + 400, y + 10, x + 430, y + 10);
+			comp("4", "Register", x + 460, y + 10);
+			wire(x + 460, y + 10, x + 480, y + 10);
+			wire(x + 480, y + 10, x + 480, y + 60);
+			wire(x + 480, y + 60, x + 340, y + 60);
+			wire(x + 340, y + 60, x + 340, y + 20);
+			wire(x + 340, y + 20, x + 360, y + 20);
+		}
+		end();
+	}
+
+	/**
+	 * Subcircuits nested <code>depth</code> deep, each level holding
+	 * two copies of the level below side by side with their outputs
+	 * joined by an OR gate, with NOT gates at the bottom.
+	 */
+	private void hierarchy(int rows, int depth) {
+		circuit("main");
+		for (int r = 0; r < rows; r++) {
+			int y = 100 + 50 * r;
+			comp("0", "Clock", 100, y);
+			wire(100, y, 170, y);
+			comp(null, "level" + depth, 200, y);
+		}
+		end();
+
+		circuit("level0");
+		inputPin("in", 100, 100);
+		comp("1", "NOT Gate", 200, 100);
+		outputPin("out", 300, 100);
+		wire(100, 100, 170, 100);
+		wire(200, 100, 300, 100);
+		end();
+		for (int d = 1; d <= depth; d++) {
+			circuit("level" + d);
+			inputPin("in", 100, 100);
+			comp(null, "level" + (d - 1), 250, 100);
+			comp(null, "level" + (d - 1), 250, 200);
+			comp("1", "OR Gate", 400, 150, "inputs", "2");
+			outputPin("out", 450, 150);
+			wire(100, 100, 200, 100);
+			wire(200, 100, 220, 100);
+			wire(200, 100, 200, 200);
+			wire(200, 200, 220, 200);
+			wire(250, 100, 300, 100);
+			wire(300, 100, 300, 130);
+			wire(300, 130, 350, 130);
+			wire(250, 200, 320, 200);
+			wire(320, 200, 320, 170);
+			wire(320, 170, 350, 170);
+			wire(400, 150, 450, 150);
+			end();
+		}
+	}
+
+	/**
+	 * A 32-bit counter feeding chains of stages, each of which splits
+	 * the bus into single bits, gathers them again, and inverts it.
+	 */
+	private void splitterChains(int rows, int stages) {
+		circuit("main");
+		for (int r = 0; r < rows; r++) {
+			int y = 200 + 400 * r;
+			comp("0", "Clock", 100, y + 20);
+			wire(100, y + 20, 130, y + 20);
+			comp("4", "Counter", 150, y, "width", "32", "max", "0xffffffff");
+			wire(150, y, 200, y);
+			for (int k = 0; k < stages; k++) {
+				int x = 200 + 100 * k;
+				comp("0", "Splitter", x, y, "appear", "center",
+					"fanout", "32", "incoming", "32");
+				comp("0", "Splitter", x + 40, y, "facing", "west", "appear", "center",
+					"fanout", "32", "incoming", "32");
+				comp("1", "NOT Gate", x + 70, y, "width", "32");
+				wire(x + 70, y, x + 100, y);
+			}
+		}
+		end();
+	}
+
+	/**
+	 * SR latches built from cross-coupled NOR gates, with S and R
+	 * driven by the same clock so that every release of both inputs
+	 * sets the latch oscillating.
+	 */
+	private void latches(int rows, int cols) {
+		circuit("main");
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				int x = 100 + 200 * c;
+				int y = 100 + 160 * r;
+				comp("0", "Clock", x, y - 20);
+				wire(x, y - 20, x + 10, y - 20);
+				wire(x + 10, y - 20, x + 40, y - 20);
+				wire(x + 10, y - 20, x + 10, y + 100);
+				wire(x + 10, y + 100, x + 40, y + 100);
+				comp("1", "NOR Gate", x + 100, y, "inputs", "2");
+				comp("1", "NOR Gate", x + 100, y + 80, "inputs", "2");
+				// Q back to the second gate
+				wire(x + 100, y, x + 110, y);
+				wire(x + 110, y, x + 110, y + 40);
+				wire(x + 110, y + 40, x + 30, y + 40);
+				wire(x + 30, y + 40, x + 30, y + 60);
+				wire(x + 30, y + 60, x + 40, y + 60);
+				// not-Q back to the first gate
+				wire(x + 100, y + 80, x + 120, y + 80);
+				wire(x + 120, y + 80, x + 120, y + 30);
+				wire(x + 120, y + 30, x + 20, y + 30);
+				wire(x + 20, y + 30, x + 20, y + 20);
+				wire(x + 20, y + 20, x + 40, y + 20);
+			}
+		}
+		end();
+	}
+
+	/**
+	 * Rows of NOT gates chained one after another, each row driven by
+	 * a clock, so that every tick is followed by a long run of small
+	 * propagation steps.
+	 */
+	private void inverterChains(int rows, int length) {
+		circuit("main");
+		for (int r = 0; r < rows; r++) {
+			int y = 100 + 40 * r;
+			comp("0", "Clock", 100, y);
+			for (int k = 0; k < length; k++) {
+				int x = 200 + 60 * k;
+				wire(k == 0 ? 100 : x - 60, y, x - 30, y);
+				comp("1", "NOT Gate", x, y);
+			}
+		}
+		end();
+	}
+
+	private void circuit(String name) {
+		xml.append(" <circuit name=\"").append(name).append("\">\n");
+	}
+
+	private void end() {
+		xml.append(" </circuit>\n");
+	}
+
+	private void inputPin(String label, int x, int y) {
+		comp("0", "Pin", x, y, "tristate", "false", "label", label);
+	}
+
+	private void outputPin(String label, int x, int y) {
+		comp("0", "Pin", x, y, "facing", "west", "output", "true", "label", label);
+	}
+
+	private void comp(String lib, String name, int x, int y, String... attrs) {
+		xml.append("  <comp");
+		if (lib != null) xml.append(" lib=\"").append(lib).append('"');
+		xml.append(" loc=\"(").append(x).append(',').append(y).append(")\"");
+		xml.append(" name=\"").append(name).append("\">");
+		for (int i = 0; i < attrs.length; i += 2) {
+			xml.append("<a name=\"").append(attrs[i]).append("\" val=\"")
+				.append(attrs[i + 1]).append("\"/>");
+		}
+		xml.append("</comp>\n");
+	}
+
+	private void wire(int x0, int y0, int x1, int y1) {
+		xml.append("  <wire from=\"(").append(x0).append(',').append(y0)
+			.append(")\" to=\"(").append(x1).append(',').append(y1).append(")\"/>\n");
+	}
+}
@@ -0,0 +1,105 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.memory.Ram;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast the simulator runs each reference circuit. The
+ * score is clock ticks per second, each tick followed by propagation
+ * until the circuit settles (or is found oscillating), as in
+ * <code>-tty speed</code>; the <code>events</code> counter reports the
+ * value changes Propagator scheduled per second. Run with
+ * <code>-prof gc</code> (the default for the bench profile) to see the
+ * allocation rate as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulatorBenchmark {
+	@Param({ReferenceCircuits.RIPPLE, ReferenceCircuits.CPU,
+		ReferenceCircuits.HIERARCHY, ReferenceCircuits.SPLITTER,
+		ReferenceCircuits.LATCHES})
+	public String circuit;
+
+	private Propagator prop;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Events {
+		public long events;
+
+		@Setup(Level.Iteration)
+		public void clear() {
+			events = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		LogisimFile file = ReferenceCircuits.load(circuit);
+		Project proj = new Project(file);
+		CircuitState state = new CircuitState(proj, file.getMainCircuit());
+		prop = state.getPropagator();
+		prop.propagate();
+		loadRam(state);
+		prop.propagate();
+	}
+
+	@Benchmark
+	public void tick(Events counter) {
+		long before = prop.getEventCount();
+		prop.tick();
+		prop.propagate();
+		counter.events += prop.getEventCount() - before;
+	}
+
+	private static void loadRam(CircuitState state) throws IOException {
+		File image = File.createTempFile("bench", ".hex");
+		try {
+			try (Writer out = new FileWriter(image)) {
+				out.write("v2.0 raw\n");
+				for (int i = 0; i < ReferenceCircuits.RAM_WORDS; i++) {
+					out.write(Integer.toHexString((i * 37 + 11) & 0xff));
+					out.write('\n');
+				}
+			}
+			for (Component comp : state.getCircuit().getNonWires()) {
+				if (comp.getFactory() instanceof Ram) {
+					((Ram) comp.getFactory()).loadImage(state.getInstanceState(comp), image);
+				}
+			}
+		} finally {
+			image.delete();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Value operations that wires and gates use most, on a
+ * working set of <code>values</code> distinct bus values, so that the
+ * intern table is exercised the way a circuit with that many busy
+ * buses would. Each operation covers the whole working set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueBenchmark {
+	@Param({"16", "32"})
+	public int width;
+
+	@Param({"64", "4096"})
+	public int values;
+
+	private BitWidth bits;
+	private int[] known;
+	private Value[] left;
+	private Value[] right;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		bits = BitWidth.create(width);
+		known = new int[values];
+		left = new Value[values];
+		right = new Value[values];
+		for (int i = 0; i < values; i++) {
+			known[i] = random.nextInt();
+			left[i] = Value.createKnown(bits, known[i]);
+			Value[] mixed = new Value[width];
+			for (int j = 0; j < width; j++) {
+				mixed[j] = random.nextInt(4) == 0 ? Value.UNKNOWN : left[i].get(j);
+			}
+			right[i] = Value.create(mixed);
+		}
+	}
+
+	@Benchmark
+	public void create(Blackhole bh) {
+		for (int v : known) {
+			bh.consume(Value.createKnown(bits, v));
+		}
+	}
+
+	@Benchmark
+	public void combine(Blackhole bh) {
+		for (int i = 0; i < left.length; i++) {
+			bh.consume(left[i].combine(right[i]));
+		}
+	}
+
+	@Benchmark
+	public void get(Blackhole bh) {
+		for (Value v : right) {
+			for (int j = 0; j < width; j++) {
+				bh.consume(v.get(j));
+			}
+		}
+	}
+}
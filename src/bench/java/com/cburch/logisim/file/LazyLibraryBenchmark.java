@@ -0,0 +1,83 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.file;
+
+import com.cburch.logisim.circuit.Circuit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a library of <code>circuits</code> circuits, each of
+ * forty gates, and then using one of them, as a project does when it
+ * places a single circuit from a shared library. Read eagerly, every
+ * circuit is built; read lazily, only the one used.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LazyLibraryBenchmark {
+	@Param({"100", "1000"})
+	public int circuits;
+
+	private byte[] file;
+
+	@Setup
+	public void setup() {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		xml.append("<project source=\"2.7.2\" version=\"1.0\">\n");
+		xml.append(" <lib desc=\"#Wiring\" name=\"0\"/>\n");
+		xml.append(" <lib desc=\"#Gates\" name=\"1\"/>\n");
+		for (int c = 0; c < circuits; c++) {
+			xml.append(String.format(" <circuit name=\"c%d\">\n", c));
+			xml.append(String.format("  <a name=\"circuit\" val=\"c%d\"/>\n", c));
+			xml.append("  <comp lib=\"0\" loc=\"(40,100)\" name=\"Pin\"/>\n");
+			for (int i = 0; i < 40; i++) {
+				int x = 100 + 100 * (i % 10);
+				int y = 100 + 60 * (i / 10);
+				xml.append(String.format("  <comp lib=\"1\" loc=\"(%d,%d)\" name=\"%s\"/>\n",
+					x, y, i % 2 == 0 ? "AND Gate" : "OR Gate"));
+				xml.append(String.format("  <wire from=\"(%d,%d)\" to=\"(%d,%d)\"/>\n",
+					x, y, x + 20, y));
+			}
+			xml.append(" </circuit>\n");
+		}
+		xml.append("</project>\n");
+		file = xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private int loadAndUse(boolean lazy) throws Exception {
+		LogisimFile loaded = new XmlReader(new Loader(null), lazy)
+			.readLibrary(new ByteArrayInputStream(file));
+		Circuit used = loaded.getCircuit("c0");
+		return used.getAppearance().getOffsetBounds().getWidth()
+			+ used.getNonWires().size();
+	}
+
+	@Benchmark
+	public int eager() throws Exception {
+		return loadAndUse(false);
+	}
+
+	@Benchmark
+	public int lazy() throws Exception {
+		return loadAndUse(true);
+	}
+}
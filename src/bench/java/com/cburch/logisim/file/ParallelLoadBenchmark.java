@@ -0,0 +1,117 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.file;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures opening a project that refers to <code>libraries</code>
+ * library files, each of fifty circuits, and whose main circuits, one
+ * for each library, use a circuit from it. The project is opened both as
+ * it is on this machine and with the JVM told it has one processor, so
+ * that every library and circuit is loaded in turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParallelLoadBenchmark {
+	@Param({"10", "30"})
+	public int libraries;
+
+	private File dir;
+	private File project;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("logisim-bench").toFile();
+		StringBuilder main = new StringBuilder(header());
+		for (int i = 0; i < libraries; i++) {
+			StringBuilder lib = new StringBuilder(header());
+			for (int c = 0; c < 50; c++) {
+				lib.append(circuit("l" + i + "c" + c, "", 20));
+			}
+			lib.append("</project>\n");
+			write(new File(dir, "l" + i + ".circ"), lib);
+			main.append(String.format(" <lib desc=\"file#l%d.circ\" name=\"%d\"/>\n", i, i + 2));
+		}
+		for (int i = 0; i < libraries; i++) {
+			main.append(circuit("main" + i, String.format(
+				"  <comp lib=\"%d\" loc=\"(600,600)\" name=\"l%dc0\"/>\n", i + 2, i), 200));
+		}
+		main.append("</project>\n");
+		project = new File(dir, "main.circ");
+		write(project, main);
+	}
+
+	private static String header() {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+			+ "<project source=\"2.7.2\" version=\"1.0\">\n"
+			+ " <lib desc=\"#Wiring\" name=\"0\"/>\n"
+			+ " <lib desc=\"#Gates\" name=\"1\"/>\n";
+	}
+
+	// a circuit of gates in rows of ten, each wired to its right, with a
+	// pin for the circuit's appearance
+	private static String circuit(String name, String extra, int gates) {
+		StringBuilder ret = new StringBuilder();
+		ret.append(String.format(" <circuit name=\"%s\">\n", name));
+		ret.append(String.format("  <a name=\"circuit\" val=\"%s\"/>\n", name));
+		ret.append("  <comp lib=\"0\" loc=\"(40,100)\" name=\"Pin\"/>\n");
+		for (int i = 0; i < gates; i++) {
+			int x = 100 + 100 * (i % 10);
+			int y = 100 + 60 * (i / 10);
+			ret.append(String.format("  <comp lib=\"1\" loc=\"(%d,%d)\" name=\"%s\"/>\n",
+				x, y, i % 2 == 0 ? "AND Gate" : "OR Gate"));
+			ret.append(String.format("  <wire from=\"(%d,%d)\" to=\"(%d,%d)\"/>\n",
+				x, y, x + 20, y));
+		}
+		ret.append(extra);
+		ret.append(" </circuit>\n");
+		return ret.toString();
+	}
+
+	private static void write(File file, StringBuilder contents) throws IOException {
+		Files.write(file.toPath(), contents.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@TearDown
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) file.delete();
+		}
+		dir.delete();
+	}
+
+	@Benchmark
+	@Fork(1)
+	public int open() throws LoadFailedException {
+		return new Loader(null).openLogisimFile(project).getLibraries().size();
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-XX:ActiveProcessorCount=1")
+	public int openInTurn() throws LoadFailedException {
+		return new Loader(null).openLogisimFile(project).getLibraries().size();
+	}
+}
@@ -0,0 +1,100 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.file;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and saving the file of XmlReaderBenchmark, with
+ * <code>gates</code> gates, as XML and in the binary form. The size
+ * counter is the size of the file each benchmark reads or writes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectFormatBenchmark {
+	@Param({"1000", "10000"})
+	public int gates;
+
+	private LogisimFile file;
+	private byte[] xml;
+	private byte[] binary;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Size {
+		public double fileKilobytes;
+
+		@Setup(Level.Iteration)
+		public void clear() {
+			fileKilobytes = 0.0;
+		}
+
+		void record(int bytes) {
+			fileKilobytes = bytes / 1024.0;
+		}
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		Loader loader = new Loader(null);
+		file = LogisimFile.load(new ByteArrayInputStream(
+			XmlReaderBenchmark.generate(gates)), loader);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		file.write(out, loader);
+		xml = out.toByteArray();
+		out = new ByteArrayOutputStream();
+		file.writeBinary(out, loader);
+		binary = out.toByteArray();
+	}
+
+	@Benchmark
+	public int loadXml(Size size) throws Exception {
+		size.record(xml.length);
+		return LogisimFile.load(new ByteArrayInputStream(xml), new Loader(null))
+			.getCircuitCount();
+	}
+
+	@Benchmark
+	public int loadBinary(Size size) throws Exception {
+		size.record(binary.length);
+		return LogisimFile.load(new ByteArrayInputStream(binary), new Loader(null))
+			.getCircuitCount();
+	}
+
+	@Benchmark
+	public int saveXml(Size size) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(xml.length);
+		file.write(out, file.getLoader());
+		size.record(out.size());
+		return out.size();
+	}
+
+	@Benchmark
+	public int saveBinary(Size size) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(binary.length);
+		file.writeBinary(out, file.getLoader());
+		size.record(out.size());
+		return out.size();
+	}
+}
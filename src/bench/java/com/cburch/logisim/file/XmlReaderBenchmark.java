@@ -0,0 +1,135 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.file;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a file whose main circuit holds <code>gates</code>
+ * gates, each wired to the next, and a subcircuit used by the main
+ * circuit but defined after it, both through the document as the DOM
+ * path reads it and as the file is streamed. The peak heap counter is
+ * the most the heap held while each load ran; it includes garbage the
+ * collector had not yet reclaimed, so it is an upper bound, but the
+ * document the DOM path builds shows in it as the file grows. This lives
+ * in the file package so that it can reach the reader directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlReaderBenchmark {
+	@Param({"1000", "10000", "50000"})
+	public int gates;
+
+	private byte[] file;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Heap {
+		public double peakHeapMegabytes;
+
+		@Setup(Level.Iteration)
+		public void clear() {
+			peakHeapMegabytes = 0.0;
+		}
+
+		void start() {
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+			}
+		}
+
+		void stop() {
+			long peak = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+			}
+			peakHeapMegabytes = Math.max(peakHeapMegabytes, peak / (1024.0 * 1024.0));
+		}
+	}
+
+	@Setup
+	public void setup() {
+		file = generate(gates);
+	}
+
+	// a main circuit of gates each wired to the next, followed by a
+	// subcircuit the main circuit uses
+	static byte[] generate(int gates) {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		xml.append("<project source=\"2.7.2\" version=\"1.0\">\n");
+		xml.append(" <lib desc=\"#Wiring\" name=\"0\"/>\n");
+		xml.append(" <lib desc=\"#Gates\" name=\"1\"/>\n");
+		xml.append(" <main name=\"main\"/>\n");
+		xml.append(" <circuit name=\"main\">\n");
+		xml.append("  <a name=\"circuit\" val=\"main\"/>\n");
+		int columns = 100;
+		for (int i = 0; i < gates; i++) {
+			int x = 100 + 100 * (i % columns);
+			int y = 100 + 60 * (i / columns);
+			xml.append(String.format("  <comp lib=\"1\" loc=\"(%d,%d)\" name=\"%s\">\n"
+				+ "   <a name=\"inputs\" val=\"2\"/>\n  </comp>\n",
+				x, y, i % 2 == 0 ? "AND Gate" : "OR Gate"));
+			if (i % columns != columns - 1) {
+				xml.append(String.format("  <wire from=\"(%d,%d)\" to=\"(%d,%d)\"/>\n"
+					+ "  <wire from=\"(%d,%d)\" to=\"(%d,%d)\"/>\n"
+					+ "  <wire from=\"(%d,%d)\" to=\"(%d,%d)\"/>\n",
+					x, y, x + 20, y, x + 20, y, x + 20, y - 10, x + 20, y - 10, x + 50, y - 10));
+			}
+		}
+		xml.append("  <comp loc=\"(100,40)\" name=\"sub\"/>\n");
+		xml.append(" </circuit>\n");
+		xml.append(" <circuit name=\"sub\">\n");
+		xml.append("  <a name=\"circuit\" val=\"sub\"/>\n");
+		xml.append("  <comp lib=\"0\" loc=\"(100,100)\" name=\"Pin\"/>\n");
+		xml.append(" </circuit>\n");
+		xml.append("</project>\n");
+		return xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public int dom(Heap heap) throws Exception {
+		heap.start();
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document doc = factory.newDocumentBuilder().parse(new ByteArrayInputStream(file));
+		LogisimFile loaded = new XmlReader(new Loader(null)).readLibrary(doc);
+		heap.stop();
+		return loaded.getCircuits().size();
+	}
+
+	@Benchmark
+	public int stream(Heap heap) throws Exception {
+		heap.start();
+		LogisimFile loaded = new XmlReader(new Loader(null))
+			.readLibrary(new ByteArrayInputStream(file));
+		heap.stop();
+		return loaded.getCircuits().size();
+	}
+}
@@ -3,15 +3,29 @@
 
 package com.cburch.draw.model;
 
+import com.cburch.logisim.data.Bounds;
+
 import java.util.*;
 
+/**
+ * Remembers which shapes of a drawing overlap which. Tested shapes are
+ * filed in a uniform grid by their bounds, so that a new shape is only
+ * tested against the shapes whose bounds it intersects; shapes whose
+ * bounds merely touch cannot overlap.
+ */
 class DrawingOverlaps {
+	private static final int CELL_BITS = 5; // 32-pixel cells
+
 	private final Map<CanvasObject, List<CanvasObject>> map;
 	private final Set<CanvasObject> untested;
+	private final Map<Long, List<CanvasObject>> cells;
+	private final Map<CanvasObject, Bounds> filed; // bounds when tested
 
 	public DrawingOverlaps() {
 		map = new HashMap<>();
 		untested = new HashSet<>();
+		cells = new HashMap<>();
+		filed = new HashMap<>();
 	}
 
 	public Collection<CanvasObject> getObjectsOverlapping(CanvasObject o) {
@@ -27,14 +41,16 @@ class DrawingOverlaps {
 
 	private void ensureUpdated() {
 		for (CanvasObject o : untested) {
+			Bounds bds = o.getBounds();
 			ArrayList<CanvasObject> over = new ArrayList<>();
-			for (CanvasObject o2 : map.keySet()) {
+			for (CanvasObject o2 : getCandidates(bds)) {
 				if (o != o2 && o.overlaps(o2)) {
 					over.add(o2);
 					addOverlap(o2, o);
 				}
 			}
 			map.put(o, over);
+			file(o, bds);
 		}
 		untested.clear();
 	}
@@ -46,12 +62,75 @@ class DrawingOverlaps {
 		}
 	}
 
+	private Collection<CanvasObject> getCandidates(Bounds bds) {
+		LinkedHashSet<CanvasObject> ret = new LinkedHashSet<>();
+		int x0 = bds.getX() >> CELL_BITS;
+		int y0 = bds.getY() >> CELL_BITS;
+		int x1 = (bds.getX() + bds.getWidth()) >> CELL_BITS;
+		int y1 = (bds.getY() + bds.getHeight()) >> CELL_BITS;
+		for (int x = x0; x <= x1; x++) {
+			for (int y = y0; y <= y1; y++) {
+				List<CanvasObject> cell = cells.get(key(x, y));
+				if (cell == null) continue;
+				for (CanvasObject o : cell) {
+					if (intersects(filed.get(o), bds)) ret.add(o);
+				}
+			}
+		}
+		return ret;
+	}
+
+	private void file(CanvasObject o, Bounds bds) {
+		filed.put(o, bds);
+		int x0 = bds.getX() >> CELL_BITS;
+		int y0 = bds.getY() >> CELL_BITS;
+		int x1 = (bds.getX() + bds.getWidth()) >> CELL_BITS;
+		int y1 = (bds.getY() + bds.getHeight()) >> CELL_BITS;
+		for (int x = x0; x <= x1; x++) {
+			for (int y = y0; y <= y1; y++) {
+				cells.computeIfAbsent(key(x, y), k -> new ArrayList<>(4)).add(o);
+			}
+		}
+	}
+
+	private void unfile(CanvasObject o) {
+		Bounds bds = filed.remove(o);
+		if (bds == null) return;
+		int x0 = bds.getX() >> CELL_BITS;
+		int y0 = bds.getY() >> CELL_BITS;
+		int x1 = (bds.getX() + bds.getWidth()) >> CELL_BITS;
+		int y1 = (bds.getY() + bds.getHeight()) >> CELL_BITS;
+		for (int x = x0; x <= x1; x++) {
+			for (int y = y0; y <= y1; y++) {
+				Long k = key(x, y);
+				List<CanvasObject> cell = cells.get(k);
+				if (cell != null) {
+					cell.remove(o);
+					if (cell.isEmpty()) cells.remove(k);
+				}
+			}
+		}
+	}
+
+	// whether the intersection has some area, as overlaps requires
+	private static boolean intersects(Bounds a, Bounds b) {
+		return a.getX() < b.getX() + b.getWidth()
+			&& b.getX() < a.getX() + a.getWidth()
+			&& a.getY() < b.getY() + b.getHeight()
+			&& b.getY() < a.getY() + a.getHeight();
+	}
+
+	private static Long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
 	public void addShape(CanvasObject shape) {
 		untested.add(shape);
 	}
 
 	public void removeShape(CanvasObject shape) {
 		untested.remove(shape);
+		unfile(shape);
 		List<CanvasObject> mapped = map.remove(shape);
 		if (mapped != null) {
 			for (CanvasObject o : mapped) {
@@ -6,6 +6,8 @@ package com.cburch.logisim.circuit;
 import com.cburch.logisim.circuit.appear.CircuitAppearance;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.*;
+import com.cburch.logisim.data.AttributeEvent;
+import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
@@ -30,16 +32,26 @@ public class Circuit {
 	// wires is package-protected for CircuitState and Analyze only.
 	private final ArrayList<Component> clocks = new ArrayList<>();
 	private final CircuitLocker locker;
-	private final WeakHashMap<Component, Circuit> circuitsUsingThis;
+	private final Map<Component, Circuit> circuitsUsingThis; // added to by circuits loaded at once
 	CircuitWires wires = new CircuitWires();
 	private HashSet<Component> comps = new HashSet<>(); // doesn't include wires
+	private SpatialIndex index = new SpatialIndex(); // includes wires
+	private final IdentityHashMap<AttributeSet, Component> attrOwners
+		= new IdentityHashMap<>();
+	// compiled and changeCount are package-protected for CompiledCircuit only.
+	volatile CompiledCircuit compiled = null;
+	volatile int changeCount = 0;
+	// clockChangeCount is package-protected for ClockCache only.
+	volatile int clockChangeCount = 0;
+	private volatile Runnable builder = null; // until the contents are built
+	private boolean building = false;
 
 	public Circuit(String name) {
 		appearance = new CircuitAppearance(this);
 		staticAttrs = CircuitAttributes.createBaseAttrs(this, name);
 		subcircuitFactory = new SubcircuitFactory(this);
 		locker = new CircuitLocker();
-		circuitsUsingThis = new WeakHashMap<>();
+		circuitsUsingThis = Collections.synchronizedMap(new WeakHashMap<>());
 	}
 
 	//
@@ -53,18 +65,52 @@ public class Circuit {
 		return locker;
 	}
 
+	/**
+	 * Has the circuit's wires, components and appearance added by the
+	 * builder when they are first needed, rather than now. Until then the
+	 * circuit has only its name and static attributes.
+	 */
+	public void setBuilder(Runnable value) {
+		builder = value;
+	}
+
+	void ensureBuilt() {
+		if (builder != null) build();
+	}
+
+	// the thread running the builder sees the circuit as it is built;
+	// any other waits until it is done
+	private synchronized void build() {
+		Runnable toRun = builder;
+		if (toRun == null || building) return;
+		building = true;
+		try {
+			toRun.run();
+		} finally {
+			building = false;
+			builder = null;
+		}
+	}
+
 	public Collection<Circuit> getCircuitsUsingThis() {
-		return circuitsUsingThis.values();
+		synchronized (circuitsUsingThis) {
+			return new ArrayList<>(circuitsUsingThis.values());
+		}
 	}
 
 	public void mutatorClear() {
+		ensureBuilt();
 		locker.checkForWritePermission("clear");
 
 		Set<Component> oldComps = comps;
 		comps = new HashSet<>();
 		wires = new CircuitWires();
+		index = new SpatialIndex();
+		attrOwners.clear();
 		clocks.clear();
+		clockChangeCount++;
 		for (Component comp : oldComps) {
+			comp.getAttributeSet().removeAttributeListener(myComponentListener);
 			if (comp.getFactory() instanceof SubcircuitFactory) {
 				SubcircuitFactory sub = (SubcircuitFactory) comp.getFactory();
 				sub.getSubcircuit().circuitsUsingThis.remove(comp);
@@ -98,6 +144,7 @@ public class Circuit {
 	}
 
 	private void fireEvent(CircuitEvent event) {
+		changeCount++;
 		for (CircuitListener l : listeners) {
 			l.circuitChanged(event);
 		}
@@ -118,6 +165,7 @@ public class Circuit {
 	}
 
 	public CircuitAppearance getAppearance() {
+		ensureBuilt();
 		return appearance;
 	}
 
@@ -126,22 +174,27 @@ public class Circuit {
 	}
 
 	public Set<WidthIncompatibilityData> getWidthIncompatibilityData() {
+		ensureBuilt();
 		return wires.getWidthIncompatibilityData();
 	}
 
 	public BitWidth getWidth(Location p) {
+		ensureBuilt();
 		return wires.getWidth(p);
 	}
 
 	public Location getWidthDeterminant(Location p) {
+		ensureBuilt();
 		return wires.getWidthDeterminant(p);
 	}
 
 	public boolean hasConflict(Component comp) {
+		ensureBuilt();
 		return wires.points.hasConflict(comp);
 	}
 
 	public Component getExclusive(Location loc) {
+		ensureBuilt();
 		return wires.points.getExclusive(loc);
 	}
 
@@ -150,34 +203,42 @@ public class Circuit {
 	}
 
 	public boolean contains(Component c) {
+		ensureBuilt();
 		return comps.contains(c) || wires.getWires().contains(c);
 	}
 
 	public Set<Wire> getWires() {
+		ensureBuilt();
 		return wires.getWires();
 	}
 
 	public Set<Component> getNonWires() {
+		ensureBuilt();
 		return comps;
 	}
 
 	public Collection<? extends Component> getComponents(Location loc) {
+		ensureBuilt();
 		return wires.points.getComponents(loc);
 	}
 
 	public Collection<? extends Component> getSplitCauses(Location loc) {
+		ensureBuilt();
 		return wires.points.getSplitCauses(loc);
 	}
 
 	public Collection<Wire> getWires(Location loc) {
+		ensureBuilt();
 		return wires.points.getWires(loc);
 	}
 
 	public Collection<? extends Component> getNonWires(Location loc) {
+		ensureBuilt();
 		return wires.points.getNonWires(loc);
 	}
 
 	public boolean isConnected(Location loc, Component ignore) {
+		ensureBuilt();
 		for (Component o : wires.points.getComponents(loc)) {
 			if (o != ignore) return true;
 		}
@@ -185,68 +246,48 @@ public class Circuit {
 	}
 
 	public Set<Location> getSplitLocations() {
+		ensureBuilt();
 		return wires.points.getSplitLocations();
 	}
 
 	public Collection<Component> getAllContaining(Location pt) {
-		HashSet<Component> ret = new HashSet<>();
-		for (Component comp : getComponents()) {
-			if (comp.contains(pt)) ret.add(comp);
-		}
+		ensureBuilt();
+		ArrayList<Component> ret = index.getCandidates(pt, null);
+		ret.removeIf(comp -> !comp.contains(pt));
 		return ret;
 	}
 
 	public Collection<Component> getAllContaining(Location pt, Graphics g) {
-		HashSet<Component> ret = new HashSet<>();
-		for (Component comp : getComponents()) {
-			if (comp.contains(pt, g)) ret.add(comp);
-		}
+		ensureBuilt();
+		ArrayList<Component> ret = index.getCandidates(pt, g);
+		ret.removeIf(comp -> !comp.contains(pt, g));
 		return ret;
 	}
 
 	public Collection<Component> getAllWithin(Bounds bds) {
-		HashSet<Component> ret = new HashSet<>();
-		for (Component comp : getComponents()) {
-			if (bds.contains(comp.getBounds())) ret.add(comp);
-		}
+		ensureBuilt();
+		HashSet<Component> ret = index.getCandidates(bds, null);
+		ret.removeIf(comp -> !bds.contains(comp.getBounds()));
 		return ret;
 	}
 
 	public Collection<Component> getAllWithin(Bounds bds, Graphics g) {
-		HashSet<Component> ret = new HashSet<>();
-		for (Component comp : getComponents()) {
-			if (bds.contains(comp.getBounds(g))) ret.add(comp);
-		}
+		ensureBuilt();
+		HashSet<Component> ret = index.getCandidates(bds, g);
+		ret.removeIf(comp -> !bds.contains(comp.getBounds(g)));
 		return ret;
 	}
 
 	public WireSet getWireSet(Wire start) {
+		ensureBuilt();
 		return wires.getWireSet(start);
 	}
 
 	public Bounds getBounds() {
+		ensureBuilt();
 		Bounds wireBounds = wires.getWireBounds();
-		Iterator<Component> it = comps.iterator();
-		if (!it.hasNext()) return wireBounds;
-		Component first = it.next();
-		Bounds firstBounds = first.getBounds();
-		int xMin = firstBounds.getX();
-		int yMin = firstBounds.getY();
-		int xMax = xMin + firstBounds.getWidth();
-		int yMax = yMin + firstBounds.getHeight();
-		while (it.hasNext()) {
-			Component c = it.next();
-			Bounds bds = c.getBounds();
-			int x0 = bds.getX();
-			int x1 = x0 + bds.getWidth();
-			int y0 = bds.getY();
-			int y1 = y0 + bds.getHeight();
-			if (x0 < xMin) xMin = x0;
-			if (x1 > xMax) xMax = x1;
-			if (y0 < yMin) yMin = y0;
-			if (y1 > yMax) yMax = y1;
-		}
-		Bounds compBounds = Bounds.create(xMin, yMin, xMax - xMin, yMax - yMin);
+		Bounds compBounds = index.getComponentBounds();
+		if (compBounds == Bounds.EMPTY_BOUNDS) return wireBounds;
 		if (wireBounds.getWidth() == 0 || wireBounds.getHeight() == 0) {
 			return compBounds;
 		} else {
@@ -255,6 +296,7 @@ public class Circuit {
 	}
 
 	public Bounds getBounds(Graphics g) {
+		ensureBuilt();
 		Bounds ret = wires.getWireBounds();
 		int xMin = ret.getX();
 		int yMin = ret.getY();
@@ -284,6 +326,7 @@ public class Circuit {
 	}
 
 	ArrayList<Component> getClocks() {
+		ensureBuilt();
 		return clocks;
 	}
 
@@ -292,6 +335,7 @@ public class Circuit {
 	}
 
 	void mutatorAdd(Component c) {
+		ensureBuilt();
 		showDebug("mutatorAdd", c);
 		locker.checkForWritePermission("add");
 
@@ -300,28 +344,35 @@ public class Circuit {
 			if (w.getEnd0().equals(w.getEnd1())) return;
 			boolean added = wires.add(w);
 			if (!added) return;
+			index.add(w);
 		} else {
 			// add it into the circuit
 			boolean added = comps.add(c);
 			if (!added) return;
 
 			wires.add(c);
+			index.add(c);
 			ComponentFactory factory = c.getFactory();
 			if (factory instanceof Clock) {
 				clocks.add(c);
+				clockChangeCount++;
 			} else if (factory instanceof SubcircuitFactory) {
 				SubcircuitFactory subcirc = (SubcircuitFactory) factory;
 				subcirc.getSubcircuit().circuitsUsingThis.put(c, this);
 			}
 			c.addComponentListener(myComponentListener);
+			attrOwners.put(c.getAttributeSet(), c);
+			c.getAttributeSet().addAttributeListener(myComponentListener);
 		}
 		fireEvent(CircuitEvent.ACTION_ADD, c);
 	}
 
 	void mutatorRemove(Component c) {
+		ensureBuilt();
 		showDebug("mutatorRemove", c);
 		locker.checkForWritePermission("remove");
 
+		index.remove(c);
 		if (c instanceof Wire) {
 			wires.remove(c);
 		} else {
@@ -330,11 +381,14 @@ public class Circuit {
 			ComponentFactory factory = c.getFactory();
 			if (factory instanceof Clock) {
 				clocks.remove(c);
+				clockChangeCount++;
 			} else if (factory instanceof SubcircuitFactory) {
 				SubcircuitFactory subcirc = (SubcircuitFactory) factory;
 				subcirc.getSubcircuit().circuitsUsingThis.remove(c);
 			}
 			c.removeComponentListener(myComponentListener);
+			c.getAttributeSet().removeAttributeListener(myComponentListener);
+			attrOwners.remove(c.getAttributeSet());
 		}
 		fireEvent(CircuitEvent.ACTION_REMOVE, c);
 	}
@@ -342,40 +396,47 @@ public class Circuit {
 	//
 	// Graphics methods
 	//
-	public void draw(ComponentDrawContext context, Collection<Component> hidden) {
+	/**
+	 * Draws the wires and components, other than those hidden, that lie
+	 * within the clip of the context's Graphics, and returns how many
+	 * were drawn.
+	 */
+	public int draw(ComponentDrawContext context, Collection<Component> hidden) {
+		ensureBuilt();
 		Graphics g = context.getGraphics();
+		Rectangle clip = g.getClipBounds();
+		Bounds clipBounds = clip == null ? null
+			: Bounds.create(clip.x, clip.y, clip.width, clip.height);
+		ArrayList<Component> toDraw = new ArrayList<>();
+		ArrayList<Wire> wiresToDraw = new ArrayList<>();
+		for (Component c : index.getInOrder(clipBounds, g)) {
+			if (c instanceof Wire) wiresToDraw.add((Wire) c);
+			else toDraw.add(c);
+		}
+
 		Graphics g_copy = g.create();
 		context.setGraphics(g_copy);
-		wires.draw(context, hidden);
+		int drawn = wires.draw(context, hidden, wiresToDraw, clipBounds);
 
-		if (hidden == null || hidden.size() == 0) {
-			for (Component c : comps) {
-				Graphics g_new = g.create();
-				context.setGraphics(g_new);
-				g_copy.dispose();
-				g_copy = g_new;
+		boolean anyHidden = hidden != null && hidden.size() > 0;
+		for (Component c : toDraw) {
+			if (anyHidden && hidden.contains(c)) continue;
+			Graphics g_new = g.create();
+			context.setGraphics(g_new);
+			g_copy.dispose();
+			g_copy = g_new;
 
+			try {
 				c.draw(context);
+			} catch (RuntimeException e) {
+				// this is a JAR developer error - display it and move on
+				e.printStackTrace();
 			}
-		} else {
-			for (Component c : comps) {
-				if (!hidden.contains(c)) {
-					Graphics g_new = g.create();
-					context.setGraphics(g_new);
-					g_copy.dispose();
-					g_copy = g_new;
-
-					try {
-						c.draw(context);
-					} catch (RuntimeException e) {
-						// this is a JAR developer error - display it and move on
-						e.printStackTrace();
-					}
-				}
-			}
+			drawn++;
 		}
 		context.setGraphics(g);
 		g_copy.dispose();
+		return drawn;
 	}
 
 	private class EndChangedTransaction extends CircuitTransaction {
@@ -413,10 +474,11 @@ public class Circuit {
 		}
 	}
 
-	private class MyComponentListener implements ComponentListener {
+	private class MyComponentListener implements ComponentListener, AttributeListener {
 		public void endChanged(ComponentEvent e) {
 			locker.checkForWritePermission("ends changed");
 			Component comp = e.getSource();
+			index.invalidate(comp);
 			HashMap<Location, EndData> toRemove = toMap(e.getOldData());
 			HashMap<Location, EndData> toAdd = toMap(e.getData());
 			EndChangedTransaction xn = new EndChangedTransaction(comp, toRemove, toAdd);
@@ -444,7 +506,18 @@ public class Circuit {
 		}
 
 		public void componentInvalidated(ComponentEvent e) {
+			index.checkBounds(e.getSource());
 			fireEvent(CircuitEvent.ACTION_INVALIDATE, e.getSource());
 		}
+
+		public void attributeListChanged(AttributeEvent e) {
+		}
+
+		public void attributeValueChanged(AttributeEvent e) {
+			// the component may be resized, or its label may move, by
+			// listeners that have yet to hear of the change
+			Component comp = attrOwners.get(e.getSource());
+			if (comp != null) index.invalidate(comp);
+		}
 	}
 }
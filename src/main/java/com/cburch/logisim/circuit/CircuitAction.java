@@ -3,13 +3,18 @@
 
 package com.cburch.logisim.circuit;
 
+import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.proj.Action;
 import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.proj.UndoFile;
 import com.cburch.logisim.util.StringGetter;
 
+import java.io.IOException;
+import java.util.HashSet;
+
 public class CircuitAction extends Action {
 	private final StringGetter name;
-	private final CircuitTransaction forward;
+	private final CircuitMutation forward;
 	private CircuitTransaction reverse;
 
 	CircuitAction(StringGetter name, CircuitMutation forward) {
@@ -17,6 +22,11 @@ public class CircuitAction extends Action {
 		this.forward = forward;
 	}
 
+	@Override
+	public boolean isRecordedByTransactions() {
+		return true;
+	}
+
 	@Override
 	public String getName() {
 		return name.get();
@@ -28,6 +38,7 @@ public class CircuitAction extends Action {
 		if (result != null) {
 			reverse = result.getReverseTransaction();
 		}
+		forward.compact();
 	}
 
 	@Override
@@ -36,4 +47,20 @@ public class CircuitAction extends Action {
 			reverse.execute();
 		}
 	}
+
+	@Override
+	public long getUndoSize() {
+		HashSet<Component> held = new HashSet<>();
+		long ret = forward.estimateSize(held);
+		if (reverse instanceof CircuitMutation) {
+			ret += ((CircuitMutation) reverse).estimateSize(held);
+		}
+		return ret;
+	}
+
+	@Override
+	public Action spill(UndoFile file) throws IOException {
+		if (!(reverse instanceof CircuitMutation)) return null;
+		return SpilledCircuitAction.create(name, (CircuitMutation) reverse, file);
+	}
 }
@@ -8,17 +8,18 @@ import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.std.wiring.Pin;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 class CircuitChange {
-	private static final int CLEAR = 0;
-	private static final int ADD = 1;
-	private static final int ADD_ALL = 2;
-	private static final int REMOVE = 3;
-	private static final int REMOVE_ALL = 4;
-	private static final int REPLACE = 5;
-	private static final int SET = 6;
-	private static final int SET_FOR_CIRCUIT = 7;
+	static final int CLEAR = 0;
+	static final int ADD = 1;
+	static final int ADD_ALL = 2;
+	static final int REMOVE = 3;
+	static final int REMOVE_ALL = 4;
+	static final int REPLACE = 5;
+	static final int SET = 6;
+	static final int SET_FOR_CIRCUIT = 7;
 	private final Circuit circuit;
 	private final int type;
 	private final Component comp;
@@ -120,6 +121,69 @@ class CircuitChange {
 		return newValue;
 	}
 
+	Collection<? extends Component> getComponents() {
+		return comps;
+	}
+
+	ReplacementMap getReplacementMap() {
+		if (newValue instanceof CompactReplacement) {
+			return ((CompactReplacement) newValue).toMap();
+		} else {
+			return (ReplacementMap) newValue;
+		}
+	}
+
+	// adds each component the change refers to, and returns how many
+	// references it holds
+	int addComponents(Collection<Component> dest) {
+		switch (type) {
+			case ADD:
+			case REMOVE:
+			case SET:
+				dest.add(comp);
+				return 1;
+			case CLEAR:
+			case ADD_ALL:
+			case REMOVE_ALL:
+				if (comps == null) return 0;
+				dest.addAll(comps);
+				return comps.size();
+			case REPLACE:
+				if (newValue instanceof CompactReplacement) {
+					CompactReplacement repl = (CompactReplacement) newValue;
+					dest.addAll(repl.getRemovals());
+					dest.addAll(repl.getAdditions());
+					return repl.getReferenceCount();
+				} else {
+					ReplacementMap repl = (ReplacementMap) newValue;
+					dest.addAll(repl.getRemovals());
+					dest.addAll(repl.getAdditions());
+					return repl.getRemovals().size() + repl.getAdditions().size();
+				}
+			default:
+				return 0;
+		}
+	}
+
+	// returns a change with the same effect whose components are held in
+	// arrays
+	CircuitChange compact() {
+		switch (type) {
+			case CLEAR:
+			case ADD_ALL:
+			case REMOVE_ALL:
+				if (comps == null) return this;
+				return new CircuitChange(circuit, type,
+					Arrays.asList(comps.toArray(new Component[0])));
+			case REPLACE:
+				if (newValue instanceof CompactReplacement) return this;
+				return new CircuitChange(circuit, REPLACE, null, null, null,
+					new CompactReplacement((ReplacementMap) newValue));
+			default:
+				return this;
+		}
+	}
+
 	CircuitChange getReverseChange() {
 		switch (type) {
 			case CLEAR:
@@ -137,7 +201,7 @@ class CircuitChange {
 				return CircuitChange.setForCircuit(circuit, attr, newValue, oldValue);
 			case REPLACE:
 				return CircuitChange.replace(circuit,
-					((ReplacementMap) newValue).getInverseMap());
+					getReplacementMap().getInverseMap());
 			default:
 				throw new IllegalArgumentException("unknown change type " + type);
 		}
@@ -162,7 +226,7 @@ class CircuitChange {
 				for (Component comp : comps) prevReplacements.remove(comp);
 				break;
 			case REPLACE:
-				prevReplacements.append((ReplacementMap) newValue);
+				prevReplacements.append(getReplacementMap());
 				break;
 			case SET:
 				mutator.replace(circuit, prevReplacements);
@@ -193,7 +257,7 @@ class CircuitChange {
 				}
 				return false;
 			case REPLACE:
-				ReplacementMap repl = (ReplacementMap) newValue;
+				ReplacementMap repl = getReplacementMap();
 				for (Component comp : repl.getRemovals()) {
 					if (comp.getFactory() instanceof Pin) return true;
 				}
@@ -31,6 +31,11 @@ class CircuitLocker {
 		// Acquire locks in serial-number order to avoid deadlock
 		Circuit[] lockOrder = requests.keySet().toArray(new Circuit[0]);
 		Arrays.sort(lockOrder, new CircuitComparator());
+		// a circuit is built before it is locked, so that building never
+		// waits on a lock held by a thread waiting for the build
+		for (Circuit circ : lockOrder) {
+			circ.ensureBuilt();
+		}
 		try {
 			for (Circuit circ : lockOrder) {
 				Integer access = requests.get(circ);
@@ -50,8 +55,11 @@ class CircuitLocker {
 							mutator = new CircuitMutatorImpl();
 						}
 						locker.mutatingMutator = mutator;
+					} else if (mutator != null) {
+						// the thread already has the lock, for a
+						// transaction within which this one runs
+						mutator.markNested();
 					}
-					// otherwise: nothing to do - thread already has lock
 				}
 			}
 		} catch (RuntimeException t) {
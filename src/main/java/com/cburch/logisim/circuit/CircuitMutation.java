@@ -11,8 +11,17 @@ import com.cburch.logisim.util.StringGetter;
 import java.util.*;
 
 public final class CircuitMutation extends CircuitTransaction {
+	// estimates, in bytes, of what a mutation holds: the changes, their
+	// references, the entries of replacement maps kept in hash tables, and
+	// the components and wires no longer in a circuit
+	private static final int CHANGE_BYTES = 48;
+	private static final int REFERENCE_BYTES = 8;
+	private static final int HASHED_BYTES = 120;
+	private static final int COMPONENT_BYTES = 1500;
+	private static final int WIRE_BYTES = 48;
+
 	private final Circuit primary;
-	private final List<CircuitChange> changes;
+	private ArrayList<CircuitChange> changes;
 
 	public CircuitMutation(Circuit circuit) {
 		this.primary = circuit;
@@ -71,6 +80,88 @@ public final class CircuitMutation extends CircuitTransaction {
 		changes.add(change);
 	}
 
+	List<CircuitChange> getChanges() {
+		return changes;
+	}
+
+	// Rewrites the changes as fewer and smaller ones with the same effect,
+	// for a mutation that is kept once it has run: successive additions,
+	// or successive removals, in a circuit become one change over an array,
+	// successive settings of one attribute become the last of them, and
+	// replacement maps are held in arrays.
+	void compact() {
+		ArrayList<CircuitChange> ret = new ArrayList<>();
+		int n = changes.size();
+		int i = 0;
+		while (i < n) {
+			CircuitChange change = changes.get(i);
+			int type = change.getType();
+			int j = i + 1;
+			if (type == CircuitChange.ADD || type == CircuitChange.ADD_ALL
+					|| type == CircuitChange.REMOVE || type == CircuitChange.REMOVE_ALL) {
+				boolean adding = type == CircuitChange.ADD || type == CircuitChange.ADD_ALL;
+				ArrayList<Component> comps = new ArrayList<>();
+				for (; j < n; j++) {
+					CircuitChange next = changes.get(j);
+					int nextType = next.getType();
+					boolean same = adding
+						? nextType == CircuitChange.ADD || nextType == CircuitChange.ADD_ALL
+						: nextType == CircuitChange.REMOVE || nextType == CircuitChange.REMOVE_ALL;
+					if (!same || next.getCircuit() != change.getCircuit()) break;
+				}
+				if (j > i + 1) {
+					for (int k = i; k < j; k++) changes.get(k).addComponents(comps);
+					Component[] array = comps.toArray(new Component[0]);
+					change = adding
+						? CircuitChange.addAll(change.getCircuit(), Arrays.asList(array))
+						: CircuitChange.removeAll(change.getCircuit(), Arrays.asList(array));
+				}
+			} else if (type == CircuitChange.SET || type == CircuitChange.SET_FOR_CIRCUIT) {
+				CircuitChange last = change;
+				for (; j < n; j++) {
+					CircuitChange next = changes.get(j);
+					if (next.getType() != type || next.getCircuit() != change.getCircuit()
+						|| next.getComponent() != change.getComponent()
+						|| next.getAttribute() != change.getAttribute()) break;
+					last = next;
+				}
+				if (last != change) {
+					change = type == CircuitChange.SET
+						? CircuitChange.set(change.getCircuit(), change.getComponent(),
+							change.getAttribute(), change.getOldValue(), last.getNewValue())
+						: CircuitChange.setForCircuit(change.getCircuit(),
+							change.getAttribute(), change.getOldValue(), last.getNewValue());
+				}
+			}
+			ret.add(change.compact());
+			i = j;
+		}
+		ret.trimToSize();
+		changes = ret;
+	}
+
+	// Estimates the bytes the changes hold, counting each component no
+	// longer in its circuit only if it is not yet in held.
+	long estimateSize(Set<Component> held) {
+		long ret = CHANGE_BYTES;
+		ArrayList<Component> comps = new ArrayList<>();
+		for (CircuitChange change : changes) {
+			comps.clear();
+			int refs = change.addComponents(comps);
+			ret += CHANGE_BYTES + (long) REFERENCE_BYTES * refs;
+			if (change.getNewValue() instanceof ReplacementMap) {
+				ret += (long) HASHED_BYTES * comps.size();
+			}
+			Circuit circ = change.getCircuit();
+			for (Component comp : comps) {
+				if (!circ.contains(comp) && held.add(comp)) {
+					ret += comp instanceof Wire ? WIRE_BYTES : COMPONENT_BYTES;
+				}
+			}
+		}
+		return ret;
+	}
+
 	public Action toAction(StringGetter name) {
 		if (name == null) name = Strings.getter("unknownChangeAction");
 		return new CircuitAction(name, this);
@@ -13,6 +13,7 @@ class CircuitMutatorImpl implements CircuitMutator {
 	private final ArrayList<CircuitChange> log;
 	private final HashMap<Circuit, ReplacementMap> replacements;
 	private final HashSet<Circuit> modified;
+	private boolean nested = false;
 
 	public CircuitMutatorImpl() {
 		log = new ArrayList<>();
@@ -110,12 +111,13 @@ class CircuitMutatorImpl implements CircuitMutator {
 		return ret;
 	}
 
-	CircuitTransaction getReverseTransaction() {
+	CircuitMutation getReverseTransaction() {
 		CircuitMutation ret = new CircuitMutation();
 		ArrayList<CircuitChange> log = this.log;
 		for (int i = log.size() - 1; i >= 0; i--) {
 			ret.change(log.get(i).getReverseChange());
 		}
+		ret.compact();
 		return ret;
 	}
 
@@ -123,6 +125,18 @@ class CircuitMutatorImpl implements CircuitMutator {
 		return replacements.get(circuit);
 	}
 
+	List<CircuitChange> getChanges() {
+		return Collections.unmodifiableList(log);
+	}
+
+	void markNested() {
+		nested = true;
+	}
+
+	boolean isNested() {
+		return nested;
+	}
+
 	void markModified(Circuit circuit) {
 		modified.add(circuit);
 	}
@@ -15,7 +15,6 @@ import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.proj.Project;
-import com.cburch.logisim.std.wiring.Clock;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.util.ArraySet;
 import com.cburch.logisim.util.SmallSet;
@@ -24,12 +23,15 @@ import java.util.*;
 
 @SuppressWarnings("MethodDoesntCallSuperMethod")
 public class CircuitState implements InstanceData {
+	private static final int MAX_CHANGED = 4096; // beyond which all are redrawn
 	private static int lastId = 0;
-	final HashMap<Location, SetData> causes = new HashMap<>();
+	final LocationValueMap<SetData> causes = new LocationValueMap<>();
 	private final Project proj; // project where circuit lies
 	private final Circuit circuit; // circuit being simulated
-	private final HashMap<Component, Object> componentData = new HashMap<>();
-	private final Map<Location, Value> values = new HashMap<>();
+	private final HashMap<Component, Object> componentData;
+	// held here because Circuit only keeps weak references to its listeners
+	private final MyCircuitListener myCircuitListener = new MyCircuitListener();
+	private final LocationValueMap<Value> values;
 	private final SmallSet<Location> dirtyPoints = new SmallSet<>();
 	private final int id = lastId++;
 	private Propagator base = null; // base of tree of CircuitStates
@@ -38,14 +40,47 @@ public class CircuitState implements InstanceData {
 	private ArraySet<CircuitState> substates = new ArraySet<>();
 	private CircuitWires.State wireData = null;
 	private SmallSet<Component> dirtyComponents = new SmallSet<>();
+	private CompiledCircuit compiled = null; // set while evaluated by CompiledCircuit
+	private Value[] compiledValues = null; // net values from its last evaluation
+	private final Object changeLock = new Object(); // for changedComponents
+	private volatile boolean trackingChanges = false;
+	private HashSet<Component> changedComponents = null; // null if all have changed
+	private final CircuitState source; // for a snapshot, the state it copies
+	private final HashMap<CircuitState, CircuitState> copies; // for a snapshot, of each substate
+	private long version = 0; // of the last snapshot
+	private CircuitState lastSnapshot = null;
+	private volatile int readers = 0; // of published snapshots
+	private volatile CircuitState published = null;
 
 	public CircuitState(Project proj, Circuit circuit) {
 		this.proj = proj;
 		this.circuit = circuit;
-		MyCircuitListener myCircuitListener = new MyCircuitListener();
+		this.componentData = new HashMap<>();
+		this.values = new LocationValueMap<>();
+		this.source = null;
+		this.copies = null;
+		circuit.ensureBuilt(); // its wires are read directly
 		circuit.addCircuitListener(myCircuitListener);
 	}
 
+	private CircuitState(CircuitState src, CircuitState parent) {
+		this.proj = src.proj;
+		this.circuit = src.circuit;
+		this.componentData = src.componentData;
+		this.values = src.values.share();
+		this.source = src;
+		this.copies = new HashMap<>();
+		this.version = ++src.version;
+		this.base = src.base;
+		this.parentState = parent != null ? parent : src.parentState;
+		this.parentComp = src.parentComp;
+		for (CircuitState sub : src.substates) {
+			CircuitState copy = new CircuitState(sub, this);
+			this.substates.add(copy);
+			this.copies.put(sub, copy);
+		}
+	}
+
 	public Project getProject() {
 		return proj;
 	}
@@ -59,6 +94,67 @@ public class CircuitState implements InstanceData {
 		return cloneState();
 	}
 
+	/**
+	 * Returns a copy of the values at the points of this state and its
+	 * substates as they are now, so that they can be read while the
+	 * simulation goes on; it should be taken between propagations, in the
+	 * simulator's thread. The copy shares its arrays with this state until
+	 * they are written, and the last copy is returned again if nothing has
+	 * changed since, so that its version is unchanged. Everything else,
+	 * including the components' data, is read from and written to this
+	 * state.
+	 */
+	public CircuitState snapshot() {
+		if (source != null) return this;
+		CircuitState ret = lastSnapshot;
+		if (ret == null || !isSnapshotCurrent(ret)) {
+			ret = new CircuitState(this, null);
+			lastSnapshot = ret;
+		}
+		return ret;
+	}
+
+	private boolean isSnapshotCurrent(CircuitState snap) {
+		if (!values.isSharedWith(snap.values)
+			|| substates.size() != snap.substates.size()) {
+			return false;
+		}
+		for (CircuitState sub : substates) {
+			CircuitState copy = snap.copies.get(sub);
+			if (copy == null || !sub.isSnapshotCurrent(copy)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns, for a snapshot, a number that is greater than that of any
+	 * earlier snapshot of the same state.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Starts or stops keeping a published snapshot of this state, which
+	 * the simulator renews after each propagation. Calls nest, so that
+	 * several readers can each start and stop.
+	 */
+	public void setPublishing(boolean value) {
+		synchronized (changeLock) {
+			readers += value ? 1 : -1;
+			if (readers == 0) published = null;
+		}
+	}
+
+	/**
+	 * Returns the snapshot published after the last propagation, or null
+	 * if there has been none since publishing started. Unlike the state
+	 * itself, this can be read from any thread without locking.
+	 */
+	public CircuitState getPublished() {
+		return published;
+	}
+
 	public CircuitState cloneState() {
 		CircuitState ret = new CircuitState(proj, circuit);
 		ret.copyFrom(this, new Propagator(ret));
@@ -96,17 +192,16 @@ public class CircuitState implements InstanceData {
 				this.componentData.put(key, newValue);
 			}
 		}
-		for (Location key : src.causes.keySet()) {
-			Propagator.SetData oldValue = src.causes.get(key);
-			Propagator.SetData newValue = oldValue.cloneFor(this);
-			this.causes.put(key, newValue);
-		}
+		this.causes.reindex(src.causes.getIndex());
+		src.causes.forEach((key, oldValue) -> this.causes.put(key, oldValue.cloneFor(this)));
 		if (src.wireData != null) {
 			this.wireData = (CircuitWires.State) src.wireData.clone();
 		}
-		this.values.putAll(src.values);
+		this.values.copyFrom(src.values);
 		this.dirtyComponents.addAll(src.dirtyComponents);
 		this.dirtyPoints.addAll(src.dirtyPoints);
+		this.compiled = src.compiled;
+		this.compiledValues = src.compiledValues;
 	}
 
 	@Override
@@ -130,6 +225,7 @@ public class CircuitState implements InstanceData {
 	}
 
 	public Propagator getPropagator() {
+		if (source != null) return source.getPropagator();
 		if (base == null) {
 			base = new Propagator(this);
 			markAllComponentsDirty();
@@ -137,15 +233,50 @@ public class CircuitState implements InstanceData {
 		return base;
 	}
 
+	/**
+	 * Starts or stops noting which components may look different because
+	 * the simulation has changed their values or state, so that a canvas
+	 * showing this state can redraw only those.
+	 */
+	public void setTrackingChanges(boolean value) {
+		synchronized (changeLock) {
+			trackingChanges = value;
+			changedComponents = value ? new HashSet<>() : null;
+		}
+	}
+
+	/**
+	 * Returns the components noted since the last call, or null if
+	 * everything should be redrawn: because too many have changed, or
+	 * because values changed without being noted, as when the state is
+	 * reset.
+	 */
+	public Set<Component> takeChangedComponents() {
+		synchronized (changeLock) {
+			Set<Component> ret = changedComponents;
+			changedComponents = trackingChanges ? new HashSet<>() : null;
+			return ret;
+		}
+	}
+
 	public void drawOscillatingPoints(ComponentDrawContext context) {
 		if (base != null) base.drawOscillatingPoints(context);
 	}
 
 	public Object getData(Component comp) {
-		return componentData.get(comp);
+		Object ret = componentData.get(comp);
+		if (copies != null && ret instanceof CircuitState) {
+			CircuitState copy = copies.get(ret);
+			if (copy != null) return copy;
+		}
+		return ret;
 	}
 
 	public void setData(Component comp, Object data) {
+		if (source != null) {
+			source.setData(comp, data);
+			return;
+		}
 		if (data instanceof CircuitState) {
 			CircuitState oldState = (CircuitState) componentData.get(comp);
 			CircuitState newState = (CircuitState) data;
@@ -156,12 +287,14 @@ public class CircuitState implements InstanceData {
 				if (oldState != null && oldState.parentComp == comp) {
 					// it looks like it's being removed
 					substates.remove(oldState);
+					substatesChanged();
 					oldState.parentState = null;
 					oldState.parentComp = null;
 				}
 				if (newState.parentState != this) {
 					// this is the first time I've heard about this CircuitState
 					substates.add(newState);
+					substatesChanged();
 					newState.base = this.base;
 					newState.parentState = this;
 					newState.parentComp = comp;
@@ -181,7 +314,26 @@ public class CircuitState implements InstanceData {
 	}
 
 	public void setValue(Location pt, Value val, Component cause, int delay) {
-		if (base != null) base.setValue(this, pt, val, cause, delay);
+		if (source != null) source.setValue(pt, val, cause, delay);
+		else if (base != null) base.setValue(this, pt, val, cause, delay);
+	}
+
+	private void noteChanged(Component comp) {
+		synchronized (changeLock) {
+			HashSet<Component> changed = changedComponents;
+			if (changed != null) {
+				changed.add(comp);
+				if (changed.size() > MAX_CHANGED) changedComponents = null;
+			}
+		}
+	}
+
+	private void noteAllChanged() {
+		if (trackingChanges) {
+			synchronized (changeLock) {
+				changedComponents = null;
+			}
+		}
 	}
 
 	private void markComponentAsDirty(Component comp) {
@@ -228,6 +380,12 @@ public class CircuitState implements InstanceData {
 	}
 
 	void processDirtyComponents() {
+		if (compiled != null && !dirtyComponents.isEmpty()) {
+			// the parent evaluates a compiled substate; if something
+			// inside changed, it will recompile or fall back to events
+			dirtyComponents.clear();
+			if (parentState != null) parentComp.propagate(parentState);
+		}
 		if (!dirtyComponents.isEmpty()) {
 			// This seeming wasted copy is to avoid ConcurrentModifications
 			// if we used an iterator instead.
@@ -250,6 +408,7 @@ public class CircuitState implements InstanceData {
 				if (compObj instanceof Component) {
 					Component comp = (Component) compObj;
 					comp.propagate(this);
+					if (trackingChanges) noteChanged(comp);
 					if (comp.getFactory() instanceof Pin && parentState != null) {
 						// should be propagated in superstate
 						parentComp.propagate(parentState);
@@ -258,41 +417,48 @@ public class CircuitState implements InstanceData {
 			}
 		}
 
-		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			substate.processDirtyComponents();
+		CircuitState[] subs = substates.toArray(new CircuitState[substates.size()]);
+		ParallelPropagation parallel = base == null ? null : base.getParallel();
+		if (parallel != null && subs.length > 1) {
+			parallel.processDirtyComponents(subs);
+		} else {
+			for (CircuitState substate : subs) {
+				substate.processDirtyComponents();
+			}
 		}
 	}
 
 	void processDirtyPoints() {
+		if (compiled != null) {
+			// values in a compiled substate are written by CompiledCircuit
+			boolean changed = !dirtyPoints.isEmpty() || circuit.wires.isMapVoided();
+			dirtyPoints.clear();
+			if (changed && parentState != null) parentComp.propagate(parentState);
+			if (compiled != null) return;
+		}
+
 		HashSet<Location> dirty = new HashSet<>(dirtyPoints);
 		dirtyPoints.clear();
-		if (circuit.wires.isMapVoided()) {
-			for (int i = 3; i >= 0; i--) {
-				try {
-					dirty.addAll(circuit.wires.points.getSplitLocations());
-					break;
-				} catch (ConcurrentModificationException e) {
-					// try again...
-					try {
-						Thread.sleep(1);
-					} catch (InterruptedException ignored) {
-					}
-					if (i == 0) e.printStackTrace();
-				}
-			}
-		}
-		if (!dirty.isEmpty()) {
+		// after an edit, the wires find which points need updating
+		if (!dirty.isEmpty() || circuit.wires.isOutdated(this)) {
 			circuit.wires.propagate(this, dirty);
 		}
 
-		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			substate.processDirtyPoints();
+		CircuitState[] subs = substates.toArray(new CircuitState[substates.size()]);
+		ParallelPropagation parallel = base == null ? null : base.getParallel();
+		if (parallel != null && subs.length > 1) {
+			parallel.processDirtyPoints(subs);
+		} else {
+			for (CircuitState substate : subs) {
+				substate.processDirtyPoints();
+			}
 		}
 	}
 
 	void reset() {
+		noteAllChanged();
+		compiled = null;
+		compiledValues = null;
 		wireData = null;
 		componentData.keySet().removeIf(comp -> !(comp.getFactory() instanceof SubcircuitFactory));
 		values.clear();
@@ -306,17 +472,21 @@ public class CircuitState implements InstanceData {
 		}
 	}
 
-	boolean tick(int ticks) {
-		boolean ret = false;
-		for (Component clock : circuit.getClocks()) {
-			ret |= Clock.tick(this, ticks, clock);
+	// called by the simulator between propagations
+	void publish() {
+		if (readers > 0) {
+			CircuitState snap = snapshot();
+			synchronized (changeLock) {
+				if (readers > 0) published = snap;
+			}
 		}
-
-		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			ret |= substate.tick(ticks);
+		for (CircuitState sub : substates) {
+			sub.publish();
 		}
-		return ret;
+	}
+
+	private void substatesChanged() {
+		if (base != null) base.clocksChanged();
 	}
 
 	CircuitWires.State getWireData() {
@@ -327,16 +497,39 @@ public class CircuitState implements InstanceData {
 		wireData = data;
 	}
 
+	void reindexPoints(LocationIndex index) {
+		// for CircuitWires - when a new BundleMap has numbered the points
+		causes.reindex(index);
+		values.reindex(index);
+	}
+
 	Value getComponentOutputAt(Location p) {
 		// for CircuitWires - to get values, ignoring wires' contributions
 		Propagator.SetData cause_list = causes.get(p);
 		return Propagator.computeValue(cause_list);
 	}
 
+	Value getComponentOutputAt(int id) {
+		return Propagator.computeValue(causes.get(id));
+	}
+
 	Value getValueByWire(Location p) {
 		return values.get(p);
 	}
 
+	void setValueByWire(int id, Value v) {
+		// as below, for a point numbered by the current LocationIndex
+		boolean changed;
+		if (v == Value.NIL) {
+			Object old = values.put(id, null);
+			changed = (old != null && old != Value.NIL);
+		} else {
+			Object old = values.put(id, v);
+			changed = !v.equals(old);
+		}
+		if (changed) valueChangedByWire(values.getIndex().get(id));
+	}
+
 	void setValueByWire(Location p, Value v) {
 		// for CircuitWires - to set value at point
 		boolean changed;
@@ -347,19 +540,59 @@ public class CircuitState implements InstanceData {
 			Object old = values.put(p, v);
 			changed = !v.equals(old);
 		}
-		if (changed) {
-			boolean found = false;
-			for (Component comp : circuit.getComponents(p)) {
-				if (!(comp instanceof Wire) && !(comp instanceof Splitter)) {
-					found = true;
-					markComponentAsDirty(comp);
-				}
+		if (changed) valueChangedByWire(p);
+	}
+
+	private void valueChangedByWire(Location p) {
+		boolean found = false;
+		for (Component comp : circuit.getComponents(p)) {
+			if (trackingChanges) noteChanged(comp);
+			if (!(comp instanceof Wire) && !(comp instanceof Splitter)) {
+				found = true;
+				markComponentAsDirty(comp);
 			}
-			// NOTE: this will cause a double-propagation on components
-			// whose outputs have just changed.
+		}
+		// NOTE: this will cause a double-propagation on components
+		// whose outputs have just changed.
 
-			if (found && base != null) base.locationTouched(this, p);
+		if (found && base != null) base.locationTouched(this, p);
+	}
+
+	Value[] getCompiledValues(CompiledCircuit evaluator) {
+		return compiled == evaluator ? compiledValues : null;
+	}
+
+	void setCompiledValues(CompiledCircuit evaluator, Value[] netValues) {
+		// for CompiledCircuit - the substate is no longer simulated by events
+		noteAllChanged();
+		if (compiled != evaluator) {
+			compiled = evaluator;
+			dirtyComponents.clear();
+			dirtyPoints.clear();
 		}
+		compiledValues = netValues;
+	}
+
+	void setCompiledValue(Location p, Value v) {
+		// for CompiledCircuit - to set value at point without marking anything
+		if (v == Value.NIL) values.remove(p);
+		else values.put(p, v);
+	}
+
+	boolean isCompiled() {
+		return compiled != null;
+	}
+
+	void leaveCompiled() {
+		// discard what CompiledCircuit wrote, and simulate from scratch
+		noteAllChanged();
+		compiled = null;
+		compiledValues = null;
+		wireData = null;
+		values.clear();
+		causes.clear();
+		dirtyPoints.clear();
+		markAllComponentsDirty();
 	}
 
 	//
@@ -388,6 +621,7 @@ public class CircuitState implements InstanceData {
 					CircuitState substate = (CircuitState) getData(comp);
 					if (substate != null && substate.parentComp == comp) {
 						substates.remove(substate);
+						substatesChanged();
 						substate.parentState = null;
 						substate.parentComp = null;
 					}
@@ -402,7 +636,9 @@ public class CircuitState implements InstanceData {
 					dirtyComponents.remove(comp);
 				}
 			} else if (action == CircuitEvent.ACTION_CLEAR) {
+				noteAllChanged();
 				substates.clear();
+				substatesChanged();
 				wireData = null;
 				componentData.clear();
 				values.clear();
@@ -448,6 +684,7 @@ public class CircuitState implements InstanceData {
 								CircuitState sub = (CircuitState) compState;
 								sub.parentState = null;
 								substates.remove(sub);
+								substatesChanged();
 							}
 						}
 					}
@@ -4,6 +4,7 @@
 package com.cburch.logisim.circuit;
 
 import java.util.Collection;
+import java.util.List;
 
 public class CircuitTransactionResult {
 	private final CircuitMutatorImpl mutator;
@@ -24,4 +25,15 @@ public class CircuitTransactionResult {
 	public Collection<Circuit> getModifiedCircuits() {
 		return mutator.getModifiedCircuits();
 	}
+
+	// the changes made, in order, when the transaction is not nested
+	List<CircuitChange> getChanges() {
+		return mutator.getChanges();
+	}
+
+	// whether the transaction ran within another, on a circuit that the
+	// other had already locked
+	boolean isNested() {
+		return mutator.isNested();
+	}
 }
@@ -18,8 +18,14 @@ import com.cburch.logisim.util.SmallSet;
 import java.awt.*;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class CircuitWires {
+	// how many maps back a circuit state may be and still be updated
+	// from the changes rather than recomputed entirely
+	private static final int DELTA_DEPTH = 16;
+	private static final AtomicInteger nextSerial = new AtomicInteger();
+
 	final CircuitPoints points = new CircuitPoints();
 	// user-given data
 	private final HashSet<Wire> wires = new HashSet<>();
@@ -27,9 +33,16 @@ class CircuitWires {
 	private final HashSet<Component> tunnels = new HashSet<>(); // of Components with Tunnel factory
 	private final TunnelListener tunnelListener = new TunnelListener();
 	private final HashSet<Component> pulls = new HashSet<>(); // of Components with PullResistor factory
+	private final HashMap<String, ArrayList<Component>> tunnelsByLabel = new HashMap<>();
+	private final HashMap<Component, String> tunnelLabels = new HashMap<>();
+	private final IdentityHashMap<AttributeSet, Component> listened = new IdentityHashMap<>();
 	// derived data
 	private Bounds bounds = Bounds.EMPTY_BOUNDS;
 	private BundleMap bundleMap = null;
+	// locations edited since bundleMap was voided; guarded by itself
+	private final HashSet<Location> dirtyLocations = new HashSet<>();
+	private final Object buildLock = new Object();
+	private BundleMap lastMap = null; // the map the next one derives from
 
 	CircuitWires() {
 	}
@@ -121,27 +134,29 @@ class CircuitWires {
 	//
 	// action methods
 	//
-	// NOTE: this could be made much more efficient in most cases to
-	// avoid voiding the bundle map.
+	// Edits record the locations they touch, so that the next bundle map
+	// need only rebuild the bundles connected to them.
 	boolean add(Component comp) {
 		boolean added = true;
 		if (comp instanceof Wire) {
 			added = addWire((Wire) comp);
 		} else if (comp instanceof Splitter) {
 			splitters.add((Splitter) comp);
+			listen(comp);
 		} else {
 			Object factory = comp.getFactory();
 			if (factory instanceof Tunnel) {
 				tunnels.add(comp);
-				comp.getAttributeSet().addAttributeListener(tunnelListener);
+				setTunnelLabel(comp);
+				listen(comp);
 			} else if (factory instanceof PullResistor) {
 				pulls.add(comp);
-				comp.getAttributeSet().addAttributeListener(tunnelListener);
+				listen(comp);
 			}
 		}
 		if (added) {
 			points.add(comp);
-			voidBundleMap();
+			voidBundleMap(comp);
 		}
 		return added;
 	}
@@ -151,34 +166,64 @@ class CircuitWires {
 			removeWire((Wire) comp);
 		} else if (comp instanceof Splitter) {
 			splitters.remove(comp);
+			unlisten(comp);
 		} else {
 			Object factory = comp.getFactory();
 			if (factory instanceof Tunnel) {
 				tunnels.remove(comp);
-				comp.getAttributeSet().removeAttributeListener(tunnelListener);
+				removeTunnelLabel(comp);
+				unlisten(comp);
 			} else if (factory instanceof PullResistor) {
 				pulls.remove(comp);
-				comp.getAttributeSet().removeAttributeListener(tunnelListener);
+				unlisten(comp);
 			}
 		}
 		points.remove(comp);
-		voidBundleMap();
+		voidBundleMap(comp);
 	}
 
 	void add(Component comp, EndData end) {
 		points.add(comp, end);
-		voidBundleMap();
+		voidBundleMap(end.getLocation());
 	}
 
 	void remove(Component comp, EndData end) {
 		points.remove(comp, end);
-		voidBundleMap();
+		voidBundleMap(end.getLocation());
 	}
 
 	void replace(Component comp, EndData oldEnd, EndData newEnd) {
 		points.remove(comp, oldEnd);
 		points.add(comp, newEnd);
-		voidBundleMap();
+		voidBundleMap(oldEnd.getLocation());
+		voidBundleMap(newEnd.getLocation());
+	}
+
+	private void listen(Component comp) {
+		listened.put(comp.getAttributeSet(), comp);
+		comp.getAttributeSet().addAttributeListener(tunnelListener);
+	}
+
+	private void unlisten(Component comp) {
+		listened.remove(comp.getAttributeSet());
+		comp.getAttributeSet().removeAttributeListener(tunnelListener);
+	}
+
+	private void setTunnelLabel(Component comp) {
+		String label = comp.getAttributeSet().getValue(StdAttr.LABEL).trim();
+		if (!label.equals("")) {
+			tunnelLabels.put(comp, label);
+			tunnelsByLabel.computeIfAbsent(label, k -> new ArrayList<>(3)).add(comp);
+		}
+	}
+
+	private void removeTunnelLabel(Component comp) {
+		String label = tunnelLabels.remove(comp);
+		if (label != null) {
+			ArrayList<Component> same = tunnelsByLabel.get(label);
+			same.remove(comp);
+			if (same.isEmpty()) tunnelsByLabel.remove(label);
+		}
 	}
 
 	private boolean addWire(Wire w) {
@@ -204,6 +249,16 @@ class CircuitWires {
 		}
 	}
 
+	/**
+	 * Returns whether the state's wire values were computed for some
+	 * other bundle map than the current one.
+	 */
+	boolean isOutdated(CircuitState circState) {
+		BundleMap map = bundleMap;
+		State s = circState.getWireData();
+		return map == null || s == null || s.bundleMap != map;
+	}
+
 	//
 	// utility methods
 	//
@@ -211,15 +266,36 @@ class CircuitWires {
 		BundleMap map = getBundleMap();
 		SmallSet<WireThread> dirtyThreads = new SmallSet<>(); // affected threads
 
+		// make sure the state's values are numbered according to this map
+		circState.reindexPoints(map.index);
+
 		// get state, or create a new one if current state is outdated
 		State s = circState.getWireData();
 		if (s == null || s.bundleMap != map) {
-			// if it is outdated, we need to compute for all threads
-			s = new State(map);
-			for (WireBundle b : map.getBundles()) {
-				WireThread[] th = b.threads;
-				if (b.isValid() && th != null) {
-					Collections.addAll(dirtyThreads, th);
+			ArrayList<Delta> deltas = s == null ? null : map.getDeltasSince(s.bundleMap);
+			points = new HashSet<>(points);
+			if (deltas == null) {
+				// if it is too far behind, we need to compute for all
+				// threads and all points
+				s = new State(map);
+				for (WireBundle b : map.getBundles()) {
+					WireThread[] th = b.threads;
+					if (b.isValid() && th != null) {
+						Collections.addAll(dirtyThreads, th);
+					}
+				}
+				points.addAll(getSplitLocations());
+			} else {
+				// otherwise only the edited regions need computing; the
+				// other threads keep their values
+				s = new State(map, s.thr_values);
+				for (Delta d : deltas) {
+					for (WireBundle b : d.removed) {
+						if (b.threads != null) {
+							for (WireThread t : b.threads) s.thr_values.remove(t);
+						}
+					}
+					points.addAll(d.region);
 				}
 			}
 			circState.setWireData(s);
@@ -234,9 +310,8 @@ class CircuitWires {
 				WireThread[] th = pb.threads;
 				if (!pb.isValid() || th == null) {
 					// immediately propagate NILs across invalid bundles
-					SmallSet<Location> pbPoints = pb.points;
-					for (Location loc2 : pbPoints) {
-						circState.setValueByWire(loc2, Value.NIL);
+					for (int id : pb.pointIds) {
+						circState.setValueByWire(id, Value.NIL);
 					}
 				} else {
 					Collections.addAll(dirtyThreads, th);
@@ -263,141 +338,138 @@ class CircuitWires {
 				if (b.threads.length == 1) {
 					bv = s.thr_values.get(b.threads[0]);
 				} else {
-					Value[] tvs = new Value[b.threads.length];
+					// gather the threads' bits as masks rather than
+					// building an array of one-bit values
+					long error = 0;
+					long unknown = 0;
+					long value = 0;
 					boolean tvs_valid = true;
-					for (int i = 0; i < tvs.length; i++) {
+					for (int i = 0; i < b.threads.length; i++) {
 						Value tv = s.thr_values.get(b.threads[i]);
 						if (tv == null) {
 							tvs_valid = false;
 							break;
 						}
-						tvs[i] = tv;
+						error |= (tv.getErrorBits() & 1) << i;
+						unknown |= (tv.getUnknownBits() & 1) << i;
+						value |= (tv.getValueBits() & 1) << i;
 					}
-					if (tvs_valid) bv = Value.create(tvs);
+					if (tvs_valid) bv = Value.create(b.threads.length, error, unknown, value);
 				}
 			}
 
 			if (bv != null) {
-				for (Location p : b.points) {
-					circState.setValueByWire(p, bv);
+				for (int id : b.pointIds) {
+					circState.setValueByWire(id, bv);
 				}
 			}
 		}
 	}
 
-	void draw(ComponentDrawContext context, Collection<Component> hidden) {
+	/**
+	 * Draws the given wires, and the split points within the clip if
+	 * there is one. Returns the number of wires drawn.
+	 */
+	int draw(ComponentDrawContext context, Collection<Component> hidden,
+			Collection<Wire> toDraw, Bounds clip) {
 		boolean showState = context.getShowState();
 		CircuitState state = context.getCircuitState();
 		Graphics g = context.getGraphics();
 		g.setColor(Color.BLACK);
 		GraphicsUtil.switchToWidth(g, Wire.WIDTH);
 		WireSet highlighted = context.getHighlightedWires();
+		boolean anyHidden = hidden != null && hidden.size() > 0;
 
 		BundleMap bmap = getBundleMap();
 		boolean isValid = bmap.isValid();
-		if (hidden == null || hidden.size() == 0) {
-			for (Wire w : wires) {
-				Location s = w.e0;
-				Location t = w.e1;
-				WireBundle wb = bmap.getBundleAt(s);
+		int drawn = 0;
+		for (Wire w : toDraw) {
+			if (anyHidden && hidden.contains(w)) continue;
+			Location s = w.e0;
+			Location t = w.e1;
+			WireBundle wb = bmap.getBundleAt(s);
+			if (!wb.isValid()) {
+				g.setColor(Value.WIDTH_ERROR_COLOR);
+			} else if (showState) {
+				if (!isValid) g.setColor(Value.NIL_COLOR);
+				else g.setColor(state.getValue(s).getColor());
+			} else {
+				g.setColor(Color.BLACK);
+			}
+			if (highlighted.containsWire(w)) {
+				GraphicsUtil.switchToWidth(g, Wire.WIDTH + 2);
+				g.drawLine(s.getX(), s.getY(), t.getX(), t.getY());
+				GraphicsUtil.switchToWidth(g, Wire.WIDTH);
+			} else {
+				g.drawLine(s.getX(), s.getY(), t.getX(), t.getY());
+			}
+			drawn++;
+		}
+
+		for (Location loc : points.getSplitLocations()) {
+			if (points.getComponentCount(loc) <= 2) continue;
+			if (clip != null && !clip.contains(loc, 5)) continue;
+			if (anyHidden) {
+				// this is just an approximation, but it's good enough since
+				// the problem is minor, and hidden only exists for a short
+				// while at a time anway.
+				int icount = 0;
+				for (Component comp : points.getComponents(loc)) {
+					if (!hidden.contains(comp)) ++icount;
+				}
+				if (icount <= 2) continue;
+			}
+			WireBundle wb = bmap.getBundleAt(loc);
+			if (wb != null) {
 				if (!wb.isValid()) {
 					g.setColor(Value.WIDTH_ERROR_COLOR);
 				} else if (showState) {
 					if (!isValid) g.setColor(Value.NIL_COLOR);
-					else g.setColor(state.getValue(s).getColor());
+					else g.setColor(state.getValue(loc).getColor());
 				} else {
 					g.setColor(Color.BLACK);
 				}
-				if (highlighted.containsWire(w)) {
-					GraphicsUtil.switchToWidth(g, Wire.WIDTH + 2);
-					g.drawLine(s.getX(), s.getY(), t.getX(), t.getY());
-					GraphicsUtil.switchToWidth(g, Wire.WIDTH);
+				if (highlighted.containsLocation(loc)) {
+					g.fillOval(loc.getX() - 5, loc.getY() - 5, 10, 10);
 				} else {
-					g.drawLine(s.getX(), s.getY(), t.getX(), t.getY());
-				}
-			}
-
-			for (Location loc : points.getSplitLocations()) {
-				if (points.getComponentCount(loc) > 2) {
-					WireBundle wb = bmap.getBundleAt(loc);
-					if (wb != null) {
-						if (!wb.isValid()) {
-							g.setColor(Value.WIDTH_ERROR_COLOR);
-						} else if (showState) {
-							if (!isValid) g.setColor(Value.NIL_COLOR);
-							else g.setColor(state.getValue(loc).getColor());
-						} else {
-							g.setColor(Color.BLACK);
-						}
-						if (highlighted.containsLocation(loc)) {
-							g.fillOval(loc.getX() - 5, loc.getY() - 5, 10, 10);
-						} else {
-							g.fillOval(loc.getX() - 4, loc.getY() - 4, 8, 8);
-						}
-					}
-				}
-			}
-		} else {
-			for (Wire w : wires) {
-				if (!hidden.contains(w)) {
-					Location s = w.e0;
-					Location t = w.e1;
-					WireBundle wb = bmap.getBundleAt(s);
-					if (!wb.isValid()) {
-						g.setColor(Value.WIDTH_ERROR_COLOR);
-					} else if (showState) {
-						if (!isValid) g.setColor(Value.NIL_COLOR);
-						else g.setColor(state.getValue(s).getColor());
-					} else {
-						g.setColor(Color.BLACK);
-					}
-					if (highlighted.containsWire(w)) {
-						GraphicsUtil.switchToWidth(g, Wire.WIDTH + 2);
-						g.drawLine(s.getX(), s.getY(), t.getX(), t.getY());
-						GraphicsUtil.switchToWidth(g, Wire.WIDTH);
-					} else {
-						g.drawLine(s.getX(), s.getY(), t.getX(), t.getY());
-					}
-				}
-			}
-
-			// this is just an approximation, but it's good enough since
-			// the problem is minor, and hidden only exists for a short
-			// while at a time anway.
-			for (Location loc : points.getSplitLocations()) {
-				if (points.getComponentCount(loc) > 2) {
-					int icount = 0;
-					for (Component comp : points.getComponents(loc)) {
-						if (!hidden.contains(comp)) ++icount;
-					}
-					if (icount > 2) {
-						WireBundle wb = bmap.getBundleAt(loc);
-						if (wb != null) {
-							if (!wb.isValid()) {
-								g.setColor(Value.WIDTH_ERROR_COLOR);
-							} else if (showState) {
-								if (!isValid) g.setColor(Value.NIL_COLOR);
-								else g.setColor(state.getValue(loc).getColor());
-							} else {
-								g.setColor(Color.BLACK);
-							}
-							if (highlighted.containsLocation(loc)) {
-								g.fillOval(loc.getX() - 5, loc.getY() - 5, 10, 10);
-							} else {
-								g.fillOval(loc.getX() - 4, loc.getY() - 4, 8, 8);
-							}
-						}
-					}
+					g.fillOval(loc.getX() - 4, loc.getY() - 4, 8, 8);
 				}
 			}
 		}
+		return drawn;
 	}
 
 	//
 	// helper methods
 	//
-	private void voidBundleMap() {
-		bundleMap = null;
+	private void voidBundleMap(Component comp) {
+		for (EndData end : comp.getEnds()) {
+			voidBundleMap(end.getLocation());
+		}
+	}
+
+	private void voidBundleMap(Location loc) {
+		synchronized (dirtyLocations) {
+			dirtyLocations.add(loc);
+			bundleMap = null;
+		}
+	}
+
+	private Set<Location> getSplitLocations() {
+		// the circuit may be edited while the simulator reads it
+		for (int i = 3; i >= 0; i--) {
+			try {
+				return new HashSet<>(points.getSplitLocations());
+			} catch (ConcurrentModificationException e) {
+				// try again...
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException ignored) {
+				}
+				if (i == 0) e.printStackTrace();
+			}
+		}
+		return Collections.emptySet();
 	}
 
 	private BundleMap getBundleMap() {
@@ -408,18 +480,46 @@ class CircuitWires {
 			ret.waitUntilComputed();
 			return ret;
 		}
+		synchronized (buildLock) {
+			ret = bundleMap;
+			if (ret != null) return ret; // built while we waited
+
+			HashSet<Location> dirty;
+			synchronized (dirtyLocations) {
+				dirty = new HashSet<>(dirtyLocations);
+				dirtyLocations.clear();
+			}
+			BundleMap base = lastMap;
+			if (base != null) {
+				try {
+					ret = deriveBundleMap(base, dirty);
+				} catch (RuntimeException e) {
+					ret = null; // the circuit changed under us; start afresh
+				}
+			}
+			if (ret == null) ret = createBundleMap();
+			ret.markComputed();
+			lastMap = ret.isValid() ? ret : null;
+			synchronized (dirtyLocations) {
+				// if there were edits meanwhile, the next caller builds on it
+				if (dirtyLocations.isEmpty()) bundleMap = ret;
+			}
+		}
+		return ret;
+	}
+
+	private BundleMap createBundleMap() {
+		BundleMap ret = null;
 		try {
-			// Ok, we have to create our own.
 			for (int tries = 4; tries >= 0; tries--) {
 				try {
 					ret = new BundleMap();
 					computeBundleMap(ret);
-					bundleMap = ret;
 					break;
 				} catch (Throwable t) {
 					if (tries == 0) {
 						t.printStackTrace();
-						bundleMap = ret;
+						numberPoints(ret);
 					}
 				}
 			}
@@ -430,22 +530,104 @@ class CircuitWires {
 			}
 
 			throw ex;
-		} finally {
-			// Mark the BundleMap as computed in case anybody is waiting for the result.
-			if (ret != null) {
-				ret.markComputed();
+		}
+		return ret;
+	}
+
+	/**
+	 * Computes the map for the circuit as it now is from the previous
+	 * one, rebuilding only the bundles connected to the dirty locations,
+	 * whether before or after the edits, and sharing the others. Returns
+	 * null if computing the whole map would do as well.
+	 */
+	private BundleMap deriveBundleMap(BundleMap base, Set<Location> dirty) {
+		if (dirty.isEmpty()) return base;
+
+		// find everything connected to a dirty location, through the
+		// old bundles, the wires, tunnels and splitters
+		HashSet<Location> region = new HashSet<>();
+		HashSet<WireBundle> removed = new HashSet<>();
+		HashSet<Wire> regionWires = new HashSet<>();
+		HashSet<Component> regionTunnels = new HashSet<>();
+		HashSet<Component> regionPulls = new HashSet<>();
+		HashSet<Splitter> regionSplitters = new HashSet<>();
+		ArrayList<Location> todo = new ArrayList<>(dirty);
+		int limit = base.pointBundles.size() / 2;
+		while (!todo.isEmpty()) {
+			Location p = todo.remove(todo.size() - 1);
+			if (!region.add(p)) continue;
+			if (region.size() > limit) return null;
+			WireBundle old = base.getBundleAt(p);
+			if (old != null && removed.add(old)) todo.addAll(old.points);
+			for (Component comp : points.getComponents(p)) {
+				if (comp instanceof Wire) {
+					Wire w = (Wire) comp;
+					if (regionWires.add(w)) {
+						todo.add(w.e0);
+						todo.add(w.e1);
+					}
+				} else if (comp instanceof Splitter) {
+					if (regionSplitters.add((Splitter) comp)) {
+						for (EndData end : comp.getEnds()) todo.add(end.getLocation());
+					}
+				} else if (tunnels.contains(comp)) {
+					String label = tunnelLabels.get(comp);
+					if (regionTunnels.add(comp) && label != null) {
+						for (Component t : tunnelsByLabel.get(label)) todo.add(t.getLocation());
+					}
+				} else if (pulls.contains(comp)) {
+					regionPulls.add(comp);
+				}
 			}
 		}
 
+		// rebuild the bundles of the region on their own
+		BundleMap part = new BundleMap();
+		computeBundles(part, regionWires, regionTunnels, regionPulls, regionSplitters);
+
+		BundleMap ret = new BundleMap();
+		ret.pointBundles.putAll(base.pointBundles);
+		ret.pointBundles.keySet().removeAll(region);
+		ret.pointBundles.putAll(part.pointBundles);
+		ret.bundles.addAll(base.bundles);
+		ret.bundles.removeAll(removed);
+		ret.bundles.addAll(part.bundles);
+		computeIncompatibilityData(ret);
+
+		// the other bundles keep their point ids, as new points are
+		// numbered after the old ones; once too many of the old points
+		// are gone, it is time to number them afresh
+		Set<Location> splitLocs = points.getSplitLocations();
+		ArrayList<Location> added = new ArrayList<>();
+		for (Location p : region) {
+			if (base.index.get(p) < 0
+				&& (part.pointBundles.containsKey(p) || splitLocs.contains(p))) {
+				added.add(p);
+			}
+		}
+		LocationIndex index = base.index.extend(added);
+		int live = Math.max(splitLocs.size(), ret.pointBundles.size());
+		if (index.size() > 2 * live + 64) return null;
+		numberPoints(part.bundles, index);
+		ret.index = index;
+		ret.delta = new Delta(base, region, removed);
 		return ret;
 	}
 
 	// To be called by getBundleMap only
 	private void computeBundleMap(BundleMap ret) {
+		computeBundles(ret, wires, tunnels, pulls, splitters);
+		computeIncompatibilityData(ret);
+		numberPoints(ret);
+	}
+
+	private void computeBundles(BundleMap ret, Collection<Wire> wires,
+			Collection<Component> tunnels, Collection<Component> pulls,
+			Collection<Splitter> splitters) {
 		// create bundles corresponding to wires and tunnels
-		connectWires(ret);
-		connectTunnels(ret);
-		connectPullResistors(ret);
+		connectWires(ret, wires);
+		connectTunnels(ret, tunnels);
+		connectPullResistors(ret, pulls);
 
 		// merge any WireBundle objects united by previous steps
 		for (Iterator<WireBundle> it = ret.getBundles().iterator(); it.hasNext(); ) {
@@ -537,7 +719,9 @@ class CircuitWires {
 				}
 			}
 		}
+	}
 
+	private void computeIncompatibilityData(BundleMap ret) {
 		// All threads are sewn together! Compute the exception set before leaving
 		Collection<WidthIncompatibilityData> exceptions = points.getWidthIncompatibilityData();
 		if (exceptions != null && exceptions.size() > 0) {
@@ -551,7 +735,27 @@ class CircuitWires {
 		}
 	}
 
-	private void connectWires(BundleMap ret) {
+	// number every point so that circuit states can keep their
+	// values in arrays rather than in hash maps
+	private void numberPoints(BundleMap ret) {
+		LocationIndex index = LocationIndex.create(points.getSplitLocations(),
+			ret.getBundlePoints());
+		numberPoints(ret.getBundles(), index);
+		ret.index = index;
+	}
+
+	private static void numberPoints(Collection<WireBundle> bundles, LocationIndex index) {
+		for (WireBundle b : bundles) {
+			int[] ids = new int[b.points.size()];
+			int i = 0;
+			for (Location p : b.points) {
+				ids[i++] = index.get(p);
+			}
+			b.pointIds = ids;
+		}
+	}
+
+	private static void connectWires(BundleMap ret, Collection<Wire> wires) {
 		// make a WireBundle object for each tree of connected wires
 		for (Wire w : wires) {
 			WireBundle b0 = ret.getBundleAt(w.e0);
@@ -571,7 +775,7 @@ class CircuitWires {
 		}
 	}
 
-	private void connectTunnels(BundleMap ret) {
+	private static void connectTunnels(BundleMap ret, Collection<Component> tunnels) {
 		// determine the sets of tunnels
 		HashMap<String, ArrayList<Location>> tunnelSets = new HashMap<>();
 		for (Component comp : tunnels) {
@@ -613,7 +817,7 @@ class CircuitWires {
 		}
 	}
 
-	private void connectPullResistors(BundleMap ret) {
+	private static void connectPullResistors(BundleMap ret, Collection<Component> pulls) {
 		for (Component comp : pulls) {
 			Location loc = comp.getEnd(0).getLocation();
 			WireBundle b = ret.getBundleAt(loc);
@@ -631,8 +835,8 @@ class CircuitWires {
 		Value ret = Value.UNKNOWN;
 		Value pull = Value.UNKNOWN;
 		for (ThreadBundle tb : t.getBundles()) {
-			for (Location p : tb.b.points) {
-				Value val = state.getComponentOutputAt(p);
+			for (int id : tb.b.pointIds) {
+				Value val = state.getComponentOutputAt(id);
 				if (val != null && val != Value.NIL) {
 					ret = ret.combine(val.get(tb.loc));
 				}
@@ -696,10 +900,16 @@ class CircuitWires {
 	@SuppressWarnings("MethodDoesntCallSuperMethod")
 	static class State {
 		final BundleMap bundleMap;
-		final HashMap<WireThread, Value> thr_values = new HashMap<>();
+		final HashMap<WireThread, Value> thr_values;
 
 		State(BundleMap bundleMap) {
+			this(bundleMap, new HashMap<>());
+		}
+
+		// takes over the values of a state for an earlier map
+		State(BundleMap bundleMap, HashMap<WireThread, Value> thr_values) {
 			this.bundleMap = bundleMap;
+			this.thr_values = thr_values;
 		}
 
 		@Override
@@ -710,9 +920,33 @@ class CircuitWires {
 		}
 	}
 
+	/**
+	 * How a derived map differs from the one it was derived from: which
+	 * locations' bundles were rebuilt, and which bundles were dropped.
+	 */
+	static class Delta {
+		final int from; // serial number of the earlier map
+		final Set<Location> region;
+		final Set<WireBundle> removed;
+		Delta previous; // from the map before that, if still kept
+
+		Delta(BundleMap base, Set<Location> region, Set<WireBundle> removed) {
+			this.from = base.serial;
+			this.region = region;
+			this.removed = removed;
+			this.previous = base.delta;
+			Delta d = this;
+			for (int i = 1; i < DELTA_DEPTH && d != null; i++) d = d.previous;
+			if (d != null) d.previous = null;
+		}
+	}
+
 	static class BundleMap {
+		final int serial = nextSerial.incrementAndGet();
 		final HashMap<Location, WireBundle> pointBundles = new HashMap<>();
 		final HashSet<WireBundle> bundles = new HashSet<>();
+		LocationIndex index = LocationIndex.EMPTY;
+		Delta delta = null; // if derived from an earlier map
 		boolean computed = false;
 		boolean isValid = true;
 		// NOTE: It would make things more efficient if we also had
@@ -734,6 +968,22 @@ class CircuitWires {
 			return pointBundles.get(p);
 		}
 
+		/**
+		 * Returns the changes since the given map, oldest first, or null
+		 * if this map was not derived from it in the last few steps.
+		 */
+		ArrayList<Delta> getDeltasSince(BundleMap old) {
+			ArrayList<Delta> ret = new ArrayList<>();
+			for (Delta d = delta; d != null; d = d.previous) {
+				ret.add(d);
+				if (d.from == old.serial) {
+					Collections.reverse(ret);
+					return ret;
+				}
+			}
+			return null;
+		}
+
 		WireBundle createBundleAt(Location p) {
 			WireBundle ret = pointBundles.get(p);
 			if (ret == null) {
@@ -780,14 +1030,25 @@ class CircuitWires {
 		}
 	}
 
+	// also hears of splitters, whose bits may be reassigned without
+	// any end moving
 	private class TunnelListener implements AttributeListener {
 		public void attributeListChanged(AttributeEvent e) {
 		}
 
 		public void attributeValueChanged(AttributeEvent e) {
+			Component comp = listened.get(e.getSource());
+			if (comp == null) return;
 			Attribute<?> attr = e.getAttribute();
-			if (attr == StdAttr.LABEL || attr == PullResistor.ATTR_PULL_TYPE) {
-				voidBundleMap();
+			if (comp instanceof Splitter) {
+				voidBundleMap(comp);
+			} else if (attr == StdAttr.LABEL && tunnels.contains(comp)) {
+				// the old partners are found through the old bundle
+				removeTunnelLabel(comp);
+				setTunnelLabel(comp);
+				voidBundleMap(comp.getLocation());
+			} else if (attr == PullResistor.ATTR_PULL_TYPE) {
+				voidBundleMap(comp.getLocation());
 			}
 		}
 	}
@@ -0,0 +1,77 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.std.wiring.Clock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The clocks of a state tree, each with the state it ticks in, listed
+ * in the order a walk of the tree would find them. The list is rebuilt
+ * only after a circuit in the tree gains or loses a clock or a state
+ * gains or loses a substate, so that ticking does not have to walk
+ * the whole tree every time.
+ */
+class ClockCache {
+	private volatile int version = 0;
+	private int builtVersion = -1;
+	private CircuitState[] states;
+	private Component[] clocks;
+	private Circuit[] circuits; // each circuit in the tree, once
+	private int[] stamps; // clockChangeCount of each circuit when built
+
+	void invalidate() {
+		version++;
+	}
+
+	boolean tick(CircuitState root, int ticks) {
+		if (!isCurrent()) build(root);
+		boolean ret = false;
+		for (int i = 0; i < clocks.length; i++) {
+			ret |= Clock.tick(states[i], ticks, clocks[i]);
+		}
+		return ret;
+	}
+
+	private boolean isCurrent() {
+		if (builtVersion != version) return false;
+		for (int i = 0; i < circuits.length; i++) {
+			if (circuits[i].clockChangeCount != stamps[i]) return false;
+		}
+		return true;
+	}
+
+	private void build(CircuitState root) {
+		int v = version;
+		ArrayList<CircuitState> stateList = new ArrayList<>();
+		ArrayList<Component> clockList = new ArrayList<>();
+		HashMap<Circuit, Integer> seen = new HashMap<>();
+		walk(root, stateList, clockList, seen);
+
+		states = stateList.toArray(new CircuitState[0]);
+		clocks = clockList.toArray(new Component[0]);
+		circuits = seen.keySet().toArray(new Circuit[0]);
+		stamps = new int[circuits.length];
+		for (int i = 0; i < circuits.length; i++) {
+			stamps[i] = seen.get(circuits[i]);
+		}
+		builtVersion = v;
+	}
+
+	private static void walk(CircuitState state, ArrayList<CircuitState> stateList,
+							 ArrayList<Component> clockList, HashMap<Circuit, Integer> seen) {
+		Circuit circuit = state.getCircuit();
+		if (!seen.containsKey(circuit)) seen.put(circuit, circuit.clockChangeCount);
+		for (Component clock : circuit.getClocks()) {
+			stateList.add(state);
+			clockList.add(clock);
+		}
+		for (CircuitState sub : state.getSubstates()) {
+			walk(sub, stateList, clockList, seen);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.instance.InstanceState;
+
+public interface CombinationalLogic {
+	/**
+	 * Computes the component's outputs from its inputs, placing them
+	 * into the state through <code>setPort</code>. The component must
+	 * keep no data between calls and must always drive its outputs
+	 * to 0 or 1 (never floating), so that a subcircuit built only of
+	 * such components can be evaluated in a single pass in
+	 * topological order.
+	 * <p>
+	 * A component should not offer this feature if its current
+	 * attributes violate these conditions.
+	 */
+	void evaluate(InstanceState state);
+}
@@ -0,0 +1,83 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+
+import java.util.*;
+
+/**
+ * A replacement map held in arrays rather than in hash tables of sets, for
+ * changes kept only to be run again later, as those of the undo history
+ * are. The components that replace <code>removals[i]</code> are the
+ * additions indexed by <code>targets[starts[i]]</code> up to
+ * <code>targets[starts[i + 1]]</code>.
+ */
+class CompactReplacement {
+	private final Component[] removals;
+	private final Component[] additions;
+	private final int[] starts;
+	private final int[] targets;
+
+	CompactReplacement(ReplacementMap map) {
+		ArrayList<Component> adds = new ArrayList<>(map.getAdditions());
+		HashMap<Component, Integer> index = new HashMap<>();
+		for (int i = 0; i < adds.size(); i++) index.put(adds.get(i), i);
+
+		removals = map.getRemovals().toArray(new Component[0]);
+		starts = new int[removals.length + 1];
+		int[] dest = new int[removals.length];
+		int count = 0;
+		for (int i = 0; i < removals.length; i++) {
+			starts[i] = count;
+			for (Component comp : map.get(removals[i])) {
+				Integer j = index.get(comp);
+				if (j == null) {
+					j = adds.size();
+					adds.add(comp);
+					index.put(comp, j);
+				}
+				if (count == dest.length) dest = Arrays.copyOf(dest, 2 * count);
+				dest[count++] = j;
+			}
+		}
+		starts[removals.length] = count;
+		targets = Arrays.copyOf(dest, count);
+		additions = adds.toArray(new Component[0]);
+	}
+
+	List<Component> getRemovals() {
+		return Arrays.asList(removals);
+	}
+
+	List<Component> getAdditions() {
+		return Arrays.asList(additions);
+	}
+
+	ReplacementMap toMap() {
+		ReplacementMap ret = new ReplacementMap();
+		boolean[] replacing = new boolean[additions.length];
+		for (int i = 0; i < removals.length; i++) {
+			if (starts[i] == starts[i + 1]) {
+				ret.remove(removals[i]);
+			} else {
+				ArrayList<Component> next = new ArrayList<>(starts[i + 1] - starts[i]);
+				for (int j = starts[i]; j < starts[i + 1]; j++) {
+					next.add(additions[targets[j]]);
+					replacing[targets[j]] = true;
+				}
+				ret.put(removals[i], next);
+			}
+		}
+		for (int i = 0; i < additions.length; i++) {
+			if (!replacing[i]) ret.add(additions[i]);
+		}
+		ret.freeze();
+		return ret;
+	}
+
+	int getReferenceCount() {
+		return removals.length + additions.length + targets.length;
+	}
+}
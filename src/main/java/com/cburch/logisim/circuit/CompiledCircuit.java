@@ -0,0 +1,342 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceData;
+import com.cburch.logisim.instance.InstanceFactory;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A levelized form of a subcircuit built only of pins and components
+ * offering {@link CombinationalLogic}, with no feedback and at most
+ * one driver per net. Instead of sending events through the
+ * subcircuit, its gates are evaluated once each in topological order
+ * whenever the subcircuit's inputs change. Anything else - splitters,
+ * tunnels, tri-state outputs, clocks, memory, nested subcircuits -
+ * makes the circuit uncompilable, and it is simulated by events.
+ */
+class CompiledCircuit {
+	private final int stamp; // Circuit.changeCount when compiled
+	private Gate[] gates = null; // in topological order; null if uncompilable
+	private Value[] undriven; // value of each net when nothing drives it
+	private Location[][] netPoints; // points on each net
+	private int[] netDelay; // delay from the inputs to each net
+	private HashMap<Instance, Integer> pinNets;
+
+	private CompiledCircuit(int stamp) {
+		this.stamp = stamp;
+	}
+
+	/**
+	 * Returns the compiled form of the circuit, or null if it must
+	 * be simulated by events.
+	 */
+	static CompiledCircuit get(Circuit circuit) {
+		int stamp = circuit.changeCount;
+		CompiledCircuit ret = circuit.compiled;
+		if (ret == null || ret.stamp != stamp) {
+			ret = new CompiledCircuit(stamp);
+			try {
+				ret.compile(circuit);
+			} catch (ConcurrentModificationException e) {
+				return null; // circuit is being modified; try again later
+			}
+			circuit.compiled = ret;
+		}
+		return ret.gates == null ? null : ret;
+	}
+
+	private void compile(Circuit circuit) {
+		Set<WidthIncompatibilityData> exceptions = circuit.getWidthIncompatibilityData();
+		if (exceptions != null && !exceptions.isEmpty()) return;
+
+		NetBuilder nets = new NetBuilder(circuit);
+		ArrayList<Gate> gateList = new ArrayList<>();
+		HashMap<Instance, Integer> pins = new HashMap<>();
+		ArrayList<Integer> pinDriven = new ArrayList<>();
+		for (Component comp : circuit.getNonWires()) {
+			if (comp.getFactory() instanceof Pin) {
+				int net = nets.get(comp.getEnd(0).getLocation());
+				if (net < 0) return;
+				Instance pin = Instance.getInstanceFor(comp);
+				pins.put(pin, net);
+				if (Pin.FACTORY.isInputPin(pin)) {
+					pinDriven.add(net);
+				}
+			} else if (!comp.getEnds().isEmpty()) {
+				Object logic = comp.getFeature(CombinationalLogic.class);
+				if (!(logic instanceof CombinationalLogic)) return;
+				List<EndData> ends = comp.getEnds();
+				Gate gate = new Gate(comp, (CombinationalLogic) logic, ends.size());
+				for (int i = 0; i < ends.size(); i++) {
+					EndData end = ends.get(i);
+					if (end.isInput() && end.isOutput()) return;
+					Location loc = end.getLocation();
+					gate.ports[i] = nets.get(loc);
+					if (gate.ports[i] < 0) return;
+					gate.isOutput[i] = end.isOutput();
+					gate.connected[i] = circuit.isConnected(loc, comp);
+				}
+				gateList.add(gate);
+			}
+		}
+		for (Wire w : circuit.getWires()) {
+			if (nets.get(w.getEnd0()) < 0) return;
+		}
+
+		// find each net's driver: -1 for none, -2 for an input pin
+		int netCount = nets.size();
+		int[] driver = new int[netCount];
+		Arrays.fill(driver, -1);
+		for (int net : pinDriven) {
+			if (driver[net] != -1) return;
+			driver[net] = -2;
+		}
+		for (int g = 0; g < gateList.size(); g++) {
+			Gate gate = gateList.get(g);
+			for (int i = 0; i < gate.ports.length; i++) {
+				if (gate.isOutput[i]) {
+					if (driver[gate.ports[i]] != -1) return;
+					driver[gate.ports[i]] = g;
+				}
+			}
+		}
+
+		// order the gates topologically, failing if there is a cycle
+		int[] pending = new int[gateList.size()];
+		ArrayList<ArrayList<Integer>> readers = new ArrayList<>();
+		for (int net = 0; net < netCount; net++) readers.add(null);
+		for (int g = 0; g < gateList.size(); g++) {
+			Gate gate = gateList.get(g);
+			for (int i = 0; i < gate.ports.length; i++) {
+				int net = gate.ports[i];
+				if (!gate.isOutput[i] && driver[net] >= 0) {
+					pending[g]++;
+					if (readers.get(net) == null) readers.set(net, new ArrayList<>());
+					readers.get(net).add(g);
+				}
+			}
+		}
+		int[] level = new int[netCount];
+		for (int net = 0; net < netCount; net++) {
+			if (driver[net] == -2) level[net] = 1;
+		}
+		Gate[] order = new Gate[gateList.size()];
+		int[] queue = new int[gateList.size()];
+		int queueEnd = 0;
+		for (int g = 0; g < pending.length; g++) {
+			if (pending[g] == 0) queue[queueEnd++] = g;
+		}
+		for (int done = 0; done < queueEnd; done++) {
+			Gate gate = gateList.get(queue[done]);
+			order[done] = gate;
+			int gateLevel = 0;
+			for (int i = 0; i < gate.ports.length; i++) {
+				if (!gate.isOutput[i]) gateLevel = Math.max(gateLevel, level[gate.ports[i]]);
+			}
+			for (int i = 0; i < gate.ports.length; i++) {
+				if (!gate.isOutput[i]) continue;
+				int net = gate.ports[i];
+				level[net] = gateLevel + 1;
+				if (readers.get(net) == null) continue;
+				for (int r : readers.get(net)) {
+					pending[r]--;
+					if (pending[r] == 0) queue[queueEnd++] = r;
+				}
+			}
+		}
+		if (queueEnd < order.length) return; // feedback
+
+		netDelay = new int[netCount];
+		for (int net = 0; net < netCount; net++) netDelay[net] = level[net] + 1;
+		undriven = nets.undriven.toArray(new Value[0]);
+		netPoints = nets.points.toArray(new Location[0][]);
+		pinNets = pins;
+		gates = order;
+	}
+
+	/**
+	 * Evaluates the subcircuit for the values now at the instance's
+	 * ports, sending any changed outputs back to the superstate.
+	 */
+	void propagate(InstanceState superState, CircuitState subState, Instance[] pins) {
+		Value[] vals = undriven.clone();
+		for (int i = 0; i < pins.length; i++) {
+			Instance pin = pins[i];
+			if (Pin.FACTORY.isInputPin(pin)) {
+				InstanceState pinState = subState.getInstanceState(pin);
+				Pin.FACTORY.setValue(pinState, superState.getPort(i));
+				Integer net = pinNets.get(pin);
+				if (net != null) vals[net] = Pin.FACTORY.getDrivenValue(pinState);
+			}
+		}
+
+		Evaluation eval = new Evaluation(subState.getProject(), vals,
+			superState.getTickCount());
+		for (Gate gate : gates) {
+			eval.gate = gate;
+			gate.logic.evaluate(eval);
+		}
+
+		Value[] old = subState.getCompiledValues(this);
+		for (int net = 0; net < vals.length; net++) {
+			if (old == null || !vals[net].equals(old[net])) {
+				for (Location p : netPoints[net]) {
+					subState.setCompiledValue(p, vals[net]);
+				}
+			}
+		}
+		subState.setCompiledValues(this, vals);
+
+		for (int i = 0; i < pins.length; i++) {
+			Instance pin = pins[i];
+			Integer net = pinNets.get(pin);
+			if (net == null) continue;
+			Value val = vals[net];
+			Pin.FACTORY.setFoundValue(subState.getInstanceState(pin), val);
+			if (!Pin.FACTORY.isInputPin(pin) && (old == null || !val.equals(old[net]))) {
+				superState.setPort(i, val, netDelay[net]);
+			}
+		}
+		subState.getPropagator().countSubcircuitUpdate(gates.length);
+	}
+
+	private static class Gate {
+		final Component comp;
+		final Instance instance;
+		final CombinationalLogic logic;
+		final int[] ports; // net of each port
+		final boolean[] isOutput;
+		final boolean[] connected;
+
+		Gate(Component comp, CombinationalLogic logic, int portCount) {
+			this.comp = comp;
+			this.instance = Instance.getInstanceFor(comp);
+			this.logic = logic;
+			this.ports = new int[portCount];
+			this.isOutput = new boolean[portCount];
+			this.connected = new boolean[portCount];
+		}
+	}
+
+	private static class NetBuilder {
+		final Circuit circuit;
+		final HashMap<Object, Integer> ids = new HashMap<>(); // WireBundle or Location
+		final ArrayList<Value> undriven = new ArrayList<>();
+		final ArrayList<Location[]> points = new ArrayList<>();
+
+		NetBuilder(Circuit circuit) {
+			this.circuit = circuit;
+		}
+
+		int size() {
+			return undriven.size();
+		}
+
+		int get(Location loc) {
+			WireBundle bundle = circuit.wires.getWireBundle(loc);
+			Object key = bundle == null ? loc : bundle;
+			Integer ret = ids.get(key);
+			if (ret != null) return ret;
+
+			BitWidth width;
+			Location[] pts;
+			if (bundle == null) {
+				width = circuit.getWidth(loc);
+				pts = new Location[]{loc};
+			} else {
+				if (!bundle.isValid() || bundle.getPullValue() != Value.UNKNOWN) {
+					return -1;
+				}
+				width = bundle.getWidth();
+				pts = bundle.points.toArray(new Location[0]);
+			}
+			ret = undriven.size();
+			ids.put(key, ret);
+			undriven.add(Value.createUnknown(width));
+			points.add(pts);
+			return ret;
+		}
+	}
+
+	private static class Evaluation implements InstanceState {
+		private final Project proj;
+		private final Value[] vals;
+		private final long tickCount;
+		private Gate gate = null;
+
+		Evaluation(Project proj, Value[] vals, long tickCount) {
+			this.proj = proj;
+			this.vals = vals;
+			this.tickCount = tickCount;
+		}
+
+		public Instance getInstance() {
+			return gate.instance;
+		}
+
+		public InstanceFactory getFactory() {
+			return gate.instance.getFactory();
+		}
+
+		public Project getProject() {
+			return proj;
+		}
+
+		public AttributeSet getAttributeSet() {
+			return gate.comp.getAttributeSet();
+		}
+
+		public <E> E getAttributeValue(Attribute<E> attr) {
+			return gate.comp.getAttributeSet().getValue(attr);
+		}
+
+		public Value getPort(int portIndex) {
+			return vals[gate.ports[portIndex]];
+		}
+
+		public boolean isPortConnected(int portIndex) {
+			return gate.connected[portIndex];
+		}
+
+		public void setPort(int portIndex, Value value, int delay) {
+			vals[gate.ports[portIndex]] = value;
+		}
+
+		public InstanceData getData() {
+			return null;
+		}
+
+		public void setData(InstanceData value) {
+		}
+
+		public void fireInvalidated() {
+		}
+
+		public boolean isCircuitRoot() {
+			return false;
+		}
+
+		public long getTickCount() {
+			return tickCount;
+		}
+	}
+}
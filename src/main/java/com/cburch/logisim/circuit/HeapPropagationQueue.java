@@ -0,0 +1,36 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+
+import java.util.PriorityQueue;
+
+class HeapPropagationQueue implements PropagationQueue {
+	private final PriorityQueue<SetData> heap = new PriorityQueue<>();
+
+	public void add(SetData data) {
+		heap.add(data);
+	}
+
+	public SetData peek() {
+		return heap.peek();
+	}
+
+	public SetData poll() {
+		return heap.poll();
+	}
+
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	public void clear() {
+		heap.clear();
+	}
+}
@@ -0,0 +1,112 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.data.Location;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+/**
+ * Assigns a dense integer id to every point of a circuit that may carry a
+ * value. An index is built along with each BundleMap and never changes
+ * afterwards; when the circuit is edited, a new index replaces it. A map
+ * derived from the previous one extends its index, so that the ids of
+ * the points it shares keep their meaning; points that have gone away
+ * keep their ids until the points are next numbered afresh.
+ */
+class LocationIndex {
+	static final LocationIndex EMPTY = new LocationIndex(new Location[0], new Object());
+
+	private final Location[] locations; // indexed by id
+	private final Location[] table; // open addressing over locations
+	private final int[] tableIds;
+	private final Object lineage; // shared by an index and its extensions
+
+	private LocationIndex(Location[] locations, Object lineage) {
+		this.locations = locations;
+		this.lineage = lineage;
+		int capacity = 4;
+		while (capacity < 2 * locations.length) capacity <<= 1;
+		this.table = new Location[capacity];
+		this.tableIds = new int[capacity];
+		for (int id = 0; id < locations.length; id++) insert(id);
+	}
+
+	private LocationIndex(LocationIndex base, Location[] locations) {
+		// the base's table has room, so only the new ids need inserting
+		this.locations = locations;
+		this.lineage = base.lineage;
+		this.table = base.table.clone();
+		this.tableIds = base.tableIds.clone();
+		for (int id = base.locations.length; id < locations.length; id++) insert(id);
+	}
+
+	static LocationIndex create(Collection<Location> a, Collection<Location> b) {
+		LinkedHashSet<Location> all = new LinkedHashSet<>(a);
+		all.addAll(b);
+		return new LocationIndex(all.toArray(new Location[0]), new Object());
+	}
+
+	/**
+	 * Returns an index giving the same ids as this one, and ids after
+	 * them to the given locations, none of which this one indexes.
+	 */
+	LocationIndex extend(Collection<Location> added) {
+		if (added.isEmpty()) return this;
+		Location[] all = Arrays.copyOf(locations, locations.length + added.size());
+		int id = locations.length;
+		for (Location loc : added) all[id++] = loc;
+		if (2 * all.length <= table.length) {
+			return new LocationIndex(this, all);
+		} else {
+			return new LocationIndex(all, lineage);
+		}
+	}
+
+	/**
+	 * Returns whether this index gives every location of the other the
+	 * same id. Maps are derived from one another one at a time, so that
+	 * an index is only ever extended once.
+	 */
+	boolean isExtensionOf(LocationIndex other) {
+		return other.lineage == lineage && other.locations.length <= locations.length;
+	}
+
+	int size() {
+		return locations.length;
+	}
+
+	Location get(int id) {
+		return locations[id];
+	}
+
+	/**
+	 * Returns the id of the location, or -1 if it is not indexed.
+	 */
+	int get(Location loc) {
+		int mask = table.length - 1;
+		int i = slot(loc) & mask;
+		while (true) {
+			Location cur = table[i];
+			if (cur == null) return -1;
+			if (cur == loc || cur.equals(loc)) return tableIds[i];
+			i = (i + 1) & mask;
+		}
+	}
+
+	private void insert(int id) {
+		int mask = table.length - 1;
+		int i = slot(locations[id]) & mask;
+		while (table[i] != null) i = (i + 1) & mask;
+		table[i] = locations[id];
+		tableIds[i] = id;
+	}
+
+	private static int slot(Location loc) {
+		int h = loc.hashCode();
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,172 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.data.Location;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * A map from locations to per-state data (values or causes) that keeps
+ * entries for indexed locations in a flat array. Locations that are not
+ * part of the current LocationIndex, which can happen between an edit of
+ * the circuit and the next wire propagation, go into a small overflow map
+ * until {@link #reindex} moves them into the array.
+ * <p>
+ * The index and its array are swapped as one object, so that a reader on
+ * another thread (such as the canvas painter) never pairs an id from one
+ * index with the array of another. A copy made by {@link #share} holds the
+ * same array until this map is next written, so snapshots of a state cost
+ * nothing when its values do not change.
+ */
+class LocationValueMap<V> {
+	private static final Table EMPTY = new Table(LocationIndex.EMPTY);
+
+	private Table table = EMPTY;
+	private HashMap<Location, V> overflow = null;
+	private boolean shared = false; // whether a copy holds the same table
+
+	LocationIndex getIndex() {
+		return table.index;
+	}
+
+	@SuppressWarnings("unchecked")
+	V get(Location loc) {
+		Table t = table;
+		int id = t.index.get(loc);
+		if (id >= 0) return (V) t.slots[id];
+		HashMap<Location, V> over = overflow;
+		return over == null ? null : over.get(loc);
+	}
+
+	@SuppressWarnings("unchecked")
+	V get(int id) {
+		return (V) table.slots[id];
+	}
+
+	V put(Location loc, V value) {
+		int id = table.index.get(loc);
+		if (id >= 0) return put(id, value);
+		if (overflow == null) overflow = new HashMap<>();
+		return overflow.put(loc, value);
+	}
+
+	@SuppressWarnings("unchecked")
+	V put(int id, V value) {
+		if (shared) {
+			Table t = new Table(table.index);
+			System.arraycopy(table.slots, 0, t.slots, 0, t.slots.length);
+			table = t;
+			shared = false;
+		}
+		Object[] slots = table.slots;
+		V old = (V) slots[id];
+		slots[id] = value;
+		return old;
+	}
+
+	V remove(Location loc) {
+		int id = table.index.get(loc);
+		if (id >= 0) return put(id, null);
+		return overflow == null ? null : overflow.remove(loc);
+	}
+
+	void clear() {
+		table = new Table(table.index);
+		overflow = null;
+		shared = false;
+	}
+
+	@SuppressWarnings("unchecked")
+	void forEach(BiConsumer<Location, V> action) {
+		Table t = table;
+		for (int id = 0; id < t.slots.length; id++) {
+			if (t.slots[id] != null) action.accept(t.index.get(id), (V) t.slots[id]);
+		}
+		if (overflow != null) overflow.forEach(action);
+	}
+
+	void copyFrom(LocationValueMap<V> src) {
+		Table t = new Table(src.table.index);
+		System.arraycopy(src.table.slots, 0, t.slots, 0, t.slots.length);
+		table = t;
+		overflow = src.overflow == null ? null : new HashMap<>(src.overflow);
+		shared = false;
+	}
+
+	/**
+	 * Returns a copy of this map. The two share the array of values until
+	 * either is written, when the one written makes its own.
+	 */
+	LocationValueMap<V> share() {
+		LocationValueMap<V> ret = new LocationValueMap<>();
+		ret.table = table;
+		ret.overflow = overflow == null ? null : new HashMap<>(overflow);
+		ret.shared = true;
+		shared = true;
+		return ret;
+	}
+
+	/** Returns whether this map is unchanged since the copy was shared. */
+	boolean isSharedWith(LocationValueMap<V> copy) {
+		return table == copy.table && Objects.equals(overflow, copy.overflow);
+	}
+
+	/**
+	 * Moves all entries over to the ids of a new index. This is just a
+	 * copy when the new index extends the old one.
+	 */
+	@SuppressWarnings("unchecked")
+	void reindex(LocationIndex newIndex) {
+		Table old = table;
+		if (newIndex == old.index) return;
+		HashMap<Location, V> oldOverflow = overflow;
+		Table t = new Table(newIndex);
+		HashMap<Location, V> newOverflow = null;
+		if (newIndex.isExtensionOf(old.index)) {
+			// the ids are unchanged, and only the overflow may move
+			System.arraycopy(old.slots, 0, t.slots, 0, old.slots.length);
+		} else {
+			for (int id = 0; id < old.slots.length; id++) {
+				if (old.slots[id] != null) {
+					Location loc = old.index.get(id);
+					int newId = newIndex.get(loc);
+					if (newId >= 0) {
+						t.slots[newId] = old.slots[id];
+					} else {
+						if (newOverflow == null) newOverflow = new HashMap<>();
+						newOverflow.put(loc, (V) old.slots[id]);
+					}
+				}
+			}
+		}
+		if (oldOverflow != null) {
+			for (Map.Entry<Location, V> entry : oldOverflow.entrySet()) {
+				int newId = newIndex.get(entry.getKey());
+				if (newId >= 0) {
+					t.slots[newId] = entry.getValue();
+				} else {
+					if (newOverflow == null) newOverflow = new HashMap<>();
+					newOverflow.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		overflow = newOverflow;
+		table = t;
+		shared = false;
+	}
+
+	private static class Table {
+		final LocationIndex index;
+		final Object[] slots;
+
+		Table(LocationIndex index) {
+			this.index = index;
+			this.slots = new Object[index.size()];
+		}
+	}
+}
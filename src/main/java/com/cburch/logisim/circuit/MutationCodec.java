@@ -0,0 +1,397 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes the changes of a mutation by value, so that they can be read
+ * back and made again to the circuits as they were when the changes were
+ * first made. How circuits and component factories are referred to is up
+ * to the References given. Components are written in full the first time
+ * they appear. Those the changes put into a circuit are created again
+ * from their factory, location and attributes; the others are found in
+ * their circuit by factory and location, preferring one whose attributes
+ * were as they are written, which is as they stood before the changes.
+ */
+public class MutationCodec {
+	public interface References {
+		void writeCircuit(DataOutput out, Circuit circuit) throws IOException;
+
+		void writeFactory(DataOutput out, ComponentFactory factory) throws IOException;
+
+		Circuit readCircuit(DataInput in) throws IOException;
+
+		ComponentFactory readFactory(DataInput in) throws IOException;
+	}
+
+	private final References refs;
+
+	public MutationCodec(References refs) {
+		this.refs = refs;
+	}
+
+	// Writes the changes the transaction made. A transaction run within
+	// another cannot be written, as its changes are interleaved with those
+	// of the other, which is done only after it.
+	public byte[] write(CircuitTransactionResult result) throws IOException {
+		if (result.isNested()) {
+			throw new IllegalArgumentException("transaction was nested within another");
+		}
+		return write(result.getChanges());
+	}
+
+	// throws IllegalArgumentException if some value cannot be written
+	byte[] write(List<CircuitChange> changes) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new Writer(new DataOutputStream(bytes), changes).write();
+		return bytes.toByteArray();
+	}
+
+	public CircuitMutation read(byte[] data) throws IOException {
+		try {
+			return new Reader(new DataInputStream(new ByteArrayInputStream(data))).read();
+		} catch (RuntimeException e) {
+			throw new IOException(e.toString(), e);
+		}
+	}
+
+	// the name and standard string of each attribute that would be saved
+	private static Map<String, String> getValues(AttributeSet attrs) {
+		LinkedHashMap<String, String> ret = new LinkedHashMap<>();
+		for (Attribute<?> attrBase : attrs.getAttributes()) {
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) attrBase;
+			Object val = attrs.getValue(attr);
+			if (attrs.isToSave(attr) && val != null) {
+				ret.put(attr.getName(), attr.toStandardString(val));
+			}
+		}
+		return ret;
+	}
+
+	private class Writer {
+		private final DataOutputStream out;
+		private final List<CircuitChange> changes;
+		private final IdentityHashMap<Component, Integer> comps = new IdentityHashMap<>();
+		// the value each attribute set by the changes had before them
+		private final IdentityHashMap<Component, Map<Attribute<?>, Object>> before
+			= new IdentityHashMap<>();
+
+		Writer(DataOutputStream out, List<CircuitChange> changes) {
+			this.out = out;
+			this.changes = changes;
+			for (CircuitChange change : changes) {
+				if (change.getType() == CircuitChange.SET) {
+					before.computeIfAbsent(change.getComponent(), c -> new HashMap<>())
+						.putIfAbsent(change.getAttribute(), change.getOldValue());
+				}
+			}
+		}
+
+		void write() throws IOException {
+			out.writeInt(changes.size());
+			for (CircuitChange change : changes) {
+				int type = change.getType();
+				out.writeByte(type);
+				refs.writeCircuit(out, change.getCircuit());
+				switch (type) {
+					case CircuitChange.CLEAR:
+						break;
+					case CircuitChange.ADD:
+					case CircuitChange.REMOVE:
+						writeComponent(change.getComponent(), type == CircuitChange.ADD);
+						break;
+					case CircuitChange.ADD_ALL:
+					case CircuitChange.REMOVE_ALL:
+						Collection<? extends Component> list = change.getComponents();
+						out.writeInt(list.size());
+						for (Component comp : list) {
+							writeComponent(comp, type == CircuitChange.ADD_ALL);
+						}
+						break;
+					case CircuitChange.REPLACE:
+						writeReplacements(change.getReplacementMap());
+						break;
+					case CircuitChange.SET:
+						writeComponent(change.getComponent(), false);
+						writeValue(change.getAttribute(), change.getNewValue());
+						break;
+					case CircuitChange.SET_FOR_CIRCUIT:
+						writeValue(change.getAttribute(), change.getNewValue());
+						break;
+					default:
+						throw new IllegalArgumentException("unknown change type " + type);
+				}
+			}
+		}
+
+		private void writeReplacements(ReplacementMap repl) throws IOException {
+			ArrayList<Component> removals = new ArrayList<>(repl.getRemovals());
+			ArrayList<Component> additions = new ArrayList<>(repl.getAdditions());
+			HashMap<Component, Integer> index = new HashMap<>();
+			for (int i = 0; i < additions.size(); i++) index.put(additions.get(i), i);
+			out.writeInt(removals.size());
+			for (Component comp : removals) writeComponent(comp, false);
+			out.writeInt(additions.size());
+			for (Component comp : additions) writeComponent(comp, true);
+			for (Component comp : removals) {
+				Collection<Component> next = repl.get(comp);
+				out.writeInt(next.size());
+				for (Component c : next) out.writeInt(index.get(c));
+			}
+		}
+
+		// writes the component in full the first time it appears; adding
+		// tells whether the changes put it into its circuit there
+		private void writeComponent(Component comp, boolean adding) throws IOException {
+			Integer id = comps.get(comp);
+			if (id != null) {
+				out.writeInt(id);
+				return;
+			}
+			int n = comps.size();
+			comps.put(comp, n);
+			out.writeInt(n);
+			out.writeBoolean(adding);
+			if (comp instanceof Wire) {
+				Wire w = (Wire) comp;
+				out.writeBoolean(true);
+				writeLocation(w.getEnd0());
+				writeLocation(w.getEnd1());
+			} else {
+				out.writeBoolean(false);
+				refs.writeFactory(out, comp.getFactory());
+				writeLocation(comp.getLocation());
+				Map<String, String> values = getValues(comp.getAttributeSet());
+				Map<Attribute<?>, Object> prev = before.get(comp);
+				if (prev != null) {
+					for (Map.Entry<Attribute<?>, Object> e : prev.entrySet()) {
+						@SuppressWarnings("unchecked")
+						Attribute<Object> attr = (Attribute<Object>) e.getKey();
+						if (values.containsKey(attr.getName()) && e.getValue() != null) {
+							values.put(attr.getName(), attr.toStandardString(e.getValue()));
+						}
+					}
+				}
+				out.writeInt(values.size());
+				for (Map.Entry<String, String> e : values.entrySet()) {
+					writeString(e.getKey());
+					writeString(e.getValue());
+				}
+			}
+		}
+
+		private void writeValue(Attribute<?> attrBase, Object value) throws IOException {
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) attrBase;
+			writeString(attr.getName());
+			out.writeBoolean(value != null);
+			if (value != null) {
+				String str = attr.toStandardString(value);
+				attr.parse(str); // throws if it cannot be read back
+				writeString(str);
+			}
+		}
+
+		private void writeLocation(Location loc) throws IOException {
+			out.writeInt(loc.getX());
+			out.writeInt(loc.getY());
+		}
+
+		private void writeString(String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private class Reader {
+		private final DataInputStream in;
+		private final ArrayList<Component> comps = new ArrayList<>();
+		private final Set<Component> found
+			= Collections.newSetFromMap(new IdentityHashMap<>());
+
+		Reader(DataInputStream in) {
+			this.in = in;
+		}
+
+		// A component that cannot be found leaves out what refers to it.
+		CircuitMutation read() throws IOException {
+			CircuitMutation ret = new CircuitMutation();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				int type = in.readByte();
+				Circuit circ = refs.readCircuit(in);
+				switch (type) {
+					case CircuitChange.CLEAR:
+						ret.change(CircuitChange.clear(circ, null));
+						break;
+					case CircuitChange.ADD:
+					case CircuitChange.REMOVE: {
+						Component comp = readComponent(circ);
+						if (comp == null) break;
+						ret.change(type == CircuitChange.ADD
+							? CircuitChange.add(circ, comp)
+							: CircuitChange.remove(circ, comp));
+						break;
+					}
+					case CircuitChange.ADD_ALL:
+					case CircuitChange.REMOVE_ALL: {
+						ArrayList<Component> list = readComponents(circ);
+						ret.change(type == CircuitChange.ADD_ALL
+							? CircuitChange.addAll(circ, list)
+							: CircuitChange.removeAll(circ, list));
+						break;
+					}
+					case CircuitChange.REPLACE:
+						ret.change(CircuitChange.replace(circ, readReplacements(circ)));
+						break;
+					case CircuitChange.SET: {
+						Component comp = readComponent(circ);
+						String attrName = readString();
+						Attribute<?> attr = comp == null ? null
+							: comp.getAttributeSet().getAttribute(attrName);
+						Object value = readValue(attr);
+						if (attr != null) ret.change(CircuitChange.set(circ, comp, attr, value));
+						break;
+					}
+					case CircuitChange.SET_FOR_CIRCUIT: {
+						String attrName = readString();
+						Attribute<?> attr = circ.getStaticAttributes().getAttribute(attrName);
+						Object value = readValue(attr);
+						if (attr != null) ret.change(CircuitChange.setForCircuit(circ, attr, value));
+						break;
+					}
+					default:
+						throw new IOException("unknown change type " + type);
+				}
+			}
+			return ret;
+		}
+
+		private ArrayList<Component> readComponents(Circuit circ) throws IOException {
+			int n = in.readInt();
+			ArrayList<Component> ret = new ArrayList<>(n);
+			for (int i = 0; i < n; i++) {
+				Component comp = readComponent(circ);
+				if (comp != null) ret.add(comp);
+			}
+			return ret;
+		}
+
+		private ReplacementMap readReplacements(Circuit circ) throws IOException {
+			int n = in.readInt();
+			Component[] removals = new Component[n];
+			for (int i = 0; i < n; i++) removals[i] = readComponent(circ);
+			int m = in.readInt();
+			Component[] additions = new Component[m];
+			for (int i = 0; i < m; i++) additions[i] = readComponent(circ);
+
+			ReplacementMap ret = new ReplacementMap();
+			boolean[] replacing = new boolean[m];
+			for (Component prev : removals) {
+				int k = in.readInt();
+				ArrayList<Component> next = new ArrayList<>(k);
+				for (int j = 0; j < k; j++) {
+					int index = in.readInt();
+					if (additions[index] != null) next.add(additions[index]);
+					replacing[index] = true;
+				}
+				if (prev == null) continue;
+				if (next.isEmpty()) ret.remove(prev);
+				else ret.put(prev, next);
+			}
+			for (int i = 0; i < m; i++) {
+				if (!replacing[i] && additions[i] != null) ret.add(additions[i]);
+			}
+			ret.freeze();
+			return ret;
+		}
+
+		private Component readComponent(Circuit circ) throws IOException {
+			int id = in.readInt();
+			if (id < comps.size()) return comps.get(id);
+
+			boolean adding = in.readBoolean();
+			Component ret;
+			if (in.readBoolean()) {
+				Wire w = Wire.create(readLocation(), readLocation());
+				ret = adding ? w : findWire(circ, w);
+			} else {
+				ComponentFactory factory = refs.readFactory(in);
+				Location loc = readLocation();
+				int n = in.readInt();
+				HashMap<String, String> values = new LinkedHashMap<>();
+				for (int i = 0; i < n; i++) values.put(readString(), readString());
+				if (factory == null) ret = null;
+				else if (adding) ret = create(factory, loc, values);
+				else ret = find(circ, factory, loc, values);
+			}
+			comps.add(ret);
+			if (ret != null) found.add(ret);
+			return ret;
+		}
+
+		private Component create(ComponentFactory factory, Location loc,
+								 Map<String, String> values) {
+			AttributeSet attrs = factory.createAttributeSet();
+			// the attribute list is fetched again each time, as setting
+			// a value may change it (as it does for a splitter)
+			for (int i = 0; true; i++) {
+				List<Attribute<?>> attrList = attrs.getAttributes();
+				if (i >= attrList.size()) break;
+				@SuppressWarnings("unchecked")
+				Attribute<Object> attr = (Attribute<Object>) attrList.get(i);
+				String value = values.get(attr.getName());
+				if (value != null) attrs.setValue(attr, attr.parse(value));
+			}
+			return factory.createComponent(loc, attrs);
+		}
+
+		private Component find(Circuit circ, ComponentFactory factory, Location loc,
+							   Map<String, String> values) {
+			Component ret = null;
+			for (Component comp : circ.getNonWires(loc)) {
+				if (comp.getFactory() != factory || !comp.getLocation().equals(loc)
+					|| found.contains(comp)) continue;
+				if (getValues(comp.getAttributeSet()).equals(values)) return comp;
+				if (ret == null) ret = comp;
+			}
+			return ret;
+		}
+
+		private Component findWire(Circuit circ, Wire w) {
+			for (Wire comp : circ.getWires(w.getEnd0())) {
+				if (comp.equals(w) && !found.contains(comp)) return comp;
+			}
+			return null;
+		}
+
+		private Object readValue(Attribute<?> attr) throws IOException {
+			if (!in.readBoolean()) return null;
+			String value = readString();
+			return attr == null ? null : attr.parse(value);
+		}
+
+		private Location readLocation() throws IOException {
+			int x = in.readInt();
+			return Location.create(x, in.readInt());
+		}
+
+		private String readString() throws IOException {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
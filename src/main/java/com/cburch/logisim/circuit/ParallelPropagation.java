@@ -0,0 +1,180 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Processes the substates of a CircuitState concurrently. While a
+ * substate is processed on a worker, whatever it would send to the
+ * Propagator is recorded instead; once all substates are done, the
+ * recordings are replayed in the order the substates would have been
+ * processed serially, so events get the same serial numbers (and the
+ * same random noise) as they would on one thread.
+ */
+class ParallelPropagation {
+	private final Propagator prop;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<Recording> current = new ThreadLocal<>();
+
+	ParallelPropagation(Propagator prop, int workers) {
+		this.prop = prop;
+		this.pool = new ForkJoinPool(workers);
+	}
+
+	int getWorkers() {
+		return pool.getParallelism();
+	}
+
+	void shutdown() {
+		pool.shutdown();
+	}
+
+	Recording getRecording() {
+		// the recording of the task running on this thread, if any
+		return current.get();
+	}
+
+	void processDirtyComponents(CircuitState[] subs) {
+		process(subs, false);
+	}
+
+	void processDirtyPoints(CircuitState[] subs) {
+		process(subs, true);
+	}
+
+	private void process(CircuitState[] subs, boolean points) {
+		for (CircuitState sub : subs) {
+			// avoid several workers building the same BundleMap
+			CircuitWires wires = sub.getCircuit().wires;
+			if (wires.isMapVoided()) wires.ensureComputed();
+		}
+		int grain = Math.max(1, subs.length / (4 * pool.getParallelism()));
+		Task task = new Task(subs, 0, subs.length, grain, points);
+		if (ForkJoinTask.inForkJoinPool()) {
+			task.invoke(); // a substate's own substates
+		} else {
+			pool.invoke(task);
+		}
+		task.recording.replay(prop);
+	}
+
+	private class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final CircuitState[] subs;
+		private final int start;
+		private final int end;
+		private final int grain;
+		private final boolean points;
+		private Recording recording;
+
+		Task(CircuitState[] subs, int start, int end, int grain, boolean points) {
+			this.subs = subs;
+			this.start = start;
+			this.end = end;
+			this.grain = grain;
+			this.points = points;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= grain) {
+				recording = new Recording();
+				Recording outer = current.get();
+				current.set(recording);
+				try {
+					for (int i = start; i < end; i++) {
+						if (points) subs[i].processDirtyPoints();
+						else subs[i].processDirtyComponents();
+					}
+				} finally {
+					current.set(outer);
+				}
+			} else {
+				int mid = (start + end) >>> 1;
+				Task left = new Task(subs, start, mid, grain, points);
+				Task right = new Task(subs, mid, end, grain, points);
+				invokeAll(left, right);
+				recording = left.recording;
+				recording.append(right.recording);
+			}
+		}
+	}
+
+	static class Recording {
+		private final ArrayList<Object> entries = new ArrayList<>();
+		private long subcircuitUpdates = 0;
+		private long compiledUpdates = 0;
+		private long compiledGates = 0;
+
+		void setValue(CircuitState state, Location pt, Value val,
+					  Component cause, int delay) {
+			entries.add(new SetValue(state, pt, val, cause, delay));
+		}
+
+		void locationTouched(CircuitState state, Location loc) {
+			entries.add(new Touch(state, loc));
+		}
+
+		void addUpdateCounts(long updates, long compiled, long gates) {
+			subcircuitUpdates += updates;
+			compiledUpdates += compiled;
+			compiledGates += gates;
+		}
+
+		private void append(Recording other) {
+			entries.addAll(other.entries);
+			addUpdateCounts(other.subcircuitUpdates, other.compiledUpdates,
+				other.compiledGates);
+		}
+
+		private void replay(Propagator prop) {
+			for (Object entry : entries) {
+				if (entry instanceof SetValue) {
+					SetValue e = (SetValue) entry;
+					prop.setValue(e.state, e.pt, e.val, e.cause, e.delay);
+				} else {
+					Touch e = (Touch) entry;
+					prop.locationTouched(e.state, e.loc);
+				}
+			}
+			prop.addUpdateCounts(subcircuitUpdates, compiledUpdates, compiledGates);
+		}
+	}
+
+	private static class SetValue {
+		final CircuitState state;
+		final Location pt;
+		final Value val;
+		final Component cause;
+		final int delay;
+
+		SetValue(CircuitState state, Location pt, Value val,
+				 Component cause, int delay) {
+			this.state = state;
+			this.pt = pt;
+			this.val = val;
+			this.cause = cause;
+			this.delay = delay;
+		}
+	}
+
+	private static class Touch {
+		final CircuitState state;
+		final Location loc;
+
+		Touch(CircuitState state, Location loc) {
+			this.state = state;
+			this.loc = loc;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+
+/**
+ * The pending events of a Propagator. Implementations must hand events
+ * back in the order defined by SetData.compareTo, that is, by time and
+ * then by serial number.
+ */
+interface PropagationQueue {
+	void add(SetData data);
+
+	SetData peek();
+
+	SetData poll();
+
+	boolean isEmpty();
+
+	int size();
+
+	void clear();
+}
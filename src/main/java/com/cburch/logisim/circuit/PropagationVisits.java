@@ -0,0 +1,89 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+
+import java.util.Arrays;
+
+/**
+ * Records which (state, component, location) triples have already been
+ * processed during the current propagation step. The table is reused
+ * from one step to the next: rather than clearing it, {@link #clear()}
+ * advances an epoch counter, and slots stamped with an older epoch count
+ * as empty. Nothing is allocated except when the table must grow.
+ */
+class PropagationVisits {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private CircuitState[] states;
+	private Component[] causes;
+	private Location[] locs;
+	private int[] stamps;
+	private int epoch = 1;
+	private int size = 0;
+
+	PropagationVisits() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	void clear() {
+		size = 0;
+		epoch++;
+		if (epoch == 0) {
+			// the counter wrapped around: forget every old stamp
+			Arrays.fill(stamps, 0);
+			epoch = 1;
+		}
+	}
+
+	/**
+	 * Returns true if the triple was not yet visited in this step.
+	 */
+	boolean add(CircuitState state, Component cause, Location loc) {
+		if (2 * (size + 1) > stamps.length) grow();
+		int mask = stamps.length - 1;
+		int i = hash(state, cause, loc) & mask;
+		while (stamps[i] == epoch) {
+			if (states[i] == state && causes[i].equals(cause)
+					&& locs[i].equals(loc)) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		stamps[i] = epoch;
+		states[i] = state;
+		causes[i] = cause;
+		locs[i] = loc;
+		size++;
+		return true;
+	}
+
+	private void grow() {
+		CircuitState[] oldStates = states;
+		Component[] oldCauses = causes;
+		Location[] oldLocs = locs;
+		int[] oldStamps = stamps;
+		int oldEpoch = epoch;
+		allocate(2 * oldStamps.length);
+		size = 0;
+		for (int i = 0; i < oldStamps.length; i++) {
+			if (oldStamps[i] == oldEpoch) add(oldStates[i], oldCauses[i], oldLocs[i]);
+		}
+	}
+
+	private void allocate(int capacity) {
+		states = new CircuitState[capacity];
+		causes = new Component[capacity];
+		locs = new Location[capacity];
+		stamps = new int[capacity];
+		epoch = 1;
+	}
+
+	private static int hash(CircuitState state, Component cause, Location loc) {
+		int h = 31 * (31 * state.hashCode() + cause.hashCode()) + loc.hashCode();
+		return h ^ (h >>> 16);
+	}
+}
@@ -13,16 +13,13 @@ import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.Options;
 
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.PriorityQueue;
 import java.util.Random;
 
 public class Propagator {
 	private static int lastId = 0;
 	private final int id = lastId++;
 	private final CircuitState root; // root of state tree
-	private final PriorityQueue<SetData> toProcess = new PriorityQueue<>();
+	private PropagationQueue toProcess;
 	private final Random noiseSource = new Random();
 	/**
 	 * On average, one out of every 2**simRandomShift propagations
@@ -32,19 +29,31 @@ public class Propagator {
 	 * practice).
 	 */
 	private volatile int simRandomShift;
+	private volatile int workers = 1;
+	private volatile boolean heapQueue = false;
+	private ParallelPropagation parallel = null; // null when using one thread
 	private int clock = 0;
 	private boolean isOscillating = false;
 	private boolean oscAdding = false;
 	private PropagationPoints oscPoints = new PropagationPoints();
+	private final PropagationVisits visited = new PropagationVisits();
+	private final ClockCache clocks = new ClockCache();
 	private int ticks = 0;
 	private int noiseCount = 0;
 	private int setDataSerialNumber = 0;
+	private long eventCount = 0;
+	private long subcircuitUpdates = 0;
+	private long compiledUpdates = 0;
+	private long compiledGateUpdates = 0;
 
 	public Propagator(CircuitState root) {
 		this.root = root;
 		Listener l = new Listener(this);
 		root.getProject().getOptions().getAttributeSet().addAttributeListener(l);
 		updateRandomness();
+		updateQueueKind();
+		updateQueue();
+		updateWorkers();
 	}
 
 	//
@@ -67,6 +76,48 @@ public class Propagator {
 		simRandomShift = logVal;
 	}
 
+	private void updateWorkers() {
+		Options opts = root.getProject().getOptions();
+		workers = opts.getAttributeSet().getValue(Options.ATTR_SIM_WORKERS);
+	}
+
+	private void updateParallel() {
+		// done on the propagating thread, so no pool is replaced mid-step
+		int want = workers;
+		int have = parallel == null ? 1 : parallel.getWorkers();
+		if (want == have) return;
+		if (parallel != null) parallel.shutdown();
+		parallel = want > 1 ? new ParallelPropagation(this, want) : null;
+	}
+
+	ParallelPropagation getParallel() {
+		return parallel;
+	}
+
+	private void updateQueueKind() {
+		Options opts = root.getProject().getOptions();
+		Object val = opts.getAttributeSet().getValue(Options.ATTR_SIM_QUEUE);
+		heapQueue = val == Options.SIM_QUEUE_HEAP;
+	}
+
+	private void updateQueue() {
+		// done on the propagating thread, so no queue is replaced mid-step
+		PropagationQueue queue;
+		if (heapQueue) {
+			if (toProcess instanceof HeapPropagationQueue) return;
+			queue = new HeapPropagationQueue();
+		} else {
+			if (toProcess instanceof TimingWheelQueue) return;
+			queue = new TimingWheelQueue();
+		}
+		if (toProcess != null) {
+			for (SetData data = toProcess.poll(); data != null; data = toProcess.poll()) {
+				queue.add(data);
+			}
+		}
+		toProcess = queue;
+	}
+
 	public boolean isOscillating() {
 		return isOscillating;
 	}
@@ -94,6 +145,8 @@ public class Propagator {
 	}
 
 	public void propagate() {
+		updateQueue();
+		updateParallel();
 		oscPoints.clear();
 		clearDirtyPoints();
 		clearDirtyComponents();
@@ -124,6 +177,8 @@ public class Propagator {
 	}
 
 	void step(PropagationPoints changedPoints) {
+		updateQueue();
+		updateParallel();
 		oscPoints.clear();
 		clearDirtyPoints();
 		clearDirtyComponents();
@@ -143,23 +198,15 @@ public class Propagator {
 		clock = toProcess.peek().time;
 
 		// propagate all values for this clock tick
-		HashMap<CircuitState, HashSet<ComponentPoint>> visited
-			= new HashMap<>();
+		visited.clear();
 		while (true) {
 			SetData data = toProcess.peek();
 			if (data == null || data.time != clock) break;
-			toProcess.remove();
+			toProcess.poll();
 			CircuitState state = data.state;
 
 			// if it's already handled for this clock tick, continue
-			HashSet<ComponentPoint> handled = visited.get(state);
-			if (handled != null) {
-				if (!handled.add(new ComponentPoint(data.cause, data.loc))) continue;
-			} else {
-				handled = new HashSet<>();
-				visited.put(state, handled);
-				handled.add(new ComponentPoint(data.cause, data.loc));
-			}
+			if (!visited.add(state, data.cause, data.loc)) continue;
 
 			/*DEBUGGING - comment out
 			Simulator.log(data.time + ": proc " + data.loc + " in "
@@ -188,8 +235,15 @@ public class Propagator {
 		return !toProcess.isEmpty();
 	}
 
+	void clocksChanged() {
+		clocks.invalidate();
+	}
+
 	void locationTouched(CircuitState state, Location loc) {
-		if (oscAdding) oscPoints.add(state, loc);
+		if (!oscAdding) return;
+		ParallelPropagation.Recording rec = parallel == null ? null : parallel.getRecording();
+		if (rec != null) rec.locationTouched(state, loc);
+		else oscPoints.add(state, loc);
 	}
 
 	//
@@ -198,6 +252,11 @@ public class Propagator {
 	void setValue(CircuitState state, Location pt, Value val,
 				  Component cause, int delay) {
 		if (cause instanceof Wire || cause instanceof Splitter) return;
+		ParallelPropagation.Recording rec = parallel == null ? null : parallel.getRecording();
+		if (rec != null) {
+			rec.setValue(state, pt, val, cause, delay);
+			return;
+		}
 		if (delay <= 0) {
 			delay = 1;
 		}
@@ -224,6 +283,7 @@ public class Propagator {
 				cause + " after " + delay); //*/
 
 		setDataSerialNumber++;
+		eventCount++;
 	}
 
 	/*TODO for the SimulatorPrototype class
@@ -269,13 +329,78 @@ public class Propagator {
 
 	public boolean tick() {
 		ticks++;
-		return root.tick(ticks);
+		return clocks.tick(root, ticks);
+	}
+
+	/**
+	 * Ticks the clock up to <code>maxTicks</code> times, letting the
+	 * circuit settle after each tick, and returns how many ticks were
+	 * done. It stops early after a tick that changes the root state's
+	 * value at any of the watched locations or leaves the circuit
+	 * oscillating. A tick that changes no clock once the circuit has
+	 * settled is not followed by any propagation at all.
+	 */
+	public int fastForward(int maxTicks, Location[] watched) {
+		Value[] seen = new Value[watched.length];
+		for (int i = 0; i < watched.length; i++) {
+			seen[i] = root.getValue(watched[i]);
+		}
+		boolean settled = false;
+		for (int done = 1; done <= maxTicks; done++) {
+			boolean ticked = tick();
+			if (ticked || !settled) {
+				propagate();
+				if (isOscillating) return done;
+				settled = true;
+				for (int i = 0; i < watched.length; i++) {
+					Value val = root.getValue(watched[i]);
+					if (!val.equals(seen[i])) return done;
+				}
+			}
+		}
+		return maxTicks;
 	}
 
 	public int getTickCount() {
 		return ticks;
 	}
 
+	/** Returns how many value changes have been scheduled in all. */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/** Returns how many times a subcircuit has reacted to its inputs. */
+	public long getSubcircuitUpdateCount() {
+		return subcircuitUpdates;
+	}
+
+	/** Returns how many of those updates were done by a CompiledCircuit. */
+	public long getCompiledUpdateCount() {
+		return compiledUpdates;
+	}
+
+	/** Returns how many gates the compiled updates evaluated in all. */
+	public long getCompiledGateCount() {
+		return compiledGateUpdates;
+	}
+
+	void countSubcircuitUpdate(int compiledGates) {
+		if (compiledGates < 0) addUpdateCounts(1, 0, 0);
+		else addUpdateCounts(1, 1, compiledGates);
+	}
+
+	void addUpdateCounts(long updates, long compiled, long compiledGates) {
+		ParallelPropagation.Recording rec = parallel == null ? null : parallel.getRecording();
+		if (rec != null) {
+			rec.addUpdateCounts(updates, compiled, compiledGates);
+		} else {
+			subcircuitUpdates += updates;
+			compiledUpdates += compiled;
+			compiledGateUpdates += compiledGates;
+		}
+	}
+
 	//
 	// private methods
 	//
@@ -309,7 +434,7 @@ public class Propagator {
 			return removeCause(state, head, data.loc, data.cause);
 		}
 
-		HashMap<Location, SetData> causes = state.causes;
+		LocationValueMap<SetData> causes = state.causes;
 
 		// first check whether this is change of previous info.
 		boolean replaced = false;
@@ -337,7 +462,7 @@ public class Propagator {
 
 	private SetData removeCause(CircuitState state, SetData head,
 								Location loc, Component cause) {
-		HashMap<Location, SetData> causes = state.causes;
+		LocationValueMap<SetData> causes = state.causes;
 		if (head == null) {
 		} else if (head.cause == cause) {
 			head = head.next;
@@ -366,6 +491,7 @@ public class Propagator {
 		final Location loc;       // the location at which value is emitted
 		Value val;          // value being emitted
 		SetData next = null;
+		SetData nextEvent = null; // used by TimingWheelQueue
 
 		private SetData(int time, int serialNumber, CircuitState state,
 						Location loc, Component cause, Value val) {
@@ -401,28 +527,6 @@ public class Propagator {
 		}
 	}
 
-	private static class ComponentPoint {
-		final Component cause;
-		final Location loc;
-
-		ComponentPoint(Component cause, Location loc) {
-			this.cause = cause;
-			this.loc = loc;
-		}
-
-		@Override
-		public int hashCode() {
-			return 31 * cause.hashCode() + loc.hashCode();
-		}
-
-		@Override
-		public boolean equals(Object other) {
-			if (!(other instanceof ComponentPoint)) return false;
-			ComponentPoint o = (ComponentPoint) other;
-			return this.cause.equals(o.cause) && this.loc.equals(o.loc);
-		}
-	}
-
 	private static class Listener implements AttributeListener {
 		final WeakReference<Propagator> prop;
 
@@ -439,6 +543,10 @@ public class Propagator {
 				e.getSource().removeAttributeListener(this);
 			} else if (e.getAttribute().equals(Options.sim_rand_attr)) {
 				p.updateRandomness();
+			} else if (e.getAttribute().equals(Options.ATTR_SIM_QUEUE)) {
+				p.updateQueueKind();
+			} else if (e.getAttribute().equals(Options.ATTR_SIM_WORKERS)) {
+				p.updateWorkers();
 			}
 		}
 	}
@@ -61,6 +61,11 @@ public abstract class RadixOption extends AttributeOption {
 		return getMaxLength(value.getBitWidth());
 	}
 
+	// the number of decimal digits in 2^bits - 1
+	private static int decimalDigits(int bits) {
+		return (int) Math.ceil(bits * Math.log10(2));
+	}
+
 	private static class Radix2 extends RadixOption {
 		private Radix2() {
 			super("2", Strings.getter("radix2"));
@@ -139,7 +144,7 @@ public abstract class RadixOption extends AttributeOption {
 				case 32:
 					return 11; // 1G..2G
 				default:
-					return 1;
+					return width.getWidth() > 32 ? 1 + decimalDigits(width.getWidth() - 1) : 1;
 			}
 		}
 	}
@@ -196,7 +201,7 @@ public abstract class RadixOption extends AttributeOption {
 				case 32:
 					return 10;
 				default:
-					return 1;
+					return width.getWidth() > 32 ? decimalDigits(width.getWidth()) : 1;
 			}
 		}
 	}
@@ -4,6 +4,7 @@
 package com.cburch.logisim.circuit;
 
 import com.cburch.logisim.comp.ComponentDrawContext;
+import com.cburch.logisim.data.Location;
 import com.cburch.logisim.prefs.AppPreferences;
 
 import java.util.ArrayList;
@@ -215,10 +216,8 @@ public class Simulator {
 			}
 		}
 
-		synchronized void requestTick() {
-			if (ticksRequested < 16) {
-				ticksRequested++;
-			}
+		synchronized void requestTicks(int count) {
+			ticksRequested = Math.min(ticksRequested + count, Math.max(16, count));
 			notifyAll();
 		}
 
@@ -243,7 +242,10 @@ public class Simulator {
 
 				if (resetRequested) {
 					resetRequested = false;
-					if (propagator != null) propagator.reset();
+					if (propagator != null) {
+						propagator.reset();
+						propagator.getRootState().publish();
+					}
 					firePropagationCompleted();
 					synchronized (this) {
 						propagateRequested |= isRunning;
@@ -260,7 +262,7 @@ public class Simulator {
 							ticksRequested = 0;
 						} else {
 							ticked = ticksRequested > 0;
-							if (ticked) doTick();
+							if (ticked) doTicks();
 							do {
 								propagateRequested = false;
 								try {
@@ -298,6 +300,7 @@ public class Simulator {
 							}
 						}
 					}
+					if (propagator != null) propagator.getRootState().publish();
 					if (ticked) fireTickCompleted();
 					firePropagationCompleted();
 				}
@@ -310,5 +313,30 @@ public class Simulator {
 			}
 			propagator.tick();
 		}
+
+		private void doTicks() {
+			int count;
+			synchronized (this) {
+				count = ticksRequested;
+				ticksRequested = 0;
+			}
+			// all but the last tick are settled here, each reported to the
+			// listeners; only when no one listens can they be run without
+			// coming back here
+			for (int i = 1; i < count; i++) {
+				if (listeners.isEmpty()) {
+					int left = count - i;
+					if (propagator.fastForward(left, new Location[0]) < left) return;
+					break;
+				}
+				propagator.tick();
+				propagator.propagate();
+				if (propagator.isOscillating()) return;
+				propagator.getRootState().publish();
+				fireTickCompleted();
+				firePropagationCompleted();
+			}
+			propagator.tick();
+		}
 	}
 }
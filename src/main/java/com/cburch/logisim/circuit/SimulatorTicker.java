@@ -76,9 +76,7 @@ class SimulatorTicker extends Thread {
 
 			if (toTick > 0) {
 				lastTick = now;
-				for (int i = 0; i < toTick; i++) {
-					manager.requestTick();
-				}
+				manager.requestTicks(toTick);
 				synchronized (this) {
 					if (ticksPending > toTick) ticksPending -= toTick;
 					else ticksPending = 0;
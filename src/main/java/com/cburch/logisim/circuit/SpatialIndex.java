@@ -0,0 +1,240 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * A uniform grid over a circuit's components and wires, so that finding
+ * what lies at a point or in a rectangle looks only at the cells it
+ * covers. Each component is filed under every cell its bounds touch.
+ * <p>
+ * A component's bounds can change while it is in the circuit, when its
+ * attributes change or a subcircuit's appearance does; the circuit then
+ * marks it stale, and it is filed again before the next query. Bounds
+ * that include labels need a Graphics, so they are added on the first
+ * query given one. Components may be marked stale from the simulation
+ * thread, so all methods are synchronized.
+ */
+class SpatialIndex {
+	private static final int CELL_BITS = 7; // 128-pixel cells
+	// slack for contains() tests that accept points just outside the bounds
+	private static final int MARGIN = 2;
+
+	private static class Entry {
+		final long order; // when the component was added
+		final Bounds base; // getBounds() when filed
+		Bounds bounds; // what the entry is filed under
+
+		Entry(long order, Bounds base) {
+			this.order = order;
+			this.base = base;
+			this.bounds = base == null ? Bounds.EMPTY_BOUNDS : base.expand(MARGIN);
+		}
+	}
+
+	private final HashMap<Long, ArrayList<Component>> cells = new HashMap<>();
+	private final LinkedHashMap<Component, Entry> entries = new LinkedHashMap<>();
+	private final LinkedHashSet<Component> stale = new LinkedHashSet<>();
+	private final LinkedHashSet<Component> needGraphics = new LinkedHashSet<>();
+	private Bounds compBounds = null; // of non-wires, or null if unknown
+	private long nextOrder = 0;
+
+	synchronized void add(Component comp) {
+		if (entries.containsKey(comp)) return;
+		file(comp, new Entry(nextOrder++, comp.getBounds()));
+		needGraphics.add(comp);
+		if (!(comp instanceof Wire)) compBounds = null;
+	}
+
+	synchronized void remove(Component comp) {
+		Entry entry = entries.remove(comp);
+		if (entry != null) unfile(comp, entry);
+		stale.remove(comp);
+		needGraphics.remove(comp);
+		if (!(comp instanceof Wire)) compBounds = null;
+	}
+
+	synchronized void clear() {
+		cells.clear();
+		entries.clear();
+		stale.clear();
+		needGraphics.clear();
+		compBounds = null;
+	}
+
+	/** Notes that the component's bounds may have changed in any way. */
+	synchronized void invalidate(Component comp) {
+		if (entries.containsKey(comp)) stale.add(comp);
+	}
+
+	/**
+	 * Notes that the component has changed, but its bounds have only
+	 * if <code>getBounds</code> no longer returns what it did; this is
+	 * cheap enough to be called as often as components are invalidated.
+	 */
+	synchronized void checkBounds(Component comp) {
+		Entry entry = entries.get(comp);
+		if (entry != null && entry.base != comp.getBounds()) stale.add(comp);
+	}
+
+	/**
+	 * Returns the components whose bounds, including their labels if a
+	 * Graphics is given, may contain the point.
+	 */
+	synchronized ArrayList<Component> getCandidates(Location pt, Graphics g) {
+		refresh(g);
+		ArrayList<Component> cell = cells.get(key(pt.getX() >> CELL_BITS,
+			pt.getY() >> CELL_BITS));
+		return cell == null ? new ArrayList<>() : new ArrayList<>(cell);
+	}
+
+	/**
+	 * Returns the components whose bounds, including their labels if a
+	 * Graphics is given, may intersect the rectangle.
+	 */
+	synchronized HashSet<Component> getCandidates(Bounds bds, Graphics g) {
+		refresh(g);
+		HashSet<Component> ret = new HashSet<>();
+		int x0 = bds.getX() >> CELL_BITS;
+		int y0 = bds.getY() >> CELL_BITS;
+		int x1 = (bds.getX() + bds.getWidth()) >> CELL_BITS;
+		int y1 = (bds.getY() + bds.getHeight()) >> CELL_BITS;
+		for (int x = x0; x <= x1; x++) {
+			for (int y = y0; y <= y1; y++) {
+				ArrayList<Component> cell = cells.get(key(x, y));
+				if (cell == null) continue;
+				for (Component comp : cell) {
+					if (intersects(entries.get(comp).bounds, bds)) ret.add(comp);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the components that may intersect the rectangle, or all of
+	 * them if it is null, in the order they were added. Drawing them in
+	 * that order means that where components overlap, as crossing wires
+	 * do, the result does not depend on which part is being repainted.
+	 */
+	synchronized ArrayList<Component> getInOrder(Bounds bds, Graphics g) {
+		if (bds == null) {
+			refresh(g);
+			return new ArrayList<>(entries.keySet());
+		}
+		ArrayList<Component> ret = new ArrayList<>(getCandidates(bds, g));
+		ret.sort(Comparator.comparingLong(comp -> entries.get(comp).order));
+		return ret;
+	}
+
+	/**
+	 * Returns the bounds of all components other than wires, or
+	 * <code>EMPTY_BOUNDS</code> if there are none.
+	 */
+	synchronized Bounds getComponentBounds() {
+		refresh(null);
+		Bounds ret = compBounds;
+		if (ret == null) {
+			int xMin = Integer.MAX_VALUE;
+			int yMin = Integer.MAX_VALUE;
+			int xMax = Integer.MIN_VALUE;
+			int yMax = Integer.MIN_VALUE;
+			for (Map.Entry<Component, Entry> e : entries.entrySet()) {
+				Bounds bds = e.getValue().base;
+				if (bds == null || e.getKey() instanceof Wire) continue;
+				if (bds.getX() < xMin) xMin = bds.getX();
+				if (bds.getY() < yMin) yMin = bds.getY();
+				if (bds.getX() + bds.getWidth() > xMax) xMax = bds.getX() + bds.getWidth();
+				if (bds.getY() + bds.getHeight() > yMax) yMax = bds.getY() + bds.getHeight();
+			}
+			ret = xMin > xMax ? Bounds.EMPTY_BOUNDS
+				: Bounds.create(xMin, yMin, xMax - xMin, yMax - yMin);
+			compBounds = ret;
+		}
+		return ret;
+	}
+
+	private void refresh(Graphics g) {
+		if (!stale.isEmpty()) {
+			for (Component comp : stale) {
+				Entry old = entries.get(comp);
+				unfile(comp, old);
+				file(comp, new Entry(old.order, comp.getBounds()));
+				needGraphics.add(comp);
+				if (!(comp instanceof Wire)) compBounds = null;
+			}
+			stale.clear();
+		}
+		if (g != null && !needGraphics.isEmpty()) {
+			for (Component comp : needGraphics) {
+				Entry entry = entries.get(comp);
+				Bounds withLabel = comp.getBounds(g);
+				if (withLabel != null && withLabel != Bounds.EMPTY_BOUNDS
+					&& !entry.bounds.contains(withLabel)) {
+					unfile(comp, entry);
+					entry.bounds = entry.bounds.add(withLabel.expand(MARGIN));
+					file(comp, entry);
+				}
+			}
+			needGraphics.clear();
+		}
+	}
+
+	private void file(Component comp, Entry entry) {
+		entries.put(comp, entry);
+		Bounds bds = entry.bounds;
+		if (bds == Bounds.EMPTY_BOUNDS) return;
+		int x0 = bds.getX() >> CELL_BITS;
+		int y0 = bds.getY() >> CELL_BITS;
+		int x1 = (bds.getX() + bds.getWidth()) >> CELL_BITS;
+		int y1 = (bds.getY() + bds.getHeight()) >> CELL_BITS;
+		for (int x = x0; x <= x1; x++) {
+			for (int y = y0; y <= y1; y++) {
+				cells.computeIfAbsent(key(x, y), k -> new ArrayList<>(4)).add(comp);
+			}
+		}
+	}
+
+	private void unfile(Component comp, Entry entry) {
+		Bounds bds = entry.bounds;
+		if (bds == Bounds.EMPTY_BOUNDS) return;
+		int x0 = bds.getX() >> CELL_BITS;
+		int y0 = bds.getY() >> CELL_BITS;
+		int x1 = (bds.getX() + bds.getWidth()) >> CELL_BITS;
+		int y1 = (bds.getY() + bds.getHeight()) >> CELL_BITS;
+		for (int x = x0; x <= x1; x++) {
+			for (int y = y0; y <= y1; y++) {
+				Long k = key(x, y);
+				ArrayList<Component> cell = cells.get(k);
+				if (cell != null) {
+					cell.remove(comp);
+					if (cell.isEmpty()) cells.remove(k);
+				}
+			}
+		}
+	}
+
+	private static boolean intersects(Bounds a, Bounds b) {
+		return a.getX() <= b.getX() + b.getWidth()
+			&& b.getX() <= a.getX() + a.getWidth()
+			&& a.getY() <= b.getY() + b.getHeight()
+			&& b.getY() <= a.getY() + a.getHeight();
+	}
+
+	private static Long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+}
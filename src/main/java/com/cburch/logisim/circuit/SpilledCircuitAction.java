@@ -0,0 +1,132 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.proj.Action;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.proj.UndoFile;
+import com.cburch.logisim.util.StringGetter;
+
+import javax.swing.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An action of the undo history whose reverse mutation has been written
+ * to the project's undo file, to be read back when it is undone. Only
+ * the circuits and component factories it refers to stay in memory.
+ * The components the mutation does not put back into a circuit are still
+ * in their circuit when the action is undone, since every later action
+ * has been undone by then, and so they are found there.
+ */
+class SpilledCircuitAction extends Action {
+	private final StringGetter name;
+	private final UndoFile file;
+	private final long position;
+	private final int length;
+	private final Circuit[] circuits;
+	private final ComponentFactory[] factories;
+
+	private SpilledCircuitAction(StringGetter name, UndoFile file,
+								 long position, int length, Table table) {
+		this.name = name;
+		this.file = file;
+		this.position = position;
+		this.length = length;
+		this.circuits = table.circuits.toArray(new Circuit[0]);
+		this.factories = table.factories.toArray(new ComponentFactory[0]);
+	}
+
+	// returns null if some value in the mutation cannot be written
+	static SpilledCircuitAction create(StringGetter name, CircuitMutation reverse,
+									   UndoFile file) throws IOException {
+		Table table = new Table();
+		byte[] data;
+		try {
+			data = new MutationCodec(table).write(reverse.getChanges());
+		} catch (RuntimeException e) {
+			return null;
+		}
+		long position = file.write(data);
+		return new SpilledCircuitAction(name, file, position, data.length, table);
+	}
+
+	@Override
+	public boolean isRecordedByTransactions() {
+		return true;
+	}
+
+	@Override
+	public String getName() {
+		return name.get();
+	}
+
+	// Never called: an action is spilled only once done and only while
+	// it is not the last in the history (see Project.measureLastAction),
+	// and the history is neither redone nor appended to anywhere but at
+	// its last action. Spilling the last action, or changing either of
+	// these, would reach this.
+	@Override
+	public void doIt(Project proj) {
+		throw new UnsupportedOperationException("action was written to the undo file");
+	}
+
+	@Override
+	public void undo(Project proj) {
+		CircuitMutation reverse;
+		try {
+			byte[] data = file.read(position, length);
+			reverse = new MutationCodec(new Table(circuits, factories)).read(data);
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(proj.getFrame(),
+				Strings.get("undoReadError", e.getMessage()),
+				Strings.get("undoReadErrorTitle"), JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		reverse.execute();
+	}
+
+	// refers to circuits and factories by their index in tables kept in
+	// memory
+	private static class Table implements MutationCodec.References {
+		private final ArrayList<Circuit> circuits = new ArrayList<>();
+		private final ArrayList<ComponentFactory> factories = new ArrayList<>();
+
+		Table() {
+		}
+
+		Table(Circuit[] circuits, ComponentFactory[] factories) {
+			this.circuits.addAll(Arrays.asList(circuits));
+			this.factories.addAll(Arrays.asList(factories));
+		}
+
+		public void writeCircuit(DataOutput out, Circuit circuit) throws IOException {
+			out.writeInt(indexOf(circuits, circuit));
+		}
+
+		public void writeFactory(DataOutput out, ComponentFactory factory) throws IOException {
+			out.writeInt(indexOf(factories, factory));
+		}
+
+		public Circuit readCircuit(DataInput in) throws IOException {
+			return circuits.get(in.readInt());
+		}
+
+		public ComponentFactory readFactory(DataInput in) throws IOException {
+			return factories.get(in.readInt());
+		}
+
+		private static <E> int indexOf(ArrayList<E> list, E value) {
+			for (int i = 0; i < list.size(); i++) {
+				if (list.get(i) == value) return i;
+			}
+			list.add(value);
+			return list.size() - 1;
+		}
+	}
+}
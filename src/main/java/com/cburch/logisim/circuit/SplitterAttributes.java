@@ -26,7 +26,8 @@ class SplitterAttributes extends AbstractAttributeSet {
 			APPEAR_LEGACY});
 
 	static final Attribute<BitWidth> ATTR_WIDTH
-		= Attributes.forBitWidth("incoming", Strings.getter("splitterBitWidthAttr"));
+		= Attributes.forBitWidth("incoming", Strings.getter("splitterBitWidthAttr"),
+		1, Value.MAX_WIDTH);
 	static final Attribute<Integer> ATTR_FANOUT
 		= Attributes.forIntegerRange("fanout", Strings.getter("splitterFanOutAttr"), 1, 32);
 
@@ -11,6 +11,7 @@ import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.tools.key.*;
 import com.cburch.logisim.util.Icons;
@@ -110,7 +111,7 @@ public class SplitterFactory extends AbstractComponentFactory {
 			return StdAttr.FACING;
 		} else if (key == KeyConfigurator.class) {
 			KeyConfigurator altConfig = ParallelConfigurator.create(
-				new BitWidthConfigurator(SplitterAttributes.ATTR_WIDTH),
+				new BitWidthConfigurator(SplitterAttributes.ATTR_WIDTH, 1, Value.MAX_WIDTH),
 				new IntegerConfigurator(SplitterAttributes.ATTR_FANOUT,
 					1, 32, InputEvent.ALT_DOWN_MASK));
 			return JoinedConfigurator.create(
@@ -5,6 +5,7 @@ package com.cburch.logisim.circuit;
 
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.*;
+import com.cburch.logisim.file.Options;
 import com.cburch.logisim.instance.*;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Pin;
@@ -181,6 +182,17 @@ public class SubcircuitFactory extends InstanceFactory {
 
 		CircuitAttributes attrs = (CircuitAttributes) superState.getAttributeSet();
 		Instance[] pins = attrs.getPinInstances();
+		AttributeSet opts = superState.getProject().getOptions().getAttributeSet();
+		if (opts.getValue(Options.ATTR_SIM_COMPILE)) {
+			CompiledCircuit compiled = CompiledCircuit.get(source);
+			if (compiled != null) {
+				compiled.propagate(superState, subState, pins);
+				return;
+			}
+		}
+		if (subState.isCompiled()) subState.leaveCompiled();
+		subState.getPropagator().countSubcircuitUpdate(-1);
+
 		for (int i = 0; i < pins.length; i++) {
 			Instance pin = pins[i];
 			InstanceState pinState = subState.getInstanceState(pin);
@@ -0,0 +1,134 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+
+import java.util.PriorityQueue;
+
+/**
+ * A propagation queue that files each event into a FIFO bucket for its
+ * time slot. Events scheduled further ahead than the wheel can represent
+ * are held in an overflow heap until they are due.
+ * <p>
+ * Events are added with increasing serial numbers, so each bucket is
+ * already in serial order. An overflow event for a given time was always
+ * added before any bucketed event for that time, but we compare the two
+ * heads anyway so that the order matches HeapPropagationQueue exactly.
+ */
+class TimingWheelQueue implements PropagationQueue {
+	private static final int DEFAULT_SLOTS = 256;
+
+	private final SetData[] heads;
+	private final SetData[] tails;
+	private final int mask;
+	private final PriorityQueue<SetData> overflow = new PriorityQueue<>();
+	private int now; // no pending event is earlier than this
+	private int bucketed = 0;
+
+	TimingWheelQueue() {
+		this(DEFAULT_SLOTS);
+	}
+
+	TimingWheelQueue(int slots) {
+		int size = 1;
+		while (size < slots) size <<= 1;
+		heads = new SetData[size];
+		tails = new SetData[size];
+		mask = size - 1;
+	}
+
+	public void add(SetData data) {
+		if (isEmpty()) now = data.time;
+		if (data.time - now < 0) {
+			// should not happen, as events are always scheduled after the
+			// current time; rebuild around the earlier time to stay correct
+			rebase(data.time);
+		}
+		insert(data);
+	}
+
+	private void insert(SetData data) {
+		if (data.time - now > mask) {
+			overflow.add(data);
+			return;
+		}
+		int slot = data.time & mask;
+		data.nextEvent = null;
+		if (heads[slot] == null) {
+			heads[slot] = data;
+		} else {
+			tails[slot].nextEvent = data;
+		}
+		tails[slot] = data;
+		bucketed++;
+	}
+
+	public SetData peek() {
+		SetData bucket = null;
+		if (bucketed > 0) {
+			for (int i = 0; i <= mask; i++) {
+				SetData head = heads[(now + i) & mask];
+				if (head != null) {
+					bucket = head;
+					break;
+				}
+			}
+		}
+		SetData over = overflow.peek();
+		SetData ret;
+		if (bucket == null) ret = over;
+		else if (over == null) ret = bucket;
+		else ret = over.compareTo(bucket) < 0 ? over : bucket;
+		if (ret != null) now = ret.time;
+		return ret;
+	}
+
+	public SetData poll() {
+		SetData ret = peek();
+		if (ret == null) return null;
+		int slot = ret.time & mask;
+		if (heads[slot] == ret) {
+			heads[slot] = ret.nextEvent;
+			if (heads[slot] == null) tails[slot] = null;
+			ret.nextEvent = null;
+			bucketed--;
+		} else {
+			overflow.poll();
+		}
+		return ret;
+	}
+
+	public boolean isEmpty() {
+		return bucketed == 0 && overflow.isEmpty();
+	}
+
+	public int size() {
+		return bucketed + overflow.size();
+	}
+
+	public void clear() {
+		for (int i = 0; i <= mask; i++) {
+			for (SetData d = heads[i]; d != null; ) {
+				SetData next = d.nextEvent;
+				d.nextEvent = null;
+				d = next;
+			}
+			heads[i] = null;
+			tails[i] = null;
+		}
+		overflow.clear();
+		bucketed = 0;
+	}
+
+	private void rebase(int time) {
+		PriorityQueue<SetData> all = new PriorityQueue<>(overflow);
+		for (int i = 0; i <= mask; i++) {
+			for (SetData d = heads[i]; d != null; d = d.nextEvent) all.add(d);
+		}
+		clear();
+		now = time;
+		for (SetData d = all.poll(); d != null; d = all.poll()) insert(d);
+	}
+}
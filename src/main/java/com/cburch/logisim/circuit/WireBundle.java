@@ -10,6 +10,7 @@ import com.cburch.logisim.util.SmallSet;
 
 class WireBundle {
 	final SmallSet<Location> points = new SmallSet<>(); // points bundle hits
+	int[] pointIds = null; // ids of points within the BundleMap's index
 	WireThread[] threads = null;
 	private BitWidth width = BitWidth.UNKNOWN;
 	private Value pullValue = Value.UNKNOWN;
@@ -166,16 +166,41 @@ class WireRepair extends CircuitTransaction {
 	}
 
 	private void doSplits(CircuitMutator mutator) {
-		Set<Location> splitLocs = circuit.wires.points.getSplitLocations();
+		// file the split points by column and by row, so that each wire
+		// looks only at the points within reach of its own line
+		HashMap<Integer, TreeSet<Location>> columns = new HashMap<>();
+		HashMap<Integer, TreeSet<Location>> rows = new HashMap<>();
+		for (Location loc : circuit.wires.points.getSplitLocations()) {
+			columns.computeIfAbsent(loc.getX(), k -> new TreeSet<>()).add(loc);
+			rows.computeIfAbsent(loc.getY(), k -> new TreeSet<>()).add(loc);
+		}
+
 		ReplacementMap repl = new ReplacementMap();
 		for (Wire w : circuit.getWires()) {
 			Location w0 = w.getEnd0();
 			Location w1 = w.getEnd1();
 			ArrayList<Location> splits = null;
-			for (Location loc : splitLocs) {
-				if (w.contains(loc) && !loc.equals(w0) && !loc.equals(w1)) {
-					if (splits == null) splits = new ArrayList<>();
-					splits.add(loc);
+			// Wire.contains allows points up to 2 pixels off the line
+			for (int d = -2; d <= 2; d++) {
+				Collection<Location> near;
+				if (w.isVertical()) {
+					int x = w0.getX() + d;
+					TreeSet<Location> column = columns.get(x);
+					if (column == null) continue;
+					near = column.subSet(Location.create(x, w0.getY()), true,
+						Location.create(x, w1.getY()), true);
+				} else {
+					int y = w0.getY() + d;
+					TreeSet<Location> row = rows.get(y);
+					if (row == null) continue;
+					near = row.subSet(Location.create(w0.getX(), y), true,
+						Location.create(w1.getX(), y), true);
+				}
+				for (Location loc : near) {
+					if (!loc.equals(w0) && !loc.equals(w1)) {
+						if (splits == null) splits = new ArrayList<>();
+						splits.add(loc);
+					}
 				}
 			}
 			if (splits != null) {
@@ -41,6 +41,10 @@ public class Attributes {
 		return forHexInteger(name, getter(name));
 	}
 
+	public static Attribute<Long> forHexLong(String name) {
+		return forHexLong(name, getter(name));
+	}
+
 	public static Attribute<Integer> forIntegerRange(String name,
 													 int start, int end) {
 		return forIntegerRange(name, getter(name), start, end);
@@ -98,6 +102,10 @@ public class Attributes {
 		return new HexIntegerAttribute(name, disp);
 	}
 
+	public static Attribute<Long> forHexLong(String name, StringGetter disp) {
+		return new HexLongAttribute(name, disp);
+	}
+
 	public static Attribute<Integer> forIntegerRange(String name, StringGetter disp,
 													 int start, int end) {
 		return new IntegerRangeAttribute(name, disp, start, end);
@@ -270,6 +278,37 @@ public class Attributes {
 		}
 	}
 
+	private static class HexLongAttribute extends Attribute<Long> {
+		private HexLongAttribute(String name, StringGetter disp) {
+			super(name, disp);
+		}
+
+		@Override
+		public String toDisplayString(Long value) {
+			long val = value;
+			return "0x" + Long.toHexString(val);
+		}
+
+		@Override
+		public String toStandardString(Long value) {
+			return toDisplayString(value);
+		}
+
+		@Override
+		public Long parse(String value) {
+			value = value.toLowerCase();
+			if (value.startsWith("0x")) {
+				return Long.parseUnsignedLong(value.substring(2), 16);
+			} else if (value.startsWith("0b")) {
+				return Long.parseUnsignedLong(value.substring(2), 2);
+			} else if (value.startsWith("0")) {
+				return Long.parseUnsignedLong(value.substring(1), 8);
+			} else {
+				return Long.parseLong(value, 10);
+			}
+		}
+	}
+
 	private static class DoubleAttribute extends Attribute<Double> {
 		private DoubleAttribute(String name, StringGetter disp) {
 			super(name, disp);
@@ -7,11 +7,16 @@ package com.cburch.logisim.data;
 import com.cburch.logisim.util.StringGetter;
 
 import javax.swing.*;
+import java.util.Arrays;
 
 public class BitWidth implements Comparable<BitWidth> {
 	public static final BitWidth UNKNOWN = new BitWidth(0);
 	public static final BitWidth ONE = new BitWidth(1);
 
+	// widths offered in attribute menus; wider buses up to
+	// Value.MAX_WIDTH are entered from the keyboard or loaded from files
+	private static final int MENU_WIDTHS = 32;
+
 	private static BitWidth[] prefab = null;
 	private final int width;
 
@@ -45,7 +50,7 @@ public class BitWidth implements Comparable<BitWidth> {
 
 	private static void ensurePrefab() {
 		if (prefab == null) {
-			prefab = new BitWidth[Math.min(32, Value.MAX_WIDTH)];
+			prefab = new BitWidth[Value.MAX_WIDTH];
 			prefab[0] = ONE;
 			for (int i = 1; i < prefab.length; i++) {
 				prefab[i] = new BitWidth(i + 1);
@@ -59,10 +64,16 @@ public class BitWidth implements Comparable<BitWidth> {
 
 	public int getMask() {
 		if (width == 0) return 0;
-		else if (width == 32) return -1;
+		else if (width >= 32) return -1;
 		else return (1 << width) - 1;
 	}
 
+	public long getLongMask() {
+		if (width == 0) return 0;
+		else if (width >= 64) return -1L;
+		else return (1L << width) - 1;
+	}
+
 	@Override
 	public boolean equals(Object other_obj) {
 		if (!(other_obj instanceof BitWidth)) return false;
@@ -90,7 +101,7 @@ public class BitWidth implements Comparable<BitWidth> {
 		Attribute(String name, StringGetter disp) {
 			super(name, disp);
 			ensurePrefab();
-			choices = prefab;
+			choices = Arrays.copyOf(prefab, MENU_WIDTHS);
 		}
 
 		Attribute(String name, StringGetter disp, int min, int max) {
@@ -111,7 +122,7 @@ public class BitWidth implements Comparable<BitWidth> {
 			JComboBox<BitWidth> combo = new JComboBox<>(choices);
 			if (value != null) {
 				int wid = value.getWidth();
-				if (wid <= 0 || wid > prefab.length) {
+				if (wid < choices[0].getWidth() || wid > choices[choices.length - 1].getWidth()) {
 					combo.addItem(value);
 				}
 				combo.setSelectedItem(value);
@@ -3,7 +3,7 @@
 
 package com.cburch.logisim.data;
 
-import com.cburch.logisim.util.Cache;
+import com.cburch.logisim.util.InternCache;
 
 /**
  * Represents an immutable rectangular bounding box. This is analogous to
@@ -11,7 +11,12 @@ import com.cburch.logisim.util.Cache;
  * are immutable.
  */
 public class Location implements Comparable<Location> {
-	private static final Cache cache = new Cache();
+	private static final InternCache<Location> cache = new InternCache<>("Location") {
+		@Override
+		protected boolean matches(Location loc, long x, long y, long c, long d) {
+			return loc.x == x && loc.y == y;
+		}
+	};
 
 	private final int hashCode;
 	private final int x;
@@ -25,14 +30,9 @@ public class Location implements Comparable<Location> {
 
 	public static Location create(int x, int y) {
 		int hashCode = 31 * x + y;
-		Object ret = cache.get(hashCode);
-		if (ret != null) {
-			Location loc = (Location) ret;
-			if (loc.x == x && loc.y == y) return loc;
-		}
-		Location loc = new Location(hashCode, x, y);
-		cache.put(hashCode, loc);
-		return loc;
+		Location ret = cache.get(hashCode, x, y, 0, 0);
+		if (ret != null) return ret;
+		return cache.put(hashCode, new Location(hashCode, x, y));
 	}
 
 	public static Location parse(String value) {
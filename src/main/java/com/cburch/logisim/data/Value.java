@@ -3,11 +3,16 @@
 
 package com.cburch.logisim.data;
 
-import com.cburch.logisim.util.Cache;
+import com.cburch.logisim.util.InternCache;
 
 import java.awt.*;
-import java.util.Arrays;
 
+/**
+ * A value on a wire of up to 64 bits, each 0, 1, floating or an error,
+ * kept as three masks in primitive longs. One-bit values are always
+ * the four constants below; wider ones are interned but not unique,
+ * so they must be compared with <code>equals</code>.
+ */
 public class Value {
 	public static final Value FALSE = new Value(1, 0, 0, 0);
 	public static final Value TRUE = new Value(1, 0, 0, 1);
@@ -15,7 +20,7 @@ public class Value {
 	public static final Value ERROR = new Value(1, 1, 0, 0);
 	public static final Value NIL = new Value(0, 0, 0, 0);
 
-	public static final int MAX_WIDTH = 32;
+	public static final int MAX_WIDTH = 64;
 
 	public static final Color NIL_COLOR = Color.GRAY;
 	public static final Color FALSE_COLOR = new Color(0, 100, 0);
@@ -25,15 +30,22 @@ public class Value {
 	private static final Color UNKNOWN_COLOR = new Color(40, 40, 255);
 	private static final Color MULTI_COLOR = Color.BLACK;
 
-	private static final Cache cache = new Cache();
+	private static final InternCache<Value> cache = new InternCache<>("Value") {
+		@Override
+		protected boolean matches(Value val, long width, long error, long unknown, long value) {
+			return val.value == value && val.width == width && val.error == error
+				&& val.unknown == unknown;
+		}
+	};
+
 	private final int width;
-	private final int error;
-	private final int unknown;
-	private final int value;
+	private final long error;
+	private final long unknown;
+	private final long value;
 
-	private Value(int width, int error, int unknown, int value) {
+	private Value(int width, long error, long unknown, long value) {
 		// To ensure that the one-bit values are unique, this should be called only
-		// for the one-bit values and by the private create method
+		// for the one-bit values and by the create method
 		this.width = width;
 		this.error = error;
 		this.unknown = unknown;
@@ -47,11 +59,11 @@ public class Value {
 			"Cannot have more than " + MAX_WIDTH + " bits in a value");
 
 		int width = values.length;
-		int value = 0;
-		int unknown = 0;
-		int error = 0;
+		long value = 0;
+		long unknown = 0;
+		long error = 0;
 		for (int i = 0; i < values.length; i++) {
-			int mask = 1 << i;
+			long mask = 1L << i;
 			if (values[i] == TRUE) value |= mask;
 			else if (values[i] == FALSE)   /* do nothing */ ;
 			else if (values[i] == UNKNOWN) unknown |= mask;
@@ -68,6 +80,10 @@ public class Value {
 		return Value.create(bits.getWidth(), 0, 0, value);
 	}
 
+	public static Value createKnown(BitWidth bits, long value) {
+		return Value.create(bits.getWidth(), 0, 0, value);
+	}
+
 	public static Value createUnknown(BitWidth bits) {
 		return Value.create(bits.getWidth(), 0, -1, 0);
 	}
@@ -76,7 +92,13 @@ public class Value {
 		return Value.create(bits.getWidth(), -1, 0, 0);
 	}
 
-	private static Value create(int width, int error, int unknown, int value) {
+	/**
+	 * Returns the value of the given width whose bit i is an error if
+	 * bit i of <code>error</code> is set, and otherwise floating if bit
+	 * i of <code>unknown</code> is set, and otherwise bit i of
+	 * <code>value</code>. Bits beyond the width are ignored.
+	 */
+	public static Value create(int width, long error, long unknown, long value) {
 		if (width == 0) {
 			return Value.NIL;
 		} else if (width == 1) {
@@ -84,25 +106,34 @@ public class Value {
 			else if ((unknown & 1) != 0) return Value.UNKNOWN;
 			else if ((value & 1) != 0) return Value.TRUE;
 			else return Value.FALSE;
+		} else if (width > MAX_WIDTH) {
+			throw new RuntimeException("Cannot have more than "
+				+ MAX_WIDTH + " bits in a value");
 		} else {
-			int mask = (width == 32 ? -1 : ~(-1 << width));
+			long mask = getMask(width);
 			error = error & mask;
 			unknown = unknown & mask & ~error;
 			value = value & mask & ~unknown & ~error;
 
-			int hashCode = 31 * (31 * (31 * width + error) + unknown) + value;
-			Object cached = cache.get(hashCode);
-			if (cached != null) {
-				Value val = (Value) cached;
-				if (val.value == value && val.width == width && val.error == error
-					&& val.unknown == unknown) return val;
-			}
-			Value ret = new Value(width, error, unknown, value);
-			cache.put(hashCode, ret);
-			return ret;
+			int hashCode = hash(width, error, unknown, value);
+			Value ret = cache.get(hashCode, width, error, unknown, value);
+			if (ret != null) return ret;
+			return cache.put(hashCode, new Value(width, error, unknown, value));
 		}
 	}
 
+	private static long getMask(int width) {
+		return width == 64 ? -1L : ~(-1L << width);
+	}
+
+	private static int hash(int width, long error, long unknown, long value) {
+		int ret = width;
+		ret = 31 * ret + Long.hashCode(error);
+		ret = 31 * ret + Long.hashCode(unknown);
+		ret = 31 * ret + Long.hashCode(value);
+		return ret;
+	}
+
 	public static Value repeat(Value base, int bits) {
 		if (base.getWidth() != 1) {
 			throw new IllegalArgumentException("first parameter must be one bit");
@@ -110,9 +141,7 @@ public class Value {
 		if (bits == 1) {
 			return base;
 		} else {
-			Value[] ret = new Value[bits];
-			Arrays.fill(ret, base);
-			return create(ret);
+			return create(bits, -base.error, -base.unknown, -base.value);
 		}
 	}
 
@@ -122,7 +151,7 @@ public class Value {
 
 	public Value extendWidth(int newWidth, Value others) {
 		if (width == newWidth) return this;
-		int maskInverse = (width == 32 ? 0 : (-1 << width));
+		long maskInverse = ~getMask(width);
 		if (others == Value.ERROR) {
 			return Value.create(newWidth, error | maskInverse, unknown, value);
 		} else if (others == Value.FALSE) {
@@ -135,11 +164,7 @@ public class Value {
 	}
 
 	public boolean isUnknown() {
-		if (width == 32) {
-			return error == 0 && unknown == -1;
-		} else {
-			return error == 0 && unknown == ((1 << width) - 1);
-		}
+		return error == 0 && unknown == getMask(width);
 	}
 
 	public boolean isFullyDefined() {
@@ -154,7 +179,7 @@ public class Value {
 		} else if (width == 1) {
 			return val;
 		} else {
-			int mask = ~(1 << which);
+			long mask = ~(1L << which);
 			return Value.create(this.width,
 				(this.error & mask) | (val.error << which),
 				(this.unknown & mask) | (val.unknown << which),
@@ -172,7 +197,7 @@ public class Value {
 
 	public Value get(int which) {
 		if (which < 0 || which >= width) return ERROR;
-		int mask = 1 << which;
+		long mask = 1L << which;
 		if ((error & mask) != 0) return ERROR;
 		else if ((unknown & mask) != 0) return UNKNOWN;
 		else if ((value & mask) != 0) return TRUE;
@@ -187,6 +212,21 @@ public class Value {
 		return width;
 	}
 
+	/** Returns the mask of the bits that are errors. */
+	public long getErrorBits() {
+		return error;
+	}
+
+	/** Returns the mask of the bits that are floating but not errors. */
+	public long getUnknownBits() {
+		return unknown;
+	}
+
+	/** Returns the mask of the bits that are 1. */
+	public long getValueBits() {
+		return value;
+	}
+
 	@Override
 	public boolean equals(Object other_obj) {
 		if (!(other_obj instanceof Value)) return false;
@@ -199,14 +239,16 @@ public class Value {
 
 	@Override
 	public int hashCode() {
-		int ret = width;
-		ret = 31 * ret + error;
-		ret = 31 * ret + unknown;
-		ret = 31 * ret + value;
-		return ret;
+		return hash(width, error, unknown, value);
 	}
 
 	public int toIntValue() {
+		if (error != 0) return -1;
+		if (unknown != 0) return -1;
+		return (int) value;
+	}
+
+	public long toLongValue() {
 		if (error != 0) return -1;
 		if (unknown != 0) return -1;
 		return value;
@@ -233,63 +275,30 @@ public class Value {
 	}
 
 	private String toOctalString() {
-		if (width <= 1) {
-			return toString();
-		} else {
-			Value[] vals = getAll();
-			char[] c = new char[(vals.length + 2) / 3];
-			for (int i = 0; i < c.length; i++) {
-				int k = c.length - 1 - i;
-				int frst = 3 * k;
-				int last = Math.min(vals.length, 3 * (k + 1));
-				int v = 0;
-				c[i] = '?';
-				for (int j = last - 1; j >= frst; j--) {
-					if (vals[j] == Value.ERROR) {
-						c[i] = 'E';
-						break;
-					}
-					if (vals[j] == Value.UNKNOWN) {
-						c[i] = 'x';
-						break;
-					}
-					v = 2 * v;
-					if (vals[j] == Value.TRUE) v++;
-				}
-				if (c[i] == '?') c[i] = Character.forDigit(v, 8);
-			}
-			return new String(c);
-		}
+		return toDigitString(3, 8);
 	}
 
 	public String toHexString() {
-		if (width <= 1) {
-			return toString();
-		} else {
-			Value[] vals = getAll();
-			char[] c = new char[(vals.length + 3) / 4];
-			for (int i = 0; i < c.length; i++) {
-				int k = c.length - 1 - i;
-				int frst = 4 * k;
-				int last = Math.min(vals.length, 4 * (k + 1));
-				int v = 0;
-				c[i] = '?';
-				for (int j = last - 1; j >= frst; j--) {
-					if (vals[j] == Value.ERROR) {
-						c[i] = 'E';
-						break;
-					}
-					if (vals[j] == Value.UNKNOWN) {
-						c[i] = 'x';
-						break;
-					}
-					v = 2 * v;
-					if (vals[j] == Value.TRUE) v++;
-				}
-				if (c[i] == '?') c[i] = Character.forDigit(v, 16);
+		return toDigitString(4, 16);
+	}
+
+	private String toDigitString(int digitBits, int radix) {
+		if (width <= 1) return toString();
+		char[] c = new char[(width + digitBits - 1) / digitBits];
+		long digitMask = ~(-1L << digitBits);
+		for (int i = 0; i < c.length; i++) {
+			int frst = digitBits * (c.length - 1 - i);
+			long group = digitMask << frst;
+			long bad = (error | unknown) & group;
+			if (bad != 0) {
+				// the highest bit that is not 0 or 1 decides
+				long top = Long.highestOneBit(bad);
+				c[i] = (error & top) != 0 ? 'E' : 'x';
+			} else {
+				c[i] = Character.forDigit((int) ((value & group) >>> frst), radix);
 			}
-			return new String(c);
 		}
+		return new String(c);
 	}
 
 	public String toDecimalString(boolean signed) {
@@ -297,14 +306,14 @@ public class Value {
 		if (isErrorValue()) return Strings.get("valueError");
 		if (!isFullyDefined()) return Strings.get("valueUnknown");
 
-		int value = toIntValue();
+		long value = this.value;
 		if (signed) {
-			if (width < 32 && (value >> (width - 1)) != 0) {
-				value |= (-1) << width;
+			if (width < 64 && (value >> (width - 1)) != 0) {
+				value |= (-1L) << width;
 			}
 			return "" + value;
 		} else {
-			return "" + ((long) value & 0xFFFFFFFFL);
+			return Long.toUnsignedString(value);
 		}
 	}
 
@@ -320,7 +329,8 @@ public class Value {
 				if (width == 0) return "-";
 				if (isErrorValue()) return Strings.get("valueError");
 				if (!isFullyDefined()) return Strings.get("valueUnknown");
-				return Integer.toString(toIntValue(), radix);
+				if (width <= 32) return Integer.toString(toIntValue(), radix);
+				return Long.toString(value, radix);
 		}
 	}
 
@@ -353,7 +363,7 @@ public class Value {
 			if (other == UNKNOWN) return this;
 			return ERROR;
 		} else {
-			int disagree = (this.value ^ other.value)
+			long disagree = (this.value ^ other.value)
 				& ~(this.unknown | other.unknown);
 			return Value.create(Math.max(this.width, other.width),
 				this.error | other.error | disagree,
@@ -369,9 +379,9 @@ public class Value {
 			if (this == TRUE && other == TRUE) return TRUE;
 			return ERROR;
 		} else {
-			int false0 = ~this.value & ~this.error & ~this.unknown;
-			int false1 = ~other.value & ~other.error & ~other.unknown;
-			int falses = false0 | false1;
+			long false0 = ~this.value & ~this.error & ~this.unknown;
+			long false1 = ~other.value & ~other.error & ~other.unknown;
+			long falses = false0 | false1;
 			return Value.create(Math.max(this.width, other.width),
 				(this.error | other.error | this.unknown | other.unknown) & ~falses,
 				0,
@@ -386,9 +396,9 @@ public class Value {
 			if (this == FALSE && other == FALSE) return FALSE;
 			return ERROR;
 		} else {
-			int true0 = this.value & ~this.error & ~this.unknown;
-			int true1 = other.value & ~other.error & ~other.unknown;
-			int trues = true0 | true1;
+			long true0 = this.value & ~this.error & ~this.unknown;
+			long true1 = other.value & ~other.error & ~other.unknown;
+			long trues = true0 | true1;
 			return Value.create(Math.max(this.width, other.width),
 				(this.error | other.error | this.unknown | other.unknown) & ~trues,
 				0,
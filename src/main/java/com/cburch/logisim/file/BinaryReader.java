@@ -0,0 +1,237 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.file;
+
+import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.util.StringUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a Logisim file written by BinaryWriter, whose comment describes
+ * the format. The circuits are all created from the list at the start of
+ * their sections, so that components never wait for a circuit that comes
+ * later; otherwise the file is read through the same context as a
+ * streamed XML file, and so gives the same result. When the file is read
+ * lazily, only each section's static attributes are read at first; the
+ * rest is read by another reader over the same bytes once the circuit is
+ * first used.
+ */
+class BinaryReader {
+	static final byte[] MAGIC = {(byte) 0x89, 'L', 'G', 'S', 'M'};
+	static final int VERSION = 1;
+	static final int CHILD_TEXT = 0;
+	static final int CHILD_ELEMENT = 1;
+
+	private final byte[] buf;
+	private int pos;
+	private String[] strings;
+	private int lastX;
+	private int lastY;
+
+	BinaryReader(InputStream in) throws IOException {
+		this.buf = in.readAllBytes();
+	}
+
+	// a reader of the same file starting at the given position
+	private BinaryReader(BinaryReader base, int pos) {
+		this.buf = base.buf;
+		this.strings = base.strings;
+		this.pos = pos;
+	}
+
+	static boolean isBinary(BufferedInputStream in) throws IOException {
+		in.mark(MAGIC.length);
+		byte[] first = in.readNBytes(MAGIC.length);
+		in.reset();
+		return Arrays.equals(first, MAGIC);
+	}
+
+	void read(XmlReader.ReadContext context) throws IOException {
+		try {
+			readLogisimFile(context);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException(Strings.get("binaryFormatError"), e);
+		}
+	}
+
+	private void readLogisimFile(XmlReader.ReadContext context) throws IOException {
+		pos = MAGIC.length;
+		int version = readVarint();
+		if (version != VERSION) {
+			throw new IOException(StringUtil.format(Strings.get("binaryVersionError"),
+				"" + version));
+		}
+		strings = new String[readCount()];
+		for (int i = 0; i < strings.length; i++) {
+			int length = readCount();
+			strings[i] = new String(buf, pos, length, StandardCharsets.UTF_8);
+			pos += length;
+		}
+		context.sourceVersion = LogisimVersion.parse(readString());
+
+		Document doc;
+		try {
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException e) {
+			throw new IOException(e);
+		}
+		List<Element> libElts = new ArrayList<>();
+		List<Element> others = new ArrayList<>();
+		for (int i = readCount(); i > 0; i--) {
+			Element elt = readElement(doc);
+			if (elt.getTagName().equals("lib")) {
+				libElts.add(elt);
+			} else {
+				others.add(elt);
+			}
+		}
+		context.addLibraries(libElts);
+
+		XmlReader.CircuitData[] circuitsData = new XmlReader.CircuitData[readCount()];
+		int[] ends = new int[circuitsData.length];
+		int end = 0;
+		for (int i = 0; i < circuitsData.length; i++) {
+			circuitsData[i] = context.addCircuit(readString());
+			end += readCount();
+			ends[i] = end;
+		}
+		int start = pos;
+		for (int i = 0; i < circuitsData.length; i++) {
+			readAttributes(circuitsData[i].staticAttributes);
+			if (context.isLazy()) {
+				context.loadStaticAttributes(circuitsData[i], circuitsData[i].staticAttributes);
+				setBuilder(context, circuitsData[i], start + ends[i]);
+				pos = start + ends[i];
+			} else {
+				readCircuit(context, doc, circuitsData[i]);
+			}
+			if (pos != start + ends[i]) {
+				throw new IOException(Strings.get("binaryFormatError"));
+			}
+		}
+		context.finishLogisimFile(context.isLazy() ? Collections.emptyList()
+			: Arrays.asList(circuitsData), others);
+	}
+
+	// has the rest of the section, from here to its end, read when the
+	// circuit is first used
+	private void setBuilder(XmlReader.ReadContext context, XmlReader.CircuitData circData,
+			int end) {
+		BinaryReader section = new BinaryReader(this, pos);
+		context.setBuilder(circData, () -> {
+			XmlReader.ReadContext circContext = context.forLazyCircuit();
+			try {
+				Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.newDocument();
+				section.readCircuit(circContext, doc, circData);
+				if (section.pos != end) {
+					throw new IOException(Strings.get("binaryFormatError"));
+				}
+			} catch (IOException | IndexOutOfBoundsException | ParserConfigurationException e) {
+				circContext.addError(Strings.get("binaryFormatError"),
+					circData.circuit.getName());
+			}
+			circContext.buildLazyCircuit(circData);
+		});
+	}
+
+	// reads the section after the circuit's static attributes
+	private void readCircuit(XmlReader.ReadContext context, Document doc,
+			XmlReader.CircuitData circData) throws IOException {
+		Element appear = readVarint() == 0 ? null : readElement(doc);
+
+		lastX = 0;
+		lastY = 0;
+		for (int i = readCount(); i > 0; i--) {
+			Location from = readLocation();
+			Location to = readLocation();
+			circData.components.add(Wire.create(from, to));
+		}
+		for (int i = readCount(); i > 0; i--) {
+			String lib = readString();
+			String name = readString();
+			Location loc = readLocation();
+			XmlReader.AttributeValues attrs = new XmlReader.AttributeValues();
+			readAttributes(attrs);
+			context.addComponent(circData, name, lib, loc, attrs);
+		}
+
+		// the appearance follows the pins, which come after it
+		if (appear != null) {
+			context.loadAppearance(appear, circData, circData.components,
+				circData.circuit.getName() + ".appear");
+		}
+	}
+
+	private void readAttributes(XmlReader.AttributeValues attrs) throws IOException {
+		for (int i = readCount(); i > 0; i--) {
+			String name = readString();
+			attrs.values.put(name, readString());
+		}
+	}
+
+	private Location readLocation() throws IOException {
+		lastX += readSigned();
+		lastY += readSigned();
+		return Location.create(lastX, lastY);
+	}
+
+	private Element readElement(Document doc) throws IOException {
+		Element elt = doc.createElement(readString());
+		for (int i = readCount(); i > 0; i--) {
+			String name = readString();
+			elt.setAttribute(name, readString());
+		}
+		for (int i = readCount(); i > 0; i--) {
+			if (readVarint() == CHILD_TEXT) {
+				elt.appendChild(doc.createTextNode(readString()));
+			} else {
+				elt.appendChild(readElement(doc));
+			}
+		}
+		return elt;
+	}
+
+	private String readString() throws IOException {
+		return strings[readVarint()];
+	}
+
+	// reads a number of entries, each of which takes at least a byte
+	private int readCount() throws IOException {
+		int ret = readVarint();
+		if (ret < 0 || ret > buf.length - pos) {
+			throw new IOException(Strings.get("binaryFormatError"));
+		}
+		return ret;
+	}
+
+	private int readSigned() throws IOException {
+		int value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private int readVarint() throws IOException {
+		int ret = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = buf[pos++];
+			ret |= (b & 0x7F) << shift;
+			if (b >= 0) return ret;
+		}
+		throw new IOException(Strings.get("binaryFormatError"));
+	}
+}
@@ -0,0 +1,255 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.file;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeDefaultProvider;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.tools.Library;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writes a Logisim file in the compact binary form, holding just what
+ * XmlWriter would write. Every string is written once, in a table at the
+ * start, and is otherwise referred to by its index; locations are written
+ * relative to the one before; and each circuit is a section preceded by
+ * its length, so that a reader may pass over a circuit until it is
+ * needed. The small elements, such as libraries, the toolbar and
+ * appearances, are written as the trees that XmlWriter makes of them.
+ * <p>
+ * Integers are written as varints, seven bits to a byte with the high
+ * bit set on all but the last, and location offsets are zigzag encoded
+ * first. After the magic number and the format version, a file holds the
+ * string table, the source version, the elements other than circuits in
+ * the order XmlWriter gives them, and a list of each circuit's name and
+ * section length followed by the sections themselves. A section holds
+ * the circuit's attributes, its appearance if not the default, its wires
+ * and then its components.
+ */
+class BinaryWriter {
+	private final LogisimFile file;
+	private final Document doc;
+	private final XmlWriter xml;
+	private final HashMap<String, Integer> stringIndex = new HashMap<>();
+	private final ArrayList<String> strings = new ArrayList<>();
+	private final ArrayList<String> attrScratch = new ArrayList<>();
+	private int lastX;
+	private int lastY;
+
+	private BinaryWriter(LogisimFile file, Document doc, LibraryLoader loader) {
+		this.file = file;
+		this.doc = doc;
+		this.xml = new XmlWriter(file, doc, loader);
+	}
+
+	static void write(LogisimFile file, OutputStream out, LibraryLoader loader)
+		throws IOException {
+		Document doc;
+		try {
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException e) {
+			throw new IOException(e);
+		}
+		BinaryWriter context = new BinaryWriter(file, doc, loader);
+		Buffer body = context.fromLogisimFile();
+
+		Buffer head = new Buffer();
+		head.writeBytes(BinaryReader.MAGIC, 0, BinaryReader.MAGIC.length);
+		head.writeVarint(BinaryReader.VERSION);
+		head.writeVarint(context.strings.size());
+		for (String s : context.strings) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			head.writeVarint(bytes.length);
+			head.writeBytes(bytes, 0, bytes.length);
+		}
+		head.writeTo(out);
+		body.writeTo(out);
+	}
+
+	private Buffer fromLogisimFile() {
+		Buffer ret = new Buffer();
+		ret.writeVarint(toIndex(Main.VERSION_NAME));
+
+		ArrayList<Element> elts = new ArrayList<>();
+		for (Library lib : file.getLibraries()) {
+			Element elt = xml.fromLibrary(lib);
+			if (elt != null) elts.add(elt);
+		}
+		if (file.getMainCircuit() != null) {
+			Element mainElt = doc.createElement("main");
+			mainElt.setAttribute("name", file.getMainCircuit().getName());
+			elts.add(mainElt);
+		}
+		elts.add(xml.fromOptions());
+		elts.add(xml.fromMouseMappings());
+		elts.add(xml.fromToolbarData());
+		ret.writeVarint(elts.size());
+		for (Element elt : elts) {
+			writeElement(ret, elt);
+		}
+
+		List<Circuit> circuits = file.getCircuits();
+		ArrayList<Buffer> sections = new ArrayList<>(circuits.size());
+		ret.writeVarint(circuits.size());
+		for (Circuit circuit : circuits) {
+			Buffer section = fromCircuit(circuit);
+			sections.add(section);
+			ret.writeVarint(toIndex(circuit.getName()));
+			ret.writeVarint(section.size);
+		}
+		for (Buffer section : sections) {
+			ret.writeBytes(section.data, 0, section.size);
+		}
+		return ret;
+	}
+
+	private Buffer fromCircuit(Circuit circuit) {
+		Buffer ret = new Buffer();
+		writeAttributes(ret, circuit.getStaticAttributes(), null);
+		Element appear = xml.fromAppearance(circuit);
+		if (appear == null) {
+			ret.writeVarint(0);
+		} else {
+			ret.writeVarint(1);
+			writeElement(ret, appear);
+		}
+
+		lastX = 0;
+		lastY = 0;
+		ret.writeVarint(circuit.getWires().size());
+		for (Wire w : circuit.getWires()) {
+			writeLocation(ret, w.getEnd0());
+			writeLocation(ret, w.getEnd1());
+		}
+
+		Buffer comps = new Buffer();
+		int count = 0;
+		for (Component comp : circuit.getNonWires()) {
+			ComponentFactory source = comp.getFactory();
+			String libName = xml.toLibraryName(source);
+			if (libName != null) {
+				comps.writeVarint(toIndex(libName));
+				comps.writeVarint(toIndex(source.getName()));
+				writeLocation(comps, comp.getLocation());
+				writeAttributes(comps, comp.getAttributeSet(), source);
+				count++;
+			}
+		}
+		ret.writeVarint(count);
+		ret.writeBytes(comps.data, 0, comps.size);
+		return ret;
+	}
+
+	private void writeAttributes(Buffer out, AttributeSet attrs,
+			AttributeDefaultProvider source) {
+		attrScratch.clear();
+		XmlWriter.getAttributesToSave(attrScratch, attrs, source);
+		out.writeVarint(attrScratch.size() / 2);
+		for (String s : attrScratch) {
+			out.writeVarint(toIndex(s));
+		}
+	}
+
+	private void writeLocation(Buffer out, Location loc) {
+		out.writeSigned(loc.getX() - lastX);
+		out.writeSigned(loc.getY() - lastY);
+		lastX = loc.getX();
+		lastY = loc.getY();
+	}
+
+	private void writeElement(Buffer out, Element elt) {
+		out.writeVarint(toIndex(elt.getTagName()));
+		NamedNodeMap attrs = elt.getAttributes();
+		out.writeVarint(attrs.getLength());
+		for (int i = 0; i < attrs.getLength(); i++) {
+			Node attr = attrs.item(i);
+			out.writeVarint(toIndex(attr.getNodeName()));
+			out.writeVarint(toIndex(attr.getNodeValue()));
+		}
+		NodeList children = elt.getChildNodes();
+		int count = 0;
+		for (int i = 0; i < children.getLength(); i++) {
+			short type = children.item(i).getNodeType();
+			if (type == Node.ELEMENT_NODE || type == Node.TEXT_NODE
+				|| type == Node.CDATA_SECTION_NODE) {
+				count++;
+			}
+		}
+		out.writeVarint(count);
+		for (int i = 0; i < children.getLength(); i++) {
+			Node child = children.item(i);
+			short type = child.getNodeType();
+			if (type == Node.ELEMENT_NODE) {
+				out.writeVarint(BinaryReader.CHILD_ELEMENT);
+				writeElement(out, (Element) child);
+			} else if (type == Node.TEXT_NODE || type == Node.CDATA_SECTION_NODE) {
+				out.writeVarint(BinaryReader.CHILD_TEXT);
+				out.writeVarint(toIndex(child.getNodeValue()));
+			}
+		}
+	}
+
+	private int toIndex(String s) {
+		Integer ret = stringIndex.get(s);
+		if (ret == null) {
+			ret = strings.size();
+			stringIndex.put(s, ret);
+			strings.add(s);
+		}
+		return ret;
+	}
+
+	private static class Buffer {
+		byte[] data = new byte[256];
+		int size = 0;
+
+		private void ensure(int extra) {
+			if (size + extra > data.length) {
+				data = Arrays.copyOf(data, Math.max(2 * data.length, size + extra));
+			}
+		}
+
+		void writeVarint(int value) {
+			ensure(5);
+			while ((value & ~0x7F) != 0) {
+				data[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			data[size++] = (byte) value;
+		}
+
+		void writeSigned(int value) {
+			writeVarint((value << 1) ^ (value >> 31));
+		}
+
+		void writeBytes(byte[] src, int offs, int len) {
+			ensure(len);
+			System.arraycopy(src, offs, data, size, len);
+			size += len;
+		}
+
+		void writeTo(OutputStream out) throws IOException {
+			out.write(data, 0, size);
+		}
+	}
+}
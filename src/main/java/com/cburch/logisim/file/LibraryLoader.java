@@ -5,9 +5,13 @@ package com.cburch.logisim.file;
 
 import com.cburch.logisim.tools.Library;
 
+import java.util.List;
+
 interface LibraryLoader {
 	Library loadLibrary(String desc);
 
+	List<Library> loadLibraries(List<String> descs);
+
 	String getDescriptor(Library lib);
 
 	void showError(String description);
@@ -11,19 +11,26 @@ import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 class LibraryManager {
 	public static final LibraryManager instance = new LibraryManager();
 
 	private static final char desc_sep = '#';
-	private final HashMap<LibraryDescriptor, WeakReference<LoadedLibrary>> fileMap;
-	private final WeakHashMap<LoadedLibrary, LibraryDescriptor> invMap;
+	// libraries are loaded on several threads at once
+	private final Map<LibraryDescriptor, WeakReference<LoadedLibrary>> fileMap;
+	private final Map<LoadedLibrary, LibraryDescriptor> invMap;
+	private final HashMap<JarDescriptor, Object> jarLocks = new HashMap<>();
 
 	private LibraryManager() {
-		fileMap = new HashMap<>();
-		invMap = new WeakHashMap<>();
+		fileMap = Collections.synchronizedMap(new HashMap<>());
+		invMap = Collections.synchronizedMap(new WeakHashMap<>());
 		ProjectsDirty.initialize();
 	}
 
@@ -63,48 +70,90 @@ class LibraryManager {
 
 	Collection<LogisimFile> getLogisimLibraries() {
 		ArrayList<LogisimFile> ret = new ArrayList<>();
-		for (LoadedLibrary lib : invMap.keySet()) {
-			if (lib.getBase() instanceof LogisimFile) {
-				ret.add((LogisimFile) lib.getBase());
+		synchronized (invMap) {
+			for (LoadedLibrary lib : invMap.keySet()) {
+				if (lib.getBase() instanceof LogisimFile) {
+					ret.add((LogisimFile) lib.getBase());
+				}
 			}
 		}
 		return ret;
 	}
 
 	public Library loadLibrary(Loader loader, String desc) {
+		return toLoad(loader, desc).get();
+	}
+
+	/**
+	 * Loads the libraries described, returning each in turn, or null for
+	 * one that could not be loaded. The libraries are loaded together, but
+	 * what each shows as errors is recorded and shown once it is loaded, in
+	 * the order of the descriptions, so that the messages come as they
+	 * would were the libraries loaded one after another.
+	 */
+	List<Library> loadLibraries(Loader loader, List<String> descs) {
+		ArrayList<FutureTask<Library>> loads = new ArrayList<>();
+		ArrayList<List<String>> errors = new ArrayList<>();
+		for (String desc : descs) {
+			List<String> descErrors = new ArrayList<>();
+			FutureTask<Library> load = loader.createLoad(toLoad(loader, desc), descErrors);
+			if (descs.size() > 1) ParallelLoading.start(load);
+			loads.add(load);
+			errors.add(descErrors);
+		}
+		ArrayList<Library> ret = new ArrayList<>();
+		for (int i = 0; i < loads.size(); i++) {
+			try {
+				ret.add(ParallelLoading.finish(loads.get(i)));
+			} finally {
+				loader.showErrors(errors.get(i));
+			}
+		}
+		return ret;
+	}
+
+	// works out the library that the description refers to here, since
+	// the user may be asked to find its file, and returns its load
+	private Supplier<Library> toLoad(Loader loader, String desc) {
 		// It may already be loaded.
 		// Otherwise we'll have to decode it.
 		int sep = desc.indexOf(desc_sep);
 		if (sep < 0) {
-			loader.showError(StringUtil.format(Strings.get("fileDescriptorError"), desc));
-			return null;
+			return () -> {
+				loader.showError(StringUtil.format(Strings.get("fileDescriptorError"), desc));
+				return null;
+			};
 		}
 		String type = desc.substring(0, sep);
 		String name = desc.substring(sep + 1);
 
 		switch (type) {
 			case "":
-				Library ret = loader.getBuiltin().getLibrary(name);
-				if (ret == null) {
-					loader.showError(StringUtil.format(Strings.get("fileBuiltinMissingError"), name));
-					return null;
-				}
-				return ret;
+				return () -> {
+					Library ret = loader.getBuiltin().getLibrary(name);
+					if (ret == null) {
+						loader.showError(StringUtil.format(Strings.get("fileBuiltinMissingError"), name));
+						return null;
+					}
+					return ret;
+				};
 			case "file": {
 				File toRead = loader.getFileFor(name, Loader.LOGISIM_FILTER);
-				return loadLogisimLibrary(loader, toRead);
+				return () -> loadLogisimLibrary(loader, toRead);
 			}
 			case "jar": {
 				int sepLoc = name.lastIndexOf(desc_sep);
 				String fileName = name.substring(0, sepLoc);
 				String className = name.substring(sepLoc + 1);
 				File toRead = loader.getFileFor(fileName, Loader.JAR_FILTER);
-				return loadJarLibrary(loader, toRead, className);
+				return () -> loadJarLibrary(loader, toRead, className);
 			}
 			default:
-				loader.showError(StringUtil.format(Strings.get("fileTypeError"),
-					type, desc));
-				return null;
+				return () -> {
+					loader.showError(StringUtil.format(Strings.get("fileTypeError"),
+						type, desc));
+					return null;
+				};
 		}
 	}
 
@@ -113,7 +162,7 @@ class LibraryManager {
 		if (ret != null) return ret;
 
 		try {
-			ret = new LoadedLibrary(loader.loadLogisimFile(toRead));
+			ret = new LoadedLibrary(loader.loadLogisimFile(toRead, true));
 		} catch (LoadFailedException e) {
 			loader.showError(e.getMessage());
 			return null;
@@ -127,19 +176,26 @@ class LibraryManager {
 
 	public LoadedLibrary loadJarLibrary(Loader loader, File toRead, String className) {
 		JarDescriptor jarDescriptor = new JarDescriptor(toRead, className);
-		LoadedLibrary ret = findKnown(jarDescriptor);
-		if (ret != null) return ret;
-
-		try {
-			ret = new LoadedLibrary(loader.loadJarFile(toRead, className));
-		} catch (LoadFailedException e) {
-			loader.showError(e.getMessage());
-			return null;
+		Object lock;
+		synchronized (jarLocks) {
+			lock = jarLocks.computeIfAbsent(jarDescriptor, desc -> new Object());
 		}
+		// a jar is loaded once, however many libraries refer to it at once
+		synchronized (lock) {
+			LoadedLibrary ret = findKnown(jarDescriptor);
+			if (ret != null) return ret;
 
-		fileMap.put(jarDescriptor, new WeakReference<>(ret));
-		invMap.put(ret, jarDescriptor);
-		return ret;
+			try {
+				ret = new LoadedLibrary(loader.loadJarFile(toRead, className));
+			} catch (LoadFailedException e) {
+				loader.showError(e.getMessage());
+				return null;
+			}
+
+			fileMap.put(jarDescriptor, new WeakReference<>(ret));
+			invMap.put(ret, jarDescriptor);
+			return ret;
+		}
 	}
 
 	public void reload(Loader loader, LoadedLibrary lib) {
@@ -247,7 +303,7 @@ class LibraryManager {
 
 		@Override
 		void setBase(Loader loader, LoadedLibrary lib) throws LoadFailedException {
-			lib.setBase(loader.loadLogisimFile(file));
+			lib.setBase(loader.loadLogisimFile(file, true));
 		}
 
 		@Override
@@ -13,21 +13,29 @@ import com.cburch.logisim.util.ZipClassLoader;
 import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
 import java.awt.*;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 public class Loader implements LibraryLoader {
 	public static final String LOGISIM_EXTENSION = ".circ";
+	public static final String BINARY_EXTENSION = ".circb";
 	public static final FileFilter LOGISIM_FILTER = new LogisimFileFilter();
 	public static final FileFilter JAR_FILTER = new JarFileFilter();
 	private final Builtin builtin = new Builtin();
-	private final Stack<File> filesOpening = new Stack<>();
+	// each thread loading on this loader's behalf has its own stack
+	private final ThreadLocal<Stack<File>> filesOpening = ThreadLocal.withInitial(Stack::new);
+	private final ThreadLocal<List<String>> errorsRecorded = new ThreadLocal<>();
 	// fixed
 	private Component parent;
 	// to be cleared with each new file
@@ -44,6 +52,8 @@ public class Loader implements LibraryLoader {
 		String name = base.getName();
 		if (name.endsWith(LOGISIM_EXTENSION)) {
 			name = name.substring(0, name.length() - LOGISIM_EXTENSION.length());
+		} else if (name.endsWith(BINARY_EXTENSION)) {
+			name = name.substring(0, name.length() - BINARY_EXTENSION.length());
 		}
 		for (int i = 1; i <= 20; i++) {
 			String ext = i == 1 ? ".bak" : (".bak" + i);
@@ -60,6 +70,20 @@ public class Loader implements LibraryLoader {
 		}
 	}
 
+	// files are saved in the binary form when named for it
+	private static boolean isBinaryFile(File file) {
+		return file.getName().endsWith(BINARY_EXTENSION);
+	}
+
+	private static void write(LogisimFile file, OutputStream out, File dest,
+			LibraryLoader loader) throws IOException {
+		if (isBinaryFile(dest)) {
+			file.writeBinary(out, loader);
+		} else {
+			file.write(out, loader);
+		}
+	}
+
 	public Builtin getBuiltin() {
 		return builtin;
 	}
@@ -91,8 +115,9 @@ public class Loader implements LibraryLoader {
 	// used here and in LibraryManager only
 	File getCurrentDirectory() {
 		File ref;
-		if (!filesOpening.empty()) {
-			ref = filesOpening.peek();
+		Stack<File> opening = filesOpening.get();
+		if (!opening.empty()) {
+			ref = opening.peek();
 		} else {
 			ref = mainFile;
 		}
@@ -103,7 +128,7 @@ public class Loader implements LibraryLoader {
 	// more substantive methods accessed from outside this package
 	//
 	private void clear() {
-		filesOpening.clear();
+		filesOpening.get().clear();
 		mainFile = null;
 	}
 
@@ -119,7 +144,7 @@ public class Loader implements LibraryLoader {
 
 	public LogisimFile openLogisimFile(File file) throws LoadFailedException {
 		try {
-			LogisimFile ret = loadLogisimFile(file);
+			LogisimFile ret = loadLogisimFile(file, false);
 			if (ret != null) setMainFile(file);
 			showMessages(ret);
 			return ret;
@@ -179,7 +204,7 @@ public class Loader implements LibraryLoader {
 			} catch (IOException ignored) {
 			}
 			fwrite = new FileOutputStream(dest);
-			file.write(fwrite, this);
+			write(file, fwrite, dest, this);
 			file.setName(toProjectName(dest));
 
 			File oldFile = getMainFile();
@@ -230,12 +255,59 @@ public class Loader implements LibraryLoader {
 		return true;
 	}
 
+	/**
+	 * Writes the file to dest, in the form its name calls for, without the
+	 * checks and backup that save makes or any change to the file.
+	 */
+	public void export(LogisimFile file, File dest) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(dest))) {
+			write(file, out, dest, this);
+		}
+	}
+
+	/**
+	 * Writes the file in the binary form to out, as export would, so that
+	 * it can be opened again with openRecovered.
+	 */
+	public void writeBinary(LogisimFile file, OutputStream out) throws IOException {
+		file.writeBinary(out, this);
+	}
+
+	/**
+	 * Opens a copy of a file kept elsewhere, as from a crash, as though it
+	 * were mainFile, so that the libraries it refers to are found as they
+	 * are from there and the file is saved there. A file never saved has
+	 * no mainFile, and is given name instead.
+	 */
+	public LogisimFile openRecovered(File source, File mainFile, String name)
+		throws LoadFailedException {
+		LogisimFile ret;
+		Stack<File> opening = filesOpening.get();
+		opening.push(mainFile == null ? source : mainFile);
+		try {
+			ret = LogisimFile.load(source, this);
+		} catch (IOException e) {
+			throw new LoadFailedException(StringUtil.format(Strings.get("logisimLoadError"),
+				name, e.toString()));
+		} catch (LoaderException e) {
+			throw new LoadFailedException(e.getMessage(), e.isShown());
+		} finally {
+			opening.pop();
+		}
+		setMainFile(mainFile);
+		ret.setName(mainFile == null ? name : toProjectName(mainFile));
+		showMessages(ret);
+		return ret;
+	}
+
 	//
 	// methods for LibraryManager
 	//
-	LogisimFile loadLogisimFile(File request) throws LoadFailedException {
+	// a library is loaded lazily, building its circuits as they are used
+	LogisimFile loadLogisimFile(File request, boolean lazy) throws LoadFailedException {
 		File actual = getSubstitution(request);
-		for (File fileOpening : filesOpening) {
+		Stack<File> opening = filesOpening.get();
+		for (File fileOpening : opening) {
 			if (fileOpening.equals(actual)) {
 				throw new LoadFailedException(StringUtil.format(Strings.get("logisimCircularError"),
 					toProjectName(actual)));
@@ -243,14 +315,14 @@ public class Loader implements LibraryLoader {
 		}
 
 		LogisimFile ret;
-		filesOpening.push(actual);
+		opening.push(actual);
 		try {
-			ret = LogisimFile.load(actual, this);
+			ret = LogisimFile.load(actual, this, lazy);
 		} catch (IOException e) {
 			throw new LoadFailedException(StringUtil.format(Strings.get("logisimLoadError"),
 				toProjectName(actual), e.toString()));
 		} finally {
-			filesOpening.pop();
+			opening.pop();
 		}
 		ret.setName(toProjectName(actual));
 		return ret;
@@ -311,13 +383,50 @@ public class Loader implements LibraryLoader {
 		return LibraryManager.instance.loadLibrary(this, desc);
 	}
 
+	public List<Library> loadLibraries(List<String> descs) {
+		return LibraryManager.instance.loadLibraries(this, descs);
+	}
+
+	/**
+	 * Returns a task doing the load as though on this thread, whichever
+	 * thread runs it: with the files being opened here, and with the
+	 * errors it shows recorded, to be passed to showErrors once its result
+	 * is used.
+	 */
+	<V> FutureTask<V> createLoad(Supplier<V> load, List<String> errors) {
+		Stack<File> requested = new Stack<>();
+		requested.addAll(filesOpening.get());
+		return new FutureTask<>(() -> {
+			Stack<File> oldOpening = filesOpening.get();
+			List<String> oldErrors = errorsRecorded.get();
+			filesOpening.set(requested);
+			errorsRecorded.set(errors);
+			try {
+				return load.get();
+			} finally {
+				filesOpening.set(oldOpening);
+				errorsRecorded.set(oldErrors);
+			}
+		});
+	}
+
+	void showErrors(List<String> errors) {
+		List<String> recording = errorsRecorded.get();
+		if (recording != null) {
+			recording.addAll(errors);
+		} else {
+			for (String error : errors) display(error);
+		}
+	}
+
 	public String getDescriptor(Library lib) {
 		return LibraryManager.instance.getDescriptor(this, lib);
 	}
 
 	public void showError(String description) {
-		if (!filesOpening.empty()) {
-			File top = filesOpening.peek();
+		Stack<File> opening = filesOpening.get();
+		if (!opening.empty()) {
+			File top = opening.peek();
 			String init = toProjectName(top) + ":";
 			if (description.contains("\n")) {
 				description = init + "\n" + description;
@@ -326,6 +435,15 @@ public class Loader implements LibraryLoader {
 			}
 		}
 
+		List<String> recording = errorsRecorded.get();
+		if (recording != null) {
+			recording.add(description);
+		} else {
+			display(description);
+		}
+	}
+
+	private void display(String description) {
 		if (description.contains("\n") || description.length() > 60) {
 			int lines = 1;
 			for (int pos = description.indexOf('\n'); pos >= 0;
@@ -391,6 +509,8 @@ public class Loader implements LibraryLoader {
 		String ret = file.getName();
 		if (ret.endsWith(LOGISIM_EXTENSION)) {
 			return ret.substring(0, ret.length() - LOGISIM_EXTENSION.length());
+		} else if (ret.endsWith(BINARY_EXTENSION)) {
+			return ret.substring(0, ret.length() - BINARY_EXTENSION.length());
 		} else {
 			return ret;
 		}
@@ -400,7 +520,8 @@ public class Loader implements LibraryLoader {
 		@Override
 		public boolean accept(File f) {
 			return f.isDirectory()
-				|| f.getName().endsWith(LOGISIM_EXTENSION);
+				|| f.getName().endsWith(LOGISIM_EXTENSION)
+				|| f.getName().endsWith(BINARY_EXTENSION);
 		}
 
 		@Override
@@ -14,9 +14,9 @@ import com.cburch.logisim.tools.Tool;
 import com.cburch.logisim.util.EventSourceWeakSupport;
 import com.cburch.logisim.util.ListUtil;
 import com.cburch.logisim.util.StringUtil;
-import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import java.io.*;
@@ -65,11 +65,17 @@ public class LogisimFile extends Library implements LibraryEventSource {
 	}
 
 	public static LogisimFile load(File file, Loader loader)
+		throws IOException {
+		return load(file, loader, false);
+	}
+
+	// a lazily loaded file's circuits are built only when first used
+	static LogisimFile load(File file, Loader loader, boolean lazy)
 		throws IOException {
 		InputStream in = new FileInputStream(file);
 		Throwable firstExcept;
 		try {
-			return loadSub(in, loader);
+			return loadSub(in, loader, lazy);
 		} catch (Throwable t) {
 			firstExcept = t;
 		} finally {
@@ -81,7 +87,7 @@ public class LogisimFile extends Library implements LibraryEventSource {
 		// UTF-8 as the encoding (though the XML file reported otherwise).
 		try {
 			in = new ReaderInputStream(new FileReader(file), "UTF8");
-			return loadSub(in, loader);
+			return loadSub(in, loader, lazy);
 		} catch (Throwable t) {
 			loader.showError(StringUtil.format(
 				Strings.get("xmlFormatError"), firstExcept.toString()));
@@ -98,18 +104,24 @@ public class LogisimFile extends Library implements LibraryEventSource {
 	public static LogisimFile load(InputStream in, Loader loader)
 		throws IOException {
 		try {
-			return loadSub(in, loader);
-		} catch (SAXException e) {
+			return loadSub(in, loader, false);
+		} catch (XMLStreamException e) {
 			loader.showError(StringUtil.format(
 				Strings.get("xmlFormatError"), e.toString()));
 			return null;
 		}
 	}
 
-	private static LogisimFile loadSub(InputStream in, Loader loader)
-		throws IOException, SAXException {
-		// fetch first line and then reset
+	private static LogisimFile loadSub(InputStream in, Loader loader, boolean lazy)
+		throws IOException, XMLStreamException {
 		BufferedInputStream inBuffered = new BufferedInputStream(in);
+		if (BinaryReader.isBinary(inBuffered)) {
+			LogisimFile ret = new XmlReader(loader, lazy).readBinary(inBuffered);
+			ret.loader = loader;
+			return ret;
+		}
+
+		// fetch first line and then reset
 		String firstLine = getFirstLine(inBuffered);
 
 		if (firstLine.equals("Logisim v1.0")) {
@@ -118,7 +130,7 @@ public class LogisimFile extends Library implements LibraryEventSource {
 			throw new IOException("Version 1.0 files no longer supported");
 		}
 
-		XmlReader xmlReader = new XmlReader(loader);
+		XmlReader xmlReader = new XmlReader(loader, lazy);
 		LogisimFile ret = xmlReader.readLibrary(inBuffered);
 		ret.loader = loader;
 		return ret;
@@ -368,6 +380,10 @@ public class LogisimFile extends Library implements LibraryEventSource {
 		}
 	}
 
+	void writeBinary(OutputStream out, LibraryLoader loader) throws IOException {
+		BinaryWriter.write(this, out, loader);
+	}
+
 	LogisimFile cloneLogisimFile(Loader newloader) {
 		PipedInputStream reader = new PipedInputStream();
 		PipedOutputStream writer = new PipedOutputStream();
@@ -10,6 +10,10 @@ public class Options {
 		= new AttributeOption("ignore", Strings.getter("gateUndefinedIgnore"));
 	public static final AttributeOption GATE_UNDEFINED_ERROR
 		= new AttributeOption("error", Strings.getter("gateUndefinedError"));
+	public static final AttributeOption SIM_QUEUE_WHEEL
+		= new AttributeOption("wheel", Strings.getter("simQueueWheel"));
+	public static final AttributeOption SIM_QUEUE_HEAP
+		= new AttributeOption("heap", Strings.getter("simQueueHeap"));
 
 	public static final Attribute<Integer> sim_limit_attr
 		= Attributes.forInteger("simlimit", Strings.getter("simLimitOption"));
@@ -18,14 +22,23 @@ public class Options {
 	public static final Attribute<AttributeOption> ATTR_GATE_UNDEFINED
 		= Attributes.forOption("gateUndefined", Strings.getter("gateUndefinedOption"),
 		new AttributeOption[]{GATE_UNDEFINED_IGNORE, GATE_UNDEFINED_ERROR});
+	public static final Attribute<AttributeOption> ATTR_SIM_QUEUE
+		= Attributes.forOption("simqueue", Strings.getter("simQueueOption"),
+		new AttributeOption[]{SIM_QUEUE_WHEEL, SIM_QUEUE_HEAP});
+	public static final Attribute<Integer> ATTR_SIM_WORKERS
+		= Attributes.forIntegerRange("simworkers", Strings.getter("simWorkersOption"), 1, 64);
+	public static final Attribute<Boolean> ATTR_SIM_COMPILE
+		= Attributes.forBoolean("simcompile", Strings.getter("simCompileOption"));
 
 	public static final Integer sim_rand_dflt = 32;
 
 	private static final Attribute<?>[] ATTRIBUTES = {
-		ATTR_GATE_UNDEFINED, sim_limit_attr, sim_rand_attr,
+		ATTR_GATE_UNDEFINED, sim_limit_attr, sim_rand_attr, ATTR_SIM_QUEUE,
+		ATTR_SIM_COMPILE, ATTR_SIM_WORKERS,
 	};
 	private static final Object[] DEFAULTS = {
-		GATE_UNDEFINED_IGNORE, 1000, 0,
+		GATE_UNDEFINED_IGNORE, 1000, 0, SIM_QUEUE_WHEEL,
+		Boolean.FALSE, 1,
 	};
 
 	private final AttributeSet attrs;
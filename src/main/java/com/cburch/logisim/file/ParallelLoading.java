@@ -0,0 +1,61 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.file;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs the parts of a load that may proceed together: the libraries a
+ * file refers to, and the circuits it holds. A task is started on a
+ * worker and finished by whoever needs its result, who runs it there and
+ * then if no worker has yet begun it; so a load never waits for a worker
+ * that is busy elsewhere, however deeply loads are nested. With a single
+ * processor there are no workers, and every task runs when finished, in
+ * order on the loading thread, as it always has.
+ */
+class ParallelLoading {
+	private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+	private static final ExecutorService POOL = WORKERS <= 1 ? null
+		: Executors.newFixedThreadPool(WORKERS, task -> {
+			Thread ret = new Thread(task, "Logisim loader");
+			ret.setDaemon(true);
+			return ret;
+		});
+
+	private ParallelLoading() {
+	}
+
+	static boolean isParallel() {
+		return POOL != null;
+	}
+
+	static <V> FutureTask<V> start(FutureTask<V> task) {
+		if (POOL != null) POOL.execute(task);
+		return task;
+	}
+
+	static <V> V finish(FutureTask<V> task) {
+		task.run(); // does nothing if it has been run or is running
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+					if (cause instanceof Error) throw (Error) cause;
+					throw new IllegalStateException(cause);
+				}
+			}
+		} finally {
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -34,13 +34,49 @@ public class XmlCircuitReader extends CircuitTransaction {
 
 	static Component getComponent(Element elt, XmlReader.ReadContext reader)
 		throws XmlReaderException {
+		return getComponent(elt.getAttribute("name"), elt.getAttribute("lib"),
+			elt.getAttribute("loc"), reader.toAttributeValues(elt), reader);
+	}
+
+	static Component getComponent(String name, String libName, String loc_str,
+			XmlReader.AttributeValues values, XmlReader.ReadContext reader)
+		throws XmlReaderException {
+		ComponentFactory source = getFactory(name, libName, reader);
+
+		// Determine attributes
+		AttributeSet attrs = source.createAttributeSet();
+		reader.initAttributeSet(values, attrs, source);
+
+		// Create component if location known
+		if (loc_str == null || loc_str.equals("")) {
+			throw new XmlReaderException(Strings.get("compLocMissingError", source.getName()));
+		} else {
+			try {
+				Location loc = Location.parse(loc_str);
+				return source.createComponent(loc, attrs);
+			} catch (NumberFormatException e) {
+				throw new XmlReaderException(Strings.get("compLocInvalidError",
+					source.getName(), loc_str));
+			}
+		}
+	}
+
+	static Component getComponent(String name, String libName, Location loc,
+			XmlReader.AttributeValues values, XmlReader.ReadContext reader)
+		throws XmlReaderException {
+		ComponentFactory source = getFactory(name, libName, reader);
+		AttributeSet attrs = source.createAttributeSet();
+		reader.initAttributeSet(values, attrs, source);
+		return source.createComponent(loc, attrs);
+	}
+
+	private static ComponentFactory getFactory(String name, String libName,
+			XmlReader.ReadContext reader) throws XmlReaderException {
 		// Determine the factory that creates this element
-		String name = elt.getAttribute("name");
 		if (name == null || name.equals("")) {
 			throw new XmlReaderException(Strings.get("compNameMissingError"));
 		}
 
-		String libName = elt.getAttribute("lib");
 		Library lib = reader.findLibrary(libName);
 		if (lib == null) {
 			throw new XmlReaderException(Strings.get("compUnknownError", "no-lib"));
@@ -54,25 +90,7 @@ public class XmlCircuitReader extends CircuitTransaction {
 				throw new XmlReaderException(Strings.get("compAbsentError", name, libName));
 			}
 		}
-		ComponentFactory source = ((AddTool) tool).getFactory();
-
-		// Determine attributes
-		String loc_str = elt.getAttribute("loc");
-		AttributeSet attrs = source.createAttributeSet();
-		reader.initAttributeSet(elt, attrs, source);
-
-		// Create component if location known
-		if (loc_str == null || loc_str.equals("")) {
-			throw new XmlReaderException(Strings.get("compLocMissingError", source.getName()));
-		} else {
-			try {
-				Location loc = Location.parse(loc_str);
-				return source.createComponent(loc, attrs);
-			} catch (NumberFormatException e) {
-				throw new XmlReaderException(Strings.get("compLocInvalidError",
-					source.getName(), loc_str));
-			}
-		}
+		return ((AddTool) tool).getFactory();
 	}
 
 	@Override
@@ -96,12 +114,36 @@ public class XmlCircuitReader extends CircuitTransaction {
 		Circuit dest = circData.circuit;
 		Map<Element, Component> knownComponents = circData.knownComponents;
 		if (knownComponents == null) knownComponents = Collections.emptyMap();
-		try {
-			reader.initAttributeSet(circData.circuitElement, dest.getStaticAttributes(), null);
-		} catch (XmlReaderException e) {
-			reader.addErrors(e, circData.circuit.getName() + ".static");
+		if (!circData.staticsLoaded) {
+			try {
+				if (elt == null) {
+					reader.initAttributeSet(circData.staticAttributes, dest.getStaticAttributes(), null);
+				} else {
+					reader.initAttributeSet(elt, dest.getStaticAttributes(), null);
+				}
+			} catch (XmlReaderException e) {
+				reader.addErrors(e, circData.circuit.getName() + ".static");
+			}
+		}
+
+		if (elt == null) {
+			// a streamed circuit's components were created as it was read
+			for (Component comp : circData.components) {
+				if (comp != null) mutator.add(dest, comp);
+			}
+		} else {
+			buildComponents(elt, dest, knownComponents, mutator);
+		}
+
+		List<AbstractCanvasObject> appearance = circData.appearance;
+		if (appearance != null && !appearance.isEmpty()) {
+			dest.getAppearance().setObjectsForce(appearance);
+			dest.getAppearance().setDefaultAppearance(false);
 		}
+	}
 
+	private void buildComponents(Element elt, Circuit dest,
+			Map<Element, Component> knownComponents, CircuitMutator mutator) {
 		for (Element sub_elt : XmlIterator.forChildElements(elt)) {
 			String sub_elt_name = sub_elt.getTagName();
 			if (sub_elt_name.equals("comp")) {
@@ -112,60 +154,60 @@ public class XmlCircuitReader extends CircuitTransaction {
 					}
 					mutator.add(dest, comp);
 				} catch (XmlReaderException e) {
-					reader.addErrors(e, circData.circuit.getName() + "." + toComponentString(sub_elt));
+					reader.addErrors(e, dest.getName() + "." + toComponentString(sub_elt));
 				}
 			} else if (sub_elt_name.equals("wire")) {
 				try {
 					addWire(dest, mutator, sub_elt);
 				} catch (XmlReaderException e) {
-					reader.addErrors(e, circData.circuit.getName() + "." + toWireString(sub_elt));
+					reader.addErrors(e, dest.getName() + "." + toWireString(sub_elt));
 				}
 			}
 		}
-
-		List<AbstractCanvasObject> appearance = circData.appearance;
-		if (appearance != null && !appearance.isEmpty()) {
-			dest.getAppearance().setObjectsForce(appearance);
-			dest.getAppearance().setDefaultAppearance(false);
-		}
 	}
 
 	private String toComponentString(Element elt) {
-		String name = elt.getAttribute("name");
-		String loc = elt.getAttribute("loc");
+		return toComponentString(elt.getAttribute("name"), elt.getAttribute("loc"));
+	}
+
+	static String toComponentString(String name, String loc) {
 		return name + "(" + loc + ")";
 	}
 
 	private String toWireString(Element elt) {
-		String from = elt.getAttribute("from");
-		String to = elt.getAttribute("to");
+		return toWireString(elt.getAttribute("from"), elt.getAttribute("to"));
+	}
+
+	static String toWireString(String from, String to) {
 		return "w" + from + "-" + to;
 	}
 
 	private void addWire(Circuit dest, CircuitMutator mutator, Element elt)
 		throws XmlReaderException {
+		mutator.add(dest, createWire(elt.getAttribute("from"), elt.getAttribute("to")));
+	}
+
+	static Wire createWire(String from, String to) throws XmlReaderException {
 		Location pt0;
 		try {
-			String str = elt.getAttribute("from");
-			if (str == null || str.equals("")) {
+			if (from == null || from.equals("")) {
 				throw new XmlReaderException(Strings.get("wireStartMissingError"));
 			}
-			pt0 = Location.parse(str);
+			pt0 = Location.parse(from);
 		} catch (NumberFormatException e) {
 			throw new XmlReaderException(Strings.get("wireStartInvalidError"));
 		}
 
 		Location pt1;
 		try {
-			String str = elt.getAttribute("to");
-			if (str == null || str.equals("")) {
+			if (to == null || to.equals("")) {
 				throw new XmlReaderException(Strings.get("wireEndMissingError"));
 			}
-			pt1 = Location.parse(str);
+			pt1 = Location.parse(to);
 		} catch (NumberFormatException e) {
 			throw new XmlReaderException(Strings.get("wireEndInvalidError"));
 		}
 
-		mutator.add(dest, Wire.create(pt0, pt1));
+		return Wire.create(pt0, pt1);
 	}
 }
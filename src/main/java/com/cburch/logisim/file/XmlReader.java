@@ -7,6 +7,7 @@ import com.cburch.draw.model.AbstractCanvasObject;
 import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.Main;
 import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.circuit.appear.AppearanceSvgReader;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Attribute;
@@ -17,27 +18,66 @@ import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
+import com.cburch.logisim.util.Dag;
 import com.cburch.logisim.util.InputEventUtil;
 import com.cburch.logisim.util.StringUtil;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
+import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.FutureTask;
 
+/**
+ * Reads a Logisim file. The file is read as a stream, and each circuit's
+ * components and wires are created as their elements arrive, so that no
+ * tree of the whole document is ever built; only small elements, such as
+ * libraries, the toolbar and appearances, are read into trees to be
+ * interpreted as before. Components that refer to a circuit or library
+ * that comes later in the file are created at its end. Files older than
+ * 2.6.3 need repairs across the whole document, so they are read into a
+ * tree first. Files in the binary form are read through the same context
+ * by BinaryReader. Libraries that come together are loaded together, and
+ * circuits that do not use one another are built at once, as described
+ * in ParallelLoading.
+ * <p>
+ * A library may be read lazily, in which case each circuit is given only
+ * its name and static attributes at first; its element is kept, and its
+ * components and appearance are built from it when the circuit is first
+ * used, with any errors shown then.
+ */
 class XmlReader {
+	// one per thread, as libraries are read on several at once and a
+	// factory need not be thread-safe
+	private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY
+		= ThreadLocal.withInitial(XMLInputFactory::newInstance);
+
 	private final LibraryLoader loader;
+	private final boolean lazy;
 
 	XmlReader(Loader loader) {
+		this(loader, false);
+	}
+
+	XmlReader(Loader loader, boolean lazy) {
 		this.loader = loader;
+		this.lazy = lazy;
 	}
 
 	private static void findLibraryUses(ArrayList<Element> dest, String label,
@@ -50,16 +90,135 @@ class XmlReader {
 		}
 	}
 
-	LogisimFile readLibrary(InputStream is) throws IOException, SAXException {
-		Document doc = loadXmlFrom(is);
+	private static Document newDocument() throws XMLStreamException {
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			return factory.newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	// returns the attribute of the current element, or "" if it is absent
+	private static String getAttribute(XMLStreamReader in, String name) {
+		String ret = in.getAttributeValue(null, name);
+		return ret == null ? "" : ret;
+	}
+
+	// moves to the current element's next child, returning false instead
+	// once at the element's end
+	private static boolean nextChild(XMLStreamReader in) throws XMLStreamException {
+		while (true) {
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT) return true;
+			if (event == XMLStreamConstants.END_ELEMENT) return false;
+		}
+	}
+
+	private static void skipElement(XMLStreamReader in) throws XMLStreamException {
+		readText(in, null);
+	}
+
+	// moves to the current element's end, gathering the text within it
+	private static String readText(XMLStreamReader in, StringBuilder text)
+		throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			} else if (text != null && (event == XMLStreamConstants.CHARACTERS
+				|| event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE)) {
+				text.append(in.getTextCharacters(), in.getTextStart(), in.getTextLength());
+			}
+		}
+		return text == null ? null : text.toString();
+	}
+
+	private static String qualify(String prefix, String localName) {
+		return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+	}
+
+	// reads the current element into a tree, as the DOM parser would
+	private static Element readElement(Document doc, XMLStreamReader in)
+		throws XMLStreamException {
+		String ns = in.getNamespaceURI();
+		Element elt = doc.createElementNS(ns == null || ns.isEmpty() ? null : ns,
+			qualify(in.getPrefix(), in.getLocalName()));
+		for (int i = 0; i < in.getNamespaceCount(); i++) {
+			elt.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+				qualify(XMLConstants.XMLNS_ATTRIBUTE, in.getNamespacePrefix(i)),
+				in.getNamespaceURI(i));
+		}
+		for (int i = 0; i < in.getAttributeCount(); i++) {
+			String attrNs = in.getAttributeNamespace(i);
+			elt.setAttributeNS(attrNs == null || attrNs.isEmpty() ? null : attrNs,
+				qualify(in.getAttributePrefix(i), in.getAttributeLocalName(i)),
+				in.getAttributeValue(i));
+		}
+		while (true) {
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				elt.appendChild(readElement(doc, in));
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				return elt;
+			} else if (event == XMLStreamConstants.CHARACTERS
+				|| event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+				elt.appendChild(doc.createTextNode(in.getText()));
+			}
+		}
+	}
+
+	LogisimFile readLibrary(InputStream is) throws IOException, XMLStreamException {
+		XMLStreamReader in = INPUT_FACTORY.get().createXMLStreamReader(is);
+		try {
+			while (!in.isStartElement() && in.hasNext()) in.next();
+			if (!in.isStartElement()) {
+				throw new XMLStreamException("no root element", in.getLocation());
+			}
+			String source = getAttribute(in, "source");
+			if (LogisimVersion.parse(source).compareTo(LogisimVersion.get(2, 6, 3)) < 0) {
+				Document doc = newDocument();
+				doc.appendChild(readElement(doc, in));
+				return readLibrary(doc);
+			}
+			LogisimFile file = new LogisimFile((Loader) loader);
+			ReadContext context = new ReadContext(file);
+			context.readLogisimFile(in);
+			return finishLibrary(file, context);
+		} finally {
+			in.close();
+		}
+	}
+
+	LogisimFile readBinary(InputStream is) throws IOException {
+		LogisimFile file = new LogisimFile((Loader) loader);
+		ReadContext context = new ReadContext(file);
+		new BinaryReader(is).read(context);
+		return finishLibrary(file, context);
+	}
+
+	LogisimFile readLibrary(Document doc) {
 		Element elt = doc.getDocumentElement();
 		considerRepairs(doc, elt);
 		LogisimFile file = new LogisimFile((Loader) loader);
 		ReadContext context = new ReadContext(file);
 		context.toLogisimFile(elt);
+		return finishLibrary(file, context);
+	}
+
+	private LogisimFile finishLibrary(LogisimFile file, ReadContext context) {
 		if (file.getCircuitCount() == 0) {
 			file.addCircuit(new Circuit("main"));
 		}
+		showErrors(context);
+		return file;
+	}
+
+	private void showErrors(ReadContext context) {
 		if (context.messages.size() > 0) {
 			StringBuilder all = new StringBuilder();
 			for (String msg : context.messages) {
@@ -68,18 +227,6 @@ class XmlReader {
 			}
 			loader.showError(all.substring(0, all.length() - 1));
 		}
-		return file;
-	}
-
-	private Document loadXmlFrom(InputStream is) throws SAXException, IOException {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
-		DocumentBuilder builder = null;
-		try {
-			builder = factory.newDocumentBuilder();
-		} catch (ParserConfigurationException ignored) {
-		}
-		return builder.parse(is);
 	}
 
 	private void considerRepairs(Document doc, Element root) {
@@ -274,10 +421,13 @@ class XmlReader {
 	}
 
 	static class CircuitData {
-		final Element circuitElement;
+		final Element circuitElement; // null if the circuit was streamed
 		final Circuit circuit;
 		Map<Element, Component> knownComponents;
 		List<AbstractCanvasObject> appearance;
+		AttributeValues staticAttributes; // for a streamed circuit
+		List<Component> components; // for a streamed circuit, with its wires; null if failed
+		boolean staticsLoaded = false; // as they are for a lazy circuit
 
 		CircuitData(Element circuitElement, Circuit circuit) {
 			this.circuitElement = circuitElement;
@@ -285,10 +435,38 @@ class XmlReader {
 		}
 	}
 
+	/** The values given for attributes by an element's &lt;a&gt; children. */
+	static class AttributeValues {
+		final HashMap<String, String> values = new HashMap<>();
+		int unnamed = 0; // children lacking a name
+	}
+
+	// a streamed component that could not yet be created, with the place
+	// kept for it among its circuit's components
+	private static class PendingComponent {
+		final CircuitData circData;
+		final int index;
+		final String name;
+		final String lib;
+		final String loc;
+		final AttributeValues attrs;
+
+		PendingComponent(CircuitData circData, int index, String name, String lib,
+				String loc, AttributeValues attrs) {
+			this.circData = circData;
+			this.index = index;
+			this.name = name;
+			this.lib = lib;
+			this.loc = loc;
+			this.attrs = attrs;
+		}
+	}
+
 	class ReadContext {
 		final LogisimFile file;
 		final HashMap<String, Library> libs = new HashMap<>();
 		private final ArrayList<String> messages;
+		private final ArrayList<PendingComponent> pending = new ArrayList<>();
 		LogisimVersion sourceVersion;
 
 		ReadContext(LogisimFile file) {
@@ -296,6 +474,13 @@ class XmlReader {
 			this.messages = new ArrayList<>();
 		}
 
+		// a context for building one of the circuits read in the other
+		private ReadContext(ReadContext parent) {
+			this(parent.file);
+			this.libs.putAll(parent.libs);
+			this.sourceVersion = parent.sourceVersion;
+		}
+
 		void addError(String message, String context) {
 			messages.add(message + " [" + context + "]");
 		}
@@ -316,10 +501,11 @@ class XmlReader {
 			}
 
 			// first, load the sublibraries
+			List<Element> libElts = new ArrayList<>();
 			for (Element o : XmlIterator.forChildElements(elt, "lib")) {
-				Library lib = toLibrary(o);
-				if (lib != null) file.addLibrary(lib);
+				libElts.add(o);
 			}
+			addLibraries(libElts);
 
 			// second, create the circuits - empty for now
 			List<CircuitData> circuitsData = new ArrayList<>();
@@ -332,7 +518,8 @@ class XmlReader {
 				file.addCircuit(circData.circuit);
 				circData.knownComponents = loadKnownComponents(circElt);
 				for (Element appearElt : XmlIterator.forChildElements(circElt, "appear")) {
-					loadAppearance(appearElt, circData, name + ".appear");
+					loadAppearance(appearElt, circData, circData.knownComponents.values(),
+						name + ".appear");
 				}
 				circuitsData.add(circData);
 			}
@@ -340,56 +527,378 @@ class XmlReader {
 			// third, process the other child elements
 			for (Element sub_elt : XmlIterator.forChildElements(elt)) {
 				String name = sub_elt.getTagName();
-				switch (name) {
-					case "circuit":
+				if (!name.equals("circuit") && !name.equals("lib")) {
+					// circuits and libraries were done earlier
+					processElement(sub_elt);
+				}
+			}
+
+			// fourth, execute transactions that initialize all the circuits
+			buildCircuits(circuitsData);
+		}
+
+		// builds the circuits, those that do not use one another at once
+		// when there are processors to spare; a subcircuit is built before
+		// the circuits using it, so none changes while they are built
+		private void buildCircuits(List<CircuitData> circuitsData) {
+			if (circuitsData.size() < 2 || !ParallelLoading.isParallel()) {
+				new XmlCircuitReader(this, circuitsData).execute();
+				return;
+			}
+			Dag depends = new Dag();
+			HashSet<Circuit> circuits = new HashSet<>();
+			for (CircuitData circData : circuitsData) circuits.add(circData.circuit);
+			for (CircuitData circData : circuitsData) {
+				for (Circuit sub : getSubcircuits(circData)) {
+					if (circuits.contains(sub) && !depends.addEdge(circData.circuit, sub)) {
+						// circuits that use one another are built together
+						new XmlCircuitReader(this, circuitsData).execute();
+						return;
+					}
+				}
+			}
+
+			// each circuit's errors are added in the order of the circuits
+			HashMap<CircuitData, ReadContext> contexts = new HashMap<>();
+			List<CircuitData> waiting = new ArrayList<>(circuitsData);
+			LinkedHashMap<CircuitData, FutureTask<Void>> running = new LinkedHashMap<>();
+			while (!waiting.isEmpty() || !running.isEmpty()) {
+				for (Iterator<CircuitData> it = waiting.iterator(); it.hasNext(); ) {
+					CircuitData circData = it.next();
+					if (!depends.hasSuccessors(circData.circuit)) {
+						ReadContext context = new ReadContext(this);
+						contexts.put(circData, context);
+						running.put(circData, ParallelLoading.start(new FutureTask<>(() ->
+							new XmlCircuitReader(context, Collections.singletonList(circData)).execute(),
+							null)));
+						it.remove();
+					}
+				}
+				// the first to be done, or else the first begun
+				CircuitData next = running.keySet().iterator().next();
+				for (Map.Entry<CircuitData, FutureTask<Void>> entry : running.entrySet()) {
+					if (entry.getValue().isDone()) {
+						next = entry.getKey();
+						break;
+					}
+				}
+				ParallelLoading.finish(running.remove(next));
+				depends.removeNode(next.circuit);
+			}
+			for (CircuitData circData : circuitsData) {
+				messages.addAll(contexts.get(circData).messages);
+			}
+		}
+
+		void processElement(Element elt) {
+			switch (elt.getTagName()) {
+				case "options":
+					try {
+						initAttributeSet(elt, file.getOptions().getAttributeSet(), null);
+					} catch (XmlReaderException e) {
+						addErrors(e, "options");
+					}
+					break;
+				case "mappings":
+					initMouseMappings(elt);
+					break;
+				case "toolbar":
+					initToolbarData(elt);
+					break;
+				case "main":
+					String main = elt.getAttribute("name");
+					Circuit circ = file.getCircuit(main);
+					if (circ != null) {
+						file.setMainCircuit(circ);
+					}
+					break;
+				case "message":
+					file.addMessage(elt.getAttribute("value"));
+					break;
+			}
+		}
+
+		private void readLogisimFile(XMLStreamReader in) throws XMLStreamException {
+			String versionString = getAttribute(in, "source");
+			if (versionString.equals("")) {
+				sourceVersion = Main.VERSION;
+			} else {
+				sourceVersion = LogisimVersion.parse(versionString);
+			}
+
+			// libraries and circuits are loaded as they arrive, though a run
+			// of libraries is loaded together; the other elements may refer
+			// to circuits that come after them
+			Document doc = newDocument();
+			List<CircuitData> circuitsData = new ArrayList<>();
+			List<Element> others = new ArrayList<>();
+			List<Element> libElts = new ArrayList<>();
+			while (nextChild(in)) {
+				if (!in.getLocalName().equals("lib") && !libElts.isEmpty()) {
+					addLibraries(libElts);
+					libElts.clear();
+				}
+				switch (in.getLocalName()) {
 					case "lib":
-						// Nothing to do: Done earlier.
+						libElts.add(readElement(doc, in));
 						break;
-					case "options":
-						try {
-							initAttributeSet(sub_elt, file.getOptions().getAttributeSet(), null);
-						} catch (XmlReaderException e) {
-							addErrors(e, "options");
+					case "circuit":
+						if (lazy) {
+							addLazyCircuit(readElement(doc, in));
+						} else {
+							circuitsData.add(readCircuit(doc, in));
 						}
 						break;
-					case "mappings":
-						initMouseMappings(sub_elt);
+					default:
+						others.add(readElement(doc, in));
+						break;
+				}
+			}
+			addLibraries(libElts);
+
+			finishLogisimFile(circuitsData, others);
+		}
+
+		// creates the pending components, then processes the elements
+		// other than circuits and libraries, and finally builds the circuits
+		void finishLogisimFile(List<CircuitData> circuitsData, List<Element> others) {
+			for (PendingComponent p : pending) {
+				try {
+					p.circData.components.set(p.index, XmlCircuitReader.getComponent(p.name,
+						p.lib, p.loc, p.attrs, this));
+				} catch (XmlReaderException e) {
+					addErrors(e, p.circData.circuit.getName() + "."
+						+ XmlCircuitReader.toComponentString(p.name, p.loc));
+				}
+			}
+			pending.clear();
+			for (Element elt : others) {
+				processElement(elt);
+			}
+
+			buildCircuits(circuitsData);
+		}
+
+		// the circuits that the circuit's components are of, where a
+		// circuit from a tree may have components still to be created
+		private List<Circuit> getSubcircuits(CircuitData circData) {
+			List<Circuit> ret = new ArrayList<>();
+			if (circData.circuitElement == null) {
+				for (Component comp : circData.components) {
+					if (comp != null && comp.getFactory() instanceof SubcircuitFactory) {
+						ret.add(((SubcircuitFactory) comp.getFactory()).getSubcircuit());
+					}
+				}
+			} else {
+				for (Element compElt : XmlIterator.forChildElements(circData.circuitElement, "comp")) {
+					if (compElt.getAttribute("lib").equals("")) {
+						Circuit sub = file.getCircuit(compElt.getAttribute("name"));
+						if (sub != null) ret.add(sub);
+					}
+				}
+			}
+			return ret;
+		}
+
+		// adds a circuit whose contents are built from its element when
+		// it is first used
+		private void addLazyCircuit(Element circElt) {
+			String name = circElt.getAttribute("name");
+			if (name.equals("")) {
+				addError(Strings.get("circNameMissingError"), "C??");
+			}
+			CircuitData circData = new CircuitData(circElt, new Circuit(name));
+			file.addCircuit(circData.circuit);
+			loadStaticAttributes(circData, toAttributeValues(circElt));
+			setBuilder(circData, () -> {
+				ReadContext context = new ReadContext(this);
+				circData.knownComponents = context.loadKnownComponents(circElt);
+				for (Element appearElt : XmlIterator.forChildElements(circElt, "appear")) {
+					context.loadAppearance(appearElt, circData, circData.knownComponents.values(),
+						name + ".appear");
+				}
+				new XmlCircuitReader(context, Collections.singletonList(circData)).execute();
+				showErrors(context);
+			});
+		}
+
+		// has the circuit built when first used as though while the file
+		// was read, so that the errors found then name the file
+		void setBuilder(CircuitData circData, Runnable build) {
+			List<String> errors = new ArrayList<>();
+			FutureTask<Void> task = ((Loader) loader).createLoad(() -> {
+				build.run();
+				return null;
+			}, errors);
+			circData.circuit.setBuilder(() -> {
+				try {
+					ParallelLoading.finish(task);
+				} finally {
+					((Loader) loader).showErrors(errors);
+				}
+			});
+		}
+
+		void loadStaticAttributes(CircuitData circData, AttributeValues values) {
+			try {
+				initAttributeSet(values, circData.circuit.getStaticAttributes(), null);
+			} catch (XmlReaderException e) {
+				addErrors(e, circData.circuit.getName() + ".static");
+			}
+			circData.staticsLoaded = true;
+		}
+
+		// builds a circuit whose components, read by a context for it,
+		// were left to be created once the other circuits were known
+		void buildLazyCircuit(CircuitData circData) {
+			finishLogisimFile(Collections.singletonList(circData), Collections.emptyList());
+			showErrors(this);
+		}
+
+		ReadContext forLazyCircuit() {
+			return new ReadContext(this);
+		}
+
+		boolean isLazy() {
+			return lazy;
+		}
+
+		// adds an empty circuit, to which components are added as they are read
+		CircuitData addCircuit(String name) {
+			if (name.equals("")) {
+				addError(Strings.get("circNameMissingError"), "C??");
+			}
+			CircuitData circData = new CircuitData(null, new Circuit(name));
+			file.addCircuit(circData.circuit);
+			circData.staticAttributes = new AttributeValues();
+			circData.components = new ArrayList<>();
+			return circData;
+		}
+
+		private CircuitData readCircuit(Document doc, XMLStreamReader in)
+			throws XMLStreamException {
+			String name = getAttribute(in, "name");
+			CircuitData circData = addCircuit(name);
+			List<Element> appears = new ArrayList<>();
+			while (nextChild(in)) {
+				switch (in.getLocalName()) {
+					case "a":
+						readAttribute(in, circData.staticAttributes);
+						break;
+					case "comp":
+						readComponent(in, circData);
 						break;
-					case "toolbar":
-						initToolbarData(sub_elt);
+					case "wire":
+						readWire(in, circData);
 						break;
-					case "main":
-						String main = sub_elt.getAttribute("name");
-						Circuit circ = file.getCircuit(main);
-						if (circ != null) {
-							file.setMainCircuit(circ);
-						}
+					case "appear":
+						appears.add(readElement(doc, in));
 						break;
-					case "message":
-						file.addMessage(sub_elt.getAttribute("value"));
+					default:
+						skipElement(in);
 						break;
 				}
 			}
+			// the appearance follows the pins, which come after it
+			for (Element appearElt : appears) {
+				loadAppearance(appearElt, circData, circData.components, name + ".appear");
+			}
+			return circData;
+		}
 
-			// fourth, execute a transaction that initializes all the circuits
-			XmlCircuitReader builder;
-			builder = new XmlCircuitReader(this, circuitsData);
-			builder.execute();
+		private void readComponent(XMLStreamReader in, CircuitData circData)
+			throws XMLStreamException {
+			String name = getAttribute(in, "name");
+			String lib = getAttribute(in, "lib");
+			String loc = getAttribute(in, "loc");
+			AttributeValues attrs = new AttributeValues();
+			while (nextChild(in)) {
+				if (in.getLocalName().equals("a")) {
+					readAttribute(in, attrs);
+				} else {
+					skipElement(in);
+				}
+			}
+			try {
+				circData.components.add(XmlCircuitReader.getComponent(name, lib, loc, attrs, this));
+			} catch (XmlReaderException e) {
+				addPending(circData, name, lib, loc, attrs);
+			}
 		}
 
-		private Library toLibrary(Element elt) {
-			if (!elt.hasAttribute("name")) {
-				loader.showError(Strings.get("libNameMissingError"));
-				return null;
+		void addComponent(CircuitData circData, String name, String lib, Location loc,
+				AttributeValues attrs) {
+			try {
+				circData.components.add(XmlCircuitReader.getComponent(name, lib, loc, attrs, this));
+			} catch (XmlReaderException e) {
+				addPending(circData, name, lib, loc.toString(), attrs);
 			}
-			if (!elt.hasAttribute("desc")) {
-				loader.showError(Strings.get("libDescMissingError"));
-				return null;
+		}
+
+		// the component is tried again once the circuits and libraries
+		// after it are known
+		private void addPending(CircuitData circData, String name, String lib, String loc,
+				AttributeValues attrs) {
+			pending.add(new PendingComponent(circData, circData.components.size(),
+				name, lib, loc, attrs));
+			circData.components.add(null);
+		}
+
+		private void readWire(XMLStreamReader in, CircuitData circData)
+			throws XMLStreamException {
+			String from = getAttribute(in, "from");
+			String to = getAttribute(in, "to");
+			skipElement(in);
+			try {
+				circData.components.add(XmlCircuitReader.createWire(from, to));
+			} catch (XmlReaderException e) {
+				addErrors(e, circData.circuit.getName() + "."
+					+ XmlCircuitReader.toWireString(from, to));
 			}
+		}
+
+		private void readAttribute(XMLStreamReader in, AttributeValues attrs)
+			throws XMLStreamException {
+			String name = in.getAttributeValue(null, "name");
+			String val = in.getAttributeValue(null, "val");
+			if (val == null) {
+				val = readText(in, new StringBuilder());
+			} else {
+				skipElement(in);
+			}
+			if (name == null) {
+				attrs.unnamed++;
+			} else {
+				attrs.values.put(name, val);
+			}
+		}
+
+		// loads the libraries together and adds them to the file in order
+		void addLibraries(List<Element> elts) {
+			List<Element> valid = new ArrayList<>();
+			List<String> descs = new ArrayList<>();
+			for (Element elt : elts) {
+				if (!elt.hasAttribute("name")) {
+					loader.showError(Strings.get("libNameMissingError"));
+				} else if (!elt.hasAttribute("desc")) {
+					loader.showError(Strings.get("libDescMissingError"));
+				} else {
+					valid.add(elt);
+					descs.add(elt.getAttribute("desc"));
+				}
+			}
+			List<Library> loaded = loader.loadLibraries(descs);
+			for (int i = 0; i < valid.size(); i++) {
+				Library lib = loaded.get(i);
+				if (lib != null) {
+					initLibrary(valid.get(i), lib);
+					file.addLibrary(lib);
+				}
+			}
+		}
+
+		private void initLibrary(Element elt, Library ret) {
 			String name = elt.getAttribute("name");
-			String desc = elt.getAttribute("desc");
-			Library ret = loader.loadLibrary(desc);
-			if (ret == null) return null;
 			libs.put(name, ret);
 			for (Element sub_elt : XmlIterator.forChildElements(elt, "tool")) {
 				if (!sub_elt.hasAttribute("name")) {
@@ -406,7 +915,6 @@ class XmlReader {
 					}
 				}
 			}
-			return ret;
 		}
 
 		private Map<Element, Component> loadKnownComponents(Element elt) {
@@ -421,11 +929,11 @@ class XmlReader {
 			return known;
 		}
 
-		private void loadAppearance(Element appearElt, CircuitData circData,
-									String context) {
+		void loadAppearance(Element appearElt, CircuitData circData,
+									Collection<Component> comps, String context) {
 			Map<Location, Instance> pins = new HashMap<>();
-			for (Component comp : circData.knownComponents.values()) {
-				if (comp.getFactory() == Pin.FACTORY) {
+			for (Component comp : comps) {
+				if (comp != null && comp.getFactory() == Pin.FACTORY) {
 					Instance instance = Instance.getInstanceFor(comp);
 					pins.put(comp.getLocation(), instance);
 				}
@@ -532,13 +1040,14 @@ class XmlReader {
 
 		void initAttributeSet(Element parentElt, AttributeSet attrs,
 							  AttributeDefaultProvider defaults) throws XmlReaderException {
-			ArrayList<String> messages = null;
+			initAttributeSet(toAttributeValues(parentElt), attrs, defaults);
+		}
 
-			HashMap<String, String> attrsDefined = new HashMap<>();
+		AttributeValues toAttributeValues(Element parentElt) {
+			AttributeValues ret = new AttributeValues();
 			for (Element attrElt : XmlIterator.forChildElements(parentElt, "a")) {
 				if (!attrElt.hasAttribute("name")) {
-					if (messages == null) messages = new ArrayList<>();
-					messages.add(Strings.get("attrNameMissingError"));
+					ret.unnamed++;
 				} else {
 					String attrName = attrElt.getAttribute("name");
 					String attrVal;
@@ -547,9 +1056,20 @@ class XmlReader {
 					} else {
 						attrVal = attrElt.getTextContent();
 					}
-					attrsDefined.put(attrName, attrVal);
+					ret.values.put(attrName, attrVal);
 				}
 			}
+			return ret;
+		}
+
+		void initAttributeSet(AttributeValues values, AttributeSet attrs,
+							  AttributeDefaultProvider defaults) throws XmlReaderException {
+			ArrayList<String> messages = null;
+			for (int i = 0; i < values.unnamed; i++) {
+				if (messages == null) messages = new ArrayList<>();
+				messages.add(Strings.get("attrNameMissingError"));
+			}
+			HashMap<String, String> attrsDefined = values.values;
 
 			if (attrs == null) return;
 
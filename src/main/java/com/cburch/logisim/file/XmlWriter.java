@@ -27,7 +27,9 @@ import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 class XmlWriter {
@@ -36,7 +38,7 @@ class XmlWriter {
 	private final LibraryLoader loader;
 	private final HashMap<Library, String> libs = new HashMap<>();
 
-	private XmlWriter(LogisimFile file, Document doc, LibraryLoader loader) {
+	XmlWriter(LogisimFile file, Document doc, LibraryLoader loader) {
 		this.file = file;
 		this.doc = doc;
 		this.loader = loader;
@@ -100,7 +102,7 @@ class XmlWriter {
 		return ret;
 	}
 
-	private Element fromLibrary(Library lib) {
+	Element fromLibrary(Library lib) {
 		Element ret = doc.createElement("lib");
 		if (libs.containsKey(lib)) return null;
 		String name = "" + libs.size();
@@ -127,13 +129,13 @@ class XmlWriter {
 		return ret;
 	}
 
-	private Element fromOptions() {
+	Element fromOptions() {
 		Element elt = doc.createElement("options");
 		addAttributeSetContent(elt, file.getOptions().getAttributeSet(), null);
 		return elt;
 	}
 
-	private Element fromMouseMappings() {
+	Element fromMouseMappings() {
 		Element elt = doc.createElement("mappings");
 		MouseMappings map = file.getOptions().getMouseMappings();
 		for (Map.Entry<Integer, Tool> entry : map.getMappings().entrySet()) {
@@ -147,7 +149,7 @@ class XmlWriter {
 		return elt;
 	}
 
-	private Element fromToolbarData() {
+	Element fromToolbarData() {
 		Element elt = doc.createElement("toolbar");
 		ToolbarData toolbar = file.getOptions().getToolbarData();
 		for (Tool tool : toolbar.getContents()) {
@@ -188,18 +190,8 @@ class XmlWriter {
 		Element ret = doc.createElement("circuit");
 		ret.setAttribute("name", circuit.getName());
 		addAttributeSetContent(ret, circuit.getStaticAttributes(), null);
-		if (!circuit.getAppearance().isDefaultAppearance()) {
-			Element appear = doc.createElement("appear");
-			for (Object o : circuit.getAppearance().getObjectsFromBottom()) {
-				if (o instanceof AbstractCanvasObject) {
-					Element elt = ((AbstractCanvasObject) o).toSvgElement(doc);
-					if (elt != null) {
-						appear.appendChild(elt);
-					}
-				}
-			}
-			ret.appendChild(appear);
-		}
+		Element appear = fromAppearance(circuit);
+		if (appear != null) ret.appendChild(appear);
 		for (Wire w : circuit.getWires()) {
 			ret.appendChild(fromWire(w));
 		}
@@ -210,29 +202,50 @@ class XmlWriter {
 		return ret;
 	}
 
+	// returns null if the circuit has its default appearance
+	Element fromAppearance(Circuit circuit) {
+		if (circuit.getAppearance().isDefaultAppearance()) return null;
+		Element appear = doc.createElement("appear");
+		for (Object o : circuit.getAppearance().getObjectsFromBottom()) {
+			if (o instanceof AbstractCanvasObject) {
+				Element elt = ((AbstractCanvasObject) o).toSvgElement(doc);
+				if (elt != null) {
+					appear.appendChild(elt);
+				}
+			}
+		}
+		return appear;
+	}
+
 	private Element fromComponent(Component comp) {
 		ComponentFactory source = comp.getFactory();
+		String lib_name = toLibraryName(source);
+		if (lib_name == null) return null;
+
+		Element ret = doc.createElement("comp");
+		if (!lib_name.equals("")) ret.setAttribute("lib", lib_name);
+		ret.setAttribute("name", source.getName());
+		ret.setAttribute("loc", comp.getLocation().toString());
+		addAttributeSetContent(ret, comp.getAttributeSet(), comp.getFactory());
+		return ret;
+	}
+
+	// returns the name under which the factory's library is saved, "" for
+	// the file itself, or null once an error has been shown
+	String toLibraryName(ComponentFactory source) {
 		Library lib = findLibrary(source);
-		String lib_name;
 		if (lib == null) {
 			loader.showError(source.getName() + " component not found");
 			return null;
 		} else if (lib == file) {
-			lib_name = null;
+			return "";
 		} else {
-			lib_name = libs.get(lib);
+			String lib_name = libs.get(lib);
 			if (lib_name == null) {
 				loader.showError("unknown library within file");
-				return null;
 			}
+			return lib_name;
 		}
-
-		Element ret = doc.createElement("comp");
-		if (lib_name != null) ret.setAttribute("lib", lib_name);
-		ret.setAttribute("name", source.getName());
-		ret.setAttribute("loc", comp.getLocation().toString());
-		addAttributeSetContent(ret, comp.getAttributeSet(), comp.getFactory());
-		return ret;
 	}
 
 	private Element fromWire(Wire w) {
@@ -244,6 +257,25 @@ class XmlWriter {
 
 	private void addAttributeSetContent(Element elt, AttributeSet attrs,
 										AttributeDefaultProvider source) {
+		ArrayList<String> saved = new ArrayList<>();
+		getAttributesToSave(saved, attrs, source);
+		for (int i = 0; i < saved.size(); i += 2) {
+			Element a = doc.createElement("a");
+			a.setAttribute("name", saved.get(i));
+			String value = saved.get(i + 1);
+			if (value.contains("\n")) {
+				a.appendChild(doc.createTextNode(value));
+			} else {
+				a.setAttribute("val", value);
+			}
+			elt.appendChild(a);
+		}
+	}
+
+	// adds the name and then the value of each attribute that differs
+	// from its default and so is saved
+	static void getAttributesToSave(List<String> dest, AttributeSet attrs,
+									AttributeDefaultProvider source) {
 		if (attrs == null) return;
 		LogisimVersion ver = Main.VERSION;
 		if (source != null && source.isAllDefaultValues(attrs, ver)) return;
@@ -254,15 +286,8 @@ class XmlWriter {
 			if (attrs.isToSave(attr) && val != null) {
 				Object dflt = source == null ? null : source.getDefaultAttributeValue(attr, ver);
 				if (dflt == null || !dflt.equals(val)) {
-					Element a = doc.createElement("a");
-					a.setAttribute("name", attr.getName());
-					String value = attr.toStandardString(val);
-					if (value.contains("\n")) {
-						a.appendChild(doc.createTextNode(value));
-					} else {
-						a.setAttribute("val", attr.toStandardString(val));
-					}
-					elt.appendChild(a);
+					dest.add(attr.getName());
+					dest.add(attr.toStandardString(val));
 				}
 			}
 		}
@@ -5,21 +5,80 @@ package com.cburch.logisim.gui.hex;
 
 import com.cburch.hex.HexModel;
 
+import javax.swing.*;
+import javax.swing.filechooser.FileFilter;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.StringTokenizer;
 
+/**
+ * Reads and writes memory images. Besides the text format, which lists
+ * the words in hex after a "v2.0 raw" header, an image may be binary,
+ * its words stored in little-endian order in as few bytes as the width
+ * allows after a "v3.0 binary" header giving the width; or it may be a
+ * raw dump of such words, in either order, with no header at all. Binary
+ * files are read through a 64 KiB buffer and decoded a page of 4096
+ * words at a time.
+ */
 public class HexFile {
+	public static final int FORMAT_TEXT = 0;
+	public static final int FORMAT_BINARY = 1;
+	public static final int FORMAT_RAW_LE = 2;
+	public static final int FORMAT_RAW_BE = 3;
+
+	public static final FileFilter IMAGE_FILTER = new ImageFileFilter(FORMAT_TEXT, "hexImageFilter");
+	public static final FileFilter TEXT_FILTER = new ImageFileFilter(FORMAT_TEXT, "hexTextFilter");
+	public static final FileFilter BINARY_FILTER = new ImageFileFilter(FORMAT_BINARY, "hexBinaryFilter");
+	public static final FileFilter RAW_LE_FILTER = new ImageFileFilter(FORMAT_RAW_LE, "hexRawLittleFilter");
+	public static final FileFilter RAW_BE_FILTER = new ImageFileFilter(FORMAT_RAW_BE, "hexRawBigFilter");
+
 	private static final String RAW_IMAGE_HEADER = "v2.0 raw";
-	private static final String COMMENT_MARKER = "#";
+	private static final String BINARY_IMAGE_HEADER = "v3.0 binary";
+	private static final int MAX_HEADER = 64;
+	private static final int CHUNK = 4096; // words, one page of MemContents
+	private static final int READ_BUFFER = 1 << 16; // bytes
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
 	private HexFile() {
 	}
 
+	/**
+	 * Offers the formats in the chooser, for opening a file if
+	 * <code>save</code> is false; the text and binary images are told apart
+	 * by their headers, so one choice opens both.
+	 */
+	public static void addFilters(JFileChooser chooser, boolean save) {
+		chooser.setAcceptAllFileFilterUsed(false);
+		FileFilter first = save ? TEXT_FILTER : IMAGE_FILTER;
+		chooser.addChoosableFileFilter(first);
+		if (save) chooser.addChoosableFileFilter(BINARY_FILTER);
+		chooser.addChoosableFileFilter(RAW_LE_FILTER);
+		chooser.addChoosableFileFilter(RAW_BE_FILTER);
+		chooser.setFileFilter(first);
+	}
+
+	/** Returns the format of the filter chosen in the chooser. */
+	public static int getFormat(JFileChooser chooser) {
+		FileFilter filter = chooser.getFileFilter();
+		if (filter instanceof ImageFileFilter) {
+			return ((ImageFileFilter) filter).format;
+		} else {
+			return FORMAT_TEXT;
+		}
+	}
+
 	public static void save(Writer out, HexModel src) throws IOException {
 		long first = src.getFirstOffset();
 		long last = src.getLastOffset();
 		while (last > first && src.get(last) == 0) last--;
+		// tokens are formatted into a block that is written when full
+		char[] buf = new char[8192];
+		int pos = 0;
 		int tokens = 0;
 		long cur = 0;
 		while (cur <= last) {
@@ -31,86 +90,186 @@ public class HexFile {
 			if (len < 4) {
 				cur = start + 1;
 			}
-			try {
-				if (tokens > 0) out.write(tokens % 8 == 0 ? '\n' : ' ');
-				if (cur != start + 1) out.write((cur - start) + "*");
-				out.write(Integer.toHexString(val));
-			} catch (IOException e) {
-				throw new IOException(Strings.get("hexFileWriteError"));
+			if (pos > buf.length - 32) {
+				write(out, buf, pos);
+				pos = 0;
+			}
+			if (tokens > 0) buf[pos++] = tokens % 8 == 0 ? '\n' : ' ';
+			if (cur != start + 1) {
+				String count = Long.toString(cur - start);
+				count.getChars(0, count.length(), buf, pos);
+				pos += count.length();
+				buf[pos++] = '*';
+			}
+			int shift = 28;
+			while (shift > 0 && (val >>> shift) == 0) shift -= 4;
+			for (; shift >= 0; shift -= 4) {
+				buf[pos++] = HEX_DIGITS[(val >>> shift) & 0xf];
 			}
 			tokens++;
 		}
-		if (tokens > 0) out.write('\n');
+		if (tokens > 0) buf[pos++] = '\n';
+		write(out, buf, pos);
+	}
+
+	private static void write(Writer out, char[] buf, int len) throws IOException {
+		try {
+			out.write(buf, 0, len);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileWriteError"));
+		}
 	}
 
 	public static void open(HexModel dst, Reader in) throws IOException {
-		HexReader reader = new HexReader(new BufferedReader(in));
+		open(dst, new HexReader(in));
+	}
+
+	private static void open(HexModel dst, HexReader reader) throws IOException {
+		int[] data = new int[CHUNK];
 		long offs = dst.getFirstOffset();
-		while (reader.hasNext()) {
-			int[] values = reader.next();
-			if (offs + values.length - 1 > dst.getLastOffset()) {
+		for (int n = reader.next(data); n > 0; n = reader.next(data)) {
+			if (offs + n - 1 > dst.getLastOffset()) {
 				throw new IOException(Strings.get("hexFileSizeError"));
 			}
-			dst.set(offs, values);
-			offs += values.length;
+			dst.set(offs, n == data.length ? data : Arrays.copyOf(data, n));
+			offs += n;
 		}
 		dst.fill(offs, dst.getLastOffset() - offs + 1, 0);
 	}
 
 	public static int[] parse(Reader in) throws IOException {
-		HexReader reader = new HexReader(new BufferedReader(in));
+		HexReader reader = new HexReader(in);
 		int cur = 0;
-		int[] data = new int[4096];
-		while (reader.hasNext()) {
-			int[] values = reader.next();
-			if (cur + values.length > data.length) {
-				int[] oldData = data;
-				data = new int[Math.max(cur + values.length, 3 * data.length / 2)];
-				System.arraycopy(oldData, 0, data, 0, cur);
+		int[] data = new int[CHUNK];
+		int[] values = new int[CHUNK];
+		for (int n = reader.next(values); n > 0; n = reader.next(values)) {
+			if (cur + n > data.length) {
+				data = Arrays.copyOf(data, Math.max(cur + n, 3 * data.length / 2));
 			}
-			System.arraycopy(values, 0, data, cur, values.length);
-			cur += values.length;
-		}
-		if (cur != data.length) {
-			int[] oldData = data;
-			data = new int[cur];
-			System.arraycopy(oldData, 0, data, 0, cur);
+			System.arraycopy(values, 0, data, cur, n);
+			cur += n;
 		}
-		return data;
+		return cur == data.length ? data : Arrays.copyOf(data, cur);
 	}
 
 	public static void open(HexModel dst, File src) throws IOException {
-		BufferedReader in;
+		open(dst, src, FORMAT_TEXT);
+	}
+
+	/**
+	 * Loads the image into the model. For either image format the header
+	 * decides which it is; a raw dump holds words as wide as the model's.
+	 */
+	public static void open(HexModel dst, File src, int format) throws IOException {
+		FileChannel in;
 		try {
-			in = new BufferedReader(new FileReader(src));
+			in = FileChannel.open(src.toPath(), StandardOpenOption.READ);
 		} catch (IOException e) {
 			throw new IOException(Strings.get("hexFileOpenError"));
 		}
 		try {
-			String header = in.readLine();
-			if (!header.equals(RAW_IMAGE_HEADER)) {
-				throw new IOException(Strings.get("hexHeaderFormatError"));
+			if (format == FORMAT_RAW_LE || format == FORMAT_RAW_BE) {
+				ByteOrder order = format == FORMAT_RAW_LE
+					? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+				openBinary(dst, in, 0, getWordBytes(dst.getValueWidth()), order);
+				return;
 			}
-			open(dst, in);
+
+			ByteBuffer head = ByteBuffer.allocate(MAX_HEADER);
 			try {
-				BufferedReader oldIn = in;
-				in = null;
-				oldIn.close();
+				while (head.hasRemaining()) {
+					if (in.read(head) < 0) break;
+				}
 			} catch (IOException e) {
 				throw new IOException(Strings.get("hexFileReadError"));
 			}
+			String header = null;
+			int start = head.position();
+			for (int i = 0; i < head.position(); i++) {
+				if (head.get(i) == '\n') {
+					start = i + 1;
+					break;
+				}
+			}
+			if (start > 0 && (start < MAX_HEADER || head.get(start - 1) == '\n')) {
+				int end = start;
+				while (end > 0 && (head.get(end - 1) == '\n' || head.get(end - 1) == '\r')) end--;
+				header = new String(head.array(), 0, end, StandardCharsets.ISO_8859_1);
+			}
+
+			if (RAW_IMAGE_HEADER.equals(header)) {
+				seek(in, start);
+				open(dst, new HexReader(in));
+			} else if (header != null && header.startsWith(BINARY_IMAGE_HEADER + " ")) {
+				int width;
+				try {
+					width = Integer.parseInt(header.substring(BINARY_IMAGE_HEADER.length() + 1).trim());
+				} catch (NumberFormatException e) {
+					width = 0;
+				}
+				if (width < 1 || width > 32) {
+					throw new IOException(Strings.get("hexHeaderFormatError"));
+				}
+				openBinary(dst, in, start, getWordBytes(width), ByteOrder.LITTLE_ENDIAN);
+			} else {
+				throw new IOException(Strings.get("hexHeaderFormatError"));
+			}
 		} finally {
 			try {
-				if (in != null) in.close();
+				in.close();
 			} catch (IOException ignored) {
 			}
 		}
 	}
 
 	public static void save(File dst, HexModel src) throws IOException {
-		FileWriter out;
+		save(dst, src, FORMAT_TEXT);
+	}
+
+	/**
+	 * Saves the model's words in the format. The images leave out the
+	 * zeroes at the end, which opening them restores; a raw dump holds
+	 * every word.
+	 */
+	public static void save(File dst, HexModel src, int format) throws IOException {
+		if (format == FORMAT_TEXT) {
+			saveText(dst, src);
+			return;
+		}
+
+		FileChannel out;
 		try {
-			out = new FileWriter(dst);
+			out = FileChannel.open(dst.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		try {
+			int wordBytes = getWordBytes(src.getValueWidth());
+			if (format == FORMAT_BINARY) {
+				String header = BINARY_IMAGE_HEADER + " " + src.getValueWidth() + "\n";
+				write(out, ByteBuffer.wrap(header.getBytes(StandardCharsets.ISO_8859_1)));
+				long last = src.getLastOffset();
+				while (last >= src.getFirstOffset() && src.get(last) == 0) last--;
+				saveBinary(out, src, last, wordBytes, ByteOrder.LITTLE_ENDIAN);
+			} else {
+				ByteOrder order = format == FORMAT_RAW_LE
+					? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+				saveBinary(out, src, src.getLastOffset(), wordBytes, order);
+			}
+		} finally {
+			try {
+				out.close();
+			} catch (IOException e) {
+				throw new IOException(Strings.get("hexFileWriteError"), e);
+			}
+		}
+	}
+
+	private static void saveText(File dst, HexModel src) throws IOException {
+		Writer out;
+		try {
+			out = new BufferedWriter(new FileWriter(dst), 1 << 16);
 		} catch (IOException e) {
 			throw new IOException(Strings.get("hexFileOpenError"));
 		}
@@ -130,100 +289,324 @@ public class HexFile {
 		}
 	}
 
-	private static class HexReader {
-		private final BufferedReader in;
-		private final int[] data;
-		private StringTokenizer curLine;
-		private long leftCount;
-		private long leftValue;
+	private static int getWordBytes(int width) {
+		return (width + 7) / 8;
+	}
 
-		HexReader(BufferedReader in) throws IOException {
-			this.in = in;
-			data = new int[4096];
-			curLine = findNonemptyLine();
+	private static void openBinary(HexModel dst, FileChannel in, long start,
+			int wordBytes, ByteOrder order) throws IOException {
+		long size;
+		try {
+			size = in.size() - start;
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileReadError"));
+		}
+		if (size % wordBytes != 0) {
+			throw new IOException(Strings.get("hexNumberFormatError"));
+		}
+		if (size / wordBytes > dst.getLastOffset() - dst.getFirstOffset() + 1) {
+			throw new IOException(Strings.get("hexFileSizeError"));
 		}
+		seek(in, start);
+		ByteBuffer buf = ByteBuffer.allocate(READ_BUFFER).order(order);
+		buf.flip();
 
-		private StringTokenizer findNonemptyLine() throws IOException {
-			String line = in.readLine();
-			while (line != null) {
-				int index = line.indexOf(COMMENT_MARKER);
-				if (index >= 0) {
-					line = line.substring(0, index);
+		int[] data = new int[CHUNK];
+		long offs = dst.getFirstOffset();
+		long left = size / wordBytes;
+		while (left > 0) {
+			if (buf.remaining() < CHUNK * wordBytes) fill(in, buf);
+			int n = (int) Math.min(Math.min(data.length, left), buf.remaining() / wordBytes);
+			if (n == 0) throw new IOException(Strings.get("hexFileReadError"));
+			readWords(buf, wordBytes, data, n);
+			dst.set(offs, n == data.length ? data : Arrays.copyOf(data, n));
+			offs += n;
+			left -= n;
+		}
+		dst.fill(offs, dst.getLastOffset() - offs + 1, 0);
+	}
+
+	private static void seek(FileChannel in, long start) throws IOException {
+		try {
+			in.position(start);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileReadError"));
+		}
+	}
+
+	// moves what is left in buf to its start and reads after it until
+	// buf is full or the file ends
+	private static void fill(FileChannel in, ByteBuffer buf) throws IOException {
+		buf.compact();
+		try {
+			while (buf.hasRemaining()) {
+				if (in.read(buf) < 0) break;
+			}
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileReadError"));
+		} finally {
+			buf.flip();
+		}
+	}
+
+	private static void readWords(ByteBuffer buf, int wordBytes, int[] data, int n) {
+		switch (wordBytes) {
+			case 1:
+				for (int i = 0; i < n; i++) data[i] = buf.get() & 0xff;
+				break;
+			case 2:
+				ShortBuffer shorts = buf.asShortBuffer();
+				for (int i = 0; i < n; i++) data[i] = shorts.get(i) & 0xffff;
+				buf.position(buf.position() + 2 * n);
+				break;
+			case 4:
+				buf.asIntBuffer().get(data, 0, n);
+				buf.position(buf.position() + 4 * n);
+				break;
+			default:
+				boolean little = buf.order() == ByteOrder.LITTLE_ENDIAN;
+				for (int i = 0; i < n; i++) {
+					int b0 = buf.get() & 0xff;
+					int b1 = buf.get() & 0xff;
+					int b2 = buf.get() & 0xff;
+					data[i] = little ? b0 | b1 << 8 | b2 << 16 : b0 << 16 | b1 << 8 | b2;
 				}
+				break;
+		}
+	}
 
-				StringTokenizer ret = new StringTokenizer(line);
-				if (ret.hasMoreTokens()) return ret;
-				line = this.in.readLine();
+	private static void saveBinary(FileChannel out, HexModel src, long last,
+			int wordBytes, ByteOrder order) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(CHUNK * wordBytes).order(order);
+		boolean little = order == ByteOrder.LITTLE_ENDIAN;
+		for (long addr = src.getFirstOffset(); addr <= last; addr++) {
+			int val = src.get(addr);
+			switch (wordBytes) {
+				case 1:
+					buf.put((byte) val);
+					break;
+				case 2:
+					buf.putShort((short) val);
+					break;
+				case 4:
+					buf.putInt(val);
+					break;
+				default:
+					buf.put((byte) (little ? val : val >> 16));
+					buf.put((byte) (val >> 8));
+					buf.put((byte) (little ? val >> 16 : val));
+					break;
+			}
+			if (!buf.hasRemaining()) {
+				buf.flip();
+				write(out, buf);
+				buf.clear();
 			}
-			return null;
 		}
+		buf.flip();
+		write(out, buf);
+	}
 
-		private String nextToken() throws IOException {
-			if (curLine != null && curLine.hasMoreTokens()) {
-				return curLine.nextToken();
-			} else {
-				curLine = findNonemptyLine();
-				return curLine == null ? null : curLine.nextToken();
+	private static void write(FileChannel out, ByteBuffer buf) throws IOException {
+		try {
+			while (buf.hasRemaining()) out.write(buf);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileWriteError"));
+		}
+	}
+
+	private static class ImageFileFilter extends FileFilter {
+		private final int format;
+		private final String key;
+
+		ImageFileFilter(int format, String key) {
+			this.format = format;
+			this.key = key;
+		}
+
+		@Override
+		public boolean accept(File f) {
+			return true;
+		}
+
+		@Override
+		public String getDescription() {
+			return Strings.get(key);
+		}
+	}
+
+	// scans the text format a character at a time, without breaking it
+	// into lines and strings; a file is scanned as the bytes read from
+	// it, since the format is ASCII
+	private static class HexReader {
+		private final Reader in;
+		private final FileChannel channel;
+		private final char[] buf = new char[READ_BUFFER];
+		private final ByteBuffer bytes;
+		private int pos = 0;
+		private int end = 0;
+		private static final byte[] DIGITS = new byte[128];
+		private char[] token = new char[32];
+		private long leftCount = 0;
+		private int leftValue = 0;
+
+		static {
+			Arrays.fill(DIGITS, (byte) -1);
+			for (int i = 0; i < 16; i++) {
+				DIGITS[Character.forDigit(i, 16)] = (byte) i;
+				DIGITS[Character.toUpperCase(Character.forDigit(i, 16))] = (byte) i;
 			}
 		}
 
-		boolean hasNext() throws IOException {
-			if (leftCount > 0) {
-				return true;
-			} else if (curLine != null && curLine.hasMoreTokens()) {
-				return true;
+		HexReader(Reader in) {
+			this.in = in;
+			this.channel = null;
+			this.bytes = null;
+		}
+
+		HexReader(FileChannel channel) {
+			this.in = null;
+			this.channel = channel;
+			this.bytes = ByteBuffer.allocate(buf.length);
+		}
+
+		// fills data with the next words, returning how many; 0 at the end
+		int next(int[] data) throws IOException {
+			int n = 0;
+			while (n < data.length) {
+				if (leftCount == 0 && !readToken()) break;
+				int k = (int) Math.min(data.length - n, leftCount);
+				if (k == 1) {
+					data[n] = leftValue;
+				} else {
+					Arrays.fill(data, n, n + k, leftValue);
+				}
+				n += k;
+				leftCount -= k;
+			}
+			return n;
+		}
+
+		private int read() throws IOException {
+			if (pos == end && !fill()) return -1;
+			return buf[pos++];
+		}
+
+		private boolean fill() throws IOException {
+			pos = 0;
+			if (channel != null) {
+				bytes.clear();
+				end = Math.max(channel.read(bytes), 0);
+				byte[] raw = bytes.array();
+				for (int i = 0; i < end; i++) buf[i] = (char) (raw[i] & 0xff);
 			} else {
-				curLine = findNonemptyLine();
-				return curLine != null;
+				end = Math.max(in.read(buf, 0, buf.length), 0);
 			}
+			return end > 0;
+		}
+
+		private static boolean isSpace(int c) {
+			return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
 		}
 
-		int[] next() throws IOException {
-			int pos = 0;
-			if (leftCount > 0) {
-				int n = (int) Math.min(data.length - pos, leftCount);
-				if (n == 1) {
-					data[pos] = (int) leftValue;
+		private boolean readToken() throws IOException {
+			while (true) {
+				if (pos == end && !fill()) return false;
+				char c = buf[pos];
+				if (c == '#') {
+					while (c != '\n' && c != '\r') {
+						pos++;
+						if (pos == end && !fill()) return false;
+						c = buf[pos];
+					}
+				} else if (isSpace(c)) {
 					pos++;
-					leftCount--;
 				} else {
-					Arrays.fill(data, pos, pos + n, (int) leftValue);
-					pos += n;
-					leftCount -= n;
+					break;
 				}
 			}
-			if (pos >= data.length) return data;
+			if (scanToken()) return true;
 
-			for (String tok = nextToken(); tok != null; tok = nextToken()) {
-				try {
-					int star = tok.indexOf("*");
-					if (star < 0) {
-						leftCount = 1;
-						leftValue = Long.parseLong(tok, 16);
-					} else {
-						leftCount = Long.parseLong(tok.substring(0, star));
-						leftValue = Long.parseLong(tok.substring(star + 1), 16);
-					}
-				} catch (NumberFormatException e) {
+			int c = read();
+			int len = 0;
+			int star = -1;
+			while (c >= 0 && c != '#' && !isSpace(c)) {
+				if (c == '*' && star < 0) star = len;
+				if (len == token.length) token = Arrays.copyOf(token, 2 * len);
+				token[len++] = (char) c;
+				c = read();
+			}
+			if (c == '#') pos--; // leave the comment to be skipped
+
+			if (star < 0) {
+				leftCount = 1;
+				leftValue = (int) parse(0, len, 16);
+			} else {
+				leftCount = parse(0, star, 10);
+				leftValue = (int) parse(star + 1, len, 16);
+				if (leftCount < 0) {
 					throw new IOException(Strings.get("hexNumberFormatError"));
 				}
+			}
+			return true;
+		}
 
-				int n = (int) Math.min(data.length - pos, leftCount);
-				if (n == 1) {
-					data[pos] = (int) leftValue;
-					pos++;
-					leftCount--;
-				} else {
-					Arrays.fill(data, pos, pos + n, (int) leftValue);
-					pos += n;
-					leftCount -= n;
+		// reads a token of plain digits that lies wholly in the buffer,
+		// leaving any other to be copied out and parsed in full
+		private boolean scanToken() {
+			int start = pos;
+			int i = skipDigits(start);
+			long count = 1;
+			if (i < end && buf[i] == '*') {
+				if (i == start || i - start > 18) return false;
+				count = 0;
+				for (int k = start; k < i; k++) {
+					int digit = DIGITS[buf[k]];
+					if (digit >= 10) return false;
+					count = count * 10 + digit;
 				}
-				if (pos >= data.length) return data;
+				start = i + 1;
+				i = skipDigits(start);
 			}
+			if (i == start || i - start > 15 || i == end) return false;
+			if (buf[i] != '#' && !isSpace(buf[i])) return false;
 
-			int[] ret = new int[pos];
-			System.arraycopy(data, 0, ret, 0, pos);
-			return ret;
+			long value = 0;
+			for (int k = start; k < i; k++) value = value << 4 | DIGITS[buf[k]];
+			leftCount = count;
+			leftValue = (int) value;
+			pos = i;
+			return true;
+		}
+
+		private int skipDigits(int i) {
+			while (i < end && buf[i] < DIGITS.length && DIGITS[buf[i]] >= 0) i++;
+			return i;
+		}
+
+		// parses as Long.parseLong would, doing so itself when the digits
+		// are too few to overflow
+		private long parse(int from, int to, int radix) throws IOException {
+			int i = from;
+			boolean negative = i < to && token[i] == '-';
+			if (i < to && (token[i] == '-' || token[i] == '+')) i++;
+			int maxDigits = radix == 16 ? 15 : 18;
+			try {
+				if (i == to || to - i > maxDigits) {
+					return Long.parseLong(new String(token, from, to - from), radix);
+				}
+				long ret = 0;
+				for (; i < to; i++) {
+					char ch = token[i];
+					int digit = ch < DIGITS.length ? DIGITS[ch] : Character.digit(ch, radix);
+					if (digit >= radix) digit = -1;
+					if (digit < 0) throw new NumberFormatException();
+					ret = ret * radix + digit;
+				}
+				return negative ? -ret : ret;
+			} catch (NumberFormatException e) {
+				throw new IOException(Strings.get("hexNumberFormatError"));
+			}
 		}
 	}
 }
@@ -113,11 +113,12 @@ public class HexFrame extends LFrame {
 			if (src == open) {
 				JFileChooser chooser = JFileChoosers.createSelected(lastFile);
 				chooser.setDialogTitle(Strings.get("openButton"));
+				HexFile.addFilters(chooser, false);
 				int choice = chooser.showOpenDialog(HexFrame.this);
 				if (choice == JFileChooser.APPROVE_OPTION) {
 					File f = chooser.getSelectedFile();
 					try {
-						HexFile.open(model, f);
+						HexFile.open(model, f, HexFile.getFormat(chooser));
 						lastFile = f;
 					} catch (IOException e) {
 						JOptionPane.showMessageDialog(HexFrame.this, e.getMessage(),
@@ -127,11 +128,12 @@ public class HexFrame extends LFrame {
 			} else if (src == save) {
 				JFileChooser chooser = JFileChoosers.createSelected(lastFile);
 				chooser.setDialogTitle(Strings.get("saveButton"));
+				HexFile.addFilters(chooser, true);
 				int choice = chooser.showSaveDialog(HexFrame.this);
 				if (choice == JFileChooser.APPROVE_OPTION) {
 					File f = chooser.getSelectedFile();
 					try {
-						HexFile.save(f, model);
+						HexFile.save(f, model, HexFile.getFormat(chooser));
 						lastFile = f;
 					} catch (IOException e) {
 						JOptionPane.showMessageDialog(HexFrame.this, e.getMessage(),
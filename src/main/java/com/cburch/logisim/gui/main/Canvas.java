@@ -55,9 +55,10 @@ public class Canvas extends JPanel
 	private final MyViewport viewport = new MyViewport();
 	private final MyProjectListener myProjectListener = new MyProjectListener();
 	private final TickCounter tickCounter;
+	private final PaintTimer paintTimer = new PaintTimer();
 	private final CanvasPaintThread paintThread;
 	private final CanvasPainter painter;
-	private final Object repaintLock = new Object(); // for waitForRepaintDone
+	private final CanvasBuffer buffer;
 	private Tool drag_tool;
 	private MouseMappings mappings;
 	private CanvasPane canvasPane;
@@ -69,6 +70,7 @@ public class Canvas extends JPanel
 		this.proj = proj;
 		this.selection = new Selection(proj, this);
 		this.painter = new CanvasPainter(this);
+		this.buffer = new CanvasBuffer(this, painter);
 		this.oldPreferredSize = null;
 		this.paintThread = new CanvasPaintThread(this);
 		this.mappings = proj.getOptions().getMouseMappings();
@@ -92,6 +94,7 @@ public class Canvas extends JPanel
 		AppPreferences.COMPONENT_TIPS.addPropertyChangeListener(myListener);
 		AppPreferences.GATE_SHAPE.addPropertyChangeListener(myListener);
 		AppPreferences.SHOW_TICK_RATE.addPropertyChangeListener(myListener);
+		AppPreferences.SHOW_PAINT_TIME.addPropertyChangeListener(myListener);
 		loadOptions(options);
 		paintThread.start();
 	}
@@ -125,6 +128,7 @@ public class Canvas extends JPanel
 
 	public void closeCanvas() {
 		paintThread.requestStop();
+		buffer.release();
 	}
 
 	private void loadOptions(AttributeSet options) {
@@ -137,10 +141,20 @@ public class Canvas extends JPanel
 
 	@Override
 	public void repaint() {
+		// JPanel's constructor repaints before the buffer exists
+		if (buffer != null) buffer.invalidate();
 		if (inPaint) paintDirty = true;
 		else super.repaint();
 	}
 
+	/**
+	 * Repaints only what the simulation has changed since the last
+	 * paint, keeping the rest of the canvas as it was.
+	 */
+	void repaintValues() {
+		super.repaint();
+	}
+
 	public StringGetter getErrorMessage() {
 		return viewport.errorMessage;
 	}
@@ -168,6 +182,20 @@ public class Canvas extends JPanel
 		return proj;
 	}
 
+	/**
+	 * Returns the state whose values are being drawn: while painting, a
+	 * snapshot of the circuit state rather than the state itself.
+	 */
+	public CircuitState getPaintState() {
+		CircuitState ret = buffer.getPaintState();
+		return ret != null ? ret : proj.getCircuitState();
+	}
+
+	// called in the simulator's thread, between propagations
+	void takeFrame() {
+		buffer.takeFrame(proj.getCircuitState());
+	}
+
 	public Selection getSelection() {
 		return selection;
 	}
@@ -245,40 +273,23 @@ public class Canvas extends JPanel
 		revalidate();
 	}
 
-	private void waitForRepaintDone() {
-		synchronized (repaintLock) {
-			try {
-				while (inPaint) {
-					repaintLock.wait();
-				}
-			} catch (InterruptedException ignored) {
-			}
-		}
-	}
-
 	@Override
 	public void paintComponent(Graphics g) {
 		inPaint = true;
 		try {
 			super.paintComponent(g);
+			long start = System.nanoTime();
+			int drawn = 0;
 			do {
-				painter.paintContents(g, proj);
+				paintDirty = false;
+				drawn += buffer.paint(g);
 			} while (paintDirty);
+			Circuit circ = proj.getCurrentCircuit();
+			paintTimer.record(System.nanoTime() - start, drawn,
+				circ.getNonWires().size() + circ.getWires().size());
 			if (canvasPane == null) viewport.paintContents(g);
 		} finally {
 			inPaint = false;
-			synchronized (repaintLock) {
-				repaintLock.notifyAll();
-			}
-		}
-	}
-
-	boolean ifPaintDirtyReset() {
-		if (paintDirty) {
-			paintDirty = false;
-			return false;
-		} else {
-			return true;
 		}
 	}
 
@@ -353,6 +364,7 @@ public class Canvas extends JPanel
 	public void repaint(Rectangle r) {
 		double zoom = getZoomFactor();
 		if (zoom == 1.0) {
+			if (buffer != null) buffer.invalidate(r);
 			super.repaint(r);
 		} else {
 			this.repaint(r.x, r.y, r.width, r.height);
@@ -375,6 +387,7 @@ public class Canvas extends JPanel
 			width = x1 - x;
 			height = y1 - y;
 		}
+		if (buffer != null) buffer.invalidate(new Rectangle(x, y, width, height));
 		super.repaint(x, y, width, height);
 	}
 
@@ -538,6 +551,7 @@ public class Canvas extends JPanel
 				drag_tool.mousePressed(Canvas.this, getGraphics(), e);
 			}
 
+			buffer.invalidate();
 			completeAction();
 		}
 
@@ -552,6 +566,7 @@ public class Canvas extends JPanel
 				tool.mouseMoved(Canvas.this, getGraphics(), e);
 			}
 
+			buffer.invalidate();
 			completeAction();
 		}
 
@@ -599,6 +614,9 @@ public class Canvas extends JPanel
 			if (AppPreferences.GATE_SHAPE.isSource(event)
 				|| AppPreferences.SHOW_TICK_RATE.isSource(event)) {
 				paintThread.requestRepaint();
+			} else if (AppPreferences.SHOW_PAINT_TIME.isSource(event)) {
+				paintTimer.clear();
+				paintThread.requestRepaint();
 			} else if (AppPreferences.COMPONENT_TIPS.isSource(event)) {
 				boolean showTips = AppPreferences.COMPONENT_TIPS.getBoolean();
 				setToolTipText(showTips ? "" : null);
@@ -613,6 +631,7 @@ public class Canvas extends JPanel
 			int act = event.getAction();
 			if (act == ProjectEvent.ACTION_SET_CURRENT) {
 				viewport.setErrorMessage(null, null);
+				paintTimer.clear();
 				if (painter.getHaloedComponent() != null) {
 					proj.getFrame().viewComponentAttributes(null, null);
 				}
@@ -647,6 +666,7 @@ public class Canvas extends JPanel
 			if (act != ProjectEvent.ACTION_SELECTION
 				&& act != ProjectEvent.ACTION_START
 				&& act != ProjectEvent.UNDO_START) {
+				buffer.invalidate();
 				completeAction();
 			}
 		}
@@ -703,6 +723,12 @@ public class Canvas extends JPanel
 
 		public void circuitChanged(CircuitEvent event) {
 			int act = event.getAction();
+			if (act == CircuitEvent.ACTION_INVALIDATE) {
+				// as when a clock ticks or a pin is poked
+				buffer.invalidate((Component) event.getData());
+			} else {
+				buffer.invalidate();
+			}
 			if (act == CircuitEvent.ACTION_REMOVE) {
 				Component c = (Component) event.getData();
 				if (c == painter.getHaloedComponent()) {
@@ -730,11 +756,10 @@ public class Canvas extends JPanel
 				repaint();
 			}
 			*/
-			paintThread.requestRepaint();
+			paintThread.propagationCompleted();
 		}
 
 		public void tickCompleted(SimulatorEvent e) {
-			waitForRepaintDone();
 		}
 
 		public void simulatorStateChanged(SimulatorEvent e) {
@@ -902,6 +927,7 @@ public class Canvas extends JPanel
 			if (isSouthwest) GraphicsUtil.drawArrow(g, 14, sz.height - 14,
 				2, sz.height - 2, 10, 30);
 
+			int y = 5;
 			if (AppPreferences.SHOW_TICK_RATE.getBoolean()) {
 				String hz = tickCounter.getTickRate();
 				if (hz != null && !hz.equals("")) {
@@ -909,8 +935,25 @@ public class Canvas extends JPanel
 					g.setFont(TICK_RATE_FONT);
 					FontMetrics fm = g.getFontMetrics();
 					int x = getWidth() - fm.stringWidth(hz) - 5;
-					int y = fm.getAscent() + 5;
-					g.drawString(hz, x, y);
+					g.drawString(hz, x, y + fm.getAscent());
+					y += fm.getHeight();
+					String fps = paintTimer.getFrameRate();
+					if (!fps.equals("")) {
+						x = getWidth() - fm.stringWidth(fps) - 5;
+						g.drawString(fps, x, y + fm.getAscent());
+						y += fm.getHeight();
+					}
+				}
+			}
+
+			if (AppPreferences.SHOW_PAINT_TIME.getBoolean()) {
+				String time = paintTimer.getPaintTime();
+				if (!time.equals("")) {
+					g.setColor(TICK_RATE_COLOR);
+					g.setFont(TICK_RATE_FONT);
+					FontMetrics fm = g.getFontMetrics();
+					int x = getWidth() - fm.stringWidth(time) - 5;
+					g.drawString(time, x, y + fm.getAscent());
 				}
 			}
 
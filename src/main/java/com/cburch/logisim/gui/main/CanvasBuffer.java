@@ -0,0 +1,284 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.main;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.proj.Project;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the visible part of the canvas, as last painted, in an image.
+ * Painting redraws into the image only the regions that have changed:
+ * all of it after an edit or a change of view, the rectangles passed to
+ * the canvas's <code>repaint</code>, and the bounds of the components
+ * that the simulation has changed since the frame last painted, as noted
+ * by the circuit state when the frame was taken. Values are drawn from
+ * the last frame, a snapshot of the state shown, when there is one, and
+ * otherwise from the snapshot that the simulator publishes for the
+ * state; the live state is read only until either exists. Components
+ * draw their state along with their shape, so such a region is redrawn
+ * in full, but it holds only a few of them; when many regions have
+ * changed, everything is redrawn in one pass. The oscillating and step
+ * points are painted over the image each time.
+ */
+class CanvasBuffer {
+	private static final int MARGIN = 6; // covers wider wires and junction dots
+	private static final int MAX_REGIONS = 8; // beyond which all is redrawn
+	private static final int MAX_PENDING = 1024; // beyond which all is redrawn
+
+	private final Canvas canvas;
+	private final CanvasPainter painter;
+	private final ArrayList<Rectangle> pending = new ArrayList<>();
+	private final HashSet<Component> pendingComponents = new HashSet<>();
+	private boolean valid = false;
+
+	private BufferedImage image = null;
+	private Rectangle imageRect = null; // part of the canvas in the image
+	private double imageScale = 0.0;
+	private double imageZoom = 0.0;
+	private Circuit imageCircuit = null;
+	private CircuitState imageState = null;
+	private CircuitState tracked = null;
+	private CircuitState frameSource = null; // the state the frame copies
+	private CircuitState frame = null;
+	private CircuitState painting = null; // what the painter draws, while painting
+
+	CanvasBuffer(Canvas canvas, CanvasPainter painter) {
+		this.canvas = canvas;
+		this.painter = painter;
+	}
+
+	/** Notes that everything must be redrawn. */
+	synchronized void invalidate() {
+		valid = false;
+		pending.clear();
+		pendingComponents.clear();
+	}
+
+	/** Notes that the rectangle, in canvas coordinates, must be redrawn. */
+	synchronized void invalidate(Rectangle rect) {
+		if (!valid) return;
+		if (pending.size() >= MAX_PENDING) {
+			invalidate();
+		} else {
+			pending.add(new Rectangle(rect));
+		}
+	}
+
+	/** Notes that the component must be redrawn. */
+	synchronized void invalidate(Component comp) {
+		if (!valid) return;
+		if (pendingComponents.size() >= MAX_PENDING) {
+			invalidate();
+		} else {
+			pendingComponents.add(comp);
+		}
+	}
+
+	/**
+	 * Takes a frame of the state's values, with the components that have
+	 * changed since the last one. This must be called in the simulator's
+	 * thread, between propagations.
+	 */
+	void takeFrame(CircuitState state) {
+		if (state == null) return;
+		CircuitState snapshot = state.snapshot();
+		Set<Component> changed = state.takeChangedComponents();
+		synchronized (this) {
+			frameSource = state;
+			frame = snapshot;
+			if (changed == null) {
+				invalidate();
+			} else if (valid) {
+				pendingComponents.addAll(changed);
+				if (pendingComponents.size() >= MAX_PENDING) invalidate();
+			}
+		}
+	}
+
+	CircuitState getPaintState() {
+		return painting;
+	}
+
+	void release() {
+		if (tracked != null) {
+			tracked.setTrackingChanges(false);
+			tracked.setPublishing(false);
+		}
+		tracked = null;
+		image = null;
+		imageState = null;
+		synchronized (this) {
+			frameSource = null;
+			frame = null;
+		}
+		invalidate();
+	}
+
+	/**
+	 * Brings the image up to date and paints it, returning how many
+	 * components were drawn in doing so.
+	 */
+	int paint(Graphics g) {
+		Project proj = canvas.getProject();
+		CircuitState state = proj.getCircuitState();
+		// frames note what has changed in the state once it is tracked
+		if (state != tracked) {
+			if (tracked != null) {
+				tracked.setTrackingChanges(false);
+				tracked.setPublishing(false);
+			}
+			if (state != null) {
+				state.setTrackingChanges(true);
+				state.setPublishing(true);
+			}
+			tracked = state;
+		}
+
+		// the frame and the changes up to it are taken together
+		Set<Component> comps;
+		ArrayList<Rectangle> regions;
+		boolean full;
+		synchronized (this) {
+			painting = frameSource == state ? frame
+				: state == null ? null : state.getPublished();
+			comps = new HashSet<>(pendingComponents);
+			pendingComponents.clear();
+			full = !valid;
+			regions = new ArrayList<>(pending);
+			valid = true;
+			pending.clear();
+		}
+		try {
+			return paint(g, proj, state, comps, regions, full);
+		} finally {
+			painting = null;
+		}
+	}
+
+	private int paint(Graphics g, Project proj, CircuitState state,
+			Set<Component> comps, ArrayList<Rectangle> regions, boolean full) {
+		Rectangle visible = canvas.getVisibleRect();
+		AffineTransform xform = g instanceof Graphics2D
+			? ((Graphics2D) g).getTransform() : null;
+		if (visible.isEmpty() || xform == null || xform.getShearX() != 0.0
+			|| xform.getShearY() != 0.0 || xform.getScaleX() != xform.getScaleY()) {
+			int drawn = painter.paintLayer(g, proj);
+			painter.paintPoints(g, proj);
+			image = null; // not brought up to date
+			return drawn;
+		}
+		Graphics2D g2 = (Graphics2D) g;
+		double scale = xform.getScaleX();
+		double zoom = canvas.getZoomFactor();
+		Circuit circ = proj.getCurrentCircuit();
+
+		int width = (int) Math.ceil(visible.width * scale);
+		int height = (int) Math.ceil(visible.height * scale);
+		if (image == null || image.getWidth() != width || image.getHeight() != height) {
+			image = g2.getDeviceConfiguration().createCompatibleImage(width, height);
+			full = true;
+		}
+		if (scale != imageScale || zoom != imageZoom
+			|| circ != imageCircuit || state != imageState) {
+			full = true;
+		}
+		if (!full && !visible.getLocation().equals(imageRect.getLocation())) {
+			full = !scroll(visible, regions);
+		}
+
+		Graphics2D base = image.createGraphics();
+		base.setRenderingHints(g2.getRenderingHints());
+		base.setFont(g2.getFont());
+		base.scale(scale, scale);
+		base.translate(-visible.x, -visible.y);
+		int drawn = 0;
+		if (full) {
+			drawn = render(base, visible, proj);
+		} else {
+			for (Component comp : comps) {
+				Bounds bds = comp.getBounds(base).expand(MARGIN);
+				regions.add(new Rectangle((int) Math.floor(bds.getX() * zoom),
+					(int) Math.floor(bds.getY() * zoom),
+					(int) Math.ceil(bds.getWidth() * zoom) + 2,
+					(int) Math.ceil(bds.getHeight() * zoom) + 2));
+			}
+			long area = 0;
+			for (int i = regions.size() - 1; i >= 0; i--) {
+				Rectangle r = regions.get(i).intersection(visible);
+				if (r.isEmpty()) {
+					regions.remove(i);
+				} else {
+					regions.set(i, r);
+					area += (long) r.width * r.height;
+				}
+			}
+			// each pass costs something however little it draws, so when
+			// much has changed one pass over everything is cheaper
+			if (regions.size() > MAX_REGIONS
+				|| 2 * area > (long) visible.width * visible.height) {
+				drawn = render(base, visible, proj);
+			} else {
+				for (Rectangle r : regions) {
+					drawn += render(base, r, proj);
+				}
+			}
+		}
+		base.dispose();
+
+		imageRect = visible;
+		imageScale = scale;
+		imageZoom = zoom;
+		imageCircuit = circ;
+		imageState = state;
+
+		g.drawImage(image, visible.x, visible.y, visible.width, visible.height, null);
+		painter.paintPoints(g, proj);
+		return drawn;
+	}
+
+	private int render(Graphics2D base, Rectangle r, Project proj) {
+		Graphics2D g = (Graphics2D) base.create();
+		g.clipRect(r.x, r.y, r.width, r.height);
+		int drawn = painter.paintLayer(g, proj);
+		g.dispose();
+		return drawn;
+	}
+
+	// moves the image's contents when the view scrolls, adding the
+	// strips that come into view to the regions to redraw
+	private boolean scroll(Rectangle visible, ArrayList<Rectangle> regions) {
+		int dx = visible.x - imageRect.x;
+		int dy = visible.y - imageRect.y;
+		double sdx = dx * imageScale;
+		double sdy = dy * imageScale;
+		if (sdx != Math.rint(sdx) || sdy != Math.rint(sdy)
+			|| Math.abs(dx) >= visible.width || Math.abs(dy) >= visible.height) {
+			return false;
+		}
+		Graphics g = image.createGraphics();
+		g.copyArea(0, 0, image.getWidth(), image.getHeight(), -(int) sdx, -(int) sdy);
+		g.dispose();
+		if (dx > 0) {
+			regions.add(new Rectangle(visible.x + visible.width - dx, visible.y, dx, visible.height));
+		} else if (dx < 0) {
+			regions.add(new Rectangle(visible.x, visible.y, -dx, visible.height));
+		}
+		if (dy > 0) {
+			regions.add(new Rectangle(visible.x, visible.y + visible.height - dy, visible.width, dy));
+		} else if (dy < 0) {
+			regions.add(new Rectangle(visible.x, visible.y, visible.width, -dy));
+		}
+		return true;
+	}
+}
@@ -3,14 +3,24 @@
 
 package com.cburch.logisim.gui.main;
 
+import com.cburch.logisim.prefs.AppPreferences;
+
 import java.awt.*;
 
+/**
+ * Spaces the canvas's repaints by the frame rate set in the preferences.
+ * When a propagation completes and a frame is due, the values shown are
+ * copied in the simulator's thread and painted from the copy, so that
+ * the simulation need not wait for painting; propagations completed
+ * between frames are not copied, but bring a propagation at the next
+ * frame so that the last values are always shown.
+ */
 class CanvasPaintThread extends Thread {
-	private static final int REPAINT_TIMESPAN = 50; // 50 ms between repaints
-
 	private final Canvas canvas;
 	private final Object lock;
 	private boolean repaintRequested;
+	private boolean valuesOnly; // whether only the simulation asked
+	private boolean frameMissed; // whether values changed since the last frame
 	private long nextRepaint;
 	private boolean alive;
 	private Rectangle repaintRectangle;
@@ -38,6 +48,7 @@ class CanvasPaintThread extends Thread {
 				}
 			} else {
 				repaintRequested = true;
+				valuesOnly = false;
 				repaintRectangle = rect;
 				lock.notifyAll();
 			}
@@ -45,22 +56,52 @@ class CanvasPaintThread extends Thread {
 	}
 
 	public void requestRepaint() {
+		synchronized (lock) {
+			valuesOnly = false;
+			if (!repaintRequested) {
+				repaintRequested = true;
+				repaintRectangle = null;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	public void requestValueRepaint() {
 		synchronized (lock) {
 			if (!repaintRequested) {
 				repaintRequested = true;
+				valuesOnly = true;
 				repaintRectangle = null;
 				lock.notifyAll();
 			}
 		}
 	}
 
+	/**
+	 * Called in the simulator's thread after each propagation, when the
+	 * values are consistent.
+	 */
+	public void propagationCompleted() {
+		synchronized (lock) {
+			if (repaintRequested || System.currentTimeMillis() < nextRepaint) {
+				frameMissed = true;
+				lock.notifyAll();
+				return;
+			}
+		}
+		canvas.takeFrame();
+		requestValueRepaint();
+	}
+
 	@Override
 	public void run() {
 		while (alive) {
+			boolean values = false;
+			boolean propagate = false;
 			long now = System.currentTimeMillis();
 			synchronized (lock) {
 				long wait = nextRepaint - now;
-				while (alive && !(repaintRequested && wait <= 0)) {
+				while (alive && !((repaintRequested || frameMissed) && wait <= 0)) {
 					try {
 						if (wait > 0) {
 							lock.wait(wait);
@@ -73,10 +114,30 @@ class CanvasPaintThread extends Thread {
 					wait = nextRepaint - now;
 				}
 				if (!alive) break;
-				repaintRequested = false;
-				nextRepaint = now + REPAINT_TIMESPAN;
+				if (!repaintRequested) {
+					// the frame is taken when this propagation completes
+					frameMissed = false;
+					propagate = true;
+				} else {
+					repaintRequested = false;
+					values = valuesOnly;
+					nextRepaint = now + getTimespan();
+				}
+			}
+			if (propagate) {
+				canvas.getProject().getSimulator().requestPropagate();
+				continue;
 			}
-			canvas.repaint();
+			if (values) canvas.repaintValues();
+			else canvas.repaint();
+		}
+	}
+
+	private static int getTimespan() {
+		try {
+			return 1000 / Integer.parseInt(AppPreferences.FRAME_RATE.get());
+		} catch (NumberFormatException e) {
+			return 50;
 		}
 	}
 }
@@ -33,6 +33,7 @@ class CanvasPainter implements PropertyChangeListener {
 	private Component haloedComponent = null;
 	private Circuit haloedCircuit = null;
 	private WireSet highlightedWires = WireSet.EMPTY;
+	private int drawnCount = 0;
 
 	CanvasPainter(Canvas canvas) {
 		this.canvas = canvas;
@@ -93,13 +94,13 @@ class CanvasPainter implements PropertyChangeListener {
 	//
 	// painting methods
 	//
-	void paintContents(Graphics g, Project proj) {
+	/**
+	 * Paints everything but the oscillating and step points, within the
+	 * clip of the given graphics, and returns how many components it drew.
+	 */
+	int paintLayer(Graphics g, Project proj) {
 		Rectangle clip = g.getClipBounds();
-		Dimension size = canvas.getSize();
 		double zoomFactor = canvas.getZoomFactor();
-		if (canvas.ifPaintDirtyReset() || clip == null) {
-			clip = new Rectangle(0, 0, size.width, size.height);
-		}
 		g.setColor(Color.white);
 		g.fillRect(clip.x, clip.y, clip.width, clip.height);
 
@@ -112,9 +113,22 @@ class CanvasPainter implements PropertyChangeListener {
 		}
 		drawWithUserState(g, gScaled, proj);
 		drawWidthIncompatibilityData(g, gScaled, proj);
-		Circuit circ = proj.getCurrentCircuit();
+		gScaled.dispose();
+		return drawnCount;
+	}
 
-		CircuitState circState = proj.getCircuitState();
+	/**
+	 * Paints the points where the simulation oscillates or is stepping,
+	 * which change without any component's state changing.
+	 */
+	void paintPoints(Graphics g, Project proj) {
+		Circuit circ = proj.getCurrentCircuit();
+		CircuitState circState = canvas.getPaintState();
+		double zoomFactor = canvas.getZoomFactor();
+		Graphics gScaled = g.create();
+		if (zoomFactor != 1.0 && gScaled instanceof Graphics2D) {
+			((Graphics2D) gScaled).scale(zoomFactor, zoomFactor);
+		}
 		ComponentDrawContext ptContext = new ComponentDrawContext(canvas,
 			circ, circState, g, gScaled);
 		ptContext.setHighlightedWires(highlightedWires);
@@ -156,12 +170,12 @@ class CanvasPainter implements PropertyChangeListener {
 		}
 
 		// draw circuit and selection
-		CircuitState circState = proj.getCircuitState();
+		CircuitState circState = canvas.getPaintState();
 		boolean printerView = AppPreferences.PRINTER_VIEW.getBoolean();
 		ComponentDrawContext context = new ComponentDrawContext(canvas,
 			circ, circState, base, g, printerView);
 		context.setHighlightedWires(highlightedWires);
-		circ.draw(context, hidden);
+		drawnCount = circ.draw(context, hidden);
 		sel.draw(context, hidden);
 
 		// draw tool
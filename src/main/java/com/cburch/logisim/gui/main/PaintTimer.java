@@ -0,0 +1,51 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.main;
+
+import com.cburch.logisim.util.StringUtil;
+
+class PaintTimer {
+	private static final int SAMPLES = 20;
+
+	private final long[] times = new long[SAMPLES];
+	private final long[] ends = new long[SAMPLES]; // when each repaint ended
+	private int count = 0;
+	private int drawn = 0;
+	private int total = 0;
+
+	public void clear() {
+		count = 0;
+	}
+
+	public void record(long nanos, int drawn, int total) {
+		times[count % SAMPLES] = nanos;
+		ends[count % SAMPLES] = System.nanoTime();
+		count++;
+		this.drawn = drawn;
+		this.total = total;
+	}
+
+	public String getPaintTime() {
+		int size = Math.min(count, SAMPLES);
+		if (size == 0) return "";
+		long sum = 0;
+		for (int i = 0; i < size; i++) {
+			sum += times[i];
+		}
+		// average over the last few repaints so the figure is readable
+		String millis = String.format("%.1f", sum / (size * 1.0e6));
+		return StringUtil.format(Strings.get("canvasPaintTime"), millis,
+			"" + drawn, "" + total);
+	}
+
+	public String getFrameRate() {
+		int size = Math.min(count, SAMPLES);
+		if (size < 2) return "";
+		long first = ends[(count - size) % SAMPLES];
+		long last = ends[(count - 1) % SAMPLES];
+		if (System.nanoTime() - last > 1000000000L || last == first) return "";
+		String rate = String.format("%.1f", (size - 1) * 1.0e9 / (last - first));
+		return StringUtil.format(Strings.get("canvasFrameRate"), rate);
+	}
+}
@@ -222,6 +222,11 @@ public class SelectionActions {
 			this.before = SelectionSave.create(sel);
 		}
 
+		@Override
+		public boolean isRecordedByTransactions() {
+			return true;
+		}
+
 		@Override
 		public String getName() {
 			return numDrops == 1 ? Strings.get("dropComponentAction")
@@ -272,6 +277,11 @@ public class SelectionActions {
 			this.numAnchor = numAnchor;
 		}
 
+		@Override
+		public boolean isRecordedByTransactions() {
+			return true;
+		}
+
 		@Override
 		public String getName() {
 			return numAnchor == 1 ? Strings.get("dropComponentAction")
@@ -316,6 +326,11 @@ public class SelectionActions {
 			this.sel = sel;
 		}
 
+		@Override
+		public boolean isRecordedByTransactions() {
+			return true;
+		}
+
 		@Override
 		public String getName() {
 			return Strings.get("deleteSelectionAction");
@@ -345,6 +360,11 @@ public class SelectionActions {
 			this.sel = sel;
 		}
 
+		@Override
+		public boolean isRecordedByTransactions() {
+			return true;
+		}
+
 		@Override
 		public String getName() {
 			return Strings.get("duplicateSelectionAction");
@@ -376,6 +396,11 @@ public class SelectionActions {
 			second = new Delete(sel);
 		}
 
+		@Override
+		public boolean isRecordedByTransactions() {
+			return true;
+		}
+
 		@Override
 		public String getName() {
 			return Strings.get("cutSelectionAction");
@@ -435,6 +460,11 @@ public class SelectionActions {
 			this.componentReplacements = replacements;
 		}
 
+		@Override
+		public boolean isRecordedByTransactions() {
+			return true;
+		}
+
 		@Override
 		public String getName() {
 			return Strings.get("pasteClipboardAction");
@@ -497,6 +527,11 @@ public class SelectionActions {
 			this.before = SelectionSave.create(sel);
 		}
 
+		@Override
+		public boolean isRecordedByTransactions() {
+			return true;
+		}
+
 		@Override
 		public String getName() {
 			return Strings.get("moveSelectionAction");
@@ -27,11 +27,26 @@ class SimulateOptions extends OptionsPanel {
 		50000,
 	});
 	private final JCheckBox simRandomness = new JCheckBox();
+	private final JCheckBox simCompile = new JCheckBox();
+	private final JLabel simWorkersLabel = new JLabel();
+	private final JComboBox<Integer> simWorkers = new JComboBox<>(new Integer[]{
+		1,
+		2,
+		4,
+		8,
+		16,
+		32,
+	});
 	private final JLabel gateUndefinedLabel = new JLabel();
 	private final JComboBox gateUndefined = new JComboBox(new Object[]{
 		new ComboOption(Options.GATE_UNDEFINED_IGNORE),
 		new ComboOption(Options.GATE_UNDEFINED_ERROR)
 	});
+	private final JLabel simQueueLabel = new JLabel();
+	private final JComboBox<Object> simQueue = new JComboBox<>(new Object[]{
+		new ComboOption(Options.SIM_QUEUE_WHEEL),
+		new ComboOption(Options.SIM_QUEUE_HEAP)
+	});
 
 	public SimulateOptions(OptionsFrame window) {
 		super(window);
@@ -47,18 +62,35 @@ class SimulateOptions extends OptionsPanel {
 		gateUndefinedPanel.add(gateUndefined);
 		gateUndefined.addActionListener(myListener);
 
+		JPanel simQueuePanel = new JPanel();
+		simQueuePanel.add(simQueueLabel);
+		simQueuePanel.add(simQueue);
+		simQueue.addActionListener(myListener);
+
+		JPanel simWorkersPanel = new JPanel();
+		simWorkersPanel.add(simWorkersLabel);
+		simWorkersPanel.add(simWorkers);
+		simWorkers.addActionListener(myListener);
+
 		simRandomness.addActionListener(myListener);
+		simCompile.addActionListener(myListener);
 
 		setLayout(new TableLayout(1));
 		add(simLimitPanel);
 		add(gateUndefinedPanel);
+		add(simQueuePanel);
+		add(simWorkersPanel);
 		add(simRandomness);
+		add(simCompile);
 
 		window.getOptions().getAttributeSet().addAttributeListener(myListener);
 		AttributeSet attrs = getOptions().getAttributeSet();
 		myListener.loadSimLimit(attrs.getValue(Options.sim_limit_attr));
 		myListener.loadGateUndefined(attrs.getValue(Options.ATTR_GATE_UNDEFINED));
 		myListener.loadSimRandomness(attrs.getValue(Options.sim_rand_attr));
+		myListener.loadSimQueue(attrs.getValue(Options.ATTR_SIM_QUEUE));
+		myListener.loadSimCompile(attrs.getValue(Options.ATTR_SIM_COMPILE));
+		myListener.loadSimWorkers(attrs.getValue(Options.ATTR_SIM_WORKERS));
 	}
 
 	@Override
@@ -76,6 +108,9 @@ class SimulateOptions extends OptionsPanel {
 		simLimitLabel.setText(Strings.get("simulateLimit"));
 		gateUndefinedLabel.setText(Strings.get("gateUndefined"));
 		simRandomness.setText(Strings.get("simulateRandomness"));
+		simQueueLabel.setText(Strings.get("simulateQueue"));
+		simCompile.setText(Strings.get("simulateCompile"));
+		simWorkersLabel.setText(Strings.get("simulateWorkers"));
 	}
 
 	private class MyListener implements ActionListener, AttributeListener {
@@ -88,12 +123,23 @@ class SimulateOptions extends OptionsPanel {
 					getProject().doAction(OptionsActions.setAttribute(attrs,
 						Options.sim_limit_attr, opt));
 				}
+			} else if (source == simWorkers) {
+				Integer opt = (Integer) simWorkers.getSelectedItem();
+				if (opt != null) {
+					AttributeSet attrs = getOptions().getAttributeSet();
+					getProject().doAction(OptionsActions.setAttribute(attrs,
+						Options.ATTR_SIM_WORKERS, opt));
+				}
 			} else if (source == simRandomness) {
 				AttributeSet attrs = getOptions().getAttributeSet();
 				Object val = simRandomness.isSelected() ? Options.sim_rand_dflt
 					: Integer.valueOf(0);
 				getProject().doAction(OptionsActions.setAttribute(attrs,
 					Options.sim_rand_attr, val));
+			} else if (source == simCompile) {
+				AttributeSet attrs = getOptions().getAttributeSet();
+				getProject().doAction(OptionsActions.setAttribute(attrs,
+					Options.ATTR_SIM_COMPILE, simCompile.isSelected()));
 			} else if (source == gateUndefined) {
 				ComboOption opt = (ComboOption) gateUndefined.getSelectedItem();
 				if (opt != null) {
@@ -101,6 +147,13 @@ class SimulateOptions extends OptionsPanel {
 					getProject().doAction(OptionsActions.setAttribute(attrs,
 						Options.ATTR_GATE_UNDEFINED, opt.getValue()));
 				}
+			} else if (source == simQueue) {
+				ComboOption opt = (ComboOption) simQueue.getSelectedItem();
+				if (opt != null) {
+					AttributeSet attrs = getOptions().getAttributeSet();
+					getProject().doAction(OptionsActions.setAttribute(attrs,
+						Options.ATTR_SIM_QUEUE, opt.getValue()));
+				}
 			}
 		}
 
@@ -114,6 +167,12 @@ class SimulateOptions extends OptionsPanel {
 				loadSimLimit((Integer) val);
 			} else if (attr == Options.sim_rand_attr) {
 				loadSimRandomness((Integer) val);
+			} else if (attr == Options.ATTR_SIM_QUEUE) {
+				loadSimQueue(val);
+			} else if (attr == Options.ATTR_SIM_WORKERS) {
+				loadSimWorkers((Integer) val);
+			} else if (attr == Options.ATTR_SIM_COMPILE) {
+				loadSimCompile((Boolean) val);
 			}
 		}
 
@@ -128,12 +187,31 @@ class SimulateOptions extends OptionsPanel {
 			}
 		}
 
+		private void loadSimWorkers(Integer val) {
+			int value = val;
+			ComboBoxModel<Integer> model = simWorkers.getModel();
+			for (int i = 0; i < model.getSize(); i++) {
+				Integer opt = model.getElementAt(i);
+				if (opt == value) {
+					simWorkers.setSelectedItem(opt);
+				}
+			}
+		}
+
 		private void loadGateUndefined(Object val) {
 			ComboOption.setSelected(gateUndefined, val);
 		}
 
+		private void loadSimQueue(Object val) {
+			ComboOption.setSelected(simQueue, val);
+		}
+
 		private void loadSimRandomness(Integer val) {
 			simRandomness.setSelected(val > 0);
 		}
+
+		private void loadSimCompile(Boolean val) {
+			simCompile.setSelected(val);
+		}
 	}
 }
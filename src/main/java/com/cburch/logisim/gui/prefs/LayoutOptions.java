@@ -5,6 +5,7 @@ package com.cburch.logisim.gui.prefs;
 
 import com.cburch.logisim.circuit.RadixOption;
 import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.util.StringUtil;
 import com.cburch.logisim.util.TableLayout;
 
 import javax.swing.*;
@@ -13,6 +14,9 @@ class LayoutOptions extends OptionsPanel {
 	private final PrefBoolean[] checks;
 	private PrefOptionList radix1;
 	private PrefOptionList radix2;
+	private final PrefOptionList undoEntries;
+	private final PrefOptionList undoMemory;
+	private final PrefOptionList journalSync;
 
 	public LayoutOptions(PreferencesFrame window) {
 		super(window);
@@ -28,6 +32,10 @@ class LayoutOptions extends OptionsPanel {
 				Strings.getter("layoutMoveKeepConnect")),
 			new PrefBoolean(AppPreferences.ADD_SHOW_GHOSTS,
 				Strings.getter("layoutAddShowGhosts")),
+			new PrefBoolean(AppPreferences.UNDO_SPILL,
+				Strings.getter("layoutUndoSpill")),
+			new PrefBoolean(AppPreferences.JOURNAL,
+				Strings.getter("layoutJournal")),
 		};
 
 		for (int i = 0; i < 2; i++) {
@@ -52,6 +60,34 @@ class LayoutOptions extends OptionsPanel {
 				new PrefOption(AppPreferences.ADD_AFTER_EDIT,
 					Strings.getter("layoutAddAfterEdit"))});
 
+		String[] entries = { "64", "256", "1024", "4096" };
+		PrefOption[] entryOptions = new PrefOption[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			entryOptions[i] = new PrefOption(entries[i],
+				StringUtil.formatter(Strings.getter("layoutUndoEntriesOption"), entries[i]));
+		}
+		undoEntries = new PrefOptionList(AppPreferences.UNDO_ENTRIES,
+			Strings.getter("layoutUndoEntries"), entryOptions);
+
+		String[] megabytes = { "4", "16", "64", "256" };
+		PrefOption[] memoryOptions = new PrefOption[megabytes.length];
+		for (int i = 0; i < megabytes.length; i++) {
+			memoryOptions[i] = new PrefOption(megabytes[i],
+				StringUtil.formatter(Strings.getter("layoutUndoMemoryOption"), megabytes[i]));
+		}
+		undoMemory = new PrefOptionList(AppPreferences.UNDO_MEMORY,
+			Strings.getter("layoutUndoMemory"), memoryOptions);
+
+		journalSync = new PrefOptionList(AppPreferences.JOURNAL_SYNC,
+			Strings.getter("layoutJournalSync"),
+			new PrefOption[]{
+				new PrefOption(AppPreferences.JOURNAL_SYNC_ALWAYS,
+					Strings.getter("layoutJournalSyncAlways")),
+				new PrefOption(AppPreferences.JOURNAL_SYNC_PERIODIC,
+					Strings.getter("layoutJournalSyncPeriodic")),
+				new PrefOption(AppPreferences.JOURNAL_SYNC_NEVER,
+					Strings.getter("layoutJournalSyncNever"))});
+
 		JPanel panel = new JPanel(new TableLayout(2));
 		panel.add(afterAdd.getJLabel());
 		panel.add(afterAdd.getJComboBox());
@@ -59,6 +95,12 @@ class LayoutOptions extends OptionsPanel {
 		panel.add(radix1.getJComboBox());
 		panel.add(radix2.getJLabel());
 		panel.add(radix2.getJComboBox());
+		panel.add(undoEntries.getJLabel());
+		panel.add(undoEntries.getJComboBox());
+		panel.add(undoMemory.getJLabel());
+		panel.add(undoMemory.getJComboBox());
+		panel.add(journalSync.getJLabel());
+		panel.add(journalSync.getJComboBox());
 
 		setLayout(new TableLayout(1));
 		for (PrefBoolean check : checks) {
@@ -84,5 +126,8 @@ class LayoutOptions extends OptionsPanel {
 		}
 		radix1.localeChanged();
 		radix2.localeChanged();
+		undoEntries.localeChanged();
+		undoMemory.localeChanged();
+		journalSync.localeChanged();
 	}
 }
@@ -5,6 +5,7 @@ package com.cburch.logisim.gui.prefs;
 
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.util.StringUtil;
 import com.cburch.logisim.util.TableLayout;
 
 import javax.swing.*;
@@ -12,6 +13,7 @@ import javax.swing.*;
 class WindowOptions extends OptionsPanel {
 	private final PrefBoolean[] checks;
 	private final PrefOptionList toolbarPlacement;
+	private final PrefOptionList frameRate;
 
 	public WindowOptions(PreferencesFrame window) {
 		super(window);
@@ -19,6 +21,8 @@ class WindowOptions extends OptionsPanel {
 		checks = new PrefBoolean[]{
 			new PrefBoolean(AppPreferences.SHOW_TICK_RATE,
 				Strings.getter("windowTickRate")),
+			new PrefBoolean(AppPreferences.SHOW_PAINT_TIME,
+				Strings.getter("windowPaintTime")),
 		};
 
 		toolbarPlacement = new PrefOptionList(AppPreferences.TOOLBAR_PLACEMENT,
@@ -37,9 +41,20 @@ class WindowOptions extends OptionsPanel {
 				new PrefOption(AppPreferences.TOOLBAR_HIDDEN,
 					Strings.getter("windowToolbarHidden"))});
 
+		String[] rates = { "10", "20", "30", "60" };
+		PrefOption[] rateOptions = new PrefOption[rates.length];
+		for (int i = 0; i < rates.length; i++) {
+			rateOptions[i] = new PrefOption(rates[i],
+				StringUtil.formatter(Strings.getter("windowFrameRateOption"), rates[i]));
+		}
+		frameRate = new PrefOptionList(AppPreferences.FRAME_RATE,
+			Strings.getter("windowFrameRate"), rateOptions);
+
 		JPanel panel = new JPanel(new TableLayout(2));
 		panel.add(toolbarPlacement.getJLabel());
 		panel.add(toolbarPlacement.getJComboBox());
+		panel.add(frameRate.getJLabel());
+		panel.add(frameRate.getJComboBox());
 
 		setLayout(new TableLayout(1));
 		for (PrefBoolean check : checks) {
@@ -64,5 +79,6 @@ class WindowOptions extends OptionsPanel {
 			check.localeChanged();
 		}
 		toolbarPlacement.localeChanged();
+		frameRate.localeChanged();
 	}
 }
@@ -6,6 +6,7 @@ package com.cburch.logisim.gui.start;
 import com.cburch.logisim.Main;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.gui.hex.HexFile;
 import com.cburch.logisim.gui.main.Print;
 import com.cburch.logisim.gui.menu.LogisimMenuBar;
 import com.cburch.logisim.gui.menu.WindowManagers;
@@ -32,6 +33,8 @@ public class Startup {
 	private boolean templPlain = false;
 	private boolean showSplash;
 	private File loadFile;
+	private int loadFormat = HexFile.FORMAT_TEXT;
+	private File scriptFile;
 	private int ttyFormat = 0;
 	// from other sources
 	private boolean initialized = false;
@@ -149,6 +152,12 @@ public class Startup {
 							case "stats":
 								ret.ttyFormat |= TtyInterface.FORMAT_STATISTICS;
 								break;
+							case "batch":
+								ret.ttyFormat |= TtyInterface.FORMAT_BATCH;
+								break;
+							case "convert":
+								ret.ttyFormat |= TtyInterface.FORMAT_CONVERT;
+								break;
 							default:
 								System.err.println(Strings.get("ttyFormatError")); //OK
 
@@ -185,6 +194,31 @@ public class Startup {
 					System.err.println(Strings.get("loadNeedsFileError")); //OK
 					return null;
 				}
+			} else if (arg.equals("-loadformat")) {
+				i++;
+				String fmt = i < args.length ? args[i] : "";
+				switch (fmt) {
+					case "image":
+						ret.loadFormat = HexFile.FORMAT_TEXT;
+						break;
+					case "le":
+						ret.loadFormat = HexFile.FORMAT_RAW_LE;
+						break;
+					case "be":
+						ret.loadFormat = HexFile.FORMAT_RAW_BE;
+						break;
+					default:
+						System.err.println(Strings.get("loadFormatError")); //OK
+						return null;
+				}
+			} else if (arg.equals("-script")) {
+				if (i + 1 < args.length) {
+					i++;
+					ret.scriptFile = new File(args[i]);
+				} else {
+					System.err.println(Strings.get("scriptNeedsFileError")); //OK
+					return null;
+				}
 			} else if (arg.equals("-empty")) {
 				if (ret.templFile != null || ret.templEmpty || ret.templPlain) {
 					System.err.println(Strings.get("argOneTemplateError")); //OK
@@ -262,6 +296,20 @@ public class Startup {
 			System.err.println(Strings.get("loadNeedsTtyError")); //OK
 			return null;
 		}
+		boolean isConvert = (ret.ttyFormat & TtyInterface.FORMAT_CONVERT) != 0;
+		if (isConvert && ret.filesToOpen.size() != 2) {
+			System.err.println(Strings.get("ttyConvertNeedsFilesError")); //OK
+			return null;
+		}
+		boolean isBatch = (ret.ttyFormat & TtyInterface.FORMAT_BATCH) != 0;
+		if (isBatch && ret.scriptFile == null) {
+			System.err.println(Strings.get("ttyBatchNeedsScriptError")); //OK
+			return null;
+		}
+		if (!isBatch && ret.scriptFile != null) {
+			System.err.println(Strings.get("ttyScriptNeedsBatchError")); //OK
+			return null;
+		}
 		return ret;
 	}
 
@@ -275,9 +323,11 @@ public class Startup {
 		System.err.println("   " + Strings.get("argGatesOption")); //OK
 		System.err.println("   " + Strings.get("argHelpOption")); //OK
 		System.err.println("   " + Strings.get("argLoadOption")); //OK
+		System.err.println("   " + Strings.get("argLoadFormatOption")); //OK
 		System.err.println("   " + Strings.get("argLocaleOption")); //OK
 		System.err.println("   " + Strings.get("argNoSplashOption")); //OK
 		System.err.println("   " + Strings.get("argPlainOption")); //OK
+		System.err.println("   " + Strings.get("argScriptOption")); //OK
 		System.err.println("   " + Strings.get("argSubOption")); //OK
 		System.err.println("   " + Strings.get("argTemplateOption")); //OK
 		System.err.println("   " + Strings.get("argTtyOption")); //OK
@@ -311,6 +361,14 @@ public class Startup {
 		return loadFile;
 	}
 
+	int getLoadFormat() {
+		return loadFormat;
+	}
+
+	File getScriptFile() {
+		return scriptFile;
+	}
+
 	int getTtyFormat() {
 		return ttyFormat;
 	}
@@ -376,9 +434,12 @@ public class Startup {
 		// use that as the file to open now.
 		initialized = true;
 
+		// offer to recover what was left unsaved when Logisim last ran
+		boolean recovered = ProjectActions.doRecover(monitor);
+
 		// load file
 		if (filesToOpen.isEmpty()) {
-			ProjectActions.doNew(monitor, true);
+			if (!recovered) ProjectActions.doNew(monitor, true);
 			if (showSplash) monitor.close();
 		} else {
 			boolean first = true;
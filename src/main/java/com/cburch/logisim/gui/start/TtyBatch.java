@@ -0,0 +1,306 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.start;
+
+import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.StringUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the jobs listed in a script against one loaded file, each in a
+ * fresh CircuitState. A script has one directive per line:
+ * <pre>
+ *   # comment
+ *   threads 4
+ *   job add1 a=0x5 b=3 ticks=0
+ *   job prog load=prog.hex
+ * </pre>
+ * A job's other settings are values for the input pins with those
+ * labels (decimal, 0x hex, 0b binary, or x for floating), a RAM image
+ * to load, and the number of ticks to run. Without a tick count, a job
+ * runs until the halt pin is 1 if there is one, and otherwise only
+ * lets the inputs propagate.
+ */
+class TtyBatch {
+	private static final int FAST_FORWARD_TICKS = 1000;
+
+	private final LogisimFile file;
+	private final Project proj;
+	private final Circuit circuit;
+	private final SortedMap<Instance, String> pinNames;
+	private final Instance haltPin;
+	private final boolean showSpeed;
+	private final int loadFormat;
+	private final ArrayList<Job> jobs = new ArrayList<>();
+	private int threads = 1;
+
+	private TtyBatch(LogisimFile file, int loadFormat, int format) {
+		this.file = file;
+		this.proj = new Project(file);
+		this.circuit = file.getMainCircuit();
+		this.pinNames = Analyze.getPinLabels(circuit);
+		this.showSpeed = (format & TtyInterface.FORMAT_SPEED) != 0;
+		this.loadFormat = loadFormat;
+		Instance halt = null;
+		for (Map.Entry<Instance, String> entry : pinNames.entrySet()) {
+			if (!Pin.FACTORY.isInputPin(entry.getKey())
+				&& entry.getValue().equals("halt")) {
+				halt = entry.getKey();
+			}
+		}
+		this.haltPin = halt;
+	}
+
+	static int run(LogisimFile file, File script, File defaultLoad,
+			int loadFormat, int format) {
+		TtyBatch batch = new TtyBatch(file, loadFormat, format);
+		try {
+			batch.parse(script, defaultLoad);
+		} catch (IOException e) {
+			System.err.println(Strings.get("ttyBatchReadError", e.getMessage())); //OK
+			return -1;
+		} catch (ScriptException e) {
+			System.err.println(e.getMessage()); //OK
+			return -1;
+		}
+		return batch.runJobs();
+	}
+
+	private void parse(File script, File defaultLoad)
+		throws IOException, ScriptException {
+		File dir = script.getAbsoluteFile().getParentFile();
+		try (BufferedReader in = new BufferedReader(new FileReader(script))) {
+			int lineNumber = 0;
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				lineNumber++;
+				int comment = line.indexOf('#');
+				if (comment >= 0) line = line.substring(0, comment);
+				String[] tokens = line.trim().split("\\s+");
+				if (tokens[0].isEmpty()) continue;
+
+				String where = script.getName() + ":" + lineNumber;
+				if (tokens[0].equals("threads") && tokens.length == 2) {
+					threads = Math.max(1, parseCount(where, tokens[1]));
+				} else if (tokens[0].equals("job") && tokens.length >= 2) {
+					Job job = new Job(tokens[1]);
+					job.loadFile = defaultLoad;
+					for (int i = 2; i < tokens.length; i++) {
+						int eq = tokens[i].indexOf('=');
+						if (eq <= 0) throw new ScriptException(where, tokens[i]);
+						String key = tokens[i].substring(0, eq);
+						String value = tokens[i].substring(eq + 1);
+						if (key.equals("ticks")) {
+							job.ticks = parseCount(where, value);
+						} else if (key.equals("load")) {
+							File f = new File(value);
+							job.loadFile = f.isAbsolute() ? f : new File(dir, value);
+						} else {
+							job.inputs.put(key, value);
+						}
+					}
+					jobs.add(job);
+				} else {
+					throw new ScriptException(where, tokens[0]);
+				}
+			}
+		}
+	}
+
+	private static int parseCount(String where, String value) throws ScriptException {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new ScriptException(where, value);
+		}
+	}
+
+	private int runJobs() {
+		// compute each circuit's wire bundles once, before any job
+		// could be asked to build them concurrently
+		for (Circuit circ : file.getCircuits()) {
+			circ.getWidthIncompatibilityData();
+		}
+
+		boolean allOk = true;
+		if (threads <= 1) {
+			for (Job job : jobs) {
+				allOk &= runJob(job);
+				System.out.print(job.output); //OK
+			}
+		} else {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			ArrayList<Future<Boolean>> results = new ArrayList<>();
+			for (Job job : jobs) {
+				results.add(pool.submit(() -> runJob(job)));
+			}
+			for (int i = 0; i < jobs.size(); i++) {
+				try {
+					allOk &= results.get(i).get();
+				} catch (Exception e) {
+					allOk = false;
+				}
+				System.out.print(jobs.get(i).output); //OK
+			}
+			pool.shutdown();
+		}
+		return allOk ? 0 : 1;
+	}
+
+	private boolean runJob(Job job) {
+		StringBuilder out = job.output;
+		out.append(Strings.get("ttyBatchJob", job.name)).append('\n');
+		try {
+			return simulate(job, out);
+		} catch (RuntimeException e) {
+			out.append(Strings.get("ttyBatchFailed", e.toString())).append('\n');
+			return false;
+		}
+	}
+
+	private boolean simulate(Job job, StringBuilder out) {
+		CircuitState circState;
+		Propagator prop;
+		synchronized (proj) { // Propagator registers with the shared options
+			circState = new CircuitState(proj, circuit);
+			prop = circState.getPropagator();
+		}
+		prop.propagate();
+		if (job.loadFile != null) {
+			boolean loaded;
+			try {
+				loaded = TtyInterface.loadRam(circState, job.loadFile, loadFormat);
+			} catch (IOException e) {
+				out.append(Strings.get("ttyBatchFailed", Strings.get("loadIoError")
+					+ ": " + e.getMessage())).append('\n');
+				return false;
+			}
+			if (!loaded) {
+				out.append(Strings.get("ttyBatchFailed",
+					Strings.get("loadNoRamError"))).append('\n');
+				return false;
+			}
+		}
+
+		for (Map.Entry<String, String> input : job.inputs.entrySet()) {
+			Instance pin = findInputPin(input.getKey());
+			if (pin == null) {
+				out.append(Strings.get("ttyBatchFailed",
+					Strings.get("ttyBatchNoPin", input.getKey()))).append('\n');
+				return false;
+			}
+			Value val = parseValue(input.getValue(), Pin.FACTORY.getWidth(pin));
+			if (val == null) {
+				out.append(Strings.get("ttyBatchFailed", StringUtil.format(
+					Strings.get("ttyBatchBadValue"), input.getValue(),
+					input.getKey()))).append('\n');
+				return false;
+			}
+			InstanceState pinState = circState.getInstanceState(pin);
+			Pin.FACTORY.setValue(pinState, val);
+			Pin.FACTORY.propagate(pinState);
+		}
+		prop.propagate();
+
+		long limit = job.ticks >= 0 ? job.ticks : (haltPin != null ? Long.MAX_VALUE : 0);
+		Location[] watched = haltPin == null ? new Location[0]
+			: new Location[]{haltPin.getLocation()};
+		long tickCount = 0;
+		long start = System.currentTimeMillis();
+		String status = "ttyBatchStopped";
+		while (true) {
+			if (haltPin != null && Pin.FACTORY.getValue(
+				circState.getInstanceState(haltPin)).equals(Value.TRUE)) {
+				status = "ttyBatchHalted";
+				break;
+			}
+			if (prop.isOscillating()) {
+				status = "ttyBatchOscillation";
+				break;
+			}
+			if (tickCount >= limit) break;
+			tickCount += prop.fastForward((int) Math.min(limit - tickCount,
+				FAST_FORWARD_TICKS), watched);
+		}
+		long elapse = System.currentTimeMillis() - start;
+
+		for (Map.Entry<Instance, String> entry : pinNames.entrySet()) {
+			Instance pin = entry.getKey();
+			if (!Pin.FACTORY.isInputPin(pin) && pin != haltPin) {
+				Value val = Pin.FACTORY.getValue(circState.getInstanceState(pin));
+				out.append(entry.getValue()).append('\t').append(val).append('\n');
+			}
+		}
+		out.append(Strings.get(status, "" + tickCount)).append('\n');
+		if (showSpeed) {
+			out.append(StringUtil.format(Strings.get("ttySpeedMsg"),
+				"" + (elapse == 0 ? "-" : "" + tickCount * 1000 / elapse),
+				"" + tickCount, "" + elapse)).append('\n');
+		}
+		return !status.equals("ttyBatchOscillation");
+	}
+
+	private Instance findInputPin(String label) {
+		for (Map.Entry<Instance, String> entry : pinNames.entrySet()) {
+			if (entry.getValue().equals(label) && Pin.FACTORY.isInputPin(entry.getKey())) {
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+
+	private static Value parseValue(String text, BitWidth width) {
+		if (text.equalsIgnoreCase("x")) return Value.createUnknown(width);
+		try {
+			long val;
+			if (text.startsWith("0x")) val = Long.parseUnsignedLong(text.substring(2), 16);
+			else if (text.startsWith("0b")) val = Long.parseUnsignedLong(text.substring(2), 2);
+			else val = Long.parseLong(text);
+			return Value.createKnown(width, val);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static class Job {
+		final String name;
+		final LinkedHashMap<String, String> inputs = new LinkedHashMap<>();
+		final StringBuilder output = new StringBuilder();
+		File loadFile = null;
+		long ticks = -1;
+
+		Job(String name) {
+			this.name = name;
+		}
+	}
+
+	private static class ScriptException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		ScriptException(String where, String token) {
+			super(StringUtil.format(Strings.get("ttyBatchScriptError"), where, token));
+		}
+	}
+}
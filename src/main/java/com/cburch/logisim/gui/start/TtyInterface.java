@@ -8,11 +8,14 @@ import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.Propagator;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.FileStatistics;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.file.Options;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.proj.Project;
@@ -36,6 +39,9 @@ public class TtyInterface {
 	public static final int FORMAT_TTY = 4;
 	public static final int FORMAT_HALT = 8;
 	public static final int FORMAT_STATISTICS = 16;
+	public static final int FORMAT_BATCH = 32;
+	public static final int FORMAT_CONVERT = 64;
+	private static final int FAST_FORWARD_TICKS = 1000;
 
 	private static boolean lastIsNewline = true;
 
@@ -64,6 +70,17 @@ public class TtyInterface {
 		}
 
 		int format = args.getTtyFormat();
+		if ((format & FORMAT_CONVERT) != 0) {
+			format &= ~FORMAT_CONVERT;
+			File dest = args.getFilesToOpen().get(1);
+			try {
+				loader.export(file, dest);
+			} catch (IOException e) {
+				System.err.println(StringUtil.format(Strings.get("ttyConvertError"), //OK
+					dest.getName(), e.toString()));
+				System.exit(-1);
+			}
+		}
 		if ((format & FORMAT_STATISTICS) != 0) {
 			format &= ~FORMAT_STATISTICS;
 			displayStatistics(file);
@@ -71,6 +88,10 @@ public class TtyInterface {
 		if (format == 0) { // no simulation remaining to perform, so just exit
 			System.exit(0);
 		}
+		if ((format & FORMAT_BATCH) != 0) {
+			System.exit(TtyBatch.run(file, args.getScriptFile(), args.getLoadFile(),
+				args.getLoadFormat(), format));
+		}
 
 		Project proj = new Project(file);
 		Circuit circuit = file.getMainCircuit();
@@ -94,7 +115,7 @@ public class TtyInterface {
 		circState.getPropagator().propagate();
 		if (args.getLoadFile() != null) {
 			try {
-				boolean loaded = loadRam(circState, args.getLoadFile());
+				boolean loaded = loadRam(circState, args.getLoadFile(), args.getLoadFormat());
 				if (!loaded) {
 					System.err.println(Strings.get("loadNoRamError")); //OK
 					System.exit(-1);
@@ -149,7 +170,7 @@ public class TtyInterface {
 		return digits;
 	}
 
-	private static boolean loadRam(CircuitState circState, File loadFile)
+	static boolean loadRam(CircuitState circState, File loadFile, int loadFormat)
 		throws IOException {
 		if (loadFile == null) return false;
 
@@ -158,13 +179,13 @@ public class TtyInterface {
 			if (comp.getFactory() instanceof Ram) {
 				Ram ramFactory = (Ram) comp.getFactory();
 				InstanceState ramState = circState.getInstanceState(comp);
-				ramFactory.loadImage(ramState, loadFile);
+				ramFactory.loadImage(ramState, loadFile, loadFormat);
 				found = true;
 			}
 		}
 
 		for (CircuitState sub : circState.getSubstates()) {
-			found |= loadRam(sub, loadFile);
+			found |= loadRam(sub, loadFile, loadFormat);
 		}
 		return found;
 	}
@@ -215,6 +236,14 @@ public class TtyInterface {
 			}
 		}
 
+		// run without surfacing until the halt pin or a displayed output
+		// changes, checking for keyboard input every so often
+		ArrayList<Location> watched = new ArrayList<>();
+		for (Instance pin : outputPins) {
+			if (pin == haltPin || showTable) watched.add(pin.getLocation());
+		}
+		Location[] watchedLocs = watched.toArray(new Location[0]);
+
 		int retCode;
 		long tickCount = 0;
 		long start = System.currentTimeMillis();
@@ -253,9 +282,7 @@ public class TtyInterface {
 				}
 			}
 			prevOutputs = curOutputs;
-			tickCount++;
-			prop.tick();
-			prop.propagate();
+			tickCount += prop.fastForward(FAST_FORWARD_TICKS, watchedLocs);
 		}
 		long elapse = System.currentTimeMillis() - start;
 		if (showTty) ensureLineTerminated();
@@ -268,6 +295,10 @@ public class TtyInterface {
 		}
 		if (showSpeed) {
 			displaySpeed(tickCount, elapse);
+			AttributeSet opts = circState.getProject().getOptions().getAttributeSet();
+			if (opts.getValue(Options.ATTR_SIM_COMPILE)) {
+				displayCompiled(prop);
+			}
 		}
 		return retCode;
 	}
@@ -310,6 +341,12 @@ public class TtyInterface {
 			hertzStr, "" + tickCount, "" + elapse));
 	}
 
+	private static void displayCompiled(Propagator prop) {
+		System.out.println(StringUtil.format(Strings.get("ttyCompiledMsg"), //OK
+			"" + prop.getCompiledUpdateCount(), "" + prop.getSubcircuitUpdateCount(),
+			"" + prop.getCompiledGateCount()));
+	}
+
 	// It's possible to avoid using the separate thread using System.in.available(),
 	// but this doesn't quite work because on some systems, the keyboard input
 	// is not interactively echoed until System.in.read() is invoked.
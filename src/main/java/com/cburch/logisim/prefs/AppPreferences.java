@@ -71,6 +71,11 @@ public class AppPreferences {
 
 	public static final PrefMonitor<Boolean> SHOW_TICK_RATE
 		= create(new PrefMonitorBoolean("showTickRate", false));
+	public static final PrefMonitor<Boolean> SHOW_PAINT_TIME
+		= create(new PrefMonitorBoolean("showPaintTime", false));
+	public static final PrefMonitor<String> FRAME_RATE
+		= create(new PrefMonitorStringOpts("frameRate",
+			new String[] { "10", "20", "30", "60" }, "20"));
 	public static final PrefMonitor<String> TOOLBAR_PLACEMENT
 		= create(new PrefMonitorStringOpts("toolbarPlacement", new String[] {
 					Direction.NORTH.toString(), Direction.SOUTH.toString(),
@@ -95,6 +100,26 @@ public class AppPreferences {
 	public static final PrefMonitor<String> ADD_AFTER
 		= create(new PrefMonitorStringOpts("afterAdd",
 			new String[] { ADD_AFTER_EDIT, ADD_AFTER_UNCHANGED }, ADD_AFTER_EDIT));
+	public static final PrefMonitor<String> UNDO_ENTRIES
+		= create(new PrefMonitorStringOpts("undoEntries",
+			new String[] { "64", "256", "1024", "4096" }, "64"));
+	public static final PrefMonitor<String> UNDO_MEMORY
+		= create(new PrefMonitorStringOpts("undoMemory",
+			new String[] { "4", "16", "64", "256" }, "16"));
+	public static final PrefMonitor<Boolean> UNDO_SPILL
+		= create(new PrefMonitorBoolean("undoSpill", false));
+
+	// Recovery preferences
+	public static final String JOURNAL_SYNC_ALWAYS = "always";
+	public static final String JOURNAL_SYNC_PERIODIC = "periodic";
+	public static final String JOURNAL_SYNC_NEVER = "never";
+
+	public static final PrefMonitor<Boolean> JOURNAL
+		= create(new PrefMonitorBoolean("journal", true));
+	public static final PrefMonitor<String> JOURNAL_SYNC
+		= create(new PrefMonitorStringOpts("journalSync",
+			new String[] { JOURNAL_SYNC_ALWAYS, JOURNAL_SYNC_PERIODIC, JOURNAL_SYNC_NEVER },
+			JOURNAL_SYNC_PERIODIC));
 	public static PrefMonitor<String> POKE_WIRE_RADIX1;
 	public static PrefMonitor<String> POKE_WIRE_RADIX2;
 
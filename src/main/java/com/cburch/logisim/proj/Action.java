@@ -3,11 +3,23 @@
 
 package com.cburch.logisim.proj;
 
+import java.io.IOException;
+
 public abstract class Action {
+	// what an action that does not estimate its size is taken to hold
+	private static final long DEFAULT_UNDO_SIZE = 1024;
+
 	public boolean isModification() {
 		return true;
 	}
 
+	// Returns whether the action, and its undoing, change the file only
+	// through circuit transactions, from which the project's journal
+	// records them; after any other modification it takes a snapshot.
+	public boolean isRecordedByTransactions() {
+		return false;
+	}
+
 	public abstract String getName();
 
 	public abstract void doIt(Project proj);
@@ -21,4 +33,17 @@ public abstract class Action {
 	public Action append(Action other) {
 		return new JoinedAction(this, other);
 	}
+
+	// Returns an estimate of the bytes this action holds, once done, so
+	// that it can be undone.
+	public long getUndoSize() {
+		return DEFAULT_UNDO_SIZE;
+	}
+
+	// Writes what is needed to undo this action, once done, to file and
+	// returns an action that undoes it from there, or returns null if this
+	// action cannot be written.
+	public Action spill(UndoFile file) throws IOException {
+		return null;
+	}
 }
@@ -3,6 +3,7 @@
 
 package com.cburch.logisim.proj;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -33,6 +34,14 @@ public class JoinedAction extends Action {
 		return false;
 	}
 
+	@Override
+	public boolean isRecordedByTransactions() {
+		for (Action act : todo) {
+			if (act.isModification() && !act.isRecordedByTransactions()) return false;
+		}
+		return true;
+	}
+
 	@Override
 	public String getName() {
 		return todo[0].getName();
@@ -52,6 +61,27 @@ public class JoinedAction extends Action {
 		}
 	}
 
+	@Override
+	public long getUndoSize() {
+		long ret = 0;
+		for (Action act : todo) {
+			ret += act.getUndoSize();
+		}
+		return ret;
+	}
+
+	@Override
+	public Action spill(UndoFile file) throws IOException {
+		// the actions refer to the same components, so they are written
+		// together or not at all
+		Action[] spilled = new Action[todo.length];
+		for (int i = 0; i < todo.length; i++) {
+			spilled[i] = todo[i].spill(file);
+			if (spilled[i] == null) return null;
+		}
+		return new JoinedAction(spilled);
+	}
+
 	@Override
 	public Action append(Action other) {
 		int oldLen = todo.length;
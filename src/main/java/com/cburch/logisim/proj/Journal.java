@@ -0,0 +1,727 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.proj;
+
+import com.cburch.logisim.circuit.*;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.file.LibraryEvent;
+import com.cburch.logisim.file.LibraryListener;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+import com.cburch.logisim.tools.Tool;
+
+import javax.swing.Timer;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps what an open project has changed since it was last saved in a
+ * journal, so that the changes can be recovered should Logisim stop
+ * without saving them. The journal starts from a base, either the saved
+ * file or a snapshot of the project in the binary form, and holds the
+ * changes of each circuit transaction since, as the project's codec
+ * writes them. Changes made in other ways, and a journal grown too long,
+ * have a new snapshot taken shortly after. Whenever the project is again
+ * as it was saved, the journal is removed, as it holds nothing to recover.
+ *
+ * The journal is written by a thread of its own, which writes whatever
+ * has been given it since it last wrote, and forces it to the disk as
+ * the preferences ask. Each change is written with its length and a
+ * checksum, and a journal is recovered up to the first change that fails
+ * its checksum. A snapshot is written to a file of its own, named for its
+ * generation, before the journal is begun again from it; so that if
+ * Logisim stops in between, the newer snapshot is recovered alone. The
+ * journal is begun again in a file beside it, which is then moved over
+ * it, so that a journal is never found empty or with half a header.
+ */
+class Journal implements ProjectListener, LibraryListener, CircuitListener {
+	private static final File DIRECTORY = new File(System.getProperty("user.home"),
+		".logisim" + File.separator + "recovery");
+	private static final String EXTENSION = ".journal";
+	private static final String SNAPSHOT_EXTENSION = ".snap";
+	private static final int MAGIC = 0x4c474a31; // "LGJ1"
+	private static final byte BASE_FILE = 0;
+	private static final byte BASE_SNAPSHOT = 1;
+	// how long after a change that calls for one a snapshot is taken, so
+	// that a run of such changes is taken together
+	private static final int SNAPSHOT_DELAY = 1000;
+	// how long the journal may grow before it is begun again from a snapshot
+	private static final long COMPACT_LENGTH = 4 << 20;
+	// how often the journal is forced to the disk, when periodically
+	private static final long SYNC_PERIOD = 2000;
+	private static final long CLOSE_WAIT = 2000;
+	private static int lastId = 0;
+
+	private final Project proj;
+	private final String id;
+	private final Writer writer;
+	private final Timer timer;
+	private final Set<Circuit> listening = new HashSet<>();
+	private long generation = 0;
+	private Reset pending = null; // until the first change is written
+	private boolean written = false; // whether the writer has been given a base
+	private Recoverable replacing; // discarded once this journal's first base is written
+	private boolean snapshotDue = false;
+	private long length = 0;
+	private CircuitTransactionResult lastResult = null;
+	private MutationCodec codec = null;
+
+	private Journal(Project proj, Recoverable replacing) {
+		this.proj = proj;
+		this.replacing = replacing;
+		this.id = Long.toString(System.currentTimeMillis(), 36) + "-" + (++lastId);
+		this.writer = new Writer(id);
+		this.timer = new Timer(SNAPSHOT_DELAY, e -> {
+			if (snapshotDue) snapshot();
+		});
+		timer.setRepeats(false);
+	}
+
+	// starts the journal of the project, which replaces the journal it was
+	// recovered from, if any, once it holds the project in its place
+	static Journal start(Project proj, Recoverable replacing) {
+		if (!AppPreferences.JOURNAL.getBoolean()) {
+			if (replacing != null) replacing.discard();
+			return null;
+		}
+		Journal ret = new Journal(proj, replacing);
+		ret.writer.start();
+		proj.addProjectListener(ret);
+		proj.addLibraryListener(ret);
+		ret.listen();
+		ret.begin();
+		return ret;
+	}
+
+	// stops the journal and removes its files, once written
+	void close() {
+		timer.stop();
+		proj.removeProjectListener(this);
+		proj.removeLibraryListener(this);
+		for (Circuit circ : listening) circ.removeCircuitListener(this);
+		listening.clear();
+		writer.close();
+		if (replacing != null) {
+			replacing.discard();
+			replacing = null;
+		}
+	}
+
+	// begins the journal from the saved file when the project is as it was
+	// saved, and otherwise from a snapshot; a journal of a project not yet
+	// changed is written only once a change is
+	private void begin() {
+		File main = proj.getLogisimFile().getLoader().getMainFile();
+		if (main != null && !proj.isFileDirty()) {
+			timer.stop();
+			snapshotDue = false;
+			generation++;
+			length = 0;
+			rebase(new Reset(header(BASE_FILE, main), null));
+		} else {
+			Reset reset = takeSnapshot();
+			if (reset != null) rebase(reset);
+		}
+	}
+
+	private void snapshot() {
+		Reset reset = takeSnapshot();
+		if (reset != null) rebase(reset);
+	}
+
+	// has the writer begin the journal again from reset; while the project
+	// is as it was saved, there is nothing to recover, so what was written
+	// is removed at once and reset is kept until the next change
+	private void rebase(Reset reset) {
+		if (proj.isFileDirty()) {
+			send(reset);
+		} else {
+			if (written) writer.add(new Clear());
+			written = false;
+			pending = reset;
+		}
+	}
+
+	private void send(Reset reset) {
+		reset.replaces = replacing;
+		replacing = null;
+		written = true;
+		writer.add(reset);
+	}
+
+	// returns null if the project cannot be written, and the journal is
+	// given up
+	private Reset takeSnapshot() {
+		timer.stop();
+		snapshotDue = false;
+		generation++;
+		pending = null;
+		length = 0;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		LogisimFile file = proj.getLogisimFile();
+		try {
+			file.getLoader().writeBinary(file, bytes);
+		} catch (IOException | RuntimeException e) {
+			writer.fail();
+			return null;
+		}
+		return new Reset(header(BASE_SNAPSHOT, file.getLoader().getMainFile()),
+			bytes.toByteArray());
+	}
+
+	private void snapshotLater() {
+		if (!snapshotDue) {
+			snapshotDue = true;
+			timer.restart();
+		}
+	}
+
+	private byte[] header(byte base, File main) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeLong(generation);
+			out.writeByte(base);
+			out.writeUTF(main == null ? "" : main.getAbsolutePath());
+			out.writeUTF(proj.getLogisimFile().getName());
+			out.writeLong(base == BASE_FILE ? main.lastModified() : 0);
+			out.writeLong(base == BASE_FILE ? main.length() : 0);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	// listens to every circuit of the file, as circuits come and go
+	private void listen() {
+		codec = new MutationCodec(new Names(proj.getLogisimFile()));
+		List<Circuit> circuits = proj.getLogisimFile().getCircuits();
+		for (Iterator<Circuit> it = listening.iterator(); it.hasNext(); ) {
+			Circuit circ = it.next();
+			if (!circuits.contains(circ)) {
+				circ.removeCircuitListener(this);
+				it.remove();
+			}
+		}
+		for (Circuit circ : circuits) {
+			if (listening.add(circ)) circ.addCircuitListener(this);
+		}
+	}
+
+	public void circuitChanged(CircuitEvent event) {
+		int action = event.getAction();
+		if (action == CircuitEvent.ACTION_SET_NAME) {
+			// changes are written naming their circuits
+			snapshotLater();
+		} else if (action == CircuitEvent.TRANSACTION_DONE) {
+			// heard once for each circuit the transaction changed
+			CircuitTransactionResult result = (CircuitTransactionResult) event.getData();
+			if (result == lastResult) return;
+			lastResult = result;
+			if (snapshotDue) return;
+			byte[] data;
+			try {
+				data = codec.write(result);
+			} catch (IOException | RuntimeException e) {
+				snapshotLater();
+				return;
+			}
+			if (pending != null) {
+				send(pending);
+				pending = null;
+			}
+			writer.add(new Change(data));
+			length += data.length + 8;
+			if (length > COMPACT_LENGTH) snapshotLater();
+		}
+	}
+
+	public void projectChanged(ProjectEvent event) {
+		int action = event.getAction();
+		if (action == ProjectEvent.ACTION_COMPLETE || action == ProjectEvent.UNDO_COMPLETE) {
+			Action act = (Action) event.getData();
+			if (act != null && act.isModification() && !act.isRecordedByTransactions()) {
+				snapshotLater();
+			}
+		} else if (action == ProjectEvent.ACTION_SET_FILE) {
+			listen();
+			snapshotLater();
+		}
+	}
+
+	public void libraryChanged(LibraryEvent event) {
+		if (event.getAction() == LibraryEvent.DIRTY_STATE) {
+			// the project is now as it was saved
+			if (Boolean.FALSE.equals(event.getData())) begin();
+		} else {
+			listen();
+			snapshotLater();
+		}
+	}
+
+	/**
+	 * Returns the journals left by projects that Logisim did not close,
+	 * whose changes can be recovered, and removes those left with nothing
+	 * to recover. Journals still open elsewhere are left alone.
+	 */
+	static List<Recoverable> findRecoverable() {
+		ArrayList<Recoverable> ret = new ArrayList<>();
+		File[] files = DIRECTORY.listFiles((dir, name) -> name.endsWith(EXTENSION)
+			|| name.endsWith(EXTENSION + ".tmp"));
+		if (files == null) return ret;
+		Arrays.sort(files);
+		for (File file : files) {
+			String name = file.getName();
+			boolean begun = name.endsWith(EXTENSION);
+			String id = name.substring(0, name.lastIndexOf(EXTENSION));
+			// a journal being begun again is read only if it never replaced
+			// the old one, which is only when there was none
+			if (!begun && new File(DIRECTORY, id + EXTENSION).exists()) continue;
+			Recoverable found;
+			try {
+				found = Recoverable.read(id, file);
+			} catch (IOException e) {
+				continue; // as when it is still open
+			}
+			if (found == null) {
+				delete(id);
+			} else {
+				ret.add(found);
+			}
+		}
+		return ret;
+	}
+
+	private static File getSnapshotFile(String id, long generation) {
+		return new File(DIRECTORY, id + "-" + generation + SNAPSHOT_EXTENSION);
+	}
+
+	// the generation of the newest snapshot of the journal, or -1
+	private static long getSnapshotGeneration(String id) {
+		long ret = -1;
+		String[] names = DIRECTORY.list();
+		if (names == null) return ret;
+		String prefix = id + "-";
+		for (String name : names) {
+			if (name.startsWith(prefix) && name.endsWith(SNAPSHOT_EXTENSION)) {
+				try {
+					ret = Math.max(ret, Long.parseLong(name.substring(prefix.length(),
+						name.length() - SNAPSHOT_EXTENSION.length())));
+				} catch (NumberFormatException ignored) {
+				}
+			}
+		}
+		return ret;
+	}
+
+	// removes the snapshots of the journal older than keep
+	private static void deleteSnapshots(String id, long keep) {
+		String[] names = DIRECTORY.list();
+		if (names == null) return;
+		String prefix = id + "-";
+		for (String name : names) {
+			if (name.startsWith(prefix) && (name.endsWith(SNAPSHOT_EXTENSION)
+					|| name.endsWith(SNAPSHOT_EXTENSION + ".tmp"))
+					&& !name.equals(getSnapshotFile(id, keep).getName())) {
+				new File(DIRECTORY, name).delete();
+			}
+		}
+	}
+
+	private static void delete(String id) {
+		new File(DIRECTORY, id + EXTENSION).delete();
+		new File(DIRECTORY, id + EXTENSION + ".tmp").delete();
+		deleteSnapshots(id, -1);
+	}
+
+	/**
+	 * The changes a journal holds, to be recovered onto the file or the
+	 * snapshot from which it began.
+	 */
+	static class Recoverable {
+		private final String id;
+		private final String name;
+		private final File mainFile;
+		private final File base;
+		private final List<byte[]> changes;
+
+		private Recoverable(String id, String name, File mainFile, File base,
+							List<byte[]> changes) {
+			this.id = id;
+			this.name = name;
+			this.mainFile = mainFile;
+			this.base = base;
+			this.changes = changes;
+		}
+
+		// returns null if there is nothing to recover
+		private static Recoverable read(String id, File file) throws IOException {
+			try (FileChannel channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				FileLock lock;
+				try {
+					lock = channel.tryLock();
+				} catch (OverlappingFileLockException e) {
+					lock = null;
+				}
+				if (lock == null) throw new IOException("journal is open");
+				// read through the channel, as the lock may bar other reads
+				DataInputStream in = new DataInputStream(new BufferedInputStream(
+					Channels.newInputStream(channel)));
+				try {
+					return read(id, in);
+				} catch (EOFException e) {
+					return null;
+				}
+			}
+		}
+
+		private static Recoverable read(String id, DataInputStream in) throws IOException {
+			if (in.readInt() != MAGIC) return null;
+			long generation = in.readLong();
+			byte base = in.readByte();
+			String path = in.readUTF();
+			String name = in.readUTF();
+			long modified = in.readLong();
+			long length = in.readLong();
+			File mainFile = path.equals("") ? null : new File(path);
+
+			long newest = getSnapshotGeneration(id);
+			if (newest > generation) {
+				// Logisim stopped between taking a snapshot and beginning
+				// the journal from it
+				return new Recoverable(id, name, mainFile, getSnapshotFile(id, newest),
+					Collections.emptyList());
+			}
+			File baseFile;
+			if (base == BASE_SNAPSHOT) {
+				if (newest != generation) return null;
+				baseFile = getSnapshotFile(id, generation);
+			} else if (mainFile != null && mainFile.lastModified() == modified
+					&& mainFile.length() == length) {
+				baseFile = mainFile;
+			} else {
+				return null; // the file has been saved since
+			}
+
+			ArrayList<byte[]> changes = new ArrayList<>();
+			CRC32 crc = new CRC32();
+			try {
+				while (true) {
+					int n = in.readInt();
+					if (n < 0 || n > COMPACT_LENGTH * 2) break;
+					byte[] data = new byte[n];
+					in.readFully(data);
+					crc.reset();
+					crc.update(data);
+					if (in.readInt() != (int) crc.getValue()) break;
+					changes.add(data);
+				}
+			} catch (EOFException ignored) {
+				// the journal ends with the last change written in full
+			}
+			if (base == BASE_FILE && changes.isEmpty()) return null;
+			return new Recoverable(id, name, mainFile, baseFile, changes);
+		}
+
+		String getName() {
+			return name;
+		}
+
+		File getMainFile() {
+			return mainFile;
+		}
+
+		// opens the file or snapshot and makes the changes to it, in turn,
+		// until one cannot be read
+		LogisimFile recover(Loader loader) throws LoadFailedException {
+			LogisimFile ret = loader.openRecovered(base, mainFile, name);
+			MutationCodec codec = new MutationCodec(new Names(ret));
+			for (byte[] data : changes) {
+				try {
+					codec.read(data).execute();
+				} catch (IOException e) {
+					break;
+				}
+			}
+			return ret;
+		}
+
+		void discard() {
+			delete(id);
+		}
+	}
+
+	// refers to circuits by name, and to component factories by the name
+	// of their library, with the file's own circuits in the library ""
+	private static class Names implements MutationCodec.References {
+		private final LogisimFile file;
+		private final IdentityHashMap<ComponentFactory, String[]> known
+			= new IdentityHashMap<>();
+
+		Names(LogisimFile file) {
+			this.file = file;
+		}
+
+		public void writeCircuit(DataOutput out, Circuit circuit) throws IOException {
+			String name = circuit.getName();
+			if (file.getCircuit(name) != circuit) {
+				throw new IllegalArgumentException("circuit is not in the file");
+			}
+			out.writeUTF(name);
+		}
+
+		public void writeFactory(DataOutput out, ComponentFactory factory) throws IOException {
+			String[] name = known.get(factory);
+			if (name == null) {
+				name = find(factory);
+				known.put(factory, name);
+			}
+			out.writeUTF(name[0]);
+			out.writeUTF(name[1]);
+		}
+
+		private String[] find(ComponentFactory factory) {
+			if (contains(file, factory)) return new String[]{"", factory.getName()};
+			for (Library lib : file.getLibraries()) {
+				if (contains(lib, factory)) return new String[]{lib.getName(), factory.getName()};
+			}
+			throw new IllegalArgumentException("factory is not in a library of the file");
+		}
+
+		// a factory in use has been loaded, and none is loaded to find it
+		private static boolean contains(Library lib, ComponentFactory factory) {
+			for (Tool tool : lib.getTools()) {
+				if (tool instanceof AddTool && ((AddTool) tool).getFactory(false) == factory
+						&& tool.getName().equals(factory.getName())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public Circuit readCircuit(DataInput in) throws IOException {
+			String name = in.readUTF();
+			Circuit ret = file.getCircuit(name);
+			if (ret == null) throw new IOException("no circuit " + name);
+			return ret;
+		}
+
+		public ComponentFactory readFactory(DataInput in) throws IOException {
+			String libName = in.readUTF();
+			String name = in.readUTF();
+			Library lib = libName.equals("") ? file : file.getLibrary(libName);
+			Tool tool = lib == null ? null : lib.getTool(name);
+			if (!(tool instanceof AddTool)) {
+				throw new IOException("no component " + name + " in " + libName);
+			}
+			return ((AddTool) tool).getFactory();
+		}
+	}
+
+	private interface Command {
+	}
+
+	private static class Change implements Command {
+		private final byte[] data;
+
+		Change(byte[] data) {
+			this.data = data;
+		}
+	}
+
+	private static class Reset implements Command {
+		private final byte[] header;
+		private final byte[] snapshot; // null if the base is the saved file
+		private Recoverable replaces = null; // discarded once this is written
+
+		Reset(byte[] header, byte[] snapshot) {
+			this.header = header;
+			this.snapshot = snapshot;
+		}
+	}
+
+	private static class Clear implements Command {
+	}
+
+	private static class Close implements Command {
+	}
+
+	/**
+	 * The thread writing a journal. Should writing fail, the journal is
+	 * given up, and its files removed, as they no longer hold the project.
+	 */
+	private static class Writer extends Thread {
+		private final String id;
+		private final LinkedBlockingQueue<Command> queue = new LinkedBlockingQueue<>();
+		private final File file;
+		private volatile boolean failed = false;
+		private FileChannel channel = null;
+		private long generation = 0;
+		private long lastSync = 0;
+		private boolean unsynced = false;
+
+		Writer(String id) {
+			super("Logisim journal " + id);
+			this.id = id;
+			this.file = new File(DIRECTORY, id + EXTENSION);
+			setDaemon(true);
+		}
+
+		void add(Command command) {
+			if (!failed) queue.add(command);
+		}
+
+		void fail() {
+			if (!failed) {
+				failed = true;
+				queue.clear();
+				queue.add(new Close());
+			}
+		}
+
+		void close() {
+			queue.add(new Close());
+			try {
+				join(CLOSE_WAIT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void run() {
+			ArrayList<Command> batch = new ArrayList<>();
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			CRC32 crc = new CRC32();
+			while (true) {
+				batch.clear();
+				try {
+					Command first;
+					if (unsynced) {
+						long wait = lastSync + SYNC_PERIOD - System.currentTimeMillis();
+						first = queue.poll(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+					} else {
+						first = queue.take();
+					}
+					if (first != null) batch.add(first);
+				} catch (InterruptedException e) {
+					continue;
+				}
+				queue.drainTo(batch);
+				try {
+					for (Command command : batch) {
+						if (command instanceof Change) {
+							if (channel == null) continue;
+							byte[] data = ((Change) command).data;
+							DataOutputStream out = new DataOutputStream(buffer);
+							out.writeInt(data.length);
+							out.write(data);
+							crc.reset();
+							crc.update(data);
+							out.writeInt((int) crc.getValue());
+						} else {
+							flush(buffer);
+							if (command instanceof Reset) {
+								reset((Reset) command);
+							} else if (command instanceof Clear) {
+								closeFiles();
+								unsynced = false;
+							} else {
+								closeFiles();
+								return;
+							}
+						}
+					}
+					flush(buffer);
+					sync(false);
+				} catch (IOException | RuntimeException e) {
+					failed = true;
+					queue.clear();
+					closeFiles();
+					return;
+				}
+			}
+		}
+
+		private void flush(ByteArrayOutputStream buffer) throws IOException {
+			if (buffer.size() == 0) return;
+			channel.write(ByteBuffer.wrap(buffer.toByteArray()));
+			buffer.reset();
+			unsynced = true;
+		}
+
+		private void sync(boolean force) throws IOException {
+			if (!unsynced || channel == null) return;
+			String policy = AppPreferences.JOURNAL_SYNC.get();
+			long now = System.currentTimeMillis();
+			if (force || policy.equals(AppPreferences.JOURNAL_SYNC_ALWAYS)
+					|| (policy.equals(AppPreferences.JOURNAL_SYNC_PERIODIC)
+						&& now - lastSync >= SYNC_PERIOD)) {
+				channel.force(false);
+				lastSync = now;
+				unsynced = false;
+			} else if (policy.equals(AppPreferences.JOURNAL_SYNC_NEVER)) {
+				unsynced = false;
+			}
+		}
+
+		private void reset(Reset reset) throws IOException {
+			generation = ByteBuffer.wrap(reset.header, 4, 8).getLong();
+			DIRECTORY.mkdirs();
+			if (reset.snapshot != null) {
+				File tmp = new File(DIRECTORY, id + SNAPSHOT_EXTENSION + ".tmp");
+				try (FileOutputStream out = new FileOutputStream(tmp)) {
+					out.write(reset.snapshot);
+					out.getFD().sync();
+				}
+				Files.move(tmp.toPath(), getSnapshotFile(id, generation).toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			File tmp = new File(DIRECTORY, id + EXTENSION + ".tmp");
+			FileChannel old = channel;
+			try {
+				channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+				if (channel.tryLock() == null) throw new IOException("journal is locked");
+				channel.write(ByteBuffer.wrap(reset.header));
+				unsynced = true;
+				sync(true);
+			} finally {
+				if (old != null) old.close(); // releasing its lock, so it can be replaced
+			}
+			Files.move(tmp.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			deleteSnapshots(id, reset.snapshot == null ? -1 : generation);
+			if (reset.replaces != null) reset.replaces.discard();
+		}
+
+		private void closeFiles() {
+			if (channel != null) {
+				try {
+					channel.close(); // releasing the lock
+				} catch (IOException ignored) {
+				}
+				channel = null;
+			}
+			delete(id);
+		}
+	}
+}
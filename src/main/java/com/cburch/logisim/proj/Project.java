@@ -11,6 +11,7 @@ import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.gui.main.Selection;
 import com.cburch.logisim.gui.main.SelectionActions;
 import com.cburch.logisim.gui.opts.OptionsFrame;
+import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
@@ -18,11 +19,14 @@ import com.cburch.logisim.util.EventSourceWeakSupport;
 import com.cburch.logisim.util.JFileChoosers;
 
 import javax.swing.*;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 
 public class Project {
-	private static final int MAX_UNDO_SIZE = 64;
+	// what an entry written to the undo file is taken to hold in memory
+	private static final long SPILLED_UNDO_SIZE = 128;
 	private final Simulator simulator = new Simulator();
 	private final HashMap<Circuit, CircuitState> stateMap
 		= new HashMap<>();
@@ -41,6 +45,12 @@ public class Project {
 	private LogFrame logFrame = null;
 	private Tool tool = null;
 	private int undoMods = 0;
+	private long undoSize = 0;
+	private int undoSpilled = 0;
+	private UndoFile undoFile = null;
+	private Journal journal = null;
+	private boolean recovered = false;
+	private Journal.Recoverable recoveredFrom = null; // until the journal starts
 	private Dependencies depends;
 	private boolean startupScreen = false;
 
@@ -68,6 +78,10 @@ public class Project {
 		depends = new Dependencies(file);
 		undoLog.clear();
 		undoMods = 0;
+		recovered = false;
+		undoSize = 0;
+		undoSpilled = 0;
+		deleteUndoFile();
 		fireEvent(ProjectEvent.ACTION_SET_FILE, old, file);
 		setCurrentCircuit(file.getMainCircuit());
 		if (file != null) {
@@ -101,6 +115,18 @@ public class Project {
 		frame = value;
 		Projects.windowCreated(this, oldValue, value);
 		value.getCanvas().getSelection().addListener(myListener);
+		if (journal == null) {
+			journal = Journal.start(this, recoveredFrom);
+			recoveredFrom = null;
+		}
+	}
+
+	// stops keeping the journal, as when the project is closed
+	void closeJournal() {
+		if (journal != null) {
+			journal.close();
+			journal = null;
+		}
 	}
 
 	public OptionsFrame getOptionsFrame(boolean create) {
@@ -225,7 +251,7 @@ public class Project {
 	}
 
 	public boolean isFileDirty() {
-		return undoMods != 0;
+		return undoMods != 0 || recovered;
 	}
 
 	public JFileChooser createChooser() {
@@ -306,6 +332,7 @@ public class Project {
 		startupScreen = false;
 		if (!undoLog.isEmpty() && act.shouldAppendTo(getLastAction())) {
 			ActionData firstData = undoLog.removeLast();
+			undoSize -= firstData.size;
 			Action first = firstData.action;
 			if (first.isModification()) --undoMods;
 			toAdd = first.append(act);
@@ -315,6 +342,7 @@ public class Project {
 			}
 			fireEvent(new ProjectEvent(ProjectEvent.ACTION_START, this, act));
 			act.doIt(this);
+			if (toAdd != null) measureLastAction();
 			file.setDirty(isFileDirty());
 			fireEvent(new ProjectEvent(ProjectEvent.ACTION_COMPLETE, this, act));
 			fireEvent(new ProjectEvent(ProjectEvent.ACTION_MERGE, this, first, toAdd));
@@ -323,9 +351,7 @@ public class Project {
 		undoLog.add(new ActionData(circuitState, toAdd));
 		fireEvent(new ProjectEvent(ProjectEvent.ACTION_START, this, act));
 		act.doIt(this);
-		while (undoLog.size() > MAX_UNDO_SIZE) {
-			undoLog.removeFirst();
-		}
+		measureLastAction();
 		if (toAdd.isModification()) ++undoMods;
 		file.setDirty(isFileDirty());
 		fireEvent(new ProjectEvent(ProjectEvent.ACTION_COMPLETE, this, act));
@@ -339,13 +365,88 @@ public class Project {
 			if (action.isModification()) --undoMods;
 			fireEvent(new ProjectEvent(ProjectEvent.UNDO_START, this, action));
 			action.undo(this);
+			forget(data);
 			file.setDirty(isFileDirty());
 			fireEvent(new ProjectEvent(ProjectEvent.UNDO_COMPLETE, this, action));
 		}
 	}
 
+	// Counts what the last action holds, once done, and then keeps the undo
+	// history within the entries and the memory the preferences allow:
+	// the oldest entries are written to the undo file if the preferences
+	// ask for that, and are otherwise dropped. Only the oldest run of
+	// entries is ever written out, so an entry that cannot be is dropped
+	// along with those before it. The last action is never written out,
+	// as tools compare it against the actions they did.
+	private void measureLastAction() {
+		ActionData last = undoLog.getLast();
+		last.size = last.action.getUndoSize();
+		undoSize += last.size;
+
+		int maxEntries = Integer.parseInt(AppPreferences.UNDO_ENTRIES.get());
+		long maxSize = Long.parseLong(AppPreferences.UNDO_MEMORY.get()) << 20;
+		while (undoLog.size() > maxEntries) {
+			forget(undoLog.removeFirst());
+		}
+		if (undoSize > maxSize && AppPreferences.UNDO_SPILL.getBoolean()) {
+			Iterator<ActionData> it = undoLog.iterator();
+			int passed = 0;
+			for (int i = undoLog.size() - 1; i > 0 && undoSize > maxSize; i--) {
+				ActionData data = it.next();
+				passed++;
+				if (!data.spilled && !spill(data)) {
+					for (; passed > 0; passed--) forget(undoLog.removeFirst());
+					it = undoLog.iterator();
+				}
+			}
+		}
+		while (undoSize > maxSize && undoLog.size() > 1) {
+			forget(undoLog.removeFirst());
+		}
+	}
+
+	private boolean spill(ActionData data) {
+		try {
+			if (undoFile == null) undoFile = new UndoFile();
+			Action spilled = data.action.spill(undoFile);
+			if (spilled != null) {
+				data.action = spilled;
+				data.spilled = true;
+				undoSize += SPILLED_UNDO_SIZE - data.size;
+				data.size = SPILLED_UNDO_SIZE;
+				undoSpilled++;
+				return true;
+			}
+		} catch (IOException e) {
+			// the entry cannot be written out, and is dropped instead
+		}
+		return false;
+	}
+
+	// accounts for an entry leaving the undo history
+	private void forget(ActionData data) {
+		undoSize -= data.size;
+		if (data.spilled && --undoSpilled == 0) deleteUndoFile();
+	}
+
+	private void deleteUndoFile() {
+		if (undoFile != null) {
+			undoFile.delete();
+			undoFile = null;
+		}
+	}
+
 	public void setFileAsClean() {
 		undoMods = 0;
+		recovered = false;
+		file.setDirty(isFileDirty());
+	}
+
+	// the file holds changes recovered from the journal, not yet saved;
+	// that journal is kept until the project's own holds them
+	void setFileAsRecovered(Journal.Recoverable from) {
+		recovered = true;
+		recoveredFrom = from;
 		file.setDirty(isFileDirty());
 	}
 
@@ -358,7 +459,9 @@ public class Project {
 
 	private static class ActionData {
 		final CircuitState circuitState;
-		final Action action;
+		Action action;
+		long size = 0;
+		boolean spilled = false;
 
 		ActionData(CircuitState circuitState, Action action) {
 			this.circuitState = circuitState;
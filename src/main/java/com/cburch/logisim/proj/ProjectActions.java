@@ -47,7 +47,7 @@ public class ProjectActions {
 			}
 		}
 		if (file == null) file = createEmptyFile(loader);
-		return completeProject(monitor, loader, file, isStartupScreen);
+		return completeProject(monitor, loader, file, isStartupScreen, null);
 	}
 
 	private static void displayException(Component parent, Exception ex) {
@@ -75,9 +75,11 @@ public class ProjectActions {
 	}
 
 	private static Project completeProject(SplashScreen monitor, Loader loader,
-										   LogisimFile file, boolean isStartup) {
+										   LogisimFile file, boolean isStartup,
+										   Journal.Recoverable recovered) {
 		if (monitor != null) monitor.setProgress(SplashScreen.PROJECT_CREATE);
 		Project ret = new Project(file);
+		if (recovered != null) ret.setFileAsRecovered(recovered);
 
 		if (monitor != null) monitor.setProgress(SplashScreen.FRAME_CREATE);
 		SwingUtilities.invokeLater(new CreateFrame(loader, ret, isStartup));
@@ -131,7 +133,51 @@ public class ProjectActions {
 		LogisimFile file = loader.openLogisimFile(source, substitutions);
 		AppPreferences.updateRecentFile(source);
 
-		return completeProject(monitor, loader, file, false);
+		return completeProject(monitor, loader, file, false, null);
+	}
+
+	/**
+	 * Offers to recover the changes kept in the journal of each project
+	 * that Logisim did not close when it last ran, and opens a window for
+	 * each project recovered. Returns whether any was.
+	 */
+	public static boolean doRecover(SplashScreen monitor) {
+		boolean ret = false;
+		for (Journal.Recoverable found : Journal.findRecoverable()) {
+			File mainFile = found.getMainFile();
+			String message = StringUtil.format(Strings.get("recoverMessage"),
+				mainFile == null ? found.getName() : mainFile.getPath());
+			String[] options = {
+				Strings.get("recoverOption"),
+				Strings.get("recoverDiscardOption"),
+				Strings.get("recoverLaterOption"),
+			};
+			int result = JOptionPane.showOptionDialog(monitor,
+				message, Strings.get("recoverTitle"), 0,
+				JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+			if (result == 1) {
+				found.discard();
+			} else if (result == 0) {
+				if (monitor != null) monitor.setProgress(SplashScreen.FILE_LOAD);
+				Loader loader = new Loader(monitor);
+				LogisimFile file;
+				try {
+					file = found.recover(loader);
+				} catch (LoadFailedException ex) {
+					if (ex.isShown()) {
+						JOptionPane.showMessageDialog(monitor,
+							StringUtil.format(Strings.get("recoverError"), ex.getMessage()),
+							Strings.get("recoverErrorTitle"), JOptionPane.ERROR_MESSAGE);
+					}
+					continue;
+				}
+				// the new project keeps a journal of its own once its
+				// window is made, which replaces this one
+				completeProject(monitor, loader, file, false, found);
+				ret = true;
+			}
+		}
+		return ret;
 	}
 
 	public static void doOpen(Component parent, Project baseProject) {
@@ -235,7 +281,8 @@ public class ProjectActions {
 
 		File f = chooser.getSelectedFile();
 		String circExt = Loader.LOGISIM_EXTENSION;
-		if (!f.getName().endsWith(circExt)) {
+		if (!f.getName().endsWith(circExt)
+			&& !f.getName().endsWith(Loader.BINARY_EXTENSION)) {
 			String old = f.getName();
 			int ext0 = old.lastIndexOf('.');
 			if (ext0 < 0 || !Pattern.matches("\\.\\p{L}{2,}[0-9]?", old.substring(ext0))) {
@@ -301,6 +348,10 @@ public class ProjectActions {
 		for (Project proj : new ArrayList<>(Projects.getOpenProjects())) {
 			if (!proj.confirmClose(Strings.get("confirmQuitTitle"))) return;
 		}
+		// the windows are not yet closed, and their journals not removed
+		for (Project proj : new ArrayList<>(Projects.getOpenProjects())) {
+			proj.closeJournal();
+		}
 		System.exit(0);
 	}
 
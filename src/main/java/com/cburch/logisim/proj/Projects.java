@@ -157,6 +157,7 @@ public class Projects {
 
 			if (frame == proj.getFrame()) {
 				projectRemoved(proj, frame, this);
+				proj.closeJournal();
 			}
 			if (openProjects.isEmpty() && !MacCompatibility.isSwingUsingScreenMenuBar()) {
 				ProjectActions.doQuit();
@@ -0,0 +1,48 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.proj;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * A temporary file to which a project writes the oldest entries of its
+ * undo history once they no longer fit in the memory allowed for them.
+ * Entries are appended and read back by position; the file is opened only
+ * while it is read or written.
+ */
+public class UndoFile {
+	private final File file;
+	private long length = 0;
+
+	UndoFile() throws IOException {
+		file = File.createTempFile("logisim-undo", ".tmp");
+		file.deleteOnExit();
+	}
+
+	// appends data, returning the position from which to read it back
+	public long write(byte[] data) throws IOException {
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			out.seek(length);
+			out.write(data);
+		}
+		long ret = length;
+		length += data.length;
+		return ret;
+	}
+
+	public byte[] read(long position, int count) throws IOException {
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			byte[] ret = new byte[count];
+			in.seek(position);
+			in.readFully(ret);
+			return ret;
+		}
+	}
+
+	void delete() {
+		file.delete();
+	}
+}
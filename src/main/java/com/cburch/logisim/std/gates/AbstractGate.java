@@ -6,6 +6,7 @@ package com.cburch.logisim.std.gates;
 import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.CombinationalLogic;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.*;
@@ -44,7 +45,7 @@ abstract class AbstractGate extends InstanceFactory {
 		setKeyConfigurator(JoinedConfigurator.create(
 			new IntegerConfigurator(GateAttributes.ATTR_INPUTS, 2,
 				GateAttributes.MAX_INPUTS, 0),
-			new BitWidthConfigurator(StdAttr.WIDTH)));
+			new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH)));
 	}
 
 	static Value pullOutput(Value value, Object outType) {
@@ -377,7 +378,8 @@ abstract class AbstractGate extends InstanceFactory {
 			|| attr instanceof NegateAttribute) {
 			instance.recomputeBounds();
 			computePorts(instance);
-		} else if (attr == GateAttributes.ATTR_XOR) {
+		} else if (attr == GateAttributes.ATTR_XOR
+			|| attr == GateAttributes.ATTR_OUTPUT) {
 			instance.fireInvalidated();
 		}
 	}
@@ -467,6 +469,11 @@ abstract class AbstractGate extends InstanceFactory {
 		if (key == WireRepair.class) {
 			return (WireRepair) data -> AbstractGate.this.shouldRepairWire(instance, data);
 		}
+		if (key == CombinationalLogic.class) {
+			GateAttributes attrs = (GateAttributes) instance.getAttributeSet();
+			if (attrs.out != GateAttributes.OUTPUT_01) return null;
+			return (CombinationalLogic) this::propagate;
+		}
 		if (key == ExpressionComputer.class) {
 			return (ExpressionComputer) expressionMap -> {
 				GateAttributes attrs = (GateAttributes) instance.getAttributeSet();
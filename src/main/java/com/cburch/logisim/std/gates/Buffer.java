@@ -4,6 +4,7 @@
 package com.cburch.logisim.std.gates;
 
 import com.cburch.logisim.analyze.model.Expression;
+import com.cburch.logisim.circuit.CombinationalLogic;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.*;
 import com.cburch.logisim.file.Options;
@@ -25,7 +26,7 @@ class Buffer extends InstanceFactory {
 				GateAttributes.OUTPUT_01, "", StdAttr.DEFAULT_LABEL_FONT});
 		setIcon(Icons.getIcon("bufferGate.gif"));
 		setFacingAttribute(StdAttr.FACING);
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH));
 		setPorts(new Port[]{
 			new Port(0, 0, Port.OUTPUT, StdAttr.WIDTH),
 			new Port(0, -20, Port.INPUT, StdAttr.WIDTH),
@@ -91,6 +92,8 @@ class Buffer extends InstanceFactory {
 			instance.recomputeBounds();
 			configurePorts(instance);
 			NotGate.configureLabel(instance, false, null);
+		} else if (attr == GateAttributes.ATTR_OUTPUT) {
+			instance.fireInvalidated();
 		}
 	}
 
@@ -106,6 +109,11 @@ class Buffer extends InstanceFactory {
 
 	@Override
 	public Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == CombinationalLogic.class) {
+			Object outType = instance.getAttributeValue(GateAttributes.ATTR_OUTPUT);
+			if (outType != GateAttributes.OUTPUT_01) return null;
+			return (CombinationalLogic) this::propagate;
+		}
 		if (key == ExpressionComputer.class) {
 			return (ExpressionComputer) expressionMap -> {
 				Expression e = expressionMap.get(instance.getPortLocation(1));
@@ -89,7 +89,7 @@ public class CircuitBuilder {
 			ComponentFactory factory = Constant.FACTORY;
 			AttributeSet attrs = factory.createAttributeSet();
 			attrs.setValue(Constant.ATTR_VALUE,
-				value.getValue());
+				(long) value.getValue());
 			Bounds bds = factory.getOffsetBounds(attrs);
 			return new Layout(bds.getWidth(), bds.getHeight(),
 				-bds.getY(), factory, attrs,
@@ -285,10 +285,10 @@ public class CircuitBuilder {
 			Object factory = parent.getFactory();
 			if (factory instanceof AbstractGate) {
 				Value val = ((AbstractGate) factory).getIdentity();
-				Integer valInt = val.toIntValue();
+				Long valLong = val.toLongValue();
 				Location loc = parent.getEnd(index).getLocation();
 				AttributeSet attrs = Constant.FACTORY.createAttributeSet();
-				attrs.setValue(Constant.ATTR_VALUE, valInt);
+				attrs.setValue(Constant.ATTR_VALUE, valLong);
 				result.add(Constant.FACTORY.createComponent(loc, attrs));
 			}
 		}
@@ -45,7 +45,7 @@ class ControlledBuffer extends InstanceFactory {
 					"", StdAttr.DEFAULT_LABEL_FONT});
 		}
 		setFacingAttribute(StdAttr.FACING);
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH));
 	}
 
 	@Override
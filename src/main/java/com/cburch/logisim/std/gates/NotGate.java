@@ -5,6 +5,7 @@ package com.cburch.logisim.std.gates;
 
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.CombinationalLogic;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.*;
@@ -45,7 +46,7 @@ class NotGate extends InstanceFactory {
 			"", StdAttr.DEFAULT_LABEL_FONT,
 		});
 		setFacingAttribute(StdAttr.FACING);
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH));
 	}
 
 	static void configureLabel(Instance instance, boolean isRectangular,
@@ -118,6 +119,8 @@ class NotGate extends InstanceFactory {
 			configurePorts(instance);
 			String gateShape = AppPreferences.GATE_SHAPE.get();
 			configureLabel(instance, gateShape.equals(AppPreferences.SHAPE_RECTANGULAR), null);
+		} else if (attr == GateAttributes.ATTR_OUTPUT) {
+			instance.fireInvalidated();
 		}
 	}
 
@@ -135,6 +138,11 @@ class NotGate extends InstanceFactory {
 
 	@Override
 	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == CombinationalLogic.class) {
+			Object outType = instance.getAttributeValue(GateAttributes.ATTR_OUTPUT);
+			if (outType != GateAttributes.OUTPUT_01) return null;
+			return (CombinationalLogic) this::propagate;
+		}
 		if (key == ExpressionComputer.class) {
 			return (ExpressionComputer) expressionMap -> {
 				Expression e = expressionMap.get(instance.getPortLocation(1));
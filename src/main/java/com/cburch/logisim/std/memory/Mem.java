@@ -152,9 +152,14 @@ abstract class Mem extends InstanceFactory {
 	}
 
 	public void loadImage(InstanceState instanceState, File imageFile)
+		throws IOException {
+		loadImage(instanceState, imageFile, HexFile.FORMAT_TEXT);
+	}
+
+	public void loadImage(InstanceState instanceState, File imageFile, int format)
 		throws IOException {
 		MemState s = this.getState(instanceState);
-		HexFile.open(s.getContents(), imageFile);
+		HexFile.open(s.getContents(), imageFile, format);
 		this.setCurrentImage(instanceState.getInstance(), imageFile);
 	}
 
@@ -9,6 +9,16 @@ import com.cburch.logisim.util.EventSourceWeakSupport;
 
 import java.util.Arrays;
 
+/**
+ * The contents of a RAM or ROM, in pages of 4096 words that are allocated
+ * only once a nonzero word is stored in them. Each page is an array of
+ * bytes, shorts or ints, whichever is narrowest for the data width, and
+ * holds the words already masked to that width.
+ * <p>
+ * A clone shares its pages with the original, so cloning costs only the
+ * table of pages however large the memory is; each of the two copies a
+ * shared page the first time it writes to it.
+ */
 class MemContents implements Cloneable, HexModel {
 	private static final int PAGE_SIZE_BITS = 12;
 	private static final int PAGE_SIZE = 1 << PAGE_SIZE_BITS;
@@ -17,7 +27,9 @@ class MemContents implements Cloneable, HexModel {
 	private int width;
 	private int addrBits;
 	private int mask;
-	private MemContentsSub.ContentsInterface[] pages;
+	private int pageLength;
+	private Object[] pages; // byte[], short[] or int[] by width; null if all zero
+	private boolean[] shared; // whether a page may also be held by a clone
 
 	private MemContents(int addrBits, int width) {
 		listeners = null;
@@ -38,7 +50,7 @@ class MemContents implements Cloneable, HexModel {
 
 	public void removeHexModelListener(HexModelListener l) {
 		if (listeners == null) return;
-		listeners.add(l);
+		listeners.remove(l);
 		if (listeners.isEmpty()) listeners = null;
 	}
 
@@ -71,12 +83,9 @@ class MemContents implements Cloneable, HexModel {
 		try {
 			MemContents ret = (MemContents) super.clone();
 			ret.listeners = null;
-			ret.pages = new MemContentsSub.ContentsInterface[this.pages.length];
-			for (int i = 0; i < ret.pages.length; i++) {
-				if (this.pages[i] != null) {
-					ret.pages[i] = this.pages[i].clone();
-				}
-			}
+			ret.pages = pages.clone();
+			Arrays.fill(shared, true);
+			ret.shared = shared.clone();
 			return ret;
 		} catch (CloneNotSupportedException ex) {
 			return this;
@@ -94,17 +103,56 @@ class MemContents implements Cloneable, HexModel {
 	public int get(long addr) {
 		int page = (int) (addr >>> PAGE_SIZE_BITS);
 		int offs = (int) (addr & PAGE_MASK);
-		if (page < 0 || page >= pages.length || pages[page] == null) return 0;
-		return pages[page].get(offs) & mask;
+		if (page < 0 || page >= pages.length || offs >= pageLength) return 0;
+		Object data = pages[page];
+		return data == null ? 0 : read(data, offs);
+	}
+
+	private int read(Object data, int offs) {
+		if (width <= 8) return ((byte[]) data)[offs] & 0xff;
+		else if (width <= 16) return ((short[]) data)[offs] & 0xffff;
+		else return ((int[]) data)[offs];
+	}
+
+	private void write(Object data, int offs, int value) {
+		if (width <= 8) ((byte[]) data)[offs] = (byte) value;
+		else if (width <= 16) ((short[]) data)[offs] = (short) value;
+		else ((int[]) data)[offs] = value;
+	}
+
+	private Object createPage() {
+		if (width <= 8) return new byte[pageLength];
+		else if (width <= 16) return new short[pageLength];
+		else return new int[pageLength];
+	}
+
+	// returns the page, allocated and not shared, ready to be written
+	private Object getWritablePage(int page) {
+		Object data = pages[page];
+		if (data == null) {
+			data = createPage();
+			pages[page] = data;
+		} else if (shared[page]) {
+			if (data instanceof byte[]) data = ((byte[]) data).clone();
+			else if (data instanceof short[]) data = ((short[]) data).clone();
+			else data = ((int[]) data).clone();
+			pages[page] = data;
+		}
+		shared[page] = false;
+		return data;
 	}
 
 	public boolean isClear() {
-		for (MemContentsSub.ContentsInterface page : pages) {
-			if (page != null) {
-				for (int j = page.getLength() - 1; j >= 0; j--) {
-					if (page.get(j) != 0) return false;
-				}
-			}
+		for (int i = 0; i < pages.length; i++) {
+			if (pages[i] != null && !isPageClear(i)) return false;
+		}
+		return true;
+	}
+
+	private boolean isPageClear(int page) {
+		Object data = pages[page];
+		for (int j = 0; j < pageLength; j++) {
+			if (read(data, j) != 0) return false;
 		}
 		return true;
 	}
@@ -112,201 +160,111 @@ class MemContents implements Cloneable, HexModel {
 	public void set(long addr, int value) {
 		int page = (int) (addr >>> PAGE_SIZE_BITS);
 		int offs = (int) (addr & PAGE_MASK);
-		int old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
+		if (page < 0 || page >= pages.length || offs >= pageLength) return;
+		int old = pages[page] == null ? 0 : read(pages[page], offs);
 		int val = value & mask;
 		if (old != val) {
-			if (pages[page] == null) {
-				pages[page] = MemContentsSub.createContents(PAGE_SIZE, width);
-			}
-			pages[page].set(offs, val);
+			write(getWritablePage(page), offs, val);
 			fireBytesChanged(addr, 1, new int[]{old});
 		}
 	}
 
 	public void set(long start, int[] values) {
-		if (values.length == 0) return;
-
-		int pageStart = (int) (start >>> PAGE_SIZE_BITS);
-		int startOffs = (int) (start & PAGE_MASK);
-		int pageEnd = (int) ((start + values.length - 1) >>> PAGE_SIZE_BITS);
-		int endOffs = (int) ((start + values.length - 1) & PAGE_MASK);
-
-		if (pageStart == pageEnd) {
-			ensurePage(pageStart);
-			MemContentsSub.ContentsInterface page = pages[pageStart];
-			if (page.matches(values, startOffs, mask)) {
-				int[] oldValues = page.get(startOffs, values.length);
-				page.load(startOffs, values, mask);
-				if (page.isClear()) pages[pageStart] = null;
-				fireBytesChanged(start, values.length, oldValues);
-			}
-		} else {
-			int nextOffs;
-			if (startOffs == 0) {
-				pageStart--;
-				nextOffs = 0;
-			} else {
-				ensurePage(pageStart);
-				int[] vals = new int[PAGE_SIZE - startOffs];
-				System.arraycopy(values, 0, vals, 0, vals.length);
-				MemContentsSub.ContentsInterface page = pages[pageStart];
-				if (page.matches(vals, startOffs, mask)) {
-					int[] oldValues = page.get(startOffs, vals.length);
-					page.load(startOffs, vals, mask);
-					if (page.isClear()) pages[pageStart] = null;
-					fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
-				}
-				nextOffs = vals.length;
-			}
-			int[] vals = new int[PAGE_SIZE];
-			int offs = nextOffs;
-			for (int i = pageStart + 1; i < pageEnd; i++, offs += PAGE_SIZE) {
-				MemContentsSub.ContentsInterface page = pages[i];
-				if (page == null) {
-					boolean allZeroes = true;
-					for (int j = 0; j < PAGE_SIZE; j++) {
-						if ((values[offs + j] & mask) != 0) {
-							allZeroes = false;
-							break;
-						}
-					}
-					if (!allZeroes) {
-						page = MemContentsSub.createContents(PAGE_SIZE, width);
-						pages[i] = page;
-					}
-				}
-				if (page != null) {
-					System.arraycopy(values, offs, vals, 0, PAGE_SIZE);
-					if (page.matches(vals, startOffs, mask)) {
-						int[] oldValues = page.get(0, PAGE_SIZE);
-						page.load(0, vals, mask);
-						if (page.isClear()) pages[i] = null;
-						fireBytesChanged((long) i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
-					}
-				}
-			}
-			if (endOffs >= 0) {
-				ensurePage(pageEnd);
-				vals = new int[endOffs + 1];
-				System.arraycopy(values, offs, vals, 0, endOffs + 1);
-				MemContentsSub.ContentsInterface page = pages[pageEnd];
-				if (page.matches(vals, startOffs, mask)) {
-					int[] oldValues = page.get(0, endOffs + 1);
-					page.load(0, vals, mask);
-					if (page.isClear()) pages[pageEnd] = null;
-					fireBytesChanged((long) pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
-				}
-			}
+		int done = 0;
+		while (done < values.length) {
+			long addr = start + done;
+			int page = (int) (addr >>> PAGE_SIZE_BITS);
+			int offs = (int) (addr & PAGE_MASK);
+			if (page < 0 || page >= pages.length || offs >= pageLength) return;
+			int n = Math.min(values.length - done, pageLength - offs);
+			store(page, offs, n, values, done, 0);
+			done += n;
 		}
 	}
 
 	public void fill(long start, long len, int value) {
-		if (len == 0) return;
-
-		int pageStart = (int) (start >>> PAGE_SIZE_BITS);
-		int startOffs = (int) (start & PAGE_MASK);
-		int pageEnd = (int) ((start + len - 1) >>> PAGE_SIZE_BITS);
-		int endOffs = (int) ((start + len - 1) & PAGE_MASK);
-		value &= mask;
-
-		if (pageStart == pageEnd) {
-			ensurePage(pageStart);
-			int[] vals = new int[(int) len];
-			Arrays.fill(vals, value);
-			MemContentsSub.ContentsInterface page = pages[pageStart];
-			if (page.matches(vals, startOffs, mask)) {
-				int[] oldValues = page.get(startOffs, (int) len);
-				page.load(startOffs, vals, mask);
-				if (value == 0 && page.isClear()) pages[pageStart] = null;
-				fireBytesChanged(start, len, oldValues);
-			}
+		long done = 0;
+		while (done < len) {
+			long addr = start + done;
+			int page = (int) (addr >>> PAGE_SIZE_BITS);
+			int offs = (int) (addr & PAGE_MASK);
+			if (page < 0 || page >= pages.length || offs >= pageLength) return;
+			int n = (int) Math.min(len - done, pageLength - offs);
+			store(page, offs, n, null, 0, value);
+			done += n;
+		}
+	}
+
+	// stores n words from values, or copies of fillValue if values is
+	// null, starting at the offset within the page
+	private void store(int page, int offs, int n, int[] values, int from,
+			int fillValue) {
+		Object data = pages[page];
+		boolean changed = false;
+		boolean zeroes = true;
+		for (int i = 0; i < n; i++) {
+			int val = (values == null ? fillValue : values[from + i]) & mask;
+			if (val != 0) zeroes = false;
+			if (val != (data == null ? 0 : read(data, offs + i))) changed = true;
+		}
+		if (!changed) return;
+
+		int[] oldValues = new int[n];
+		if (data != null) {
+			for (int i = 0; i < n; i++) oldValues[i] = read(data, offs + i);
+		}
+		if (zeroes && (n == pageLength || isClearOutside(page, offs, n))) {
+			pages[page] = null;
 		} else {
-			if (startOffs == 0) {
-				pageStart--;
-			} else {
-				if (value == 0 && pages[pageStart] == null) {
-					// nothing to do
-				} else {
-					ensurePage(pageStart);
-					int[] vals = new int[PAGE_SIZE - startOffs];
-					Arrays.fill(vals, value);
-					MemContentsSub.ContentsInterface page = pages[pageStart];
-					if (page.matches(vals, startOffs, mask)) {
-						int[] oldValues = page.get(startOffs, vals.length);
-						page.load(startOffs, vals, mask);
-						if (value == 0 && page.isClear()) pages[pageStart] = null;
-						fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
-					}
-				}
-			}
-			if (value == 0) {
-				for (int i = pageStart + 1; i < pageEnd; i++) {
-					if (pages[i] != null) clearPage(i);
-				}
-			} else {
-				int[] vals = new int[PAGE_SIZE];
-				Arrays.fill(vals, value);
-				for (int i = pageStart + 1; i < pageEnd; i++) {
-					ensurePage(i);
-					MemContentsSub.ContentsInterface page = pages[i];
-					if (page.matches(vals, 0, mask)) {
-						int[] oldValues = page.get(0, PAGE_SIZE);
-						page.load(0, vals, mask);
-						fireBytesChanged((long) i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
-					}
-				}
-			}
-			if (endOffs >= 0) {
-				MemContentsSub.ContentsInterface page = pages[pageEnd];
-				if (value == 0 && page == null) {
-					// nothing to do
-				} else {
-					ensurePage(pageEnd);
-					int[] vals = new int[endOffs + 1];
-					Arrays.fill(vals, value);
-					if (page.matches(vals, 0, mask)) {
-						int[] oldValues = page.get(0, endOffs + 1);
-						page.load(0, vals, mask);
-						if (value == 0 && page.isClear()) pages[pageEnd] = null;
-						fireBytesChanged((long) pageEnd << PAGE_SIZE_BITS, endOffs + 1, oldValues);
-					}
-				}
+			data = getWritablePage(page);
+			for (int i = 0; i < n; i++) {
+				int val = values == null ? fillValue : values[from + i];
+				write(data, offs + i, val & mask);
 			}
 		}
+		fireBytesChanged(((long) page << PAGE_SIZE_BITS) + offs, n, oldValues);
+	}
+
+	// whether the page is zero apart from the n words at the offset
+	private boolean isClearOutside(int page, int offs, int n) {
+		Object data = pages[page];
+		for (int j = 0; j < pageLength; j++) {
+			if ((j < offs || j >= offs + n) && read(data, j) != 0) return false;
+		}
+		return true;
 	}
 
 	public void clear() {
 		for (int i = 0; i < pages.length; i++) {
-			if (pages[i] != null) {
-				if (pages[i] != null) clearPage(i);
-			}
+			if (pages[i] != null) clearPage(i);
 		}
 	}
 
 	private void clearPage(int index) {
-		MemContentsSub.ContentsInterface page = pages[index];
-		int[] oldValues = new int[page.getLength()];
+		Object data = pages[index];
+		int[] oldValues = new int[pageLength];
 		boolean changed = false;
 		for (int j = 0; j < oldValues.length; j++) {
-			int val = page.get(j) & mask;
+			int val = read(data, j);
 			oldValues[j] = val;
 			if (val != 0) changed = true;
 		}
+		pages[index] = null;
 		if (changed) {
-			pages[index] = null;
-			fireBytesChanged(index << PAGE_SIZE_BITS, oldValues.length, oldValues);
+			fireBytesChanged((long) index << PAGE_SIZE_BITS, oldValues.length, oldValues);
 		}
 	}
 
 	public void setDimensions(int addrBits, int width) {
 		if (addrBits == this.addrBits && width == this.width) return;
+		Object[] oldPages = pages;
+		int oldWidth = this.width;
+		int oldLength = pageLength;
 		this.addrBits = addrBits;
 		this.width = width;
 		this.mask = width == 32 ? 0xffffffff : ((1 << width) - 1);
 
-		MemContentsSub.ContentsInterface[] oldPages = pages;
 		int pageCount;
-		int pageLength;
 		if (addrBits < PAGE_SIZE_BITS) {
 			pageCount = 1;
 			pageLength = 1 << addrBits;
@@ -314,16 +272,22 @@ class MemContents implements Cloneable, HexModel {
 			pageCount = 1 << (addrBits - PAGE_SIZE_BITS);
 			pageLength = PAGE_SIZE;
 		}
-		pages = new MemContentsSub.ContentsInterface[pageCount];
+		pages = new Object[pageCount];
+		shared = new boolean[pageCount];
 		if (oldPages != null) {
 			int n = Math.min(oldPages.length, pages.length);
+			int m = Math.min(oldLength, pageLength);
 			for (int i = 0; i < n; i++) {
-				if (oldPages[i] != null) {
-					pages[i] = MemContentsSub.createContents(pageLength, width);
-					int m = Math.max(oldPages[i].getLength(), pageLength);
+				Object old = oldPages[i];
+				if (old != null) {
+					Object data = createPage();
 					for (int j = 0; j < m; j++) {
-						pages[i].set(j, oldPages[i].get(j));
+						int val = oldWidth <= 8 ? ((byte[]) old)[j] & 0xff
+							: oldWidth <= 16 ? ((short[]) old)[j] & 0xffff
+							: ((int[]) old)[j];
+						write(data, j, val & mask);
 					}
+					pages[i] = data;
 				}
 			}
 		}
@@ -341,10 +305,4 @@ class MemContents implements Cloneable, HexModel {
 	public int getValueWidth() {
 		return width;
 	}
-
-	private void ensurePage(int index) {
-		if (pages[index] == null) {
-			pages[index] = MemContentsSub.createContents(PAGE_SIZE, width);
-		}
-	}
 }
@@ -98,11 +98,13 @@ class MemMenu implements ActionListener, MenuExtender {
 		File oldSelected = factory.getCurrentImage(instance);
 		if (oldSelected != null) chooser.setSelectedFile(oldSelected);
 		chooser.setDialogTitle(Strings.get("ramLoadDialogTitle"));
+		HexFile.addFilters(chooser, false);
 		int choice = chooser.showOpenDialog(frame);
 		if (choice == JFileChooser.APPROVE_OPTION) {
 			File f = chooser.getSelectedFile();
 			try {
-				factory.loadImage(circState.getInstanceState(instance), f);
+				factory.loadImage(circState.getInstanceState(instance), f,
+					HexFile.getFormat(chooser));
 			} catch (IOException e) {
 				JOptionPane.showMessageDialog(frame, e.getMessage(),
 					Strings.get("ramLoadErrorTitle"), JOptionPane.ERROR_MESSAGE);
@@ -117,11 +119,12 @@ class MemMenu implements ActionListener, MenuExtender {
 		File oldSelected = factory.getCurrentImage(instance);
 		if (oldSelected != null) chooser.setSelectedFile(oldSelected);
 		chooser.setDialogTitle(Strings.get("ramSaveDialogTitle"));
+		HexFile.addFilters(chooser, true);
 		int choice = chooser.showSaveDialog(frame);
 		if (choice == JFileChooser.APPROVE_OPTION) {
 			File f = chooser.getSelectedFile();
 			try {
-				HexFile.save(f, s.getContents());
+				HexFile.save(f, s.getContents(), HexFile.getFormat(chooser));
 				factory.setCurrentImage(instance, f);
 			} catch (IOException e) {
 				JOptionPane.showMessageDialog(frame, e.getMessage(),
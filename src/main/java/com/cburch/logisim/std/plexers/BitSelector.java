@@ -24,7 +24,7 @@ public class BitSelector extends InstanceFactory {
 		});
 		setKeyConfigurator(JoinedConfigurator.create(
 			new BitWidthConfigurator(GROUP_ATTR, 1, Value.MAX_WIDTH, 0),
-			new BitWidthConfigurator(StdAttr.WIDTH)));
+			new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH)));
 
 		setIconName("bitSelector.gif");
 		setFacingAttribute(StdAttr.FACING);
@@ -24,7 +24,7 @@ public class Multiplexer extends InstanceFactory {
 		});
 		setKeyConfigurator(JoinedConfigurator.create(
 			new BitWidthConfigurator(Plexers.ATTR_SELECT, 1, 5, 0),
-			new BitWidthConfigurator(StdAttr.WIDTH)));
+			new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH)));
 		setIconName("multiplexer.gif");
 		setFacingAttribute(StdAttr.FACING);
 	}
@@ -13,9 +13,11 @@ import java.awt.*;
 
 public class BitExtender extends InstanceFactory {
 	private static final Attribute<BitWidth> ATTR_IN_WIDTH
-		= Attributes.forBitWidth("in_width", Strings.getter("extenderInAttr"));
+		= Attributes.forBitWidth("in_width", Strings.getter("extenderInAttr"),
+		1, Value.MAX_WIDTH);
 	private static final Attribute<BitWidth> ATTR_OUT_WIDTH
-		= Attributes.forBitWidth("out_width", Strings.getter("extenderOutAttr"));
+		= Attributes.forBitWidth("out_width", Strings.getter("extenderOutAttr"),
+		1, Value.MAX_WIDTH);
 	private static final Attribute<AttributeOption> ATTR_TYPE
 		= Attributes.forOption("type", Strings.getter("extenderTypeAttr"),
 		new AttributeOption[]{
@@ -36,7 +38,7 @@ public class BitExtender extends InstanceFactory {
 		});
 		setFacingAttribute(StdAttr.FACING);
 		setKeyConfigurator(JoinedConfigurator.create(
-			new BitWidthConfigurator(ATTR_OUT_WIDTH),
+			new BitWidthConfigurator(ATTR_OUT_WIDTH, 1, Value.MAX_WIDTH),
 			new BitWidthConfigurator(ATTR_IN_WIDTH, 1, Value.MAX_WIDTH, 0)));
 		setOffsetBounds(Bounds.create(-40, -20, 40, 40));
 	}
@@ -18,8 +18,8 @@ import java.util.List;
 import java.util.Map;
 
 public class Constant extends InstanceFactory {
-	public static final Attribute<Integer> ATTR_VALUE
-		= Attributes.forHexInteger("value", Strings.getter("constantValueAttr"));
+	public static final Attribute<Long> ATTR_VALUE
+		= Attributes.forHexLong("value", Strings.getter("constantValueAttr"));
 	public static final InstanceFactory FACTORY = new Constant();
 	private static final Color BACKGROUND_COLOR = new Color(230, 230, 230);
 	private static final List<Attribute<?>> ATTRIBUTES
@@ -30,7 +30,7 @@ public class Constant extends InstanceFactory {
 		setFacingAttribute(StdAttr.FACING);
 		setKeyConfigurator(JoinedConfigurator.create(
 			new ConstantConfigurator(),
-			new BitWidthConfigurator(StdAttr.WIDTH)));
+			new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH)));
 	}
 
 	@Override
@@ -70,7 +70,7 @@ public class Constant extends InstanceFactory {
 	@Override
 	public void propagate(InstanceState state) {
 		BitWidth width = state.getAttributeValue(StdAttr.WIDTH);
-		int value = state.getAttributeValue(ATTR_VALUE);
+		long value = state.getAttributeValue(ATTR_VALUE);
 		state.setPort(0, Value.createKnown(width, value), 1);
 	}
 
@@ -79,113 +79,18 @@ public class Constant extends InstanceFactory {
 		Direction facing = attrs.getValue(StdAttr.FACING);
 		BitWidth width = attrs.getValue(StdAttr.WIDTH);
 		int chars = (width.getWidth() + 3) / 4;
+		int w = chars <= 2 ? 16 : 10 * chars - 4;
 
-		Bounds ret = null;
 		if (facing == Direction.EAST) {
-			switch (chars) {
-				case 1:
-				case 2:
-					ret = Bounds.create(-16, -8, 16, 16);
-					break;
-				case 3:
-					ret = Bounds.create(-26, -8, 26, 16);
-					break;
-				case 4:
-					ret = Bounds.create(-36, -8, 36, 16);
-					break;
-				case 5:
-					ret = Bounds.create(-46, -8, 46, 16);
-					break;
-				case 6:
-					ret = Bounds.create(-56, -8, 56, 16);
-					break;
-				case 7:
-					ret = Bounds.create(-66, -8, 66, 16);
-					break;
-				case 8:
-					ret = Bounds.create(-76, -8, 76, 16);
-					break;
-			}
+			return Bounds.create(-w, -8, w, 16);
 		} else if (facing == Direction.WEST) {
-			switch (chars) {
-				case 1:
-				case 2:
-					ret = Bounds.create(0, -8, 16, 16);
-					break;
-				case 3:
-					ret = Bounds.create(0, -8, 26, 16);
-					break;
-				case 4:
-					ret = Bounds.create(0, -8, 36, 16);
-					break;
-				case 5:
-					ret = Bounds.create(0, -8, 46, 16);
-					break;
-				case 6:
-					ret = Bounds.create(0, -8, 56, 16);
-					break;
-				case 7:
-					ret = Bounds.create(0, -8, 66, 16);
-					break;
-				case 8:
-					ret = Bounds.create(0, -8, 76, 16);
-					break;
-			}
+			return Bounds.create(0, -8, w, 16);
 		} else if (facing == Direction.SOUTH) {
-			switch (chars) {
-				case 1:
-				case 2:
-					ret = Bounds.create(-8, -16, 16, 16);
-					break;
-				case 3:
-					ret = Bounds.create(-13, -16, 26, 16);
-					break;
-				case 4:
-					ret = Bounds.create(-18, -16, 36, 16);
-					break;
-				case 5:
-					ret = Bounds.create(-23, -16, 46, 16);
-					break;
-				case 6:
-					ret = Bounds.create(-28, -16, 56, 16);
-					break;
-				case 7:
-					ret = Bounds.create(-33, -16, 66, 16);
-					break;
-				case 8:
-					ret = Bounds.create(-38, -16, 76, 16);
-					break;
-			}
+			return Bounds.create(-w / 2, -16, w, 16);
 		} else if (facing == Direction.NORTH) {
-			switch (chars) {
-				case 1:
-				case 2:
-					ret = Bounds.create(-8, 0, 16, 16);
-					break;
-				case 3:
-					ret = Bounds.create(-13, 0, 26, 16);
-					break;
-				case 4:
-					ret = Bounds.create(-18, 0, 36, 16);
-					break;
-				case 5:
-					ret = Bounds.create(-23, 0, 46, 16);
-					break;
-				case 6:
-					ret = Bounds.create(-28, 0, 56, 16);
-					break;
-				case 7:
-					ret = Bounds.create(-33, 0, 66, 16);
-					break;
-				case 8:
-					ret = Bounds.create(-38, 0, 76, 16);
-					break;
-			}
-		}
-		if (ret == null) {
-			throw new IllegalArgumentException("unrecognized arguments " + facing + " " + width);
+			return Bounds.create(-w / 2, 0, w, 16);
 		}
-		return ret;
+		throw new IllegalArgumentException("unrecognized arguments " + facing + " " + width);
 	}
 
 	//
@@ -211,7 +116,7 @@ public class Constant extends InstanceFactory {
 
 		Graphics g = painter.getGraphics();
 		if (w == 1) {
-			int v = painter.getAttributeValue(ATTR_VALUE);
+			long v = painter.getAttributeValue(ATTR_VALUE);
 			Value val = v == 1 ? Value.TRUE : Value.FALSE;
 			g.setColor(val.getColor());
 			GraphicsUtil.drawCenteredText(g, "" + v, 10, 9);
@@ -224,8 +129,8 @@ public class Constant extends InstanceFactory {
 
 	@Override
 	public void paintGhost(InstancePainter painter) {
-		int v = painter.getAttributeValue(ATTR_VALUE);
-		String vStr = Integer.toHexString(v);
+		long v = painter.getAttributeValue(ATTR_VALUE);
+		String vStr = Long.toHexString(v);
 		Bounds bds = getOffsetBounds(painter.getAttributeSet());
 
 		Graphics g = painter.getGraphics();
@@ -239,8 +144,8 @@ public class Constant extends InstanceFactory {
 	public void paintInstance(InstancePainter painter) {
 		Bounds bds = painter.getOffsetBounds();
 		BitWidth width = painter.getAttributeValue(StdAttr.WIDTH);
-		int intValue = painter.getAttributeValue(ATTR_VALUE);
-		Value v = Value.createKnown(width, intValue);
+		long longValue = painter.getAttributeValue(ATTR_VALUE);
+		Value v = Value.createKnown(width, longValue);
 		Location loc = painter.getLocation();
 		int x = loc.getX();
 		int y = loc.getY();
@@ -287,7 +192,7 @@ public class Constant extends InstanceFactory {
 		public <V> V getValue(Attribute<V> attr) {
 			if (attr == StdAttr.FACING) return (V) facing;
 			if (attr == StdAttr.WIDTH) return (V) width;
-			if (attr == ATTR_VALUE) return (V) Integer.valueOf(value.toIntValue());
+			if (attr == ATTR_VALUE) return (V) Long.valueOf(value.toLongValue());
 			return null;
 		}
 
@@ -300,7 +205,7 @@ public class Constant extends InstanceFactory {
 				this.value = this.value.extendWidth(width.getWidth(),
 					this.value.get(this.value.getWidth() - 1));
 			} else if (attr == ATTR_VALUE) {
-				int val = (Integer) value;
+				long val = (Long) value;
 				this.value = Value.createKnown(width, val);
 			} else {
 				throw new IllegalArgumentException("unknown attribute " + attr);
@@ -318,10 +223,10 @@ public class Constant extends InstanceFactory {
 
 		public void computeExpression(Map<Location, Expression> expressionMap) {
 			AttributeSet attrs = instance.getAttributeSet();
-			int intValue = attrs.getValue(ATTR_VALUE);
+			long longValue = attrs.getValue(ATTR_VALUE);
 
 			expressionMap.put(instance.getLocation(),
-				Expressions.constant(intValue));
+				Expressions.constant((int) longValue));
 		}
 	}
 
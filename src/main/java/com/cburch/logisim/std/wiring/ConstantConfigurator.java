@@ -6,31 +6,17 @@ package com.cburch.logisim.std.wiring;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.instance.StdAttr;
-import com.cburch.logisim.tools.key.IntegerConfigurator;
+import com.cburch.logisim.tools.key.LongConfigurator;
 
-class ConstantConfigurator extends IntegerConfigurator {
+class ConstantConfigurator extends LongConfigurator {
 	public ConstantConfigurator() {
 		super(Constant.ATTR_VALUE, 0, 0, 0, 16);
 	}
 
+	// values typed in are at most 31 bits, being kept in an int
 	@Override
 	public int getMaximumValue(AttributeSet attrs) {
 		BitWidth width = attrs.getValue(StdAttr.WIDTH);
-		int ret = width.getMask();
-		if (ret >= 0) {
-			return ret;
-		} else {
-			return Integer.MAX_VALUE;
-		}
-	}
-
-	@Override
-	public int getMinimumValue(AttributeSet attrs) {
-		BitWidth width = attrs.getValue(StdAttr.WIDTH);
-		if (width.getWidth() < 32) {
-			return 0;
-		} else {
-			return Integer.MIN_VALUE;
-		}
+		return width.getWidth() < 31 ? width.getMask() : Integer.MAX_VALUE;
 	}
 }
@@ -47,7 +47,7 @@ public class Pin extends InstanceFactory {
 		super("Pin", Strings.getter("pinComponent"));
 		setFacingAttribute(StdAttr.FACING);
 		setKeyConfigurator(JoinedConfigurator.create(
-			new BitWidthConfigurator(StdAttr.WIDTH),
+			new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH),
 			new DirectionConfigurator(ATTR_LABEL_LOC, KeyEvent.ALT_DOWN_MASK)));
 		setInstanceLogger(PinLogger.class);
 		setInstancePoker(PinPoker.class);
@@ -280,24 +280,7 @@ public class Pin extends InstanceFactory {
 			state.setPort(0, Value.createUnknown(attrs.width), 1);
 		} else {
 			Value found = state.getPort(0);
-			Value toSend = q.intendedValue;
-
-			Object pull = attrs.pull;
-			Value pullTo = null;
-			if (pull == PULL_DOWN) {
-				pullTo = Value.FALSE;
-			} else if (pull == PULL_UP) {
-				pullTo = Value.TRUE;
-			} else if (!attrs.threeState && !state.isCircuitRoot()) {
-				pullTo = Value.FALSE;
-			}
-			if (pullTo != null) {
-				toSend = pull2(toSend, attrs.width, pullTo);
-				if (state.isCircuitRoot()) {
-					q.intendedValue = toSend;
-				}
-			}
-
+			Value toSend = computeSendValue(state, attrs, q);
 			q.foundValue = found;
 			if (!toSend.equals(found)) { // ignore if no change
 				state.setPort(0, toSend, 1);
@@ -305,6 +288,28 @@ public class Pin extends InstanceFactory {
 		}
 	}
 
+	private static Value computeSendValue(InstanceState state,
+										  PinAttributes attrs, PinState q) {
+		Value toSend = q.intendedValue;
+
+		Object pull = attrs.pull;
+		Value pullTo = null;
+		if (pull == PULL_DOWN) {
+			pullTo = Value.FALSE;
+		} else if (pull == PULL_UP) {
+			pullTo = Value.TRUE;
+		} else if (!attrs.threeState && !state.isCircuitRoot()) {
+			pullTo = Value.FALSE;
+		}
+		if (pullTo != null) {
+			toSend = pull2(toSend, attrs.width, pullTo);
+			if (state.isCircuitRoot()) {
+				q.intendedValue = toSend;
+			}
+		}
+		return toSend;
+	}
+
 	//
 	// basic information methods
 	//
@@ -330,6 +335,26 @@ public class Pin extends InstanceFactory {
 		return getState(state).intendedValue;
 	}
 
+	/**
+	 * Returns the value an input pin drives onto its wire, as
+	 * <code>propagate</code> would send it, without sending it.
+	 */
+	public Value getDrivenValue(InstanceState state) {
+		PinAttributes attrs = (PinAttributes) state.getAttributeSet();
+		return computeSendValue(state, attrs, getState(state));
+	}
+
+	/**
+	 * Records the value on the pin's wire for display, as
+	 * <code>propagate</code> would, without sending anything.
+	 */
+	public void setFoundValue(InstanceState state, Value value) {
+		PinAttributes attrs = (PinAttributes) state.getAttributeSet();
+		PinState q = getState(state);
+		if (attrs.type == EndData.OUTPUT_ONLY) q.intendedValue = value;
+		q.foundValue = value;
+	}
+
 	public void setValue(InstanceState state, Value value) {
 		PinAttributes attrs = (PinAttributes) state.getAttributeSet();
 		Object pull = attrs.pull;
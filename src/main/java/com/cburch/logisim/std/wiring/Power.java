@@ -22,7 +22,7 @@ public class Power extends InstanceFactory {
 		setAttributes(new Attribute[]{StdAttr.FACING, StdAttr.WIDTH},
 			new Object[]{Direction.NORTH, BitWidth.ONE});
 		setFacingAttribute(StdAttr.FACING);
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH));
 		setPorts(new Port[]{new Port(0, 0, Port.OUTPUT, StdAttr.WIDTH)});
 	}
 
@@ -303,6 +303,14 @@ public class Probe extends InstanceFactory {
 					break;
 			}
 		}
+		if (ret == null && len > 32) {
+			// wider buses take another row for every eight bits
+			int h = 20 * ((len + 7) / 8);
+			if (dir == Direction.EAST) ret = Bounds.create(-80, -h / 2, 80, h);
+			else if (dir == Direction.WEST) ret = Bounds.create(0, -h / 2, 80, h);
+			else if (dir == Direction.SOUTH) ret = Bounds.create(-40, -h, 80, h);
+			else if (dir == Direction.NORTH) ret = Bounds.create(-40, 0, 80, h);
+		}
 		if (ret == null) {
 			ret = Bounds.create(0, -10, 20, 20); // should never happen
 		}
@@ -42,7 +42,7 @@ public class Transistor extends InstanceFactory {
 			new Object[]{TYPE_P, Direction.EAST,
 				Wiring.GATE_TOP_LEFT, BitWidth.ONE});
 		setFacingAttribute(StdAttr.FACING);
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH));
 	}
 
 	@Override
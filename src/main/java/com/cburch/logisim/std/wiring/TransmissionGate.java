@@ -28,7 +28,7 @@ public class TransmissionGate extends InstanceFactory {
 		setAttributes(new Attribute[]{StdAttr.FACING, Wiring.ATTR_GATE, StdAttr.WIDTH},
 			new Object[]{Direction.EAST, Wiring.GATE_TOP_LEFT, BitWidth.ONE});
 		setFacingAttribute(StdAttr.FACING);
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH));
 	}
 
 	@Override
@@ -23,7 +23,7 @@ public class Tunnel extends InstanceFactory {
 		super("Tunnel", Strings.getter("tunnelComponent"));
 		setIconName("tunnel.gif");
 		setFacingAttribute(StdAttr.FACING);
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, Value.MAX_WIDTH));
 	}
 
 	@Override
@@ -47,6 +47,11 @@ public class SetAttributeAction extends Action {
 		return !comps.isEmpty();
 	}
 
+	@Override
+	public boolean isRecordedByTransactions() {
+		return true;
+	}
+
 	@Override
 	public String getName() {
 		return nameGetter.get();
@@ -5,7 +5,6 @@ package com.cburch.logisim.tools.key;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.BitWidth;
-import com.cburch.logisim.data.Value;
 
 import java.awt.event.InputEvent;
 
@@ -18,8 +17,10 @@ public class BitWidthConfigurator extends NumericConfigurator<BitWidth> {
 		super(attr, min, max, InputEvent.ALT_DOWN_MASK);
 	}
 
+	// components that handle buses wider than an int ask for
+	// Value.MAX_WIDTH explicitly
 	public BitWidthConfigurator(Attribute<BitWidth> attr) {
-		super(attr, 1, Value.MAX_WIDTH, InputEvent.ALT_DOWN_MASK);
+		super(attr, 1, 32, InputEvent.ALT_DOWN_MASK);
 	}
 
 	@Override
@@ -0,0 +1,22 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.tools.key;
+
+import com.cburch.logisim.data.Attribute;
+
+public class LongConfigurator extends NumericConfigurator<Long> {
+	public LongConfigurator(Attribute<Long> attr, int min, int max, int modifiersEx) {
+		super(attr, min, max, modifiersEx);
+	}
+
+	protected LongConfigurator(Attribute<Long> attr, int min, int max,
+							   int modifiersEx, int radix) {
+		super(attr, min, max, modifiersEx, radix);
+	}
+
+	@Override
+	protected Long createValue(int val) {
+		return (long) val;
+	}
+}
@@ -0,0 +1,173 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of immutable objects that lets a class hand out one instance
+ * for equal values, usable from any number of threads without locks.
+ * It is two-way set associative: a hit in the second way of a set moves
+ * the entry to the first, and a new entry pushes the first way's entry
+ * into the second. Two threads racing on one set can only lose an
+ * entry, so callers must never rely on instances being unique. The
+ * cache doubles in size, up to a limit, when it keeps missing on a
+ * working set larger than it is.
+ * <p>
+ * A subclass says how an entry is compared with the fields of the
+ * object being looked up; lookups pass up to four such fields, so that
+ * a hit does not allocate anything.
+ */
+public abstract class InternCache<T> {
+	private static final List<InternCache<?>> caches = new CopyOnWriteArrayList<>();
+
+	private static final int MIN_SETS = 1 << 11;
+	private static final int MAX_SETS = 1 << 16;
+
+	private final String name;
+	private volatile Table<T> table;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private long hitsAtCheck = 0;
+	private long missesAtCheck = 0;
+
+	protected InternCache(String name) {
+		this.name = name;
+		this.table = new Table<>(2 * MIN_SETS);
+		caches.add(this);
+	}
+
+	public static List<InternCache<?>> getCaches() {
+		return Collections.unmodifiableList(caches);
+	}
+
+	/** Returns whether <code>entry</code> holds the given fields. */
+	protected abstract boolean matches(T entry, long a, long b, long c, long d);
+
+	/**
+	 * Returns a cached entry matching the fields, or null if there is
+	 * none, in which case the caller should create one and pass it to
+	 * {@link #put}. The hash code must be the one the entry's
+	 * <code>hashCode</code> method would return.
+	 */
+	public T get(int hashCode, long a, long b, long c, long d) {
+		Table<T> data = table;
+		int set = data.indexOf(hashCode);
+		// the hash codes only filter out entries without fetching them;
+		// a stale one can at worst cause a miss
+		T first = null;
+		if (data.hashes[set] == hashCode) {
+			first = data.entries.get(set);
+			if (first != null && matches(first, a, b, c, d)) {
+				hits.increment();
+				return first;
+			}
+		}
+		if (data.hashes[set + 1] == hashCode) {
+			T second = data.entries.get(set + 1);
+			if (second != null && matches(second, a, b, c, d)) {
+				if (first == null) first = data.entries.get(set);
+				data.store(set + 1, first);
+				data.store(set, second);
+				hits.increment();
+				return second;
+			}
+		}
+		return null;
+	}
+
+	/** Adds an entry that {@link #get} just missed, and returns it. */
+	public T put(int hashCode, T value) {
+		misses.increment();
+		if ((mix(hashCode) >>> 22) == 0) considerGrowing();
+		Table<T> data = table;
+		int set = data.indexOf(hashCode);
+		data.store(set + 1, data.entries.get(set));
+		data.store(set, value);
+		return value;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public int getCapacity() {
+		return table.entries.length();
+	}
+
+	@Override
+	public String toString() {
+		long h = getHits();
+		long m = getMisses();
+		return name + ": " + h + " hits, " + m + " misses ("
+			+ (h + m == 0 ? 0 : 100 * h / (h + m)) + "% hits), "
+			+ getCapacity() + " entries";
+	}
+
+	// Called on a sample of misses. Once the misses since the table
+	// last grew outnumber its entries and are over a quarter of the
+	// lookups, the working set does not fit, as opposed to a circuit
+	// that merely keeps producing new objects, and the table doubles.
+	private synchronized void considerGrowing() {
+		Table<T> data = table;
+		int size = data.entries.length();
+		if (size >= 2 * MAX_SETS) return;
+		long h = hits.sum() - hitsAtCheck;
+		long m = misses.sum() - missesAtCheck;
+		if (m <= size) return;
+		if (4 * m > h + m) {
+			Table<T> bigger = new Table<>(2 * size);
+			// keep the most recent entries; the rest come back on demand
+			for (int i = 0; i < size; i += 2) {
+				T entry = data.entries.get(i);
+				if (entry != null) {
+					bigger.store(bigger.indexOf(entry.hashCode()), entry);
+				}
+			}
+			table = bigger;
+		}
+		hitsAtCheck += h;
+		missesAtCheck += m;
+	}
+
+	private static class Table<T> {
+		final AtomicReferenceArray<T> entries;
+		final int[] hashes;
+
+		Table(int size) {
+			entries = new AtomicReferenceArray<>(size);
+			hashes = new int[size];
+		}
+
+		int indexOf(int hashCode) {
+			return (mix(hashCode) & ((hashes.length >> 1) - 1)) << 1;
+		}
+
+		void store(int index, T entry) {
+			if (entry != null) hashes[index] = entry.hashCode();
+			entries.lazySet(index, entry);
+		}
+	}
+
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}